@@ -0,0 +1,7 @@
+#!/bin/sh
+# Run the Library Management System (Linux/macOS counterpart of run.bat)
+# Build first, from LibraryManagementSystem_v3.0:  mvn -B package
+# Arguments are passed on, e.g. ./run.sh --server 8080
+# LIBRARY_DATA=<directory> runs on the data files in that directory instead (e.g. from DatasetGenerator)
+cd "$(dirname "$0")"
+exec java -cp "target/classes:${LIBRARY_DATA:-../src/main/resources}" com.library.Main "$@"
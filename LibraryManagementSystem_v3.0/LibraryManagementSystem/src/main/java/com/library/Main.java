@@ -1,17 +1,39 @@
 package com.library;
 
+import com.library.controller.HttpController;
 import com.library.controller.MenuController;
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.model.User;
 import com.library.service.BookService;
 import com.library.service.UserService;
 import com.library.service.BorrowService;
-import java.io.BufferedReader;
+import com.library.service.CirculationService;
+import com.library.service.ReservationService;
+import com.library.storage.BinaryCatalogSnapshot;
+import com.library.storage.ChunkedFileParser;
+import com.library.storage.FlushScheduler;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.net.InetAddress;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static com.library.controller.MenuController.printMenu;
 
@@ -40,82 +62,299 @@ public class Main {
     private static final BookService bookService = new BookService();
     private static final UserService userService = new UserService();
     private static final BorrowService borrowService = new BorrowService();
+    private static final CirculationService circulationService = new CirculationService(bookService, userService, borrowService);
+    private static final ReservationService reservationService = new ReservationService(bookService, userService, circulationService);
+    // Shared scheduler that coalesces the services' change-log writes
+    // (tune with -Dlibrary.flush.maxDelayMs=... and -Dlibrary.flush.maxPending=...)
+    private static final FlushScheduler flushScheduler = new FlushScheduler(
+            Long.getLong("library.flush.maxDelayMs", FlushScheduler.DEFAULT_MAX_DELAY_MILLIS),
+            Integer.getInteger("library.flush.maxPending", FlushScheduler.DEFAULT_MAX_PENDING_MUTATIONS));
     // Data file names (in resources folder)
     private static final String RESOURCE_BASE = "";
     private static final String BOOK_DATA_FILE = RESOURCE_BASE + "books.txt";
     private static final String USER_DATA_FILE = RESOURCE_BASE + "users.txt";
     private static final String BORROW_RECORD_DATA_FILE = RESOURCE_BASE + "borrow_records.txt";
+    // Binary book snapshot, written with books.txt on every save; used instead of books.txt unless it is older
+    // (can also be made by hand: java com.library.storage.BinaryCatalogSnapshot to-binary books.txt books.bin)
+    private static final String BOOK_SNAPSHOT_FILE = RESOURCE_BASE + "books.bin";
+    // Opened binary book snapshot (null if there is none or it cannot be read)
+    private static BinaryCatalogSnapshot bookSnapshot = null;
+    // Days a loan lasts before it is overdue (-Dlibrary.loanDays=...)
+    private static final int LOAN_PERIOD_DAYS = Integer.getInteger("library.loanDays", BorrowService.DEFAULT_LOAN_PERIOD_DAYS);
+    // Port used by --server when none is given
+    private static final int DEFAULT_SERVER_PORT = 8080;
+    // Load all data at startup instead of on first use (-Dlibrary.load=eager)
+    private static final boolean EAGER_LOADING = "eager".equalsIgnoreCase(System.getProperty("library.load"));
 
-    // Static block: Load data when class is initialized
-    static {
-        loadBooksFromFile(BOOK_DATA_FILE);
-        loadUsersFromFile(USER_DATA_FILE);
-        loadBorrowRecordsFromFile(BORROW_RECORD_DATA_FILE);
+    /**
+     * Prepare the services and saving
+     * <p>
+     * Data is not read here: each service loads its file on first use, so a session that only looks
+     * up one ISBN does not pay for loading everything. With a binary snapshot, that lookup reads
+     * a few pages of the snapshot and nothing else. Run with -Dlibrary.load=eager to load all
+     * files in parallel at startup instead.
+     */
+    private static void initializeData() {
+        bookSnapshot = openBookSnapshot(BOOK_SNAPSHOT_FILE);
         // Set file paths for saving (try to get absolute path to resources folder)
         setBookDataFilePath();
         setUserDataFilePath();
         setBorrowRecordDataFilePath();
+        // Loaders run on first access; they also apply changes logged since the files were last written
+        bookService.setLoader(Main::loadBookData);
+        bookService.setPagedSnapshot(bookSnapshot);
+        // Returned copies, and copies added by editing a book, go to the first waiting hold
+        circulationService.setHoldQueue(reservationService);
+        bookService.setCopiesAddedListener(reservationService::copiesAdded);
+        userService.setLoader(() -> loadUsersFromFile(USER_DATA_FILE));
+        borrowService.setLoader(() -> loadBorrowRecordsFromFile(BORROW_RECORD_DATA_FILE));
+        borrowService.setLoanPeriodDays(LOAN_PERIOD_DAYS);
+        // Changes are written to the logs in groups
+        bookService.setFlushScheduler(flushScheduler);
+        userService.setFlushScheduler(flushScheduler);
+        borrowService.setFlushScheduler(flushScheduler);
+        if (EAGER_LOADING) {
+            loadAllDataInParallel();
+        }
 
         // Add shutdown hook to save data when program exits
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("\nSaving data...");
+            flushScheduler.shutdown();
             saveAllData();
             System.out.println("Data saved, program exiting.");
         }));
     }
 
     public static void main(String[] args) {
+        // Load data and register the save-on-exit hook
+        initializeData();
+        // Server mode: java com.library.Main --server [port]
+        if (args.length > 0 && "--server".equals(args[0])) {
+            startServer(args);
+            return;
+        }
         // Show the system interface
         printMenu();
         // Create menu controller with dependencies
-        MenuController menuController = new MenuController(scanner, bookService, userService, borrowService);
+        MenuController menuController = new MenuController(scanner, bookService, userService, borrowService,
+                circulationService, reservationService, flushScheduler);
         // Start main menu
         menuController.startMainMenu();
         // Close scanner to prevent resource leak
         scanner.close();
     }
 
+    /**
+     * Serve the services as JSON over HTTP instead of showing the menu
+     * The server runs until the program is stopped (Ctrl+C); the shutdown hook then saves all data.
+     * @param args Command line arguments: --server [port] [bind address] (default port DEFAULT_SERVER_PORT;
+     *             without a bind address only this machine can connect, 0.0.0.0 listens on all interfaces)
+     */
+    private static void startServer(String[] args) {
+        int port = DEFAULT_SERVER_PORT;
+        if (args.length > 1) {
+            try {
+                port = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                System.out.println("Error: Invalid port \"" + args[1] + "\", using " + DEFAULT_SERVER_PORT);
+            }
+        }
+        InetAddress bindAddress = InetAddress.getLoopbackAddress();
+        if (args.length > 2) {
+            try {
+                bindAddress = InetAddress.getByName(args[2]);
+            } catch (UnknownHostException e) {
+                System.out.println("Error: Unknown bind address \"" + args[2] + "\", server not started");
+                return;
+            }
+        }
+        HttpController httpController = new HttpController(bookService, userService, borrowService,
+                circulationService, reservationService);
+        try {
+            httpController.start(bindAddress, port);
+        } catch (IOException e) {
+            System.out.println("Error: Could not start server on port " + port + ": " + e.getMessage());
+            return;
+        }
+        // Report newly overdue loans once a day while the server runs
+        ScheduledExecutorService overdueSweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "library-overdue-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        overdueSweeper.scheduleAtFixedRate(Main::sweepOverdueLoans, 0, 1, TimeUnit.DAYS);
+    }
+
+    /**
+     * Print the loans that became overdue since the last sweep
+     */
+    private static void sweepOverdueLoans() {
+        List<BorrowRecord> newlyOverdue = borrowService.sweepNewlyOverdue(LocalDate.now());
+        System.out.println("Overdue sweep: " + newlyOverdue.size() + " loan(s) newly overdue");
+        for (BorrowRecord record : newlyOverdue) {
+            System.out.println("  Record ID: " + record.getBorrowId() + " | Borrow Date: " + record.getBorrowDate()
+                    + (record.isLinked() ? " | User ID: " + record.getUserId() + " | ISBN: " + record.getIsbn() : ""));
+        }
+    }
+
+    /**
+     * Load books, users and borrow records at the same time (eager loading)
+     * Each service is loaded on its own thread; the lines of each file are parsed in parallel
+     * on the common fork-join pool. Each service is filled by one thread only.
+     */
+    private static void loadAllDataInParallel() {
+        long start = System.nanoTime();
+        ExecutorService loaders = Executors.newFixedThreadPool(3);
+        try {
+            CompletableFuture<Void> books = CompletableFuture.runAsync(bookService::ensureLoaded, loaders);
+            CompletableFuture<Void> users = CompletableFuture.runAsync(userService::ensureLoaded, loaders);
+            CompletableFuture<Void> records = CompletableFuture.runAsync(borrowService::ensureLoaded, loaders);
+            CompletableFuture.allOf(books, users, records).join();
+        } catch (CompletionException e) {
+            System.out.println("Error occurred while loading data: " + e.getCause());
+        } finally {
+            loaders.shutdown();
+        }
+        System.out.println("All data loaded in " + elapsedMillis(start) + " ms");
+    }
+
+    /**
+     * Find a data file in the resources folder
+     * A file on disk is parsed in place; a resource inside a jar is copied to a temporary file first,
+     * because the parser reads byte ranges of a file instead of the whole text at once.
+     * @param fileName Name of the data file (relative to resources folder)
+     * @return Path of the file, or null if the file does not exist
+     * @throws IOException If a packaged resource cannot be copied
+     */
+    private static Path findResourceFile(String fileName) throws IOException {
+        URL resourceUrl = Main.class.getClassLoader().getResource(fileName);
+        if (resourceUrl == null) {
+            return null;
+        }
+        if ("file".equals(resourceUrl.getProtocol())) {
+            try {
+                return Paths.get(resourceUrl.toURI());
+            } catch (URISyntaxException e) {
+                // Copy it like a packaged resource
+            }
+        }
+        Path copy = Files.createTempFile("library-", "-" + fileName);
+        copy.toFile().deleteOnExit();
+        try (InputStream is = resourceUrl.openStream()) {
+            Files.copy(is, copy, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return copy;
+    }
+
+    // Milliseconds since a System.nanoTime() value
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
     /**
      * Load book data from a text file.
      * File format: bookTitle,author,ISBN,totalQuantity,borrowedQuantity
      * Skips invalid lines (wrong format, non-numeric quantities).
+     * Records (CSV, quoted fields allowed) are parsed in parallel chunks, then added to the service in file order.
      *
      * @param fileName Name of the book data file (relative to resources folder)
      */
     private static void loadBooksFromFile(String fileName) {
-        try (InputStream is = Main.class.getClassLoader().getResourceAsStream(fileName);
-                BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-
-            String line;
-            while ((line = br.readLine()) != null) {
-                // Skip empty lines or comment lines (starting with #)
-                String trimmedLine = line.trim();
-                if (trimmedLine.isEmpty() || trimmedLine.startsWith("#")) {
-                    continue;
-                }
-
-                String[] parts = trimmedLine.split(",");
-                if (parts.length == 5) {
-                    try {
-                        String name = parts[0].trim();
-                        String author = parts[1].trim();
-                        String isbn = parts[2].trim();
-                        int quantity = Integer.parseInt(parts[3].trim());
-                        int borrowed = Integer.parseInt(parts[4].trim());
-                        // Add book to service
-                        bookService.addBook(new com.library.model.Book(name, author, isbn, quantity, borrowed));
-                    } catch (NumberFormatException e) {
-                        System.out.println("Skip invalid line: " + line + ". Reason: " + e.getMessage());
-                    }
-                } else {
-                    System.out.println("Skip line with wrong format: " + line);
-                }
+        long start = System.nanoTime();
+        try {
+            Path file = findResourceFile(fileName);
+            if (file == null) {
+                System.out.println("Book data file not found: " + fileName);
+                return;
             }
-            System.out.println("Book data loaded successfully!");
+            List<Book> books = ChunkedFileParser.parse(file, Main::parseBookRecord, ForkJoinPool.commonPool());
+            int added = bookService.loadBooks(books);
+            System.out.println("Book data loaded successfully! (" + added + " books in " + elapsedMillis(start) + " ms)");
         } catch (IOException e) {
             System.out.println("Failed to load book data: " + e.getMessage());
-        } catch (NullPointerException e) {
-            System.out.println("Book data file not found: " + fileName);
+        }
+    }
+
+    /**
+     * Parse one record of the book data file
+     * Empty and comment lines never get here (CsvReader skips them); fields are already trimmed.
+     * @param fields Fields of one books.txt record
+     * @return Parsed book, or null for invalid records
+     */
+    private static Book parseBookRecord(List<String> fields) {
+        if (fields.size() != 5) {
+            System.out.println("Skip line with wrong format: " + String.join(",", fields));
+            return null;
+        }
+        try {
+            String name = fields.get(0);
+            String author = fields.get(1);
+            String isbn = fields.get(2);
+            int quantity = Integer.parseInt(fields.get(3));
+            int borrowed = Integer.parseInt(fields.get(4));
+            return new Book(name, author, isbn, quantity, borrowed);
+        } catch (NumberFormatException e) {
+            System.out.println("Skip invalid line: " + String.join(",", fields) + ". Reason: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Open the binary book snapshot, if there is one
+     * Only the header is read; records are paged in when they are looked up or loaded.
+     * A snapshot older than the text file is ignored (books.txt was edited by hand since the last save).
+     *
+     * @param fileName Name of the snapshot file (relative to resources folder)
+     * @return Opened snapshot, or null to use the text file
+     */
+    private static BinaryCatalogSnapshot openBookSnapshot(String fileName) {
+        URL snapshotUrl = Main.class.getClassLoader().getResource(fileName);
+        if (snapshotUrl == null || !"file".equals(snapshotUrl.getProtocol())) {
+            return null;
+        }
+        try {
+            Path snapshotFile = Paths.get(snapshotUrl.toURI());
+            Path textFile = snapshotFile.resolveSibling(BOOK_DATA_FILE);
+            if (Files.exists(textFile) && Files.getLastModifiedTime(textFile).compareTo(Files.getLastModifiedTime(snapshotFile)) > 0) {
+                System.out.println("Book snapshot is older than " + BOOK_DATA_FILE + ", using text file instead");
+                return null;
+            }
+            return BinaryCatalogSnapshot.open(snapshotFile);
+        } catch (Exception e) {
+            System.out.println("Failed to open book snapshot, using text file instead: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Load book data (loader of the book service, runs on first access)
+     * Reads the binary snapshot if there is one, otherwise the text file.
+     */
+    private static void loadBookData() {
+        if (bookSnapshot != null && loadBooksFromSnapshot(bookSnapshot)) {
+            return;
+        }
+        loadBooksFromFile(BOOK_DATA_FILE);
+    }
+
+    /**
+     * Load book data from the binary snapshot
+     * The snapshot is memory-mapped, so no text has to be split or parsed.
+     *
+     * @param snapshot Opened snapshot
+     * @return true if the snapshot was loaded; false to fall back to the text file
+     */
+    private static boolean loadBooksFromSnapshot(BinaryCatalogSnapshot snapshot) {
+        try {
+            long start = System.nanoTime();
+            int added = bookService.loadBooks(snapshot.readAll());
+            System.out.println("Book data loaded successfully from snapshot! (" + added + " books in "
+                    + elapsedMillis(start) + " ms)");
+            return true;
+        } catch (RuntimeException e) {
+            System.out.println("Failed to load book snapshot, using text file instead: " + e.getMessage());
+            return false;
         }
     }
 
@@ -224,91 +463,97 @@ public class Main {
         String filePath = getResourceFilePath(BOOK_DATA_FILE);
         bookService.setFilePath(filePath);
         System.out.println("Book data will be saved to: " + filePath);
+        // Written on every save (also creates it), so the next start can load the books without parsing text
+        String snapshotPath = getResourceFilePath(BOOK_SNAPSHOT_FILE);
+        bookService.setBinarySnapshotPath(snapshotPath);
+        System.out.println("Book snapshot will be saved to: " + snapshotPath);
     }
 
     /**
      * Load user data from a text file.
      * File format: userName,userId,userPassword
      * Skips invalid lines (wrong format).
+     * Records (CSV, quoted fields allowed) are parsed in parallel chunks, then added to the service in file order.
      *
      * @param fileName Name of the user data file (relative to resources folder)
      */
     private static void loadUsersFromFile(String fileName) {
-        try (InputStream is = Main.class.getClassLoader().getResourceAsStream(fileName);
-                BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-
-            String line;
-            while ((line = br.readLine()) != null) {
-                // Skip empty lines or comment lines (starting with #)
-                String trimmedLine = line.trim();
-                if (trimmedLine.isEmpty() || trimmedLine.startsWith("#")) {
-                    continue;
-                }
-
-                String[] parts = trimmedLine.split(",");
-                if (parts.length == 3) {
-                    try {
-                        String userName = parts[0].trim();
-                        String userId = parts[1].trim();
-                        String userPassword = parts[2].trim();
-                        // Add user to service
-                        userService.addUser(new com.library.model.User(userName, userId, userPassword));
-                    } catch (Exception e) {
-                        System.out.println("Skip invalid line: " + line + ". Reason: " + e.getMessage());
-                    }
-                } else {
-                    System.out.println("Skip line with wrong format: " + line);
-                }
+        long start = System.nanoTime();
+        try {
+            Path file = findResourceFile(fileName);
+            if (file == null) {
+                System.out.println("User data file not found: " + fileName);
+                return;
             }
-            System.out.println("User data loaded successfully!");
+            List<User> users = ChunkedFileParser.parse(file, Main::parseUserRecord, ForkJoinPool.commonPool());
+            int added = userService.loadUsers(users);
+            System.out.println("User data loaded successfully! (" + added + " users in " + elapsedMillis(start) + " ms)");
         } catch (IOException e) {
             System.out.println("Failed to load user data: " + e.getMessage());
-        } catch (NullPointerException e) {
-            System.out.println("User data file not found: " + fileName);
         }
     }
 
+    /**
+     * Parse one record of the user data file
+     * @param fields Fields of one users.txt record
+     * @return Parsed user, or null for invalid records
+     */
+    private static User parseUserRecord(List<String> fields) {
+        if (fields.size() != 3) {
+            System.out.println("Skip line with wrong format: " + String.join(",", fields));
+            return null;
+        }
+        return new User(fields.get(0), fields.get(1), fields.get(2));
+    }
+
     /**
      * Load borrow record data from a text file.
-     * File format: borrowId,borrowDate,borrowStatus
+     * File format: borrowId,borrowDate,borrowStatus[,userId,ISBN]
      * Skips invalid lines (wrong format, non-numeric status).
+     * Records (CSV, quoted fields allowed) are parsed in parallel chunks, then added to the service in file order.
      *
      * @param fileName Name of the borrow record data file (relative to resources
      *                 folder)
      */
     private static void loadBorrowRecordsFromFile(String fileName) {
-        try (InputStream is = Main.class.getClassLoader().getResourceAsStream(fileName);
-                BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-
-            String line;
-            while ((line = br.readLine()) != null) {
-                // Skip empty lines or comment lines (starting with #)
-                String trimmedLine = line.trim();
-                if (trimmedLine.isEmpty() || trimmedLine.startsWith("#")) {
-                    continue;
-                }
-
-                String[] parts = trimmedLine.split(",");
-                if (parts.length == 3) {
-                    try {
-                        String borrowId = parts[0].trim();
-                        String borrowDate = parts[1].trim();
-                        int borrowStatus = Integer.parseInt(parts[2].trim());
-                        // Add borrow record to service
-                        borrowService.addBorrowRecord(
-                                new com.library.model.BorrowRecord(borrowId, borrowDate, borrowStatus));
-                    } catch (NumberFormatException e) {
-                        System.out.println("Skip invalid line: " + line + ". Reason: " + e.getMessage());
-                    }
-                } else {
-                    System.out.println("Skip line with wrong format: " + line);
-                }
+        long start = System.nanoTime();
+        try {
+            Path file = findResourceFile(fileName);
+            if (file == null) {
+                System.out.println("Borrow record data file not found: " + fileName);
+                return;
             }
-            System.out.println("Borrow record data loaded successfully!");
+            List<BorrowRecord> records = ChunkedFileParser.parse(file, Main::parseBorrowRecord, ForkJoinPool.commonPool());
+            int added = borrowService.loadBorrowRecords(records);
+            System.out.println("Borrow record data loaded successfully! (" + added + " records in "
+                    + elapsedMillis(start) + " ms)");
         } catch (IOException e) {
             System.out.println("Failed to load borrow record data: " + e.getMessage());
-        } catch (NullPointerException e) {
-            System.out.println("Borrow record data file not found: " + fileName);
+        }
+    }
+
+    /**
+     * Parse one record of the borrow record data file
+     * @param fields Fields of one borrow_records.txt record
+     * @return Parsed record, or null for invalid records
+     */
+    private static BorrowRecord parseBorrowRecord(List<String> fields) {
+        if (fields.size() != 3 && fields.size() != 5) {
+            System.out.println("Skip line with wrong format: " + String.join(",", fields));
+            return null;
+        }
+        try {
+            String borrowId = fields.get(0);
+            String borrowDate = fields.get(1);
+            int borrowStatus = Integer.parseInt(fields.get(2));
+            if (fields.size() == 5) {
+                // Record created by a checkout: also names the user and the book
+                return new BorrowRecord(borrowId, borrowDate, borrowStatus, fields.get(3), fields.get(4));
+            }
+            return new BorrowRecord(borrowId, borrowDate, borrowStatus);
+        } catch (NumberFormatException e) {
+            System.out.println("Skip invalid line: " + String.join(",", fields) + ". Reason: " + e.getMessage());
+            return null;
         }
     }
 
@@ -329,6 +574,7 @@ public class Main {
      */
     public static void saveAllData() {
         try {
+            flushScheduler.flushAll();
             bookService.saveDataToFile();
             userService.saveDataToFile();
             borrowService.saveDataToFile();
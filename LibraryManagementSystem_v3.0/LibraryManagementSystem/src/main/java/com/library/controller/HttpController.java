@@ -0,0 +1,680 @@
+package com.library.controller;
+
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.model.Hold;
+import com.library.model.User;
+import com.library.service.BookService;
+import com.library.service.BorrowDates;
+import com.library.service.BorrowService;
+import com.library.service.CirculationService;
+import com.library.service.ReservationService;
+import com.library.service.UserService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * JSON over HTTP front end for the services (server mode)
+ *
+ * Main job: Serve book, user and borrow record operations as JSON endpoints with the JDK's
+ * built-in HTTP server. Every request runs on its own virtual thread, so thousands of clients
+ * waiting on the network cost almost nothing; the services are thread-safe and are called directly.
+ * The server listens on the loopback address only, unless start() is given another bind address:
+ * there is no authentication, so other machines should reach it only when that is intended.
+ *
+ * Endpoints ({id} is the ISBN, user ID or borrow record ID):
+ *   GET    /books?name=&author=&offset=&limit=   list books (optionally filtered)
+ *   GET    /books/{id}                           one book
+ *   POST   /books                                add: {"name","author","isbn","quantity","borrowed"}
+ *   PUT    /books/{id}                           update: {"name","author","quantity","borrowed"} (all optional)
+ *   DELETE /books/{id}                           delete
+ *   GET/POST/PUT/DELETE /users[/{id}]            same for users: {"name","id","password"}
+ *   GET    /users?prefix=&limit=                 name completions: names or name words starting with prefix
+ *   GET    /borrows?overdue=true                 checked-out records past their due date
+ *   GET    /borrows?from=yyyy-MM-dd&to=yyyy-MM-dd records borrowed in a date range (both inclusive)
+ *   GET    /borrows?userId=&status=              records of a user and/or with a status (either may be left out)
+ *   GET/POST/PUT/DELETE /borrows[/{id}]          same for records: {"id","date","status","userId","isbn"}
+ *                                                (loans go through CirculationService, so copies are claimed and freed)
+ *   POST   /checkouts                            check out a copy: {"userId","isbn"} -> the new record
+ *   POST   /returns                              return a checkout: {"id"} -> the returned record
+ *   GET    /holds?isbn=                          waiting holds of a book, first in line first
+ *   POST   /holds                                place a hold: {"userId","isbn"}
+ *   DELETE /holds/{id}                           cancel a waiting hold
+ *   POST   /save                                 write all data files
+ * Passwords are accepted but never returned. Request bodies larger than MAX_BODY_BYTES get 413.
+ */
+public class HttpController {
+    // Connections the OS may queue before the server accepts them
+    private static final int CONNECTION_BACKLOG = 1024;
+    // Largest page a list request may ask for
+    private static final int MAX_PAGE_SIZE = 1000;
+    // Number of name completions returned when the request gives no limit
+    private static final int DEFAULT_COMPLETIONS = 10;
+    // Largest request body accepted (the JSON objects are a few hundred bytes)
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final BookService bookService;
+    private final UserService userService;
+    private final BorrowService borrowService;
+    private final CirculationService circulationService;
+    private final ReservationService reservationService;
+    private HttpServer server;
+    private ExecutorService requestThreads;
+
+    // Constructor: Inject service dependencies
+    public HttpController(BookService bookService, UserService userService, BorrowService borrowService,
+                          CirculationService circulationService, ReservationService reservationService) {
+        this.bookService = bookService;
+        this.userService = userService;
+        this.borrowService = borrowService;
+        this.circulationService = circulationService;
+        this.reservationService = reservationService;
+    }
+
+    /**
+     * Start serving requests on the loopback address (this machine only)
+     * @param port Port to listen on (0 picks a free port, see getPort())
+     * @throws IOException If the port cannot be opened
+     */
+    public void start(int port) throws IOException {
+        start(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Start serving requests on a given address
+     * @param bindAddress Address to listen on (e.g. 0.0.0.0 for all interfaces)
+     * @param port Port to listen on (0 picks a free port, see getPort())
+     * @throws IOException If the port cannot be opened
+     */
+    public synchronized void start(InetAddress bindAddress, int port) throws IOException {
+        if (server != null) {
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress(bindAddress, port), CONNECTION_BACKLOG);
+        server.createContext("/books", exchange -> handle(exchange, "/books", this::handleBooks));
+        server.createContext("/users", exchange -> handle(exchange, "/users", this::handleUsers));
+        server.createContext("/borrows", exchange -> handle(exchange, "/borrows", this::handleBorrows));
+        server.createContext("/checkouts", exchange -> handle(exchange, "/checkouts", this::handleCheckouts));
+        server.createContext("/returns", exchange -> handle(exchange, "/returns", this::handleReturns));
+        server.createContext("/holds", exchange -> handle(exchange, "/holds", this::handleHolds));
+        server.createContext("/save", exchange -> handle(exchange, "/save", this::handleSave));
+        requestThreads = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(requestThreads);
+        server.start();
+        System.out.println("Library server listening on http://" + hostText(bindAddress) + ":" + getPort() + "/");
+    }
+
+    // Address as written in a URL (IPv6 addresses go in brackets)
+    private static String hostText(InetAddress address) {
+        String host = address.getHostAddress();
+        return host.indexOf(':') >= 0 ? "[" + host + "]" : host;
+    }
+
+    /**
+     * Stop the server, giving running requests up to one second to finish
+     */
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(1);
+        requestThreads.shutdown();
+        server = null;
+        requestThreads = null;
+    }
+
+    /**
+     * Get the port the server listens on
+     * @return Port number, or -1 if the server is not running
+     */
+    public synchronized int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    // ====================== Books ======================
+
+    private Response handleBooks(Request request) {
+        if (request.id == null) {
+            switch (request.method) {
+                case "GET" -> {
+                    List<Book> books;
+                    if (request.query.containsKey("name")) {
+                        books = bookService.findByBookName(request.query.get("name")).getBooks();
+                    } else if (request.query.containsKey("author")) {
+                        books = bookService.findByAuthor(request.query.get("author"));
+                    } else {
+                        // Only the requested page is read from the catalog
+                        int total = bookService.getBookCount();
+                        books = bookService.getBooks(offset(request), limit(request));
+                        return Response.ok(pageJson("books", total, books, HttpController::bookJson));
+                    }
+                    return Response.ok(page(request, "books", books, HttpController::bookJson));
+                }
+                case "POST" -> {
+                    Map<String, String> body = request.body();
+                    Book book = new Book(body.get("name"), body.get("author"), body.get("isbn"),
+                            intField(body, "quantity", 0), intField(body, "borrowed", 0));
+                    if (!bookService.addBook(book)) {
+                        return Response.error(400, "Book not added (invalid data or duplicate ISBN)");
+                    }
+                    return new Response(201, bookJson(book));
+                }
+                default -> {
+                    return Response.methodNotAllowed();
+                }
+            }
+        }
+        switch (request.method) {
+            case "GET" -> {
+                Book book = bookService.findByISBN(request.id);
+                return book == null ? Response.notFound("book", request.id) : Response.ok(bookJson(book));
+            }
+            case "PUT" -> {
+                Map<String, String> body = request.body();
+                if (bookService.findByISBN(request.id) == null) {
+                    return Response.notFound("book", request.id);
+                }
+                if (!bookService.updateBook(request.id, body.get("name"), body.get("author"),
+                        intField(body, "quantity", -1), intField(body, "borrowed", -1))) {
+                    return Response.error(400, "Book not updated (invalid data)");
+                }
+                // Read back the stored book (it may have been deleted since)
+                Book updated = bookService.findByISBN(request.id);
+                return updated == null ? Response.notFound("book", request.id) : Response.ok(bookJson(updated));
+            }
+            case "DELETE" -> {
+                return bookService.deleteBook(request.id) ? Response.noContent() : Response.notFound("book", request.id);
+            }
+            default -> {
+                return Response.methodNotAllowed();
+            }
+        }
+    }
+
+    private static String bookJson(Book book) {
+        return "{\"name\":" + Json.quote(book.getBookName())
+                + ",\"author\":" + Json.quote(book.getBookAuthor())
+                + ",\"isbn\":" + Json.quote(book.getBookISBN())
+                + ",\"quantity\":" + book.getBookQuantity()
+                + ",\"borrowed\":" + book.getBookBorrowedQuantity() + "}";
+    }
+
+    // ====================== Users ======================
+
+    private Response handleUsers(Request request) {
+        if (request.id == null) {
+            switch (request.method) {
+                case "GET" -> {
+                    List<User> users;
+                    if (request.query.containsKey("prefix")) {
+                        int limit = request.query.containsKey("limit")
+                                ? parseInt(request.query.get("limit"), "limit") : DEFAULT_COMPLETIONS;
+                        users = userService.completeUserName(request.query.get("prefix"), Math.min(limit, MAX_PAGE_SIZE));
+                    } else if (request.query.containsKey("name")) {
+                        users = userService.findByUserName(request.query.get("name"));
+                    } else {
+                        int total = userService.getUserCount();
+                        users = userService.getUsers(offset(request), limit(request));
+                        return Response.ok(pageJson("users", total, users, HttpController::userJson));
+                    }
+                    return Response.ok(page(request, "users", users, HttpController::userJson));
+                }
+                case "POST" -> {
+                    Map<String, String> body = request.body();
+                    User user = new User(body.get("name"), body.get("id"), body.get("password"));
+                    if (!userService.addUser(user)) {
+                        return Response.error(400, "User not added (invalid data or duplicate ID)");
+                    }
+                    return new Response(201, userJson(user));
+                }
+                default -> {
+                    return Response.methodNotAllowed();
+                }
+            }
+        }
+        switch (request.method) {
+            case "GET" -> {
+                User user = userService.findByUserId(request.id);
+                return user == null ? Response.notFound("user", request.id) : Response.ok(userJson(user));
+            }
+            case "PUT" -> {
+                Map<String, String> body = request.body();
+                User current = userService.findByUserId(request.id);
+                if (current == null) {
+                    return Response.notFound("user", request.id);
+                }
+                // Missing fields keep their current value
+                String name = body.containsKey("name") ? body.get("name") : current.getUserName();
+                String password = body.containsKey("password") ? body.get("password") : current.getUserPassword();
+                if (!userService.updateUser(request.id, name, password)) {
+                    return Response.error(400, "User not updated (invalid data)");
+                }
+                User updated = userService.findByUserId(request.id);
+                return updated == null ? Response.notFound("user", request.id) : Response.ok(userJson(updated));
+            }
+            case "DELETE" -> {
+                return userService.deleteUser(request.id) ? Response.noContent() : Response.notFound("user", request.id);
+            }
+            default -> {
+                return Response.methodNotAllowed();
+            }
+        }
+    }
+
+    private static String userJson(User user) {
+        return "{\"name\":" + Json.quote(user.getUserName())
+                + ",\"id\":" + Json.quote(user.getUserId()) + "}";
+    }
+
+    // ====================== Borrow records ======================
+
+    private Response handleBorrows(Request request) {
+        if (request.id == null) {
+            switch (request.method) {
+                case "GET" -> {
+                    List<BorrowRecord> records;
+                    if ("true".equals(request.query.get("overdue"))) {
+                        records = borrowService.findOverdue(LocalDate.now());
+                    } else if (request.query.containsKey("from") || request.query.containsKey("to")) {
+                        records = new ArrayList<>(borrowService.findByDateRange(
+                                dateParam(request, "from"), dateParam(request, "to")));
+                    } else if (request.query.containsKey("userId") && request.query.containsKey("status")) {
+                        records = borrowService.findByUserAndStatus(request.query.get("userId"),
+                                parseInt(request.query.get("status"), "status"));
+                    } else if (request.query.containsKey("userId")) {
+                        records = borrowService.findByUserId(request.query.get("userId"));
+                    } else if (request.query.containsKey("status")) {
+                        records = borrowService.findByStatus(parseInt(request.query.get("status"), "status"));
+                    } else {
+                        int total = borrowService.getRecordCount();
+                        records = borrowService.getBorrowRecords(offset(request), limit(request));
+                        return Response.ok(pageJson("borrows", total, records, HttpController::borrowJson));
+                    }
+                    return Response.ok(page(request, "borrows", records, HttpController::borrowJson));
+                }
+                case "POST" -> {
+                    Map<String, String> body = request.body();
+                    BorrowRecord record = new BorrowRecord(body.get("id"), body.get("date"), intField(body, "status", 0),
+                            body.get("userId"), body.get("isbn"));
+                    // A checked-out loan claims a copy like a checkout
+                    if (!circulationService.addBorrowRecord(record)) {
+                        return Response.error(400, "Borrow record not added (invalid data, duplicate ID, unknown user or book, or no copy available)");
+                    }
+                    return new Response(201, borrowJson(record));
+                }
+                default -> {
+                    return Response.methodNotAllowed();
+                }
+            }
+        }
+        switch (request.method) {
+            case "GET" -> {
+                BorrowRecord record = borrowService.findByBorrowId(request.id);
+                return record == null ? Response.notFound("borrow record", request.id) : Response.ok(borrowJson(record));
+            }
+            case "PUT" -> {
+                Map<String, String> body = request.body();
+                if (borrowService.findByBorrowId(request.id) == null) {
+                    return Response.notFound("borrow record", request.id);
+                }
+                int status = intField(body, "status", -1);
+                if (status != 0 && status != 1) {
+                    return Response.error(400, "Borrow record not updated (status must be 0 or 1)");
+                }
+                // Returning or re-opening a loan frees or claims its copy
+                if (!circulationService.updateBorrowStatus(request.id, status)) {
+                    return Response.error(409, "Borrow record not updated (no copy available, or it changed meanwhile)");
+                }
+                BorrowRecord updated = borrowService.findByBorrowId(request.id);
+                return updated == null
+                        ? Response.notFound("borrow record", request.id) : Response.ok(borrowJson(updated));
+            }
+            case "DELETE" -> {
+                return circulationService.deleteBorrowRecord(request.id)
+                        ? Response.noContent() : Response.notFound("borrow record", request.id);
+            }
+            default -> {
+                return Response.methodNotAllowed();
+            }
+        }
+    }
+
+    private static String borrowJson(BorrowRecord record) {
+        String json = "{\"id\":" + Json.quote(record.getBorrowId())
+                + ",\"date\":" + Json.quote(record.getBorrowDate())
+                + ",\"status\":" + record.getBorrowStatus();
+        if (record.isLinked()) {
+            json += ",\"userId\":" + Json.quote(record.getUserId()) + ",\"isbn\":" + Json.quote(record.getIsbn());
+        }
+        return json + "}";
+    }
+
+    // ====================== Checkouts and returns ======================
+
+    private Response handleCheckouts(Request request) {
+        if (request.id != null) {
+            return Response.error(404, "Unknown path");
+        }
+        if (!"POST".equals(request.method)) {
+            return Response.methodNotAllowed();
+        }
+        Map<String, String> body = request.body();
+        BorrowRecord record = circulationService.checkout(body.get("userId"), body.get("isbn"));
+        if (record == null) {
+            return Response.error(409, "Checkout failed (unknown user or book, or no copy available)");
+        }
+        return new Response(201, borrowJson(record));
+    }
+
+    private Response handleReturns(Request request) {
+        if (request.id != null) {
+            return Response.error(404, "Unknown path");
+        }
+        if (!"POST".equals(request.method)) {
+            return Response.methodNotAllowed();
+        }
+        String borrowId = request.body().get("id");
+        if (borrowId == null || borrowService.findByBorrowId(borrowId) == null) {
+            return Response.notFound("borrow record", borrowId);
+        }
+        if (!circulationService.returnBook(borrowId)) {
+            return Response.error(409, "Return failed (not a checkout, or already returned)");
+        }
+        BorrowRecord record = borrowService.findByBorrowId(borrowId);
+        return record == null ? Response.notFound("borrow record", borrowId) : Response.ok(borrowJson(record));
+    }
+
+    // ====================== Holds ======================
+
+    private Response handleHolds(Request request) {
+        if (request.id == null) {
+            switch (request.method) {
+                case "GET" -> {
+                    String isbn = request.query.get("isbn");
+                    if (isbn == null) {
+                        throw new IllegalArgumentException("isbn is required");
+                    }
+                    return Response.ok(page(request, "holds", reservationService.getWaitingHolds(isbn), HttpController::holdJson));
+                }
+                case "POST" -> {
+                    Map<String, String> body = request.body();
+                    Hold hold = reservationService.placeHold(body.get("userId"), body.get("isbn"));
+                    if (hold == null) {
+                        return Response.error(400, "Hold not placed (unknown user or book)");
+                    }
+                    return new Response(201, holdJson(hold));
+                }
+                default -> {
+                    return Response.methodNotAllowed();
+                }
+            }
+        }
+        if (!"DELETE".equals(request.method)) {
+            return Response.methodNotAllowed();
+        }
+        return reservationService.cancelHold(request.id) ? Response.noContent() : Response.notFound("waiting hold", request.id);
+    }
+
+    private static String holdJson(Hold hold) {
+        String json = "{\"id\":" + Json.quote(hold.getHoldId())
+                + ",\"userId\":" + Json.quote(hold.getUserId())
+                + ",\"isbn\":" + Json.quote(hold.getIsbn())
+                + ",\"status\":" + Json.quote(hold.getStatus().name());
+        String borrowId = hold.getBorrowId();
+        if (borrowId != null) {
+            json += ",\"borrowId\":" + Json.quote(borrowId);
+        }
+        return json + "}";
+    }
+
+    // ====================== Save ======================
+
+    private Response handleSave(Request request) {
+        if (request.id != null) {
+            return Response.error(404, "Unknown path");
+        }
+        if (!"POST".equals(request.method)) {
+            return Response.methodNotAllowed();
+        }
+        bookService.saveDataToFile();
+        userService.saveDataToFile();
+        borrowService.saveDataToFile();
+        return Response.noContent();
+    }
+
+    // ====================== Request plumbing ======================
+
+    /**
+     * Run one request and always send a response
+     * Bad input (IllegalArgumentException) becomes 400, anything else unexpected becomes 500.
+     */
+    private static void handle(HttpExchange exchange, String contextPath, Function<Request, Response> handler) {
+        Response response;
+        try {
+            Request request = Request.parse(exchange, contextPath);
+            response = request == null ? Response.error(404, "Unknown path") : handler.apply(request);
+        } catch (BodyTooLargeException e) {
+            response = Response.error(413, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            response = Response.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            System.out.println("Error: Request " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + " failed: " + e);
+            response = Response.error(500, "Internal error");
+        }
+        try {
+            send(exchange, response);
+        } catch (IOException e) {
+            // Client went away; nothing left to do
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        if (response.body == null) {
+            exchange.sendResponseHeaders(response.status, -1);
+            return;
+        }
+        byte[] bytes = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Write one page of a search result as {"total": n, "<name>": [...]}
+     * The page is chosen with ?offset= (default 0) and ?limit= (default and maximum MAX_PAGE_SIZE).
+     */
+    private static <T> String page(Request request, String name, List<T> items, Function<T, String> toJson) {
+        int offset = offset(request);
+        int end = (int) Math.min(items.size(), (long) offset + limit(request));
+        List<T> pageItems = offset < end ? items.subList(offset, end) : List.of();
+        return pageJson(name, items.size(), pageItems, toJson);
+    }
+
+    /**
+     * Write a page that was already cut out as {"total": n, "<name>": [...]}
+     * @param total Number of items in the whole list
+     */
+    private static <T> String pageJson(String name, int total, List<T> pageItems, Function<T, String> toJson) {
+        StringBuilder json = new StringBuilder("{\"total\":").append(total)
+                .append(",\"").append(name).append("\":[");
+        for (int i = 0; i < pageItems.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(toJson.apply(pageItems.get(i)));
+        }
+        return json.append("]}").toString();
+    }
+
+    // First item of the page (?offset=, default 0)
+    private static int offset(Request request) {
+        int offset = request.query.containsKey("offset") ? parseInt(request.query.get("offset"), "offset") : 0;
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset and limit cannot be negative");
+        }
+        return offset;
+    }
+
+    // Page size (?limit=, default and maximum MAX_PAGE_SIZE)
+    private static int limit(Request request) {
+        int limit = request.query.containsKey("limit") ? parseInt(request.query.get("limit"), "limit") : MAX_PAGE_SIZE;
+        if (limit < 0) {
+            throw new IllegalArgumentException("offset and limit cannot be negative");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private static LocalDate dateParam(Request request, String name) {
+        int epochDay = BorrowDates.toEpochDay(request.query.get(name));
+        if (epochDay == BorrowDates.NO_DATE) {
+            throw new IllegalArgumentException(name + " must be a date (yyyy-MM-dd)");
+        }
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    private static int intField(Map<String, String> body, String name, int missingValue) {
+        String value = body.get(name);
+        return value == null ? missingValue : parseInt(value, name);
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a whole number");
+        }
+    }
+
+    // One parsed request: method, decoded {id} path segment (null for the collection) and query
+    private static class Request {
+        private final HttpExchange exchange;
+        private final String method;
+        private final String id;
+        private final Map<String, String> query;
+
+        private Request(HttpExchange exchange, String id, Map<String, String> query) {
+            this.exchange = exchange;
+            this.method = exchange.getRequestMethod();
+            this.id = id;
+            this.query = query;
+        }
+
+        /**
+         * Split the request path into context and {id}
+         * @return The request, or null if the path does not belong to the context (e.g. /booksX or /books/a/b)
+         */
+        static Request parse(HttpExchange exchange, String contextPath) {
+            String path = exchange.getRequestURI().getRawPath();
+            String rest = path.substring(contextPath.length());
+            String id = null;
+            if (!rest.isEmpty() && !rest.equals("/")) {
+                if (rest.charAt(0) != '/' || rest.indexOf('/', 1) >= 0) {
+                    return null;
+                }
+                id = decode(rest.substring(1));
+            }
+            return new Request(exchange, id, parseQuery(exchange.getRequestURI().getRawQuery()));
+        }
+
+        /**
+         * Read the request body as a flat JSON object
+         * At most MAX_BODY_BYTES are read, so a huge body cannot fill the memory.
+         * @throws BodyTooLargeException If the body is larger than MAX_BODY_BYTES
+         * @throws IllegalArgumentException If the body is missing or not valid JSON
+         */
+        Map<String, String> body() {
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+                if (bytes.length > MAX_BODY_BYTES) {
+                    throw new BodyTooLargeException();
+                }
+                String text = new String(bytes, StandardCharsets.UTF_8);
+                if (text.isBlank()) {
+                    throw new IllegalArgumentException("Request body must be a JSON object");
+                }
+                return Json.parseObject(text);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Request body could not be read");
+            }
+        }
+
+        private static Map<String, String> parseQuery(String rawQuery) {
+            Map<String, String> query = new HashMap<>();
+            if (rawQuery == null || rawQuery.isEmpty()) {
+                return query;
+            }
+            for (String pair : rawQuery.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals < 0) {
+                    query.put(decode(pair), "");
+                } else {
+                    query.put(decode(pair.substring(0, equals)), decode(pair.substring(equals + 1)));
+                }
+            }
+            return query;
+        }
+
+        private static String decode(String text) {
+            return URLDecoder.decode(text, StandardCharsets.UTF_8);
+        }
+    }
+
+    // Request body over MAX_BODY_BYTES (sent as 413)
+    private static class BodyTooLargeException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        BodyTooLargeException() {
+            super("Request body is larger than " + MAX_BODY_BYTES + " bytes");
+        }
+    }
+
+    // Status code and JSON body (null body = no content)
+    private static class Response {
+        private final int status;
+        private final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response ok(String body) {
+            return new Response(200, body);
+        }
+
+        static Response noContent() {
+            return new Response(204, null);
+        }
+
+        static Response error(int status, String message) {
+            return new Response(status, "{\"error\":" + Json.quote(message) + "}");
+        }
+
+        static Response notFound(String kind, String id) {
+            return error(404, "No " + kind + " with ID " + id);
+        }
+
+        static Response methodNotAllowed() {
+            return error(405, "Method not allowed");
+        }
+    }
+}
@@ -1,9 +1,21 @@
 package com.library.controller;
 
 import com.library.Main;
+import com.library.model.Book;
+import com.library.model.BookSearchResult;
+import com.library.model.BorrowRecord;
+import com.library.model.Hold;
+import com.library.model.User;
 import com.library.service.BookService;
+import com.library.service.BorrowDates;
 import com.library.service.UserService;
 import com.library.service.BorrowService;
+import com.library.service.CirculationService;
+import com.library.service.ReservationService;
+import com.library.storage.FlushScheduler;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Scanner;
 
 public class MenuController {
@@ -11,14 +23,22 @@ public class MenuController {
     private final BookService bookService;
     private final UserService userService;
     private final BorrowService borrowService;
+    private final CirculationService circulationService;
+    private final ReservationService reservationService;
+    private final FlushScheduler flushScheduler;
 
     // Constructor: Inject service dependencies
     public MenuController(Scanner scanner, BookService bookService,
-                          UserService userService, BorrowService borrowService) {
+                          UserService userService, BorrowService borrowService,
+                          CirculationService circulationService, ReservationService reservationService,
+                          FlushScheduler flushScheduler) {
         this.scanner = scanner;
         this.bookService = bookService;
         this.userService = userService;
         this.borrowService = borrowService;
+        this.circulationService = circulationService;
+        this.reservationService = reservationService;
+        this.flushScheduler = flushScheduler;
     }
 
     public static void printMenu() {
@@ -61,7 +81,7 @@ public class MenuController {
                 case 1 -> addNewBook();
                 case 2 -> deleteBook();
                 case 3 -> updateBook();
-                case 4 -> bookService.listAllBooks();
+                case 4 -> listAllBooks();
                 case 5 -> searchBookByIsbn();
                 case 6 -> searchBookByName();
                 case 7 -> searchBookByAuthor();
@@ -81,7 +101,7 @@ public class MenuController {
                 case 1 -> addNewUser();
                 case 2 -> deleteUser();
                 case 3 -> updateUser();
-                case 4 -> userService.listAllUsers();
+                case 4 -> listAllUsers();
                 case 5 -> searchUserById();
                 case 6 -> searchUserByName();
                 case 0 -> back = true;
@@ -100,9 +120,16 @@ public class MenuController {
                 case 1 -> addBorrowRecord();
                 case 2 -> deleteBorrowRecord();
                 case 3 -> updateBorrowStatus();
-                case 4 -> borrowService.listAllBorrowRecords();
+                case 4 -> listAllBorrowRecords();
                 case 5 -> searchBorrowById();
                 case 6 -> searchBorrowByStatus();
+                case 7 -> checkoutBook();
+                case 8 -> returnBook();
+                case 9 -> placeHold();
+                case 10 -> cancelHold();
+                case 11 -> listHolds();
+                case 12 -> listOverdueLoans();
+                case 13 -> searchBorrowByDateRange();
                 case 0 -> back = true;
                 default -> System.out.println("Invalid operation number, please re-enter!");
             }
@@ -156,6 +183,13 @@ public class MenuController {
         System.out.println(Main.ConsoleColor.PURPLE+"4. View All Records"+Main.ConsoleColor.RESET);
         System.out.println(Main.ConsoleColor.PURPLE+"5. Search Record by ID"+Main.ConsoleColor.RESET);
         System.out.println(Main.ConsoleColor.PURPLE+"6. Search Records by Status"+Main.ConsoleColor.RESET);
+        System.out.println(Main.ConsoleColor.PURPLE+"7. Check Out Book"+Main.ConsoleColor.RESET);
+        System.out.println(Main.ConsoleColor.PURPLE+"8. Return Book"+Main.ConsoleColor.RESET);
+        System.out.println(Main.ConsoleColor.PURPLE+"9. Place Hold on Book"+Main.ConsoleColor.RESET);
+        System.out.println(Main.ConsoleColor.PURPLE+"10. Cancel Hold"+Main.ConsoleColor.RESET);
+        System.out.println(Main.ConsoleColor.PURPLE+"11. View Holds for Book"+Main.ConsoleColor.RESET);
+        System.out.println(Main.ConsoleColor.PURPLE+"12. View Overdue Loans"+Main.ConsoleColor.RESET);
+        System.out.println(Main.ConsoleColor.PURPLE+"13. Search Records by Date Range"+Main.ConsoleColor.RESET);
         System.out.println(Main.ConsoleColor.RED+"0. Return to Main Menu"+Main.ConsoleColor.RESET);
         System.out.println(Main.ConsoleColor.CYAN + "======================================" + Main.ConsoleColor.RESET);
     }
@@ -178,7 +212,7 @@ public class MenuController {
         
         // Show current book information first
         System.out.println(Main.ConsoleColor.YELLOW+"\nCurrent book information:"+ Main.ConsoleColor.RESET);
-        bookService.searchByISBN(isbn);
+        printBookDetails(isbn);
         
         System.out.println(Main.ConsoleColor.YELLOW+"\nEnter new information (leave empty to keep current):"+ Main.ConsoleColor.RESET);
         String newName = getStringInput(Main.ConsoleColor.BLUE+"New book title: "+ Main.ConsoleColor.RESET);
@@ -204,19 +238,105 @@ public class MenuController {
     private void searchBookByIsbn() {
         System.out.println(Main.ConsoleColor.YELLOW+"\n----- Search by ISBN -----"+ Main.ConsoleColor.RESET);
         String isbn = getStringInput("Please enter ISBN: ");
-        bookService.searchByISBN(isbn);
+        printBookDetails(isbn);
     }
 
     private void searchBookByName() {
         System.out.println(Main.ConsoleColor.YELLOW+"\n----- Search by Book Name -----"+ Main.ConsoleColor.RESET);
         String keyword = getStringInput("Please enter book name keyword: ");
-        bookService.searchByBookName(keyword);
+        if (keyword.isEmpty()) {
+            System.out.println("Error: Book name keyword cannot be empty!");
+            return;
+        }
+        BookSearchResult result = bookService.findByBookName(keyword);
+        if (result.getMatchCount() == 0) {
+            System.out.println("No books found containing [" + keyword + "]!");
+            return;
+        }
+
+        System.out.println("\n===== Search Results (Name contains: " + keyword + ") =====");
+        System.out.println("Found " + result.getMatchCount() + " related books:");
+        int no = 0;
+        for (Book book : result.getBooks()) {
+            int remaining = book.getBookQuantity() - book.getBookBorrowedQuantity();
+            System.out.println((++no) + ". ISBN: " + book.getBookISBN() +
+                    " | Name: " + book.getBookName() +
+                    " | Author: " + book.getBookAuthor() +
+                    " | Total: " + book.getBookQuantity() +
+                    " | Borrowed: " + book.getBookBorrowedQuantity() +
+                    " | Remaining: " + remaining);
+        }
+
+        // Output summary of same-name books
+        System.out.println("\n===== Summary =====");
+        System.out.println("Total quantity of same-name books: " + result.getTotalQuantity());
+        System.out.println("Total borrowed quantity of same-name books: " + result.getTotalBorrowed());
     }
 
     private void searchBookByAuthor() {
         System.out.println(Main.ConsoleColor.YELLOW+"\n----- Search by Author -----"+ Main.ConsoleColor.RESET);
         String authorName = getStringInput("Please enter author name: ");
-        bookService.searchByAuthor(authorName);
+        if (authorName.isEmpty()) {
+            System.out.println("Error: Author name cannot be empty!");
+            return;
+        }
+        List<Book> books = bookService.findByAuthor(authorName);
+        if (books.isEmpty()) {
+            System.out.println("No books found by author [" + authorName + "]!");
+            return;
+        }
+
+        System.out.println("\n===== Search Results (Author: " + authorName + ") =====");
+        System.out.println("Found " + books.size() + " book(s) by this author:");
+        int no = 0;
+        for (Book book : books) {
+            int remaining = book.getBookQuantity() - book.getBookBorrowedQuantity();
+            System.out.println((++no) + ". ISBN: " + book.getBookISBN() +
+                    " | Name: " + book.getBookName() +
+                    " | Total: " + book.getBookQuantity() +
+                    " | Borrowed: " + book.getBookBorrowedQuantity() +
+                    " | Remaining: " + remaining);
+        }
+    }
+
+    private void listAllBooks() {
+        List<Book> books = bookService.getAllBooks();
+        if (books.isEmpty()) {
+            System.out.println("Book list is empty. No books to show!");
+            return;
+        }
+        System.out.println("\n===== All Books List =====");
+        int no = 0;
+        for (Book book : books) {
+            int remaining = book.getBookQuantity() - book.getBookBorrowedQuantity(); // Remaining = total - borrowed
+            System.out.println("No.: " + (++no) +
+                    " | ISBN: " + book.getBookISBN() +
+                    " | Name: " + book.getBookName() +
+                    " | Author: " + book.getBookAuthor() +
+                    " | Total: " + book.getBookQuantity() +
+                    " | Borrowed: " + book.getBookBorrowedQuantity() +
+                    " | Remaining: " + remaining);
+        }
+    }
+
+    private void printBookDetails(String isbn) {
+        if (isbn.isEmpty()) {
+            System.out.println("Error: ISBN cannot be empty!");
+            return;
+        }
+        Book book = bookService.findByISBN(isbn);
+        if (book == null) {
+            System.out.println("No book found with ISBN [" + isbn + "]!");
+            return;
+        }
+        int remaining = book.getBookQuantity() - book.getBookBorrowedQuantity();
+        System.out.println("\n===== Book Details =====");
+        System.out.println("ISBN: " + book.getBookISBN());
+        System.out.println("Name: " + book.getBookName());
+        System.out.println("Author: " + book.getBookAuthor());
+        System.out.println("Total: " + book.getBookQuantity());
+        System.out.println("Borrowed: " + book.getBookBorrowedQuantity());
+        System.out.println("Remaining: " + remaining);
     }
 
     // User operation methods
@@ -246,13 +366,58 @@ public class MenuController {
     private void searchUserById() {
         System.out.println(Main.ConsoleColor.YELLOW+"\n----- Search by User ID -----"+ Main.ConsoleColor.RESET);
         String userId = getStringInput("Please enter user ID: ");
-        userService.searchByUserId(userId);
+        if (userId.isEmpty()) {
+            System.out.println("Error: User ID cannot be empty!");
+            return;
+        }
+        User user = userService.findByUserId(userId);
+        if (user == null) {
+            System.out.println("No user found with ID [" + userId + "]!");
+            return;
+        }
+        System.out.println("\n===== User Details =====");
+        System.out.println("User ID: " + user.getUserId());
+        System.out.println("User Name: " + user.getUserName());
+        System.out.println("Password: " + user.getUserPassword());
     }
 
     private void searchUserByName() {
         System.out.println(Main.ConsoleColor.YELLOW+"\n----- Search by User Name -----"+ Main.ConsoleColor.RESET);
         String keyword = getStringInput("Please enter user name keyword: ");
-        userService.searchByUserName(keyword);
+        if (keyword.isEmpty()) {
+            System.out.println("Error: User name keyword cannot be empty!");
+            return;
+        }
+        List<User> users = userService.findByUserName(keyword);
+        if (users.isEmpty()) {
+            System.out.println("No users found containing [" + keyword + "]!");
+            return;
+        }
+
+        System.out.println("\n===== Search Results (Name contains: " + keyword + ") =====");
+        System.out.println("Found " + users.size() + " related users:");
+        int no = 0;
+        for (User user : users) {
+            System.out.println((++no) + ". User ID: " + user.getUserId() +
+                    " | User Name: " + user.getUserName() +
+                    " | Password: " + user.getUserPassword());
+        }
+    }
+
+    private void listAllUsers() {
+        List<User> users = userService.getAllUsers();
+        if (users.isEmpty()) {
+            System.out.println("User list is empty, no users to display!");
+            return;
+        }
+        System.out.println("\n===== All Users List =====");
+        int no = 0;
+        for (User user : users) {
+            System.out.println("No.: " + (++no) +
+                    " | User ID: " + user.getUserId() +
+                    " | User Name: " + user.getUserName() +
+                    " | Password: " + user.getUserPassword());
+        }
     }
 
     // Borrow/return operation methods
@@ -262,37 +427,179 @@ public class MenuController {
         String date = getStringInput("Please enter borrow/return date (yyyy-MM-dd): ");
         int status = getIntInput("Please enter status (0-Checked Out, 1-Returned): ");
         com.library.model.BorrowRecord record = new com.library.model.BorrowRecord(recordId, date, status);
-        borrowService.addBorrowRecord(record);
+        circulationService.addBorrowRecord(record);
     }
 
     private void deleteBorrowRecord() {
         System.out.println(Main.ConsoleColor.YELLOW+"\n----- Delete Borrow/Return Record -----"+ Main.ConsoleColor.RESET);
         String recordId = getStringInput("Please enter ID of the record to delete: ");
-        borrowService.deleteBorrowRecord(recordId);
+        circulationService.deleteBorrowRecord(recordId);
     }
 
     private void updateBorrowStatus() {
         System.out.println(Main.ConsoleColor.YELLOW+"\n----- Update Borrow/Return Status -----"+ Main.ConsoleColor.RESET);
         String recordId = getStringInput("Please enter ID of the record to update: ");
         int newStatus = getIntInput("Please enter new status (0-Checked Out, 1-Returned): ");
-        borrowService.updateBorrowStatus(recordId, newStatus);
+        circulationService.updateBorrowStatus(recordId, newStatus);
+    }
+
+    private void checkoutBook() {
+        System.out.println(Main.ConsoleColor.YELLOW+"\n----- Check Out Book -----"+ Main.ConsoleColor.RESET);
+        String userId = getStringInput("Please enter user ID: ");
+        String isbn = getStringInput("Please enter ISBN of the book: ");
+        circulationService.checkout(userId, isbn);
+    }
+
+    private void returnBook() {
+        System.out.println(Main.ConsoleColor.YELLOW+"\n----- Return Book -----"+ Main.ConsoleColor.RESET);
+        String recordId = getStringInput("Please enter ID of the checkout record: ");
+        circulationService.returnBook(recordId);
+    }
+
+    private void placeHold() {
+        System.out.println(Main.ConsoleColor.YELLOW+"\n----- Place Hold on Book -----"+ Main.ConsoleColor.RESET);
+        String userId = getStringInput("Please enter user ID: ");
+        String isbn = getStringInput("Please enter ISBN of the book: ");
+        reservationService.placeHold(userId, isbn);
+    }
+
+    private void cancelHold() {
+        System.out.println(Main.ConsoleColor.YELLOW+"\n----- Cancel Hold -----"+ Main.ConsoleColor.RESET);
+        String holdId = getStringInput("Please enter hold ID: ");
+        reservationService.cancelHold(holdId);
+    }
+
+    private void listHolds() {
+        System.out.println(Main.ConsoleColor.YELLOW+"\n----- View Holds for Book -----"+ Main.ConsoleColor.RESET);
+        String isbn = getStringInput("Please enter ISBN of the book: ");
+        List<Hold> holds = reservationService.getWaitingHolds(isbn);
+        if (holds.isEmpty()) {
+            System.out.println("Nobody is waiting for ISBN [" + isbn + "]!");
+            return;
+        }
+        System.out.println("\n===== Waitlist for ISBN " + isbn + " =====");
+        int no = 0;
+        for (Hold hold : holds) {
+            System.out.println((++no) + ". Hold ID: " + hold.getHoldId() + " | User ID: " + hold.getUserId());
+        }
+    }
+
+    private void listOverdueLoans() {
+        System.out.println(Main.ConsoleColor.YELLOW+"\n----- View Overdue Loans -----"+ Main.ConsoleColor.RESET);
+        List<BorrowRecord> records = borrowService.findOverdue(LocalDate.now());
+        if (records.isEmpty()) {
+            System.out.println("No overdue loans (loan period: " + borrowService.getLoanPeriodDays() + " days)!");
+            return;
+        }
+        System.out.println("\n===== Overdue Loans (loan period: " + borrowService.getLoanPeriodDays() + " days) =====");
+        int no = 0;
+        for (BorrowRecord record : records) {
+            System.out.println((++no) + ". Record ID: " + record.getBorrowId() +
+                    " | Borrow Date: " + record.getBorrowDate() +
+                    " | Due: " + borrowService.getDueDate(record.getBorrowId()) +
+                    (record.isLinked() ? " | User ID: " + record.getUserId() + " | ISBN: " + record.getIsbn() : ""));
+        }
+    }
+
+    private void searchBorrowByDateRange() {
+        System.out.println(Main.ConsoleColor.YELLOW+"\n----- Search Records by Date Range -----"+ Main.ConsoleColor.RESET);
+        int fromDay = BorrowDates.toEpochDay(getStringInput("Please enter first borrow date (yyyy-MM-dd): "));
+        int toDay = BorrowDates.toEpochDay(getStringInput("Please enter last borrow date (yyyy-MM-dd): "));
+        if (fromDay == BorrowDates.NO_DATE || toDay == BorrowDates.NO_DATE) {
+            System.out.println("Error: Invalid date (use yyyy-MM-dd)!");
+            return;
+        }
+        String range = BorrowDates.format(fromDay) + " to " + BorrowDates.format(toDay);
+        Collection<BorrowRecord> records = borrowService.findByDateRange(LocalDate.ofEpochDay(fromDay), LocalDate.ofEpochDay(toDay));
+        int no = 0;
+        for (BorrowRecord record : records) {
+            if (no == 0) {
+                System.out.println("\n===== Records Borrowed " + range + " =====");
+            }
+            System.out.println((++no) + ". Record ID: " + record.getBorrowId() +
+                    " | Borrow Date: " + record.getBorrowDate() +
+                    " | Status: " + statusText(record.getBorrowStatus()));
+        }
+        if (no == 0) {
+            System.out.println("No borrow records found from " + range + "!");
+        }
     }
 
     private void searchBorrowById() {
         System.out.println(Main.ConsoleColor.YELLOW+"\n----- Search Record by ID -----"+ Main.ConsoleColor.RESET);
         String recordId = getStringInput("Please enter record ID: ");
-        borrowService.searchByBorrowId(recordId);
+        if (recordId.isEmpty()) {
+            System.out.println("Error: Record ID cannot be empty!");
+            return;
+        }
+        BorrowRecord record = borrowService.findByBorrowId(recordId);
+        if (record == null) {
+            System.out.println("No borrow record found with ID [" + recordId + "]!");
+            return;
+        }
+        System.out.println("\n===== Borrow Record Details =====");
+        System.out.println("Record ID: " + record.getBorrowId());
+        System.out.println("Borrow Date: " + record.getBorrowDate());
+        System.out.println("Status: " + statusText(record.getBorrowStatus()));
+        String dueDate = borrowService.getDueDate(record.getBorrowId());
+        if (dueDate != null) {
+            System.out.println("Due Date: " + dueDate);
+        }
+        if (record.isLinked()) {
+            System.out.println("User ID: " + record.getUserId());
+            System.out.println("ISBN: " + record.getIsbn());
+        }
     }
 
     private void searchBorrowByStatus() {
         System.out.println(Main.ConsoleColor.YELLOW+"\n----- Search Records by Status -----"+ Main.ConsoleColor.RESET);
         int status = getIntInput("Please enter status (0-Checked Out, 1-Returned): ");
-        borrowService.searchByStatus(status);
+        if (status != 0 && status != 1) {
+            System.out.println("Error: Invalid status (0 - checked out, 1 - returned)!");
+            return;
+        }
+        List<BorrowRecord> records = borrowService.findByStatus(status);
+        if (records.isEmpty()) {
+            System.out.println("No borrow records found with status [" + statusText(status) + "]!");
+            return;
+        }
+
+        System.out.println("\n===== Search Results (Status: " + statusText(status) + ") =====");
+        System.out.println("Found " + records.size() + " related records:");
+        int no = 0;
+        for (BorrowRecord record : records) {
+            System.out.println((++no) + ". Record ID: " + record.getBorrowId() +
+                    " | Borrow Date: " + record.getBorrowDate());
+        }
+    }
+
+    private void listAllBorrowRecords() {
+        List<BorrowRecord> records = borrowService.getAllBorrowRecords();
+        if (records.isEmpty()) {
+            System.out.println("Borrow record list is empty. No records to show!");
+            return;
+        }
+        System.out.println("\n===== All Borrow Records List =====");
+        System.out.println("Checked out: " + borrowService.countByStatus(0) + " | Returned: " + borrowService.countByStatus(1));
+        int no = 0;
+        for (BorrowRecord record : records) {
+            System.out.println("No.: " + (++no) +
+                    " | Record ID: " + record.getBorrowId() +
+                    " | Borrow Date: " + record.getBorrowDate() +
+                    " | Status: " + statusText(record.getBorrowStatus()) +
+                    (record.isLinked() ? " | User ID: " + record.getUserId() + " | ISBN: " + record.getIsbn() : ""));
+        }
+    }
+
+    private static String statusText(int status) {
+        return status == 0 ? "checked out" : "returned";
     }
 
     private void saveAllData() {
         System.out.println(Main.ConsoleColor.YELLOW+"\n----- Save All Data -----"+ Main.ConsoleColor.RESET);
         try {
+            // Write pending change-log entries first, then rewrite the data files
+            flushScheduler.flushAll();
             bookService.saveDataToFile();
             userService.saveDataToFile();
             borrowService.saveDataToFile();
@@ -1,17 +1,16 @@
 package com.library.model;
 
 // Book entity class
+// Immutable: a changed book is a new Book (see withBorrowedQuantity()), so a book can be shared freely
 public class Book {
     // Private attributes
-    private String bookName;
-    private String bookAuthor;
-    private String bookISBN;
-    private int bookQuantity;
-    private int bookBorrowedQuantity;
-
-    // Constructors
-    public Book() {
-    }
+    private final String bookName;
+    private final String bookAuthor;
+    private final String bookISBN;
+    private final int bookQuantity;
+    private final int bookBorrowedQuantity;
+
+    // Constructor
     public Book(String bookName, String bookAuthor, String bookISBN, int bookQuantity, int bookBorrowedQuantity) {
         this.bookName = bookName;
         this.bookAuthor = bookAuthor;
@@ -20,44 +19,34 @@ public class Book {
         this.bookBorrowedQuantity = bookBorrowedQuantity;
     }
 
-    // Getters and Setters
+    // Getters
     public String getBookName() {
         return bookName;
     }
 
-    public void setBookName(String bookName) {
-        this.bookName = bookName;
-    }
-
     public String getBookAuthor() {
         return bookAuthor;
     }
 
-    public void setBookAuthor(String bookAuthor) {
-        this.bookAuthor = bookAuthor;
-    }
-
     public String getBookISBN() {
         return bookISBN;
     }
 
-    public void setBookISBN(String bookISBN) {
-        this.bookISBN = bookISBN;
-    }
-
     public int getBookQuantity() {
         return bookQuantity;
     }
 
-    public void setBookQuantity(int bookQuantity) {
-        this.bookQuantity = bookQuantity;
-    }
-
     public int getBookBorrowedQuantity() {
         return bookBorrowedQuantity;
     }
 
-    public void setBookBorrowedQuantity(int bookBorrowedQuantity) {
-        this.bookBorrowedQuantity = bookBorrowedQuantity;
+    /**
+     * Copy this book with another borrowed quantity
+     * The copy shares the text Strings with this book.
+     * @param bookBorrowedQuantity Borrowed quantity of the copy
+     * @return New book
+     */
+    public Book withBorrowedQuantity(int bookBorrowedQuantity) {
+        return new Book(bookName, bookAuthor, bookISBN, bookQuantity, bookBorrowedQuantity);
     }
-}
\ No newline at end of file
+}
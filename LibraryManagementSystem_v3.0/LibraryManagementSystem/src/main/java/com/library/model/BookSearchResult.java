@@ -0,0 +1,50 @@
+package com.library.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a book name search
+ * Holds the matching books (in list order) and the summed quantities of these books.
+ */
+public class BookSearchResult {
+    // Matching books
+    private final List<Book> books;
+    // Total quantity of the matching books
+    private final int totalQuantity;
+    // Total borrowed quantity of the matching books
+    private final int totalBorrowed;
+
+    /**
+     * Build a result from the matching books and sum their quantities
+     * @param books Matching books
+     */
+    public BookSearchResult(List<Book> books) {
+        this.books = Collections.unmodifiableList(books);
+        int quantity = 0;
+        int borrowed = 0;
+        for (Book book : books) {
+            quantity += book.getBookQuantity();
+            borrowed += book.getBookBorrowedQuantity();
+        }
+        this.totalQuantity = quantity;
+        this.totalBorrowed = borrowed;
+    }
+
+    // Getters
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    public int getMatchCount() {
+        return books.size();
+    }
+
+    public int getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public int getTotalBorrowed() {
+        return totalBorrowed;
+    }
+}
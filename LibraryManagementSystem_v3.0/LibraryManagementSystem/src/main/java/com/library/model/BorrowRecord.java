@@ -4,6 +4,9 @@ public class BorrowRecord {
     private String borrowId;
     private String borrowDate;
     private int borrowStatus;
+    // Borrowing user and borrowed book (both null for records not created by a checkout)
+    private String userId;
+    private String isbn;
 
     public BorrowRecord() {}
 
@@ -13,6 +16,12 @@ public class BorrowRecord {
         this.borrowStatus = borrowStatus;
     }
 
+    public BorrowRecord(String borrowId, String borrowDate, int borrowStatus, String userId, String isbn) {
+        this(borrowId, borrowDate, borrowStatus);
+        this.userId = userId;
+        this.isbn = isbn;
+    }
+
     public String getBorrowId() {
         return borrowId;
     }
@@ -36,4 +45,25 @@ public class BorrowRecord {
     public void setBorrowStatus(int borrowStatus) {
         this.borrowStatus = borrowStatus;
     }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public void setIsbn(String isbn) {
+        this.isbn = isbn;
+    }
+
+    // True if the record links a user and a book (created by a checkout)
+    public boolean isLinked() {
+        return userId != null && isbn != null;
+    }
 }
\ No newline at end of file
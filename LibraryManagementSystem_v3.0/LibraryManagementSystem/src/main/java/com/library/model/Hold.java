@@ -0,0 +1,67 @@
+package com.library.model;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hold (reservation) entity class
+ * A user waiting for a copy of a book. The status only moves from WAITING to FULFILLED or CANCELLED,
+ * with a compare-and-set, so a hold is never both fulfilled and cancelled.
+ */
+public class Hold {
+    public enum Status { WAITING, FULFILLED, CANCELLED }
+
+    // Hold attributes
+    private final String holdId;
+    private final String userId;
+    private final String isbn;
+    private final AtomicReference<Status> status = new AtomicReference<>(Status.WAITING);
+    // Borrow record created when the hold was fulfilled (null until then)
+    private volatile String borrowId;
+
+    /**
+     * Full-parameter constructor
+     * @param holdId Hold's unique ID
+     * @param userId ID of the waiting user
+     * @param isbn ISBN of the wanted book
+     */
+    public Hold(String holdId, String userId, String isbn) {
+        this.holdId = holdId;
+        this.userId = userId;
+        this.isbn = isbn;
+    }
+
+    // Getters
+    public String getHoldId() {
+        return holdId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public Status getStatus() {
+        return status.get();
+    }
+
+    public String getBorrowId() {
+        return borrowId;
+    }
+
+    /**
+     * Change the status if it is still the expected one
+     * @param expected Status the hold must have now
+     * @param newStatus New status
+     * @return true if changed
+     */
+    public boolean changeStatus(Status expected, Status newStatus) {
+        return status.compareAndSet(expected, newStatus);
+    }
+
+    public void setBorrowId(String borrowId) {
+        this.borrowId = borrowId;
+    }
+}
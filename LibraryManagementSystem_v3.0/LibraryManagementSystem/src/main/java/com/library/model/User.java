@@ -3,16 +3,13 @@ package com.library.model;
 /**
  * User entity class
  * Stores user information: name, ID, password
+ * Immutable: a changed user is a new User, so a user can be shared freely
  */
 public class User {
     // User attributes
-    private String userName;
-    private String userId;
-    private String userPassword;
-
-    // Constructors
-    public User() {
-    }
+    private final String userName;
+    private final String userId;
+    private final String userPassword;
 
     /**
      * Full-parameter constructor
@@ -26,28 +23,16 @@ public class User {
         this.userPassword = userPassword;
     }
 
-    // Getters and Setters
+    // Getters
     public String getUserName() {
         return userName;
     }
 
-    public void setUserName(String userName) {
-        this.userName = userName;
-    }
-
     public String getUserId() {
         return userId;
     }
 
-    public void setUserId(String userId) {
-        this.userId = userId;
-    }
-
     public String getUserPassword() {
         return userPassword;
     }
-
-    public void setUserPassword(String userPassword) {
-        this.userPassword = userPassword;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,255 @@
+package com.library.service;
+
+import com.library.model.Book;
+import com.library.model.BookSearchResult;
+import com.library.model.BorrowRecord;
+import com.library.model.User;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous facade over the book, user and borrow record services
+ *
+ * Main job: Let a caller (e.g. a batch client) issue many operations without waiting for each one.
+ * Every operation returns a CompletableFuture right away.
+ * - Writes are queued on one writer thread per store and run in the order they were submitted,
+ *   so a store's changes (and its log writes) never contend with each other.
+ * - Reads go straight to the services, which are safe for concurrent readers. They run on the
+ *   caller's thread once the store is loaded; the first read of an unloaded store runs on a
+ *   virtual thread so the caller does not wait for the load.
+ * Reads do not wait for queued writes: to read your own write, chain the read on the write's
+ * future (e.g. addBook(book).thenCompose(ok -> findByISBN(isbn))).
+ */
+public class AsyncLibraryService implements AutoCloseable {
+    private final BookService bookService;
+    private final UserService userService;
+    private final BorrowService borrowService;
+    // Hand-typed borrow record changes go through the checkout engine, so loans keep their copies counted
+    private final CirculationService circulationService;
+    // One writer thread per store: keeps each store's writes in submission order
+    private final ExecutorService bookWriter = newWriter("library-book-writer");
+    private final ExecutorService userWriter = newWriter("library-user-writer");
+    private final ExecutorService borrowWriter = newWriter("library-borrow-writer");
+    // Reads that have to wait for a store to load
+    private final ExecutorService loadingReaders = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Constructor: Inject service dependencies
+    public AsyncLibraryService(BookService bookService, UserService userService, BorrowService borrowService,
+                               CirculationService circulationService) {
+        this.bookService = bookService;
+        this.userService = userService;
+        this.borrowService = borrowService;
+        this.circulationService = circulationService;
+    }
+
+    // ====================== Books ======================
+
+    /**
+     * Queue adding a book (see BookService.addBook)
+     */
+    public CompletableFuture<Boolean> addBook(Book newBook) {
+        return write(bookWriter, () -> bookService.addBook(newBook));
+    }
+
+    /**
+     * Queue updating a book (see BookService.updateBook)
+     */
+    public CompletableFuture<Boolean> updateBook(String isbn, String newName, String newAuthor,
+                                                 int newQuantity, int newBorrowedQuantity) {
+        return write(bookWriter, () -> bookService.updateBook(isbn, newName, newAuthor, newQuantity, newBorrowedQuantity));
+    }
+
+    /**
+     * Queue deleting a book (see BookService.deleteBook)
+     */
+    public CompletableFuture<Boolean> deleteBook(String isbn) {
+        return write(bookWriter, () -> bookService.deleteBook(isbn));
+    }
+
+    public CompletableFuture<List<Book>> getAllBooks() {
+        return read(bookService.isLoaded(), bookService::getAllBooks);
+    }
+
+    public CompletableFuture<Integer> getBookCount() {
+        return read(bookService.isLoaded(), bookService::getBookCount);
+    }
+
+    public CompletableFuture<Book> findByISBN(String isbn) {
+        return read(bookService.isLoaded(), () -> bookService.findByISBN(isbn));
+    }
+
+    public CompletableFuture<BookSearchResult> findByBookName(String nameKeyword) {
+        return read(bookService.isLoaded(), () -> bookService.findByBookName(nameKeyword));
+    }
+
+    public CompletableFuture<List<Book>> findByAuthor(String authorName) {
+        return read(bookService.isLoaded(), () -> bookService.findByAuthor(authorName));
+    }
+
+    /**
+     * Queue saving the book file; runs after every book write queued before it
+     */
+    public CompletableFuture<Void> saveBooks() {
+        return CompletableFuture.runAsync(bookService::saveDataToFile, bookWriter);
+    }
+
+    // ====================== Users ======================
+
+    /**
+     * Queue adding a user (see UserService.addUser)
+     */
+    public CompletableFuture<Boolean> addUser(User newUser) {
+        return write(userWriter, () -> userService.addUser(newUser));
+    }
+
+    /**
+     * Queue updating a user (see UserService.updateUser)
+     */
+    public CompletableFuture<Boolean> updateUser(String userId, String newUserName, String newPassword) {
+        return write(userWriter, () -> userService.updateUser(userId, newUserName, newPassword));
+    }
+
+    /**
+     * Queue deleting a user (see UserService.deleteUser)
+     */
+    public CompletableFuture<Boolean> deleteUser(String userId) {
+        return write(userWriter, () -> userService.deleteUser(userId));
+    }
+
+    public CompletableFuture<List<User>> getAllUsers() {
+        return read(userService.isLoaded(), userService::getAllUsers);
+    }
+
+    public CompletableFuture<Integer> getUserCount() {
+        return read(userService.isLoaded(), userService::getUserCount);
+    }
+
+    public CompletableFuture<User> findByUserId(String userId) {
+        return read(userService.isLoaded(), () -> userService.findByUserId(userId));
+    }
+
+    public CompletableFuture<List<User>> findByUserName(String nameKeyword) {
+        return read(userService.isLoaded(), () -> userService.findByUserName(nameKeyword));
+    }
+
+    public CompletableFuture<List<User>> completeUserName(String prefix, int limit) {
+        return read(userService.isLoaded(), () -> userService.completeUserName(prefix, limit));
+    }
+
+    /**
+     * Queue saving the user file; runs after every user write queued before it
+     */
+    public CompletableFuture<Void> saveUsers() {
+        return CompletableFuture.runAsync(userService::saveDataToFile, userWriter);
+    }
+
+    // ====================== Borrow records ======================
+
+    /**
+     * Queue adding a borrow record (see CirculationService.addBorrowRecord)
+     * The record is copied now, so the caller may reuse its object right away.
+     */
+    public CompletableFuture<Boolean> addBorrowRecord(BorrowRecord newRecord) {
+        BorrowRecord record = newRecord == null ? null
+                : new BorrowRecord(newRecord.getBorrowId(), newRecord.getBorrowDate(), newRecord.getBorrowStatus(),
+                        newRecord.getUserId(), newRecord.getIsbn());
+        return write(borrowWriter, () -> circulationService.addBorrowRecord(record));
+    }
+
+    /**
+     * Queue changing a borrow record's status (see CirculationService.updateBorrowStatus)
+     */
+    public CompletableFuture<Boolean> updateBorrowStatus(String borrowId, int newStatus) {
+        return write(borrowWriter, () -> circulationService.updateBorrowStatus(borrowId, newStatus));
+    }
+
+    /**
+     * Queue deleting a borrow record (see CirculationService.deleteBorrowRecord)
+     */
+    public CompletableFuture<Boolean> deleteBorrowRecord(String borrowId) {
+        return write(borrowWriter, () -> circulationService.deleteBorrowRecord(borrowId));
+    }
+
+    public CompletableFuture<List<BorrowRecord>> getAllBorrowRecords() {
+        return read(borrowService.isLoaded(), borrowService::getAllBorrowRecords);
+    }
+
+    public CompletableFuture<Integer> getRecordCount() {
+        return read(borrowService.isLoaded(), borrowService::getRecordCount);
+    }
+
+    public CompletableFuture<BorrowRecord> findByBorrowId(String borrowId) {
+        return read(borrowService.isLoaded(), () -> borrowService.findByBorrowId(borrowId));
+    }
+
+    public CompletableFuture<List<BorrowRecord>> findByStatus(int status) {
+        return read(borrowService.isLoaded(), () -> borrowService.findByStatus(status));
+    }
+
+    /**
+     * Queue saving the borrow record file; runs after every borrow write queued before it
+     */
+    public CompletableFuture<Void> saveBorrowRecords() {
+        return CompletableFuture.runAsync(borrowService::saveDataToFile, borrowWriter);
+    }
+
+    // ====================== All stores ======================
+
+    /**
+     * Queue saving all three files; completes when all of them are written
+     */
+    public CompletableFuture<Void> saveAll() {
+        return CompletableFuture.allOf(saveBooks(), saveUsers(), saveBorrowRecords());
+    }
+
+    /**
+     * Run every queued write, then stop the writer threads
+     * Operations submitted afterwards fail with RejectedExecutionException.
+     */
+    @Override
+    public void close() {
+        for (ExecutorService executor : new ExecutorService[] {bookWriter, userWriter, borrowWriter, loadingReaders}) {
+            executor.shutdown();
+        }
+        try {
+            for (ExecutorService executor : new ExecutorService[] {bookWriter, userWriter, borrowWriter, loadingReaders}) {
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    System.out.println("Waiting for queued library operations to finish...");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static CompletableFuture<Boolean> write(ExecutorService writer, BooleanSupplier change) {
+        return CompletableFuture.supplyAsync(change::getAsBoolean, writer);
+    }
+
+    /**
+     * Run a read now if the store is loaded, otherwise on a virtual thread
+     */
+    private <T> CompletableFuture<T> read(boolean loaded, Supplier<T> query) {
+        if (!loaded) {
+            return CompletableFuture.supplyAsync(query, loadingReaders);
+        }
+        try {
+            return CompletableFuture.completedFuture(query.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static ExecutorService newWriter(String threadName) {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
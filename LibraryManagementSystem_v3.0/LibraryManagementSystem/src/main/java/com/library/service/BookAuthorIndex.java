@@ -0,0 +1,75 @@
+package com.library.service;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Secondary index: normalized author name -> ISBNs
+ *
+ * Main job: Let searchByAuthor read only the books of one author instead of scanning the catalog.
+ * Kept up to date by BookService on add, update (author change) and delete.
+ * Thread-safe: updates of one author's entry are atomic, and queries never block.
+ */
+class BookAuthorIndex {
+
+    // Normalized author name -> ISBNs of that author's books
+    private final Map<String, Set<String>> isbnsByAuthor = new ConcurrentHashMap<>();
+
+    /**
+     * Normalize an author name so that two names get the same key exactly when
+     * String.equalsIgnoreCase() considers them equal
+     * @param author Author name
+     * @return Case-folded key
+     */
+    static String normalize(String author) {
+        char[] chars = new char[author.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(author.charAt(i)));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Index a book under its author
+     * @param isbn ISBN of the book
+     * @param author Author name
+     */
+    void add(String isbn, String author) {
+        isbnsByAuthor.compute(normalize(author), (a, isbns) -> {
+            Set<String> set = isbns == null ? ConcurrentHashMap.newKeySet() : isbns;
+            set.add(isbn);
+            return set;
+        });
+    }
+
+    /**
+     * Remove a book from its author's entry
+     * @param isbn ISBN of the book
+     * @param author Author name the book was indexed under
+     */
+    void remove(String isbn, String author) {
+        isbnsByAuthor.computeIfPresent(normalize(author), (a, isbns) -> {
+            isbns.remove(isbn);
+            return isbns.isEmpty() ? null : isbns;
+        });
+    }
+
+    /**
+     * Get the ISBNs of all books by an author (case-insensitive exact match)
+     * @param author Author name
+     * @return ISBNs of the author's books (empty if none)
+     */
+    Set<String> find(String author) {
+        return isbnsByAuthor.getOrDefault(normalize(author), Collections.emptySet());
+    }
+
+    /**
+     * Get all entries (for consistency checks)
+     * @return Read-only view: normalized author name -> ISBNs
+     */
+    Map<String, Set<String>> entries() {
+        return Collections.unmodifiableMap(isbnsByAuthor);
+    }
+}
@@ -1,30 +1,89 @@
 package com.library.service;
 
 import com.library.model.Book;
+import com.library.model.BookSearchResult;
+import com.library.storage.BinaryCatalogSnapshot;
+import com.library.storage.CsvWriter;
+import com.library.storage.FlushScheduler;
+import com.library.storage.LazyLoader;
+import com.library.storage.MutationLog;
 import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
  * Book business logic service class
  *
  * Main job: Handle all book-related operations like adding, deleting, querying, searching.
- * Store and manage books with an array. Ensure valid and complete data operations.
+ * Store and manage books in an ISBN-keyed hash map that keeps insertion order.
+ * Ensure valid and complete data operations.
+ * Thread-safe: reads never block, and changes to different ISBNs run in parallel under striped locks.
+ * Books are immutable (see Book); an update stores a new Book, so readers always see either the
+ * old or the new state of a book, never a mix, and the books handed out need no copying.
+ * Every map and index key is the stored book's own ISBN String, so an ISBN is kept only once.
+ * The books are loaded on first access (see setLoader()); until then, ISBN lookups are
+ * answered from the memory-mapped binary snapshot if one is set.
  */
 public class BookService {
 
-    // Max array capacity: maximum number of books the system can store
-    private static final int MAX_CAPACITY = 100;
-    // Book array: stores all book objects
-    private Book[] bookArray = new Book[MAX_CAPACITY];
-    // Actual book count: number of books stored (≤ MAX_CAPACITY)
-    private int bookCount = 0;
+    // Number of ISBN lock stripes (power of two)
+    private static final int LOCK_STRIPES = 64;
+
+    // Book map: ISBN -> book (no capacity limit)
+    private final Map<String, Book> bookMap = new ConcurrentHashMap<>();
+    // Insertion sequence of each ISBN, used to return index hits in list order
+    private final Map<String, Long> insertionOrder = new ConcurrentHashMap<>();
+    // Insertion sequence -> book: the book list, in insertion order
+    private final ConcurrentSkipListMap<Long, Book> booksInOrder = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextSequence = new AtomicLong();
+    // Striped locks: changes to one ISBN run one at a time, changes to different ISBNs mostly in parallel
+    private final ReentrantLock[] isbnLocks = newLocks(LOCK_STRIPES);
+    // Changes hold the read lock, saving holds the write lock, so a save never misses a logged change
+    private final ReentrantReadWriteLock saveLock = new ReentrantReadWriteLock();
+    // Trigram index over book titles for name searches
+    private final BookTitleIndex titleIndex = new BookTitleIndex();
+    // Author -> ISBNs index for author searches
+    private final BookAuthorIndex authorIndex = new BookAuthorIndex();
+    // ISBN -> copies that can still be claimed for a checkout (quantity - borrowed - claims not yet recorded);
+    // created on a book's first checkout and kept in step by updateBook() and deleteBook()
+    private final Map<String, AtomicLong> availableCopies = new ConcurrentHashMap<>();
     // File path for saving book data
     private String filePath = null;
+    // Binary snapshot kept in sync with the data file (null if not used)
+    private String binarySnapshotPath = null;
+    // Append-only log of changes since the data file was last written
+    private MutationLog mutationLog = null;
+    // Shared scheduler that coalesces log writes (null: write the log after every change)
+    private FlushScheduler flushScheduler = null;
+    // Flush task handed to the scheduler (same instance every time, so changes are coalesced);
+    // it also compacts the log, so the flush thread pays for compaction instead of a caller
+    private final Runnable logFlushTask = this::flushAndCompact;
+    // Code that fills the service with the stored books (null: start empty)
+    private Runnable loader = null;
+    // Runs the load step (loader and log replay) once, on first access
+    private final LazyLoader lazyLoader = new LazyLoader();
+    private final Runnable loadStep = this::openStore;
+    // Snapshot that answers ISBN lookups before the books are loaded (null if none)
+    private volatile BinaryCatalogSnapshot pagedSnapshot = null;
+    // Told the ISBN of a book whose edit made copies available (null: nobody listens)
+    private volatile Consumer<String> copiesAddedListener = null;
 
     /**
      * Set the file path for saving book data
@@ -32,68 +91,165 @@ public class BookService {
      */
     public void setFilePath(String filePath) {
         this.filePath = filePath;
+        this.mutationLog = filePath == null ? null : new MutationLog(filePath);
+    }
+
+    /**
+     * Set the code to run after addBook() or updateBook() made copies of a book available
+     * It runs after the change, outside the service's locks (used to serve waiting holds).
+     * @param copiesAddedListener Listener given the book's ISBN (null to remove it)
+     */
+    public void setCopiesAddedListener(Consumer<String> copiesAddedListener) {
+        this.copiesAddedListener = copiesAddedListener;
     }
 
     /**
      * Add a new book to the system
      * <p>
-     * Check if book info is valid (not empty, valid quantities, etc.), array capacity, and unique ISBN.
-     * Add the book to the array and update the count.
+     * Check if book info is valid (not empty, valid quantities, etc.) and unique ISBN.
+     * Add the book to the map (ISBN lookup is O(1)).
      *
      * @param newBook Book to add (has name, author, ISBN, total quantity, borrowed quantity)
-     * @return true if added successfully; false if info invalid, array full, or ISBN duplicate
+     * @return true if added successfully; false if info invalid or ISBN duplicate
      */
     public boolean addBook(Book newBook) {
-        // 1. Check if parameter is valid (prevent invalid data)
+        ensureLoaded();
+        boolean added = mutate(newBook == null ? null : newBook.getBookISBN(), () -> {
+            // 1. Check if parameter is valid (prevent invalid data) and ISBN is unique
+            String error = validateNewBook(newBook);
+            if (error != null) {
+                System.out.println("Error: " + error);
+                return false;
+            }
+
+            // 2. All checks passed, add the book to the map (books are immutable, so it is not copied)
+            storeBook(newBook);
+            System.out.println("Successfully added book: \"" + newBook.getBookName() + "\" (ISBN: " + newBook.getBookISBN() + ")");
+
+            // 3. Record the change in the mutation log
+            logMutation("ADD", newBook.getBookName(), newBook.getBookAuthor(), newBook.getBookISBN(),
+                    String.valueOf(newBook.getBookQuantity()), String.valueOf(newBook.getBookBorrowedQuantity()));
+            return true;
+        });
+        if (added && newBook.getBookQuantity() > newBook.getBookBorrowedQuantity()) {
+            copiesAdded(newBook.getBookISBN());
+        }
+        return added;
+    }
+
+    /**
+     * Add books read from a data file or snapshot
+     * <p>
+     * Same checks as addBook(), but only invalid books are reported (no message per added book)
+     * and nothing is written to the mutation log, so loading large files stays fast.
+     * The service keeps the given Book objects (they are immutable).
+     *
+     * @param books Books to add, in list order
+     * @return Number of books added
+     */
+    public int loadBooks(Iterable<Book> books) {
+        ensureLoaded();
+        int added = 0;
+        for (Book book : books) {
+            boolean stored = mutate(book == null ? null : book.getBookISBN(), () -> {
+                String error = validateNewBook(book);
+                if (error != null) {
+                    System.out.println("Skip invalid book: " + error);
+                    return false;
+                }
+                storeBook(book);
+                return true;
+            });
+            if (stored) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Check a book before it is added
+     * @param newBook Book to check
+     * @return Error message, or null if the book can be added
+     */
+    private String validateNewBook(Book newBook) {
         if (newBook == null) {
-            System.out.println("Error: Book info is empty!");
-            return false;
+            return "Book info is empty!";
         }
         if (newBook.getBookName() == null || newBook.getBookName().trim().isEmpty()) {
-            System.out.println("Error: Book name cannot be empty!");
-            return false;
+            return "Book name cannot be empty!";
         }
         if (newBook.getBookAuthor() == null || newBook.getBookAuthor().trim().isEmpty()) {
-            System.out.println("Error: Author cannot be empty!");
-            return false;
+            return "Author cannot be empty!";
         }
         if (newBook.getBookISBN() == null || newBook.getBookISBN().trim().isEmpty()) {
-            System.out.println("Error: ISBN cannot be empty!");
-            return false;
+            return "ISBN cannot be empty!";
         }
         if (newBook.getBookQuantity() < 0) {
-            System.out.println("Error: Total quantity cannot be negative!");
-            return false;
+            return "Total quantity cannot be negative!";
         }
         if (newBook.getBookBorrowedQuantity() < 0 || newBook.getBookBorrowedQuantity() > newBook.getBookQuantity()) {
-            System.out.println("Error: Borrowed quantity is invalid (cannot be negative or exceed total quantity)!");
-            return false;
+            return "Borrowed quantity is invalid (cannot be negative or exceed total quantity)!";
         }
-
-        // 2. Check if array is full
-        if (bookCount >= MAX_CAPACITY) {
-            System.out.println("Error: Book array is full. Cannot add new books!");
-            return false;
+        // ISBN is unique
+        if (bookMap.containsKey(newBook.getBookISBN())) {
+            return "Book with ISBN [" + newBook.getBookISBN() + "] already exists. Cannot add again!";
         }
+        return null;
+    }
 
-        // 3. Check if ISBN already exists (ISBN is unique)
-        for (int i = 0; i < bookCount; i++) {
-            if (bookArray[i].getBookISBN().equals(newBook.getBookISBN())) {
-                System.out.println("Error: Book with ISBN [" + newBook.getBookISBN() + "] already exists. Cannot add again!");
-                return false;
-            }
+    /**
+     * Put a checked book into the map and the search indexes (caller holds the ISBN's lock)
+     * @param newBook Book to store
+     */
+    private void storeBook(Book newBook) {
+        String isbn = newBook.getBookISBN();
+        long sequence = nextSequence.getAndIncrement();
+        insertionOrder.put(isbn, sequence);
+        booksInOrder.put(sequence, newBook);
+        bookMap.put(isbn, newBook);
+        titleIndex.add(isbn, newBook.getBookName());
+        authorIndex.add(isbn, newBook.getBookAuthor());
+    }
+
+    /**
+     * Run one change under the ISBN's stripe lock (and the shared side of the save lock)
+     * Without a flush scheduler, compacts the mutation log afterwards if it has grown too long
+     * (with one, the flush thread does it).
+     * @param isbn ISBN the change is about (null is allowed; the change is expected to reject it)
+     * @param change The change; returns true if it changed anything
+     * @return Result of the change
+     */
+    private boolean mutate(String isbn, BooleanSupplier change) {
+        ReentrantLock lock = lockFor(isbn);
+        boolean changed;
+        saveLock.readLock().lock();
+        lock.lock();
+        try {
+            changed = change.getAsBoolean();
+        } finally {
+            lock.unlock();
+            saveLock.readLock().unlock();
         }
+        if (changed && flushScheduler == null) {
+            compactIfNeeded();
+        }
+        return changed;
+    }
 
-        // 4. All checks passed, add to array
-        bookArray[bookCount++] = newBook;
-        System.out.println("Successfully added book: \"" + newBook.getBookName() + "\" (ISBN: " + newBook.getBookISBN() + ")");
+    // Lock stripe of an ISBN
+    private ReentrantLock lockFor(String isbn) {
+        int hash = isbn == null ? 0 : isbn.hashCode();
+        return isbnLocks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
 
-        // 5. Save to file if file path is set
-        if (filePath != null) {
-            saveBooksToFile();
+    // Create the stripe locks
+    private static ReentrantLock[] newLocks(int count) {
+        ReentrantLock[] locks = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            locks[i] = new ReentrantLock();
         }
-
-        return true;
+        return locks;
     }
 
     /**
@@ -101,6 +257,7 @@ public class BookService {
      * <p>
      * Find the book by ISBN and update its information.
      * ISBN cannot be changed as it serves as the unique identifier.
+     * All fields change together: if any check fails, the book is left unchanged.
      *
      * @param isbn ISBN of the book to update
      * @param newName New book name (can be null to keep current)
@@ -110,284 +267,736 @@ public class BookService {
      * @return true if updated successfully; false if parameters invalid or book not found
      */
     public boolean updateBook(String isbn, String newName, String newAuthor, int newQuantity, int newBorrowedQuantity) {
+        ensureLoaded();
         // 1. Check if ISBN is valid
         if (isbn == null || isbn.trim().isEmpty()) {
             System.out.println("Error: ISBN cannot be empty!");
             return false;
         }
 
-        // 2. Find the book by ISBN
-        for (int i = 0; i < bookCount; i++) {
-            if (bookArray[i].getBookISBN().equals(isbn)) {
-                Book book = bookArray[i];
-                
-                // 3. Update fields if new values are provided
-                boolean updated = false;
-                
-                if (newName != null && !newName.trim().isEmpty()) {
-                    book.setBookName(newName.trim());
-                    updated = true;
-                }
-                
-                if (newAuthor != null && !newAuthor.trim().isEmpty()) {
-                    book.setBookAuthor(newAuthor.trim());
-                    updated = true;
-                }
-                
-                if (newQuantity >= 0) {
-                    if (newBorrowedQuantity >= 0) {
-                        // Both quantities are provided
-                        if (newBorrowedQuantity > newQuantity) {
-                            System.out.println("Error: Borrowed quantity cannot exceed total quantity!");
-                            return false;
-                        }
-                        book.setBookQuantity(newQuantity);
-                        book.setBookBorrowedQuantity(newBorrowedQuantity);
-                        updated = true;
-                    } else {
-                        // Only total quantity is provided, keep borrowed quantity
-                        if (book.getBookBorrowedQuantity() > newQuantity) {
-                            System.out.println("Error: New total quantity is less than current borrowed quantity!");
-                            return false;
-                        }
-                        book.setBookQuantity(newQuantity);
-                        updated = true;
-                    }
-                } else if (newBorrowedQuantity >= 0) {
-                    // Only borrowed quantity is provided
-                    if (newBorrowedQuantity > book.getBookQuantity()) {
+        // Copies the update made available (told to the listener once the locks are released)
+        long[] copiesFreed = {0};
+        boolean changed = mutate(isbn, () -> {
+            // 2. Find the book by ISBN
+            Book book = bookMap.get(isbn);
+            if (book == null) {
+                System.out.println("No book found with ISBN [" + isbn + "]!");
+                return false;
+            }
+
+            // 3. Work out the new state; nothing is stored until every check has passed
+            String name = book.getBookName();
+            String author = book.getBookAuthor();
+            int quantity = book.getBookQuantity();
+            int borrowed = book.getBookBorrowedQuantity();
+            boolean updated = false;
+
+            if (newName != null && !newName.trim().isEmpty()) {
+                name = newName.trim();
+                updated = true;
+            }
+
+            if (newAuthor != null && !newAuthor.trim().isEmpty()) {
+                author = newAuthor.trim();
+                updated = true;
+            }
+
+            if (newQuantity >= 0) {
+                if (newBorrowedQuantity >= 0) {
+                    // Both quantities are provided
+                    if (newBorrowedQuantity > newQuantity) {
                         System.out.println("Error: Borrowed quantity cannot exceed total quantity!");
                         return false;
                     }
-                    book.setBookBorrowedQuantity(newBorrowedQuantity);
+                    quantity = newQuantity;
+                    borrowed = newBorrowedQuantity;
+                    updated = true;
+                } else {
+                    // Only total quantity is provided, keep borrowed quantity
+                    if (borrowed > newQuantity) {
+                        System.out.println("Error: New total quantity is less than current borrowed quantity!");
+                        return false;
+                    }
+                    quantity = newQuantity;
                     updated = true;
                 }
-                
-                if (!updated) {
-                    System.out.println("Warning: No changes made to book with ISBN [" + isbn + "]");
+            } else if (newBorrowedQuantity >= 0) {
+                // Only borrowed quantity is provided
+                if (newBorrowedQuantity > quantity) {
+                    System.out.println("Error: Borrowed quantity cannot exceed total quantity!");
                     return false;
                 }
-                
-                System.out.println("Successfully updated book: \"" + book.getBookName() + "\" (ISBN: " + isbn + ")");
-                
-                // 4. Save to file if file path is set
-                if (filePath != null) {
-                    saveBooksToFile();
-                }
-                
-                return true;
+                borrowed = newBorrowedQuantity;
+                updated = true;
             }
+
+            if (!updated) {
+                System.out.println("Warning: No changes made to book with ISBN [" + isbn + "]");
+                return false;
+            }
+
+            // 4. Replace the book with its new state in one step, then fix the indexes
+            copiesFreed[0] = replaceBook(book, new Book(name, author, isbn, quantity, borrowed));
+            System.out.println("Successfully updated book: \"" + name + "\" (ISBN: " + isbn + ")");
+
+            // 5. Record the new state of the book in the mutation log
+            logMutation("UPDATE", isbn, name, author, String.valueOf(quantity), String.valueOf(borrowed));
+            return true;
+        });
+        if (changed && copiesFreed[0] > 0) {
+            copiesAdded(isbn);
+        }
+        return changed;
+    }
+
+    /**
+     * Replace a stored book with its new state and fix the indexes and the availability counter
+     * (caller holds the ISBN's lock)
+     * @param book Stored book
+     * @param updatedBook New state of the book (same ISBN)
+     * @return Change in the number of available copies
+     */
+    private long replaceBook(Book book, Book updatedBook) {
+        String isbn = book.getBookISBN();
+        bookMap.put(isbn, updatedBook);
+        long delta = (updatedBook.getBookQuantity() - updatedBook.getBookBorrowedQuantity())
+                - (book.getBookQuantity() - book.getBookBorrowedQuantity());
+        adjustAvailableCopies(isbn, delta);
+        booksInOrder.put(insertionOrder.get(isbn), updatedBook);
+        if (!updatedBook.getBookName().equals(book.getBookName())) {
+            titleIndex.remove(isbn);
+            titleIndex.add(isbn, updatedBook.getBookName());
+        }
+        if (!updatedBook.getBookAuthor().equals(book.getBookAuthor())) {
+            authorIndex.remove(isbn, book.getBookAuthor());
+            authorIndex.add(isbn, updatedBook.getBookAuthor());
+        }
+        return delta;
+    }
+
+    // Tell the listener (if any) that copies of a book became available
+    private void copiesAdded(String isbn) {
+        Consumer<String> listener = copiesAddedListener;
+        if (listener != null) {
+            listener.accept(isbn);
+        }
+    }
+
+    /**
+     * Claim one copy of a book for a checkout (lock-free)
+     * <p>
+     * Takes one copy off the book's availability counter with compare-and-set, so when two desks
+     * race for the last copy only one of them gets it. The caller then records the loan with
+     * adjustBorrowedQuantity(isbn, 1), or gives the copy back with releaseCopy() if the checkout fails.
+     *
+     * @param isbn ISBN of the book
+     * @return true if a copy was claimed; false if the book does not exist or no copy is available
+     */
+    public boolean tryClaimCopy(String isbn) {
+        ensureLoaded();
+        AtomicLong available = availabilityCounter(isbn);
+        if (available == null) {
+            return false;
+        }
+        long current;
+        do {
+            current = available.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!available.compareAndSet(current, current - 1));
+        return true;
+    }
+
+    /**
+     * Get the number of copies of a book that can be checked out now
+     * @param isbn ISBN of the book
+     * @return Free copies (0 if the book does not exist)
+     */
+    public long getAvailableCopies(String isbn) {
+        ensureLoaded();
+        AtomicLong available = availabilityCounter(isbn);
+        return available == null ? 0 : Math.max(0, available.get());
+    }
+
+    /**
+     * Give back a copy claimed with tryClaimCopy() (failed checkout) or freed by a return
+     * @param isbn ISBN of the book
+     */
+    public void releaseCopy(String isbn) {
+        ensureLoaded();
+        adjustAvailableCopies(isbn, 1);
+    }
+
+    /**
+     * Record a checkout (+1) or return (-1) in a book's borrowed quantity
+     * <p>
+     * Unlike updateBook(), this leaves the availability counter alone: the copy was already
+     * claimed with tryClaimCopy(), or is given back with releaseCopy() after the return.
+     * Still checks the new borrowed quantity against the total, so a stale counter can never
+     * lend out more copies than the book has. Nothing is printed.
+     *
+     * @param isbn ISBN of the book
+     * @param delta Change of the borrowed quantity
+     * @return true if changed; false if the book does not exist or the result is out of range
+     */
+    public boolean adjustBorrowedQuantity(String isbn, int delta) {
+        ensureLoaded();
+        if (isbn == null || isbn.trim().isEmpty()) {
+            return false;
+        }
+        return mutate(isbn, () -> {
+            Book book = bookMap.get(isbn);
+            if (book == null) {
+                return false;
+            }
+            int borrowed = book.getBookBorrowedQuantity() + delta;
+            if (borrowed < 0 || borrowed > book.getBookQuantity()) {
+                return false;
+            }
+            Book updatedBook = book.withBorrowedQuantity(borrowed);
+            bookMap.put(isbn, updatedBook);
+            booksInOrder.put(insertionOrder.get(isbn), updatedBook);
+            logMutation("UPDATE", isbn, updatedBook.getBookName(), updatedBook.getBookAuthor(),
+                    String.valueOf(updatedBook.getBookQuantity()), String.valueOf(borrowed));
+            return true;
+        });
+    }
+
+    /**
+     * Get a book's availability counter, creating it from the stored book on first use
+     * The counter is created under the ISBN's lock, so no update of the book can slip in between.
+     * @param isbn ISBN of the book
+     * @return The counter, or null if no book has this ISBN
+     */
+    private AtomicLong availabilityCounter(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        AtomicLong available = availableCopies.get(isbn);
+        if (available != null) {
+            return available;
+        }
+        ReentrantLock lock = lockFor(isbn);
+        lock.lock();
+        try {
+            Book book = bookMap.get(isbn);
+            if (book == null) {
+                return null;
+            }
+            return availableCopies.computeIfAbsent(isbn,
+                    key -> new AtomicLong(book.getBookQuantity() - book.getBookBorrowedQuantity()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Add to a book's availability counter (nothing to do if no checkout has created it yet)
+    private void adjustAvailableCopies(String isbn, long delta) {
+        AtomicLong available = isbn == null ? null : availableCopies.get(isbn);
+        if (available != null && delta != 0) {
+            available.addAndGet(delta);
         }
-        
-        System.out.println("No book found with ISBN [" + isbn + "]!");
-        return false;
     }
 
     /**
      * Delete a book by ISBN
      * <p>
-     * Find the book by ISBN. If found, move subsequent elements forward to cover it.
-     * Update the book count to keep the array continuous.
+     * Find the book by ISBN and remove it from the map.
+     * The insertion order of the remaining books is kept.
      *
      * @param isbn ISBN of the book to delete (unique ID)
      * @return true if deleted successfully; false if ISBN is empty or book not found
      */
     public boolean deleteBook(String isbn) {
+        ensureLoaded();
         if (isbn == null || isbn.trim().isEmpty()) {
             System.out.println("Error: ISBN cannot be empty!");
             return false;
         }
-        for (int i = 0; i < bookCount; i++) {
-            if (bookArray[i].getBookISBN().equals(isbn)) {
-                // Move elements forward to cover the deleted one
-                for (int j = i; j < bookCount - 1; j++) {
-                    bookArray[j] = bookArray[j + 1];
-                }
-                bookArray[--bookCount] = null; // Empty the last element for GC
-                System.out.println("Successfully deleted book with ISBN [" + isbn + "]!");
+        return mutate(isbn, () -> {
+            if (removeBook(isbn) == null) {
+                System.out.println("No book found with ISBN [" + isbn + "]!");
+                return false;
+            }
+            System.out.println("Successfully deleted book with ISBN [" + isbn + "]!");
 
-                // Save to file if file path is set
-                if (filePath != null) {
-                    saveBooksToFile();
-                }
+            // Record the change in the mutation log
+            logMutation("DELETE", isbn);
+            return true;
+        });
+    }
 
-                return true;
-            }
+    /**
+     * Remove a book from the map, the ordered list, the indexes and the counters (caller holds the ISBN's lock)
+     * @param isbn ISBN of the book
+     * @return The removed book, or null if no book has this ISBN
+     */
+    private Book removeBook(String isbn) {
+        Book removed = bookMap.remove(isbn);
+        if (removed != null) {
+            booksInOrder.remove(insertionOrder.remove(isbn));
+            availableCopies.remove(isbn);
+            titleIndex.remove(isbn);
+            authorIndex.remove(isbn, removed.getBookAuthor());
         }
-        System.out.println("No book found with ISBN [" + isbn + "]!");
-        return false;
+        return removed;
     }
 
     /**
-     * View details of all books in the system
+     * Get all books in the system
      * <p>
-     * Go through the array and show ISBN, name, author, total quantity, borrowed quantity, and remaining quantity.
-     * Show a message if there are no books.
+     * Returns the books in insertion order (the order of the book list). Nothing is printed.
+     *
+     * @return All books (empty list if there are none)
      */
-    public void listAllBooks() {
-        if (bookCount == 0) {
-            System.out.println("Book array is empty. No books to show!");
-            return;
-        }
-        System.out.println("\n===== All Books List =====");
-        for (int i = 0; i < bookCount; i++) {
-            Book book = bookArray[i];
-            int remaining = book.getBookQuantity() - book.getBookBorrowedQuantity(); // Remaining = total - borrowed
-            System.out.println("No.: " + (i + 1) +
-                    " | ISBN: " + book.getBookISBN() +
-                    " | Name: " + book.getBookName() +
-                    " | Author: " + book.getBookAuthor() +
-                    " | Total: " + book.getBookQuantity() +
-                    " | Borrowed: " + book.getBookBorrowedQuantity() +
-                    " | Remaining: " + remaining);
+    public List<Book> getAllBooks() {
+        ensureLoaded();
+        return new ArrayList<>(booksInOrder.values());
+    }
+
+    /**
+     * Get one page of the books, in insertion order
+     * <p>
+     * Walks the book list up to the page only, so a page near the start costs the same
+     * however large the catalog is. Nothing is printed.
+     *
+     * @param offset Number of books to skip
+     * @param limit Largest number of books to return
+     * @return The books of the page (empty list if offset is past the end)
+     */
+    public List<Book> getBooks(int offset, int limit) {
+        ensureLoaded();
+        List<Book> books = new ArrayList<>(Math.min(limit, 1024));
+        for (Book book : booksInOrder.values()) {
+            if (books.size() == limit) {
+                break;
+            }
+            if (offset > 0) {
+                offset--;
+            } else {
+                books.add(book);
+            }
         }
+        return books;
+    }
+
+    /**
+     * Get the number of books in the system
+     * @return Book count
+     */
+    public int getBookCount() {
+        ensureLoaded();
+        return bookMap.size();
     }
 
     /**
-     * Search a book by exact ISBN
+     * Find a book by exact ISBN
      * <p>
-     * Find the book by exact ISBN match. Show its details including remaining quantity.
-     * Show a message if not found.
+     * O(1) lookup in the ISBN map. Nothing is printed.
+     * Before the books are loaded, the lookup is a binary search in the snapshot's ISBN index
+     * and does not load the catalog.
      *
-     * @param isbn ISBN of the book to search (unique ID)
+     * @param isbn ISBN of the book to find (unique ID)
+     * @return The book, or null if the ISBN is empty or no book has it
      */
-    public void searchByISBN(String isbn) {
+    public Book findByISBN(String isbn) {
         if (isbn == null || isbn.trim().isEmpty()) {
-            System.out.println("Error: ISBN cannot be empty!");
-            return;
+            return null;
         }
-        for (int i = 0; i < bookCount; i++) {
-            Book book = bookArray[i];
-            if (book.getBookISBN().equals(isbn)) {
-                int remaining = book.getBookQuantity() - book.getBookBorrowedQuantity();
-                System.out.println("\n===== Book Details =====");
-                System.out.println("ISBN: " + book.getBookISBN());
-                System.out.println("Name: " + book.getBookName());
-                System.out.println("Author: " + book.getBookAuthor());
-                System.out.println("Total: " + book.getBookQuantity());
-                System.out.println("Borrowed: " + book.getBookBorrowedQuantity());
-                System.out.println("Remaining: " + remaining);
-                return;
-            }
+        // Not loaded yet and nothing logged since the snapshot was written: page in one record
+        BinaryCatalogSnapshot snapshot = pagedSnapshot;
+        if (snapshot != null && !lazyLoader.isLoaded() && (mutationLog == null || mutationLog.getEntryCount() == 0)) {
+            return snapshot.findByISBN(isbn);
         }
-        System.out.println("No book found with ISBN [" + isbn + "]!");
+        ensureLoaded();
+        return bookMap.get(isbn);
     }
 
     /**
-     * Search books by fuzzy name match
+     * Find books by fuzzy name match
      * <p>
-     * Match book names with the keyword (case-insensitive). Return all matching books.
-     * Show total quantity and borrowed quantity of these books. Show message if none found.
+     * Match book names with the keyword (case-insensitive), in list order.
+     * Also sums the total and borrowed quantity of the matching books. Nothing is printed.
+     * Keywords of 3+ characters only check books from the title trigram index.
      *
      * @param nameKeyword Keyword for book name (e.g., "program" matches "Java program")
+     * @return Matching books with their quantity summary (no matches if the keyword is empty)
      */
-    public void searchByBookName(String nameKeyword) {
+    public BookSearchResult findByBookName(String nameKeyword) {
+        ensureLoaded();
         if (nameKeyword == null || nameKeyword.trim().isEmpty()) {
-            System.out.println("Error: Book name keyword cannot be empty!");
-            return;
+            return new BookSearchResult(new ArrayList<>());
         }
-        // Store matching books
-        Book[] matchedBooks = new Book[bookCount];
-        int matchCount = 0;
-        // Count total quantity and borrowed quantity of same-name books
-        int totalQuantity = 0;
-        int totalBorrowed = 0;
+        String keyword = BookTitleIndex.fold(nameKeyword);
+        List<Book> matches = new ArrayList<>();
+        Set<String> candidates = titleIndex.candidates(keyword);
+        if (candidates == null) {
+            // Keyword shorter than a trigram: check every folded title
+            for (Book book : booksInOrder.values()) {
+                String foldedTitle = titleIndex.foldedTitle(book.getBookISBN());
+                if (foldedTitle != null && foldedTitle.contains(keyword)) {
+                    matches.add(book);
+                }
+            }
+            return new BookSearchResult(matches);
+        }
+        List<String> isbns = new ArrayList<>();
+        for (String isbn : candidates) {
+            String foldedTitle = titleIndex.foldedTitle(isbn);
+            if (foldedTitle != null && foldedTitle.contains(keyword)) {
+                isbns.add(isbn);
+            }
+        }
+        return new BookSearchResult(inListOrder(isbns));
+    }
 
-        // Search for matches in the array
-        for (int i = 0; i < bookCount; i++) {
-            Book book = bookArray[i];
-            // Fuzzy match (include keyword, case-insensitive)
-            if (book.getBookName().toLowerCase().contains(nameKeyword.toLowerCase())) {
-                matchedBooks[matchCount++] = book;
-                totalQuantity += book.getBookQuantity();
-                totalBorrowed += book.getBookBorrowedQuantity();
+    /**
+     * Find books by author
+     * <p>
+     * Exact match of author name (case-insensitive), in list order.
+     * Only the author's books are read, through the author index. Nothing is printed.
+     *
+     * @param authorName Author name (exact match, e.g., "Lu Xun" only matches books by "Lu Xun")
+     * @return Books by this author (empty list if the name is empty or none found)
+     */
+    public List<Book> findByAuthor(String authorName) {
+        ensureLoaded();
+        if (authorName == null || authorName.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        return inListOrder(authorIndex.find(authorName));
+    }
+
+    /**
+     * Turn ISBNs into their books, sorted in list (insertion) order
+     * ISBNs whose book was deleted in the meantime are left out.
+     * @param isbns ISBNs of stored books
+     * @return Books in the order getAllBooks() returns them
+     */
+    private List<Book> inListOrder(Collection<String> isbns) {
+        Map<Long, Book> ordered = new TreeMap<>();
+        for (String isbn : isbns) {
+            Long sequence = insertionOrder.get(isbn);
+            Book book = bookMap.get(isbn);
+            if (sequence != null && book != null) {
+                ordered.put(sequence, book);
             }
         }
+        return new ArrayList<>(ordered.values());
+    }
 
-        // Output results
-        if (matchCount == 0) {
-            System.out.println("No books found containing [" + nameKeyword + "]!");
-            return;
+    /**
+     * Set the binary snapshot file that is rewritten together with the text data file
+     * @param binarySnapshotPath Path to the binary snapshot (null to write only the text file)
+     */
+    public void setBinarySnapshotPath(String binarySnapshotPath) {
+        this.binarySnapshotPath = binarySnapshotPath;
+    }
+
+    /**
+     * Set the scheduler that coalesces mutation log writes
+     * @param flushScheduler Shared flush scheduler (null to write the log after every change)
+     */
+    public void setFlushScheduler(FlushScheduler flushScheduler) {
+        this.flushScheduler = flushScheduler;
+    }
+
+    /**
+     * Set the code that loads the stored books
+     * It runs on first access (or on ensureLoaded()) and should add the books with loadBooks().
+     * Call before the service is used.
+     * @param loader Book loader (null to start with no books)
+     */
+    public void setLoader(Runnable loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Set a snapshot that answers ISBN lookups until the books are loaded
+     * The service closes it once the books are loaded.
+     * @param pagedSnapshot Opened snapshot holding the same books as the data file (null for none)
+     */
+    public void setPagedSnapshot(BinaryCatalogSnapshot pagedSnapshot) {
+        this.pagedSnapshot = pagedSnapshot;
+    }
+
+    /**
+     * Load the books now if they are not loaded yet
+     * Runs the loader, then replays the mutation log. Called by every method that needs the books.
+     */
+    public void ensureLoaded() {
+        lazyLoader.ensureLoaded(loadStep);
+    }
+
+    /**
+     * Check whether the books have been loaded
+     * @return true once the loader and the log replay have run
+     */
+    public boolean isLoaded() {
+        return lazyLoader.isLoaded();
+    }
+
+    /**
+     * Check that the book map, the ordered book list, both search indexes and the availability
+     * counters agree with each other (used by the concurrency tests and benchmarks)
+     * Takes the write side of the save lock, so no change runs while the structures are compared.
+     * Counters are only compared when no checkout holds a claimed copy.
+     * @return Descriptions of every disagreement found (empty if the structures agree)
+     */
+    public List<String> findInconsistencies() {
+        List<String> problems = new ArrayList<>();
+        saveLock.writeLock().lock();
+        try {
+            if (!insertionOrder.keySet().equals(bookMap.keySet())) {
+                problems.add("ISBNs in the map and in the insertion order differ");
+            }
+            if (booksInOrder.size() != bookMap.size()) {
+                problems.add("Ordered list holds " + booksInOrder.size() + " books, map holds " + bookMap.size());
+            }
+            for (Map.Entry<Long, Book> entry : booksInOrder.entrySet()) {
+                String isbn = entry.getValue().getBookISBN();
+                if (bookMap.get(isbn) != entry.getValue()) {
+                    problems.add("Ordered list and map hold different books for ISBN " + isbn);
+                }
+                if (!entry.getKey().equals(insertionOrder.get(isbn))) {
+                    problems.add("ISBN " + isbn + " is listed at " + entry.getKey() + " but its sequence is "
+                            + insertionOrder.get(isbn));
+                }
+            }
+
+            Map<String, String> foldedTitles = titleIndex.foldedTitles();
+            if (!foldedTitles.keySet().equals(bookMap.keySet())) {
+                problems.add("Title index covers other ISBNs than the map");
+            }
+            for (Book book : bookMap.values()) {
+                String isbn = book.getBookISBN();
+                String folded = BookTitleIndex.fold(book.getBookName());
+                if (!folded.equals(foldedTitles.get(isbn))) {
+                    problems.add("Title index holds \"" + foldedTitles.get(isbn) + "\" for ISBN " + isbn);
+                }
+                for (String gram : BookTitleIndex.gramsOf(folded)) {
+                    Set<String> isbns = titleIndex.postings().get(gram);
+                    if (isbns == null || !isbns.contains(isbn)) {
+                        problems.add("Trigram \"" + gram + "\" does not list ISBN " + isbn);
+                    }
+                }
+                Set<String> byAuthor = authorIndex.find(book.getBookAuthor());
+                if (!byAuthor.contains(isbn)) {
+                    problems.add("Author index does not list ISBN " + isbn + " under " + book.getBookAuthor());
+                }
+            }
+            for (Map.Entry<String, Set<String>> posting : titleIndex.postings().entrySet()) {
+                for (String isbn : posting.getValue()) {
+                    String folded = foldedTitles.get(isbn);
+                    if (folded == null || !folded.contains(posting.getKey())) {
+                        problems.add("Trigram \"" + posting.getKey() + "\" lists stale ISBN " + isbn);
+                    }
+                }
+            }
+            for (Map.Entry<String, Set<String>> author : authorIndex.entries().entrySet()) {
+                for (String isbn : author.getValue()) {
+                    Book book = bookMap.get(isbn);
+                    if (book == null || !BookAuthorIndex.normalize(book.getBookAuthor()).equals(author.getKey())) {
+                        problems.add("Author \"" + author.getKey() + "\" lists stale ISBN " + isbn);
+                    }
+                }
+            }
+
+            for (Map.Entry<String, AtomicLong> counter : availableCopies.entrySet()) {
+                Book book = bookMap.get(counter.getKey());
+                if (book == null) {
+                    problems.add("Availability counter left for deleted ISBN " + counter.getKey());
+                } else if (counter.getValue().get() != book.getBookQuantity() - book.getBookBorrowedQuantity()) {
+                    problems.add("ISBN " + counter.getKey() + " has " + counter.getValue().get() + " copies available, "
+                            + (book.getBookQuantity() - book.getBookBorrowedQuantity()) + " expected");
+                }
+            }
+        } finally {
+            saveLock.writeLock().unlock();
         }
+        return problems;
+    }
 
-        System.out.println("\n===== Search Results (Name contains: " + nameKeyword + ") =====");
-        System.out.println("Found " + matchCount + " related books:");
-        for (int i = 0; i < matchCount; i++) {
-            Book book = matchedBooks[i];
-            int remaining = book.getBookQuantity() - book.getBookBorrowedQuantity();
-            System.out.println((i + 1) + ". ISBN: " + book.getBookISBN() +
-                    " | Name: " + book.getBookName() +
-                    " | Author: " + book.getBookAuthor() +
-                    " | Total: " + book.getBookQuantity() +
-                    " | Borrowed: " + book.getBookBorrowedQuantity() +
-                    " | Remaining: " + remaining);
+    /**
+     * Public method to save all books to file
+     * This method can be called externally to force save
+     * Books that were never loaded have not changed, so nothing is written for them.
+     */
+    public void saveDataToFile() {
+        if (!lazyLoader.isLoaded()) {
+            System.out.println("Book data not loaded, nothing to save.");
+            return;
         }
+        saveBooksToFile();
+    }
 
-        // Output summary of same-name books
-        System.out.println("\n===== Summary =====");
-        System.out.println("Total quantity of same-name books: " + totalQuantity);
-        System.out.println("Total borrowed quantity of same-name books: " + totalBorrowed);
+    /**
+     * Load the stored books and apply the logged changes (load step of the lazy loader)
+     */
+    private void openStore() {
+        if (loader != null) {
+            loader.run();
+        }
+        replayMutationLog();
+        // Lookups go to the map from now on
+        BinaryCatalogSnapshot snapshot = pagedSnapshot;
+        pagedSnapshot = null;
+        if (snapshot != null) {
+            try {
+                snapshot.close();
+            } catch (IOException e) {
+                System.out.println("Warning: Failed to close book snapshot: " + e.getMessage());
+            }
+        }
     }
 
     /**
-     * Search books by author
+     * Replay the mutation log on top of the loaded book data
      * <p>
-     * Exact match of author name (case-insensitive). Return all books by this author.
-     * Include remaining quantity of each book. Show message if none found.
-     *
-     * @param authorName Author name (exact match, e.g., "Lu Xun" only matches books by "Lu Xun")
+     * Runs once when the books are loaded, after the loader has added the stored books.
+     * Applies every logged change in order, exactly as it was logged (no messages, no trimming),
+     * then compacts the log into the data file. Holds the save lock exclusively while replaying.
      */
-    public void searchByAuthor(String authorName) {
-        if (authorName == null || authorName.trim().isEmpty()) {
-            System.out.println("Error: Author name cannot be empty!");
+    private void replayMutationLog() {
+        if (mutationLog == null) {
             return;
         }
+        mutationLog.setSnapshotSize(bookMap.size());
+        List<List<String>> entries;
+        try {
+            entries = mutationLog.readEntries();
+        } catch (IOException e) {
+            System.out.println("Warning: Failed to read book change log: " + e.getMessage());
+            return;
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        int skipped = 0;
+        saveLock.writeLock().lock();
+        try {
+            for (List<String> entry : entries) {
+                if (!applyLogEntry(entry)) {
+                    skipped++;
+                }
+            }
+        } finally {
+            saveLock.writeLock().unlock();
+        }
+        System.out.println("Replayed " + (entries.size() - skipped) + " book change(s) from: " + mutationLog.getPath()
+                + (skipped > 0 ? " (" + skipped + " skipped)" : ""));
+        saveBooksToFile();
+    }
 
-        // Store matching books
-        Book[] matchedBooks = new Book[bookCount];
-        int matchCount = 0;
-
-        // Search for matches in the array (exact match, case-insensitive)
-        for (int i = 0; i < bookCount; i++) {
-            Book book = bookArray[i];
-            if (book.getBookAuthor().equalsIgnoreCase(authorName)) {
-                matchedBooks[matchCount++] = book;
+    /**
+     * Apply one mutation log entry to the stored books (save lock held exclusively)
+     * Formats: ADD,name,author,ISBN,total,borrowed | UPDATE,ISBN,name,author,total,borrowed | DELETE,ISBN
+     * @param entry Fields of the log entry
+     * @return true if applied; false if the entry is malformed or does not fit the books (skipped)
+     */
+    private boolean applyLogEntry(List<String> entry) {
+        String[] parts = entry.toArray(new String[0]);
+        try {
+            if ("ADD".equals(parts[0]) && parts.length == 6) {
+                Book book = new Book(parts[1], parts[2], parts[3], Integer.parseInt(parts[4]), Integer.parseInt(parts[5]));
+                if (validateNewBook(book) != null) {
+                    return false;
+                }
+                storeBook(book);
+                return true;
+            }
+            if ("UPDATE".equals(parts[0]) && parts.length == 6) {
+                Book book = bookMap.get(parts[1]);
+                int quantity = Integer.parseInt(parts[4]);
+                int borrowed = Integer.parseInt(parts[5]);
+                if (book == null || borrowed < 0 || borrowed > quantity) {
+                    return false;
+                }
+                replaceBook(book, new Book(parts[2], parts[3], parts[1], quantity, borrowed));
+                return true;
+            }
+            if ("DELETE".equals(parts[0]) && parts.length == 2) {
+                return removeBook(parts[1]) != null;
             }
+        } catch (NumberFormatException e) {
+            // Reported as skipped
         }
+        return false;
+    }
 
-        // Output results
-        if (matchCount == 0) {
-            System.out.println("No books found by author [" + authorName + "]!");
+    /**
+     * Append one change to the mutation log
+     * <p>
+     * Costs one small append instead of rewriting the whole data file.
+     * With a flush scheduler the append is buffered and written together with other changes.
+     * Called under the ISBN's lock, so the entries of one book are logged in the order they happened.
+     *
+     * @param fields Fields of the log entry describing the change
+     */
+    private void logMutation(String... fields) {
+        if (mutationLog == null) {
             return;
         }
+        mutationLog.append(fields);
+        if (flushScheduler != null) {
+            flushScheduler.markDirty(logFlushTask);
+        } else {
+            flushMutationLog();
+        }
+    }
 
-        System.out.println("\n===== Search Results (Author: " + authorName + ") =====");
-        System.out.println("Found " + matchCount + " book(s) by this author:");
-        for (int i = 0; i < matchCount; i++) {
-            Book book = matchedBooks[i];
-            int remaining = book.getBookQuantity() - book.getBookBorrowedQuantity();
-            System.out.println((i + 1) + ". ISBN: " + book.getBookISBN() +
-                    " | Name: " + book.getBookName() +
-                    " | Total: " + book.getBookQuantity() +
-                    " | Borrowed: " + book.getBookBorrowedQuantity() +
-                    " | Remaining: " + remaining);
+    /**
+     * Compact the mutation log (rewrite the data file) once it has grown too long
+     * Runs on the flush thread, or after the change's locks are released if there is no flush
+     * scheduler; never while the books are still being loaded.
+     */
+    private void compactIfNeeded() {
+        if (mutationLog == null || !lazyLoader.isLoaded() || !mutationLog.needsCompaction()) {
+            return;
+        }
+        saveLock.writeLock().lock();
+        try {
+            // Another thread may have compacted while this one waited
+            if (mutationLog.needsCompaction()) {
+                saveBooksToFile();
+            }
+        } finally {
+            saveLock.writeLock().unlock();
         }
     }
 
+    // Flush task: write the buffered log entries, then compact the log if it has grown too long
+    private void flushAndCompact() {
+        flushMutationLog();
+        compactIfNeeded();
+    }
+
     /**
-     * Public method to save all books to file
-     * This method can be called externally to force save
+     * Write the buffered mutation log entries to the log file
+     * If the write fails the entries stay buffered and are retried by the next flush or full save.
      */
-    public void saveDataToFile() {
-        saveBooksToFile();
+    private void flushMutationLog() {
+        MutationLog log = mutationLog;
+        if (log == null || !log.hasPendingEntries()) {
+            return;
+        }
+        try {
+            log.flush();
+        } catch (IOException e) {
+            System.out.println("Warning: Failed to write book change log: " + e.getMessage());
+        }
     }
 
     /**
      * Save all books to file
      * <p>
-     * Writes all books in the array to the specified file.
-     * File format: bookTitle,author,ISBN,totalQuantity,borrowedQuantity
+     * Writes all books in the map to the specified file.
+     * File format: bookTitle,author,ISBN,totalQuantity,borrowedQuantity (CSV, fields quoted when needed)
      * Preserves the header comments from the original file.
+     * Also rewrites the binary snapshot if one is set.
+     * Also compacts the mutation log: once the data files are written, the log is cleared.
+     * Holds the save lock exclusively, so no change can happen between writing the file and clearing the log.
      */
     private void saveBooksToFile() {
         if (filePath == null || filePath.trim().isEmpty()) {
@@ -395,6 +1004,7 @@ public class BookService {
             return;
         }
 
+        saveLock.writeLock().lock();
         try {
             Path path = Paths.get(filePath);
             // Create parent directories if they don't exist
@@ -402,7 +1012,9 @@ public class BookService {
                 Files.createDirectories(path.getParent());
             }
 
-            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            // Write to a temp file first, so a crash never leaves a half-written data file
+            Path tempPath = Paths.get(filePath + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
                 // Write header comments
                 writer.write("# books.txt — Book Data (UTF-8). Each line: book title, author, ISBN, total quantity, number lent");
                 writer.newLine();
@@ -411,22 +1023,34 @@ public class BookService {
                 writer.newLine();
 
                 // Write all books
-                for (int i = 0; i < bookCount; i++) {
-                    Book book = bookArray[i];
-                    writer.write(book.getBookName() + "," +
-                            book.getBookAuthor() + "," +
-                            book.getBookISBN() + "," +
-                            book.getBookQuantity() + "," +
-                            book.getBookBorrowedQuantity());
+                for (Book book : booksInOrder.values()) {
+                    writer.write(CsvWriter.formatRecord(book.getBookName(),
+                            book.getBookAuthor(),
+                            book.getBookISBN(),
+                            String.valueOf(book.getBookQuantity()),
+                            String.valueOf(book.getBookBorrowedQuantity())));
                     writer.newLine();
                 }
             }
+            // On the disk before it replaces the data file, since the log is cleared next
+            MutationLog.forceToDisk(tempPath);
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+            if (binarySnapshotPath != null) {
+                BinaryCatalogSnapshot.write(Paths.get(binarySnapshotPath), booksInOrder.values());
+            }
+            // Data file now holds every logged change, so the log can be cleared
+            if (mutationLog != null) {
+                mutationLog.clear();
+                mutationLog.setSnapshotSize(bookMap.size());
+            }
             // Save successful - show message for debugging
             System.out.println("Book data saved successfully to: " + filePath);
         } catch (IOException e) {
             System.out.println("Warning: Failed to save book data to file: " + e.getMessage());
             System.out.println("File path was: " + filePath);
             e.printStackTrace();
+        } finally {
+            saveLock.writeLock().unlock();
         }
     }
 }
\ No newline at end of file
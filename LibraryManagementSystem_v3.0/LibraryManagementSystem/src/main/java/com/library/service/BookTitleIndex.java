@@ -0,0 +1,130 @@
+package com.library.service;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trigram inverted index over case-folded book titles
+ *
+ * Main job: Map every 3-character piece of a lower-cased title to the ISBNs whose title contains it,
+ * so a "name contains keyword" search only checks books that share the keyword's rarest trigram.
+ * Kept up to date by BookService on add, update and delete.
+ * Thread-safe: books with different ISBNs can be indexed at the same time, and queries never block.
+ */
+class BookTitleIndex {
+
+    // Length of the indexed character pieces
+    static final int GRAM_LENGTH = 3;
+
+    // Trigram -> ISBNs of the books whose folded title contains it
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+    // ISBN -> folded (lower-cased) title, so queries never fold titles again
+    private final Map<String, String> foldedTitles = new ConcurrentHashMap<>();
+
+    /**
+     * Fold a title or keyword the same way the name search always did
+     * @param text Title or keyword
+     * @return Lower-cased text
+     */
+    static String fold(String text) {
+        return text.toLowerCase();
+    }
+
+    /**
+     * Index the title of a book
+     * @param isbn ISBN of the book
+     * @param title Book title
+     */
+    void add(String isbn, String title) {
+        String folded = fold(title);
+        foldedTitles.put(isbn, folded);
+        for (String gram : gramsOf(folded)) {
+            // compute() is atomic per trigram, so a concurrent remove() cannot drop the set under us
+            postings.compute(gram, (g, isbns) -> {
+                Set<String> set = isbns == null ? ConcurrentHashMap.newKeySet() : isbns;
+                set.add(isbn);
+                return set;
+            });
+        }
+    }
+
+    /**
+     * Remove a book from the index
+     * @param isbn ISBN of the book
+     */
+    void remove(String isbn) {
+        String folded = foldedTitles.remove(isbn);
+        if (folded == null) {
+            return;
+        }
+        for (String gram : gramsOf(folded)) {
+            postings.computeIfPresent(gram, (g, isbns) -> {
+                isbns.remove(isbn);
+                return isbns.isEmpty() ? null : isbns;
+            });
+        }
+    }
+
+    /**
+     * Get the folded title of an indexed book
+     * @param isbn ISBN of the book
+     * @return Folded title, or null if the book is not indexed
+     */
+    String foldedTitle(String isbn) {
+        return foldedTitles.get(isbn);
+    }
+
+    /**
+     * Find the books that may contain the keyword
+     * <p>
+     * Returns the posting set of the keyword's rarest trigram. Every real match is in it,
+     * but callers must still check the folded title with contains().
+     *
+     * @param foldedKeyword Keyword already folded with fold()
+     * @return Candidate ISBNs, or null if the keyword is shorter than a trigram
+     */
+    Set<String> candidates(String foldedKeyword) {
+        if (foldedKeyword.length() < GRAM_LENGTH) {
+            return null;
+        }
+        Set<String> smallest = null;
+        for (String gram : gramsOf(foldedKeyword)) {
+            Set<String> isbns = postings.get(gram);
+            if (isbns == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || isbns.size() < smallest.size()) {
+                smallest = isbns;
+            }
+        }
+        return smallest;
+    }
+
+    /**
+     * Get the indexed titles (for consistency checks)
+     * @return Read-only view: ISBN -> folded title
+     */
+    Map<String, String> foldedTitles() {
+        return Collections.unmodifiableMap(foldedTitles);
+    }
+
+    /**
+     * Get the posting sets (for consistency checks)
+     * @return Read-only view: trigram -> ISBNs
+     */
+    Map<String, Set<String>> postings() {
+        return Collections.unmodifiableMap(postings);
+    }
+
+    // Split folded text into its distinct trigrams
+    static Set<String> gramsOf(String folded) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= folded.length(); i++) {
+            grams.add(folded.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,128 @@
+package com.library.service;
+
+import com.library.model.BorrowRecord;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.IntFunction;
+
+/**
+ * Borrow-date index over all borrow records
+ *
+ * Main job: Keep the records sorted by borrow date, so a date range is found with one O(log days)
+ * seek in a skip list of days and then read in order, without copying or scanning other records.
+ * Each day holds the slots of its records in an append-only int array (4 bytes per record; records
+ * of the same day stay in the order they were added). A deleted record's slot is left in place:
+ * its row is empty, so readers skip it.
+ * Records whose date cannot be parsed are not indexed (they are in no date range).
+ * Changes run under BorrowService's write lock; reads of the index need no lock (the skip list is
+ * concurrent, and a day's array is only appended to, publishing each slot through a volatile size),
+ * but the rows the slots point to are read under the read lock.
+ */
+class BorrowDateIndex {
+    // Borrow day (epoch day) -> slots of the records borrowed that day
+    private final ConcurrentSkipListMap<Integer, DaySlots> slotsByDay = new ConcurrentSkipListMap<>();
+
+    // Slots of one day's records, in the order added
+    private static final class DaySlots {
+        private volatile int[] slots = new int[4];
+        private volatile int size = 0;
+
+        // Append a slot (writer only); the new array is published before the size that needs it
+        void append(int slot) {
+            int[] current = slots;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length + (current.length >> 1));
+                current[size] = slot;
+                slots = current;
+            } else {
+                current[size] = slot;
+            }
+            size = size + 1;
+        }
+    }
+
+    /**
+     * Index a new record (readers may see the slot at once; they read its row under BorrowService's read lock)
+     * @param slot Record slot (greater than every slot indexed before)
+     * @param borrowDay Borrow day (epoch day; NO_DATE: not indexed)
+     */
+    void add(int slot, int borrowDay) {
+        if (borrowDay != BorrowDates.NO_DATE) {
+            slotsByDay.computeIfAbsent(borrowDay, day -> new DaySlots()).append(slot);
+        }
+    }
+
+    /**
+     * Get the records borrowed in a range of days, oldest first
+     * The result is a live, read-only view: iterating it walks the days, builds each record
+     * from its row and sees changes made meanwhile (it never fails because of them).
+     * @param fromDay First borrow day (epoch day, inclusive)
+     * @param toDay Last borrow day (epoch day, inclusive)
+     * @param materializer Builds the record of a slot (null if it was deleted); must lock the row itself
+     * @return Records in the range
+     */
+    Collection<BorrowRecord> between(int fromDay, int toDay, IntFunction<BorrowRecord> materializer) {
+        if (fromDay > toDay) {
+            return Collections.emptyList();
+        }
+        Collection<DaySlots> days = slotsByDay.subMap(fromDay, true, toDay, true).values();
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<BorrowRecord> iterator() {
+                Iterator<DaySlots> dayIterator = days.iterator();
+                return new Iterator<>() {
+                    private DaySlots day = null;
+                    private int index = 0;
+                    private BorrowRecord next = advance();
+
+                    private BorrowRecord advance() {
+                        while (true) {
+                            if (day != null && index < day.size) {
+                                // size is read before slots, so the array holds every slot below size
+                                int slot = day.slots[index++];
+                                BorrowRecord record = materializer.apply(slot);
+                                if (record != null) {
+                                    return record;
+                                }
+                            } else if (dayIterator.hasNext()) {
+                                day = dayIterator.next();
+                                index = 0;
+                            } else {
+                                return null;
+                            }
+                        }
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public BorrowRecord next() {
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        BorrowRecord record = next;
+                        next = advance();
+                        return record;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int count = 0;
+                for (Iterator<BorrowRecord> records = iterator(); records.hasNext(); records.next()) {
+                    count++;
+                }
+                return count;
+            }
+        };
+    }
+}
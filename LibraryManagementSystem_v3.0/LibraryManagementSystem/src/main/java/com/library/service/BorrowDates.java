@@ -0,0 +1,65 @@
+package com.library.service;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Borrow date parsing
+ *
+ * Main job: Turn the free-form borrow date text of a record into an epoch day (days since 1970-01-01),
+ * once, so date comparisons are plain int comparisons.
+ * Accepted forms: yyyy-MM-dd (what checkouts write), also with 1-digit month/day and / or . separators.
+ */
+public final class BorrowDates {
+    // Returned for dates that cannot be parsed
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private BorrowDates() {
+    }
+
+    /**
+     * Parse a borrow date
+     * @param date Date text, e.g. "2025-09-01" or "2025/9/1"
+     * @return Epoch day, or NO_DATE if the text is not a valid date
+     */
+    public static int toEpochDay(String date) {
+        if (date == null) {
+            return NO_DATE;
+        }
+        String text = date.trim();
+        int[] parts = new int[3];
+        int part = 0;
+        int digits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > (part == 0 ? 4 : 2)) {
+                    return NO_DATE;
+                }
+                parts[part] = parts[part] * 10 + (c - '0');
+            } else if ((c == '-' || c == '/' || c == '.') && digits > 0 && part < 2) {
+                part++;
+                digits = 0;
+            } else {
+                return NO_DATE;
+            }
+        }
+        if (part != 2 || digits == 0) {
+            return NO_DATE;
+        }
+        try {
+            return (int) LocalDate.of(parts[0], parts[1], parts[2]).toEpochDay();
+        } catch (DateTimeException e) {
+            return NO_DATE;
+        }
+    }
+
+    /**
+     * Format an epoch day as yyyy-MM-dd
+     * @param epochDay Epoch day
+     * @return Date text
+     */
+    public static String format(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+}
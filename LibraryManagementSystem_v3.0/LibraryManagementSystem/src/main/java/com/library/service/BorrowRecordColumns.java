@@ -0,0 +1,258 @@
+package com.library.service;
+
+import com.library.model.BorrowRecord;
+import com.library.storage.StringPool;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Columnar (struct-of-arrays) storage of the borrow records
+ *
+ * Main job: Store each record as one row across primitive column arrays instead of as a
+ * BorrowRecord object with its own Strings, so a long borrow history costs a few bytes per field:
+ * - slot (row number): the record's int surrogate ID; slots follow the order records were added
+ * - borrow ID: StringPool code column, found through an open-addressing int hash table (no boxed map entries)
+ * - borrow date: epoch-day int column; a date not written as yyyy-MM-dd keeps its text in a side map
+ * - status: byte column
+ * - user ID and ISBN: StringPool code columns (StringPool.NONE: record not linked)
+ * The codes come from a pool owned by these columns; deleting a row releases its three codes, so the
+ * text of deleted records does not stay behind.
+ * A deleted record leaves an empty row; slots are never reused or renumbered, so indexes over slots stay valid.
+ * BorrowRecord objects are only created when a record is handed out (materialize()).
+ * Writers must hold BorrowService's write lock. Readers hold the read lock or validate an optimistic read:
+ * grow() swaps in new column arrays and delete() / setStatus() write rows with plain stores, so a reader
+ * without either has no happens-before edge with them (BorrowDateIndex views lock each row they read).
+ */
+final class BorrowRecordColumns {
+    // Initial number of rows (the columns grow by half when full)
+    private static final int INITIAL_ROWS = 64;
+
+    // Pool holding the text of the borrow ID, user ID and ISBN codes (one use per row)
+    private final StringPool pool = new StringPool();
+    // Columns, indexed by slot (borrow ID code StringPool.NONE: deleted row)
+    private int[] borrowIdCodes = new int[INITIAL_ROWS];
+    private int[] borrowDays = new int[INITIAL_ROWS];
+    private byte[] statuses = new byte[INITIAL_ROWS];
+    private int[] userCodes = new int[INITIAL_ROWS];
+    private int[] isbnCodes = new int[INITIAL_ROWS];
+    // Slot -> borrow date text, for dates that borrowDays cannot reproduce (other formats, invalid dates)
+    private final Map<Integer, String> dateTexts = new ConcurrentHashMap<>();
+    // Borrow ID hash table: slot + 1 per entry, 0 = empty; kept at most half full
+    private int[] idTable = new int[INITIAL_ROWS * 2];
+    // Rows used (including deleted ones) and live records
+    private int rowCount = 0;
+    private int liveCount = 0;
+
+    /**
+     * Append a record as a new row
+     * @param borrowId Record ID (not used by a live record)
+     * @param date Borrow date text
+     * @param status Status (0 - checked out, 1 - returned)
+     * @param userId Borrowing user, or null if the record is not linked
+     * @param isbn Borrowed book, or null if the record is not linked
+     * @return Slot of the new row
+     */
+    int append(String borrowId, String date, int status, String userId, String isbn) {
+        if (rowCount == borrowIdCodes.length) {
+            grow();
+        }
+        if ((liveCount + 1) * 2 > idTable.length) {
+            rehash(idTable.length * 2);
+        }
+        int slot = rowCount;
+        int borrowDay = BorrowDates.toEpochDay(date);
+        if (borrowDay == BorrowDates.NO_DATE || !BorrowDates.format(borrowDay).equals(date)) {
+            dateTexts.put(slot, date);
+        }
+        borrowIdCodes[slot] = pool.intern(borrowId);
+        borrowDays[slot] = borrowDay;
+        statuses[slot] = (byte) status;
+        userCodes[slot] = userId != null ? pool.intern(userId) : StringPool.NONE;
+        isbnCodes[slot] = userId != null ? pool.intern(isbn) : StringPool.NONE;
+        rowCount++;
+        liveCount++;
+        insertId(idTable, slot);
+        return slot;
+    }
+
+    /**
+     * Delete the record in a slot (the row stays, empty)
+     * @param slot Slot of a live record
+     */
+    void delete(int slot) {
+        int entry = findEntry(borrowIdCodes[slot]);
+        if (entry >= 0) {
+            removeEntry(entry);
+        }
+        pool.release(borrowIdCodes[slot]);
+        pool.release(userCodes[slot]);
+        pool.release(isbnCodes[slot]);
+        borrowIdCodes[slot] = StringPool.NONE;
+        userCodes[slot] = StringPool.NONE;
+        isbnCodes[slot] = StringPool.NONE;
+        dateTexts.remove(slot);
+        liveCount--;
+    }
+
+    /**
+     * Find the slot of a record
+     * @param borrowId Record ID
+     * @return Slot, or -1 if no record has this ID
+     */
+    int slotOf(String borrowId) {
+        // An ID that is not in the pool was never stored
+        int code = pool.codeOf(borrowId);
+        if (code == StringPool.NONE) {
+            return -1;
+        }
+        int entry = findEntry(code);
+        return entry < 0 ? -1 : idTable[entry] - 1;
+    }
+
+    void setStatus(int slot, int status) {
+        statuses[slot] = (byte) status;
+    }
+
+    boolean isLive(int slot) {
+        return borrowIdCodes[slot] != StringPool.NONE;
+    }
+
+    int status(int slot) {
+        return statuses[slot];
+    }
+
+    // Epoch day of the borrow date (BorrowDates.NO_DATE if it is not a valid date)
+    int borrowDay(int slot) {
+        return borrowDays[slot];
+    }
+
+    boolean isLinked(int slot) {
+        return userCodes[slot] != StringPool.NONE;
+    }
+
+    // StringPool code of the user ID (StringPool.NONE if the record is not linked)
+    int userCode(int slot) {
+        return userCodes[slot];
+    }
+
+    // StringPool code of a user ID (StringPool.NONE if no live record is linked to it)
+    int userCodeOf(String userId) {
+        return pool.codeOf(userId);
+    }
+
+    String borrowId(int slot) {
+        return pool.decode(borrowIdCodes[slot]);
+    }
+
+    String borrowDate(int slot) {
+        String text = dateTexts.get(slot);
+        return text != null ? text : BorrowDates.format(borrowDays[slot]);
+    }
+
+    String userId(int slot) {
+        return pool.decode(userCodes[slot]);
+    }
+
+    String isbn(int slot) {
+        return pool.decode(isbnCodes[slot]);
+    }
+
+    /**
+     * Build a BorrowRecord from a row
+     * @param slot Slot
+     * @return New record object, or null if the record in this slot was deleted
+     */
+    BorrowRecord materialize(int slot) {
+        int borrowIdCode = borrowIdCodes[slot];
+        if (borrowIdCode == StringPool.NONE) {
+            return null;
+        }
+        if (userCodes[slot] == StringPool.NONE) {
+            return new BorrowRecord(pool.decode(borrowIdCode), borrowDate(slot), statuses[slot]);
+        }
+        return new BorrowRecord(pool.decode(borrowIdCode), borrowDate(slot), statuses[slot],
+                pool.decode(userCodes[slot]), pool.decode(isbnCodes[slot]));
+    }
+
+    // Rows used, including deleted ones (slots are 0 to rowCount - 1)
+    int rowCount() {
+        return rowCount;
+    }
+
+    // Number of live records
+    int liveCount() {
+        return liveCount;
+    }
+
+    private void grow() {
+        int capacity = borrowIdCodes.length + (borrowIdCodes.length >> 1);
+        borrowIdCodes = Arrays.copyOf(borrowIdCodes, capacity);
+        borrowDays = Arrays.copyOf(borrowDays, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        userCodes = Arrays.copyOf(userCodes, capacity);
+        isbnCodes = Arrays.copyOf(isbnCodes, capacity);
+    }
+
+    // ====================== Borrow ID hash table (linear probing) ======================
+
+    private static int hash(int borrowIdCode) {
+        int h = borrowIdCode * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Position of the ID code's entry in idTable, or -1 (the probe count is bounded for unlocked readers)
+    private int findEntry(int borrowIdCode) {
+        int[] table = idTable;
+        int mask = table.length - 1;
+        int position = hash(borrowIdCode) & mask;
+        for (int probes = 0; probes < table.length; probes++) {
+            int entry = table[position];
+            if (entry == 0) {
+                return -1;
+            }
+            if (borrowIdCodes[entry - 1] == borrowIdCode) {
+                return position;
+            }
+            position = (position + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insertId(int[] table, int slot) {
+        int mask = table.length - 1;
+        int position = hash(borrowIdCodes[slot]) & mask;
+        while (table[position] != 0) {
+            position = (position + 1) & mask;
+        }
+        table[position] = slot + 1;
+    }
+
+    // Build a bigger table off to the side, then publish it
+    private void rehash(int capacity) {
+        int[] table = new int[capacity];
+        for (int slot = 0; slot < rowCount; slot++) {
+            if (borrowIdCodes[slot] != StringPool.NONE) {
+                insertId(table, slot);
+            }
+        }
+        idTable = table;
+    }
+
+    // Remove an entry and shift later entries of the probe run back, so no lookup stops early
+    private void removeEntry(int position) {
+        int[] table = idTable;
+        int mask = table.length - 1;
+        int hole = position;
+        int next = (hole + 1) & mask;
+        while (table[next] != 0) {
+            int home = hash(borrowIdCodes[table[next] - 1]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+}
@@ -1,116 +1,202 @@
 package com.library.service;
 
 import com.library.model.BorrowRecord;
+import com.library.storage.CsvWriter;
+import com.library.storage.FlushScheduler;
+import com.library.storage.LazyLoader;
+import com.library.storage.MutationLog;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 /**
  * Borrow business logic service class
  *
  * Main job: Handle all borrow record operations like adding, deleting, querying, updating.
- * Store and manage records with an array. Ensure valid and complete data operations.
+ * Store records in columns (see BorrowRecordColumns): one row per record, in the order they were added,
+ * with the row number (slot) as the record's int surrogate ID. Ensure valid and complete data operations.
+ * BorrowRecord objects are only built when records are returned to the caller; each one is a new
+ * snapshot that the caller may keep or change freely.
+ * The records are loaded on first access (see setLoader()).
+ * Thread-safe: changes take a StampedLock's write lock; searches read optimistically and only take
+ * the read lock if a change happened while they ran.
+ * Active loans are also kept in a due-date index, so overdue queries only touch overdue loans,
+ * and all records in a borrow-date index for date-range queries. Both hold slots, not records.
+ * Status and linked user are indexed in compressed bitmaps over the slots (see SlotBitmapIndex),
+ * so counting records by status is O(1), listing them skips all other records, and combined
+ * filters (a user's active loans) are bitmap intersections.
  */
 public class BorrowService {
-    // Max array capacity: maximum number of borrow records the system can store
-    private static final int MAX_CAPACITY = 200;
-    // Borrow record array: stores all borrow record objects
-    private BorrowRecord[] borrowArray = new BorrowRecord[MAX_CAPACITY];
-    // Actual record count: number of records stored (≤ MAX_CAPACITY)
-    private int recordCount = 0;
+    // Default number of days a loan lasts
+    public static final int DEFAULT_LOAN_PERIOD_DAYS = 14;
+    // Borrow records, one row per record (slot = row number)
+    private final BorrowRecordColumns columns = new BorrowRecordColumns();
+    // Slots by status (0 / 1) and by linked user (code of the user ID in the columns' StringPool)
+    private final SlotBitmapIndex<Integer> statusIndex = new SlotBitmapIndex<>();
+    private final SlotBitmapIndex<Integer> userIndex = new SlotBitmapIndex<>();
     // File path for saving borrow record data
     private String filePath = null;
+    // Append-only log of changes since the data file was last written
+    private MutationLog mutationLog = null;
+    // Shared scheduler that coalesces log writes (null: write the log after every change)
+    private FlushScheduler flushScheduler = null;
+    // Flush task handed to the scheduler (same instance every time, so changes are coalesced);
+    // it also compacts the log, so the flush thread pays for compaction instead of a caller
+    private final Runnable logFlushTask = this::flushAndCompact;
+    // Code that fills the service with the stored borrow records (null: start empty)
+    private Runnable loader = null;
+    // Runs the load step (loader and log replay) once, on first access
+    private final LazyLoader lazyLoader = new LazyLoader();
+    private final Runnable loadStep = this::openStore;
+    // Guards the columns and indexes: write lock for changes, optimistic reads for searches
+    private final StampedLock lock = new StampedLock();
+    // Active loans ordered by due day (guarded by the lock like the columns)
+    private final DueDateIndex dueDateIndex = new DueDateIndex(DEFAULT_LOAN_PERIOD_DAYS);
+    // All records ordered by borrow date (changed under the write lock, read without locking)
+    private final BorrowDateIndex borrowDateIndex = new BorrowDateIndex();
+    // Day of the last overdue sweep (loans that fell due before it were already reported)
+    private int lastSweepDay = BorrowDates.NO_DATE;
+    // Active loans indexed since the last sweep with a due day before it (the next sweep reports them)
+    private final Set<Integer> lateLoans = new HashSet<>();
 
     /**
      * Add a new borrow record to the system
      *
-     * Check if record info is valid (not empty, valid status, etc.), array capacity, and unique record ID.
-     * Add the record to the array and update the count.
+     * Check if record info is valid (not empty, valid status, etc.) and the record ID is unique.
+     * Store the record's values in the next row and index it.
+     * The linked book is not changed: to lend a copy, use CirculationService.addBorrowRecord().
      *
      * @param newRecord Record to add (has ID, date, status, etc.)
-     * @return true if added successfully; false if info invalid, array full, or ID duplicate
+     * @return true if added successfully; false if info invalid or ID duplicate
      */
     public boolean addBorrowRecord(BorrowRecord newRecord) {
-        // 1. Check if parameter is valid
+        ensureLoaded();
+        return mutate(() -> {
+            // 1-3. Check if parameter is valid and record ID is unique
+            String error = validateNewRecord(newRecord);
+            if (error != null) {
+                System.out.println("Error: " + error);
+                return false;
+            }
+
+            // 4. All checks passed, store the values (the caller's object is not kept)
+            int slot = storeRecord(newRecord);
+            String borrowId = columns.borrowId(slot);
+            System.out.println("Successfully added borrow record (ID: " + borrowId + ")");
+
+            // 5. Record the change in the mutation log
+            String status = String.valueOf(columns.status(slot));
+            if (columns.isLinked(slot)) {
+                logMutation("ADD", borrowId, columns.borrowDate(slot), status, columns.userId(slot), columns.isbn(slot));
+            } else {
+                logMutation("ADD", borrowId, columns.borrowDate(slot), status);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Add borrow records read from a data file
+     *
+     * Same checks as addBorrowRecord(), but only invalid records are reported
+     * and nothing is written to the mutation log.
+     * The values are copied into the columns; the record objects are not kept.
+     *
+     * @param records Records to add, in file order
+     * @return Number of records added
+     */
+    public int loadBorrowRecords(Iterable<BorrowRecord> records) {
+        ensureLoaded();
+        int added = 0;
+        long stamp = lock.writeLock();
+        try {
+            for (BorrowRecord record : records) {
+                String error = validateNewRecord(record);
+                if (error != null) {
+                    System.out.println("Skip invalid borrow record: " + error);
+                    continue;
+                }
+                storeRecord(record);
+                added++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return added;
+    }
+
+    /**
+     * Check a borrow record before it is added
+     * @param newRecord Record to check
+     * @return Error message, or null if the record can be added
+     */
+    private String validateNewRecord(BorrowRecord newRecord) {
         if (newRecord == null) {
-            System.out.println("Error: Borrow record is empty!");
-            return false;
+            return "Borrow record is empty!";
         }
         if (newRecord.getBorrowId() == null || newRecord.getBorrowId().trim().isEmpty()) {
-            System.out.println("Error: Record ID cannot be empty!");
-            return false;
+            return "Record ID cannot be empty!";
         }
         if (newRecord.getBorrowDate() == null || newRecord.getBorrowDate().trim().isEmpty()) {
-            System.out.println("Error: Borrow date cannot be empty!");
-            return false;
+            return "Borrow date cannot be empty!";
         }
         if (newRecord.getBorrowStatus() != 0 && newRecord.getBorrowStatus() != 1) {
-            System.out.println("Error: Invalid status (0 - checked out, 1 - returned)!");
-            return false;
+            return "Invalid status (0 - checked out, 1 - returned)!";
         }
-
-        // 2. Check if array is full
-        if (recordCount >= MAX_CAPACITY) {
-            System.out.println("Error: Borrow record array is full. Cannot add new records!");
-            return false;
-        }
-
-        // 3. Check if record ID already exists (ID is unique)
-        for (int i = 0; i < recordCount; i++) {
-            if (borrowArray[i].getBorrowId().equals(newRecord.getBorrowId())) {
-                System.out.println("Error: Borrow record with ID [" + newRecord.getBorrowId() + "] already exists. Cannot add again!");
-                return false;
-            }
+        // A linked record needs both the user and the book
+        if (isBlank(newRecord.getUserId()) != isBlank(newRecord.getIsbn())) {
+            return "User ID and ISBN must be given together!";
         }
-
-        // 4. All checks passed, add to array
-        borrowArray[recordCount++] = newRecord;
-        System.out.println("Successfully added borrow record (ID: " + newRecord.getBorrowId() + ")");
-
-        // 5. Save to file if file path is set
-        if (filePath != null) {
-            saveBorrowRecordsToFile();
+        // Check if record ID already exists (ID is unique)
+        if (columns.slotOf(newRecord.getBorrowId()) >= 0) {
+            return "Borrow record with ID [" + newRecord.getBorrowId() + "] already exists. Cannot add again!";
         }
-
-        return true;
+        return null;
     }
 
     /**
      * Delete a borrow record by ID
      *
-     * Find the record by ID. If found, move subsequent elements forward to cover it.
-     * Update the record count to keep the array continuous.
+     * Find the record's slot by ID and empty its row. The other records keep their slots,
+     * so the indexes over slots stay valid.
+     * The linked book is not changed: to free the copy of a loan, use CirculationService.deleteBorrowRecord().
      *
      * @param borrowId ID of the record to delete (unique ID)
      * @return true if deleted successfully; false if ID is empty or record not found
      */
     public boolean deleteBorrowRecord(String borrowId) {
+        ensureLoaded();
         if (borrowId == null || borrowId.trim().isEmpty()) {
             System.out.println("Error: Record ID cannot be empty!");
             return false;
         }
-        for (int i = 0; i < recordCount; i++) {
-            if (borrowArray[i].getBorrowId().equals(borrowId)) {
-                // Move elements forward to cover the deleted one
-                for (int j = i; j < recordCount - 1; j++) {
-                    borrowArray[j] = borrowArray[j + 1];
-                }
-                borrowArray[--recordCount] = null; // Empty the last element for GC
-                System.out.println("Successfully deleted borrow record with ID [" + borrowId + "]!");
-
-                // Save to file if file path is set
-                if (filePath != null) {
-                    saveBorrowRecordsToFile();
-                }
-
-                return true;
+        return mutate(() -> {
+            int slot = columns.slotOf(borrowId);
+            if (slot < 0) {
+                System.out.println("No borrow record found with ID [" + borrowId + "]!");
+                return false;
             }
-        }
-        System.out.println("No borrow record found with ID [" + borrowId + "]!");
-        return false;
+            removeRecord(slot);
+            System.out.println("Successfully deleted borrow record with ID [" + borrowId + "]!");
+
+            // Record the change in the mutation log
+            logMutation("DELETE", borrowId);
+            return true;
+        });
     }
 
     /**
@@ -118,12 +204,14 @@ public class BorrowService {
      *
      * Find the record by ID. Update its status (0 - checked out, 1 - returned).
      * Record ID and date cannot be modified.
+     * The linked book is not changed: to return or re-lend a loan, use CirculationService.updateBorrowStatus().
      *
      * @param borrowId ID of the record to modify
      * @param newStatus New status (0 - checked out, 1 - returned)
      * @return true if updated successfully; false if parameters invalid or record not found
      */
     public boolean updateBorrowStatus(String borrowId, int newStatus) {
+        ensureLoaded();
         // 1. Check if parameters are valid
         if (borrowId == null || borrowId.trim().isEmpty()) {
             System.out.println("Error: Record ID cannot be empty!");
@@ -134,110 +222,479 @@ public class BorrowService {
             return false;
         }
 
-        // 2. Find the record and update status
-        for (int i = 0; i < recordCount; i++) {
-            if (borrowArray[i].getBorrowId().equals(borrowId)) {
-                borrowArray[i].setBorrowStatus(newStatus);
-                System.out.println("Successfully updated status of record ID [" + borrowId + "] to: " + (newStatus == 0 ? "checked out" : "returned"));
+        // 2. Find the record and change its status
+        return mutate(() -> {
+            int slot = columns.slotOf(borrowId);
+            if (slot < 0) {
+                System.out.println("No borrow record found with ID [" + borrowId + "]. Update failed!");
+                return false;
+            }
+            changeStatus(slot, newStatus);
+            System.out.println("Successfully updated status of record ID [" + borrowId + "] to: " + (newStatus == 0 ? "checked out" : "returned"));
 
-                // Save to file if file path is set
-                if (filePath != null) {
-                    saveBorrowRecordsToFile();
-                }
+            // Record the change in the mutation log
+            logMutation("STATUS", borrowId, String.valueOf(newStatus));
+            return true;
+        });
+    }
 
-                return true;
+    /**
+     * Change the status of a borrow record only if it still has the expected status
+     * <p>
+     * The check and the change happen under one write lock, so when two callers try to
+     * return the same loan, exactly one of them succeeds. Nothing is printed.
+     *
+     * @param borrowId ID of the record to modify
+     * @param expectedStatus Status the record must have now
+     * @param newStatus New status (0 - checked out, 1 - returned)
+     * @return true if the status was changed; false if the record is missing or has another status
+     */
+    public boolean compareAndSetStatus(String borrowId, int expectedStatus, int newStatus) {
+        ensureLoaded();
+        if (borrowId == null || borrowId.trim().isEmpty() || (newStatus != 0 && newStatus != 1)) {
+            return false;
+        }
+        return mutate(() -> {
+            int slot = columns.slotOf(borrowId);
+            if (slot < 0 || columns.status(slot) != expectedStatus) {
+                return false;
             }
+            changeStatus(slot, newStatus);
+            logMutation("STATUS", borrowId, String.valueOf(newStatus));
+            return true;
+        });
+    }
+
+    // Store a new record in the next row and index it (write lock held)
+    private int storeRecord(BorrowRecord record) {
+        boolean linked = !isBlank(record.getUserId());
+        int slot = columns.append(record.getBorrowId(), record.getBorrowDate(), record.getBorrowStatus(),
+                linked ? record.getUserId() : null, linked ? record.getIsbn() : null);
+        int borrowDay = columns.borrowDay(slot);
+        statusIndex.add(columns.status(slot), slot);
+        if (linked) {
+            userIndex.add(columns.userCode(slot), slot);
         }
+        if (columns.status(slot) == 0) {
+            indexLoan(slot, borrowDay);
+        }
+        // Date-range readers may see the slot before the write lock is released; they read its row
+        // under the read lock, so they wait for the change to finish
+        borrowDateIndex.add(slot, borrowDay);
+        return slot;
+    }
 
-        System.out.println("No borrow record found with ID [" + borrowId + "]. Update failed!");
-        return false;
+    // Change the status of a record and move it between the status indexes (write lock held)
+    private void changeStatus(int slot, int newStatus) {
+        int oldStatus = columns.status(slot);
+        int borrowDay = columns.borrowDay(slot);
+        statusIndex.remove(oldStatus, slot);
+        if (oldStatus == 0) {
+            unindexLoan(slot, borrowDay);
+        }
+        columns.setStatus(slot, newStatus);
+        statusIndex.add(newStatus, slot);
+        if (newStatus == 0) {
+            indexLoan(slot, borrowDay);
+        }
+    }
+
+    // Add an active loan to the due-date index; queue it for the next sweep if it fell due
+    // before the last one, since sweeps only read due days from the last sweep day on (write lock held)
+    private void indexLoan(int slot, int borrowDay) {
+        dueDateIndex.add(slot, borrowDay);
+        if (isLate(borrowDay)) {
+            lateLoans.add(slot);
+        }
+    }
+
+    // Remove a loan from the due-date index and the late queue (write lock held)
+    private void unindexLoan(int slot, int borrowDay) {
+        dueDateIndex.remove(slot, borrowDay);
+        lateLoans.remove(slot);
+    }
+
+    // True if a loan borrowed on this day fell due before the last sweep day (lock held)
+    private boolean isLate(int borrowDay) {
+        return lastSweepDay != BorrowDates.NO_DATE && borrowDay != BorrowDates.NO_DATE
+                && dueDateIndex.dueDay(borrowDay) < lastSweepDay;
+    }
+
+    // Remove a record from the indexes and empty its row (write lock held)
+    private void removeRecord(int slot) {
+        // The borrow-date index keeps the slot; its readers skip the emptied row
+        int borrowDay = columns.borrowDay(slot);
+        if (columns.status(slot) == 0) {
+            unindexLoan(slot, borrowDay);
+        }
+        statusIndex.remove(columns.status(slot), slot);
+        if (columns.isLinked(slot)) {
+            userIndex.remove(columns.userCode(slot), slot);
+        }
+        columns.delete(slot);
+    }
+
+    // Records in the given slots, in slot (insertion) order (read lock held)
+    private List<BorrowRecord> recordsIn(SlotBitmap slots) {
+        List<BorrowRecord> records = new ArrayList<>(slots.cardinality());
+        slots.forEach(slot -> records.add(columns.materialize(slot)));
+        return records;
+    }
+
+    private static boolean isBlank(String text) {
+        return text == null || text.trim().isEmpty();
     }
 
     /**
-     * View details of all borrow records in the system
+     * Get all borrow records in the system
+     *
+     * Returns the records in the order they were added. Nothing is printed.
      *
-     * Go through the array and show ID, date and status of all records.
-     * Show a message if there are no records.
+     * @return All borrow records (empty list if there are none)
      */
-    public void listAllBorrowRecords() {
-        if (recordCount == 0) {
-            System.out.println("Borrow record array is empty. No records to show!");
-            return;
-        }
-        System.out.println("\n===== All Borrow Records List =====");
-        for (int i = 0; i < recordCount; i++) {
-            BorrowRecord record = borrowArray[i];
-            System.out.println("No.: " + (i + 1) +
-                    " | Record ID: " + record.getBorrowId() +
-                    " | Borrow Date: " + record.getBorrowDate() +
-                    " | Status: " + (record.getBorrowStatus() == 0 ? "checked out" : "returned"));
-        }
+    public List<BorrowRecord> getAllBorrowRecords() {
+        ensureLoaded();
+        return read(() -> {
+            int rowCount = columns.rowCount();
+            List<BorrowRecord> records = new ArrayList<>(columns.liveCount());
+            for (int slot = 0; slot < rowCount; slot++) {
+                BorrowRecord record = columns.materialize(slot);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+            return records;
+        });
     }
 
     /**
-     * Search a borrow record by exact ID
+     * Get one page of the borrow records (in the order they were added)
      *
-     * Find the record by exact ID match. Show its details.
-     * Show a message if not found.
+     * Only the records of the page are built; skipped rows are just checked for being live.
+     * Nothing is printed.
      *
-     * @param borrowId ID of the record to search (unique ID)
+     * @param offset Number of records to skip
+     * @param limit Largest number of records to return
+     * @return The records of the page (empty list if offset is past the end)
      */
-    public void searchByBorrowId(String borrowId) {
-        if (borrowId == null || borrowId.trim().isEmpty()) {
-            System.out.println("Error: Record ID cannot be empty!");
-            return;
-        }
-        for (int i = 0; i < recordCount; i++) {
-            BorrowRecord record = borrowArray[i];
-            if (record.getBorrowId().equals(borrowId)) {
-                System.out.println("\n===== Borrow Record Details =====");
-                System.out.println("Record ID: " + record.getBorrowId());
-                System.out.println("Borrow Date: " + record.getBorrowDate());
-                System.out.println("Status: " + (record.getBorrowStatus() == 0 ? "checked out" : "returned"));
-                return;
+    public List<BorrowRecord> getBorrowRecords(int offset, int limit) {
+        ensureLoaded();
+        return read(() -> {
+            int rowCount = columns.rowCount();
+            List<BorrowRecord> records = new ArrayList<>(Math.min(limit, 1024));
+            int skip = offset;
+            for (int slot = 0; slot < rowCount && records.size() < limit; slot++) {
+                if (!columns.isLive(slot)) {
+                    continue;
+                }
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    records.add(columns.materialize(slot));
+                }
             }
+            return records;
+        });
+    }
+
+    /**
+     * Get the number of borrow records in the system
+     * @return Record count
+     */
+    public int getRecordCount() {
+        ensureLoaded();
+        return read(columns::liveCount);
+    }
+
+    /**
+     * Find a borrow record by exact ID
+     *
+     * @param borrowId ID of the record to find (unique ID)
+     * @return The record, or null if the ID is empty or no record has it
+     */
+    public BorrowRecord findByBorrowId(String borrowId) {
+        ensureLoaded();
+        if (borrowId == null || borrowId.trim().isEmpty()) {
+            return null;
         }
-        System.out.println("No borrow record found with ID [" + borrowId + "]!");
+        return read(() -> {
+            int slot = columns.slotOf(borrowId);
+            return slot < 0 ? null : columns.materialize(slot);
+        });
     }
 
     /**
-     * Search borrow records by status
+     * Find borrow records by status
      *
-     * Find records by status (0 - checked out, 1 - returned). Return all records with the same status.
-     * Show a message if none found.
+     * Find records by status (0 - checked out, 1 - returned), in the order they were added.
+     * Reads only the slots in the status bitmap: O(number found), not O(all records).
      *
      * @param status Status value (0 - checked out, 1 - returned)
+     * @return Matching records (empty list if the status is invalid or none found)
      */
-    public void searchByStatus(int status) {
+    public List<BorrowRecord> findByStatus(int status) {
+        ensureLoaded();
         if (status != 0 && status != 1) {
-            System.out.println("Error: Invalid status (0 - checked out, 1 - returned)!");
-            return;
+            return new ArrayList<>();
+        }
+        return readLocked(() -> recordsIn(statusIndex.slotsWith(status)));
+    }
+
+    /**
+     * Count the borrow records with a status (e.g. the books checked out right now)
+     * O(1): the size of the status bitmap, nothing is scanned.
+     *
+     * @param status Status value (0 - checked out, 1 - returned)
+     * @return Number of records (0 if the status is invalid)
+     */
+    public int countByStatus(int status) {
+        ensureLoaded();
+        return readLocked(() -> statusIndex.count(status));
+    }
+
+    /**
+     * Find the borrow records linked to a user, in the order they were added
+     *
+     * @param userId User ID
+     * @return Records of checkouts by the user (empty list if none)
+     */
+    public List<BorrowRecord> findByUserId(String userId) {
+        ensureLoaded();
+        // The code is looked up under the lock: a user's code is reused once all their records are deleted
+        return readLocked(() -> recordsIn(userIndex.slotsWith(columns.userCodeOf(userId))));
+    }
+
+    /**
+     * Find the borrow records of a user with a status (e.g. the user's current loans)
+     * Intersects the user's bitmap with the status bitmap.
+     *
+     * @param userId User ID
+     * @param status Status value (0 - checked out, 1 - returned)
+     * @return Matching records, in the order they were added (empty list if none)
+     */
+    public List<BorrowRecord> findByUserAndStatus(String userId, int status) {
+        ensureLoaded();
+        return readLocked(() -> recordsIn(userIndex.slotsWith(columns.userCodeOf(userId)).and(statusIndex.slotsWith(status))));
+    }
+
+    /**
+     * Count the borrow records of a user with a status, without listing them
+     *
+     * @param userId User ID
+     * @param status Status value (0 - checked out, 1 - returned)
+     * @return Number of matching records
+     */
+    public int countByUserAndStatus(String userId, int status) {
+        ensureLoaded();
+        return readLocked(() -> userIndex.slotsWith(columns.userCodeOf(userId)).andCardinality(statusIndex.slotsWith(status)));
+    }
+
+    /**
+     * Find the records borrowed in a date range
+     * <p>
+     * One O(log days) seek in the borrow-date index, then the range is read in order.
+     * The result is a live read-only view: records are built as it is iterated, so iterate it once
+     * (e.g. to print or stream it; size() also walks it); it reflects changes made while iterating.
+     * Each row is read under the read lock, so it is never seen half-changed (or in column arrays
+     * swapped out by a concurrent append); the lock is held for one row at a time.
+     * Records with an invalid date are never included.
+     *
+     * @param from First borrow date (inclusive)
+     * @param to Last borrow date (inclusive)
+     * @return Records borrowed from 'from' to 'to', oldest first (empty if from is after to)
+     */
+    public Collection<BorrowRecord> findByDateRange(LocalDate from, LocalDate to) {
+        ensureLoaded();
+        return borrowDateIndex.between((int) from.toEpochDay(), (int) to.toEpochDay(), this::materializeLocked);
+    }
+
+    // Build the record of a slot under the read lock (null if it was deleted)
+    private BorrowRecord materializeLocked(int slot) {
+        long stamp = lock.readLock();
+        try {
+            return columns.materialize(slot);
+        } finally {
+            lock.unlockRead(stamp);
         }
+    }
 
-        // Store matching records
-        BorrowRecord[] matchedRecords = new BorrowRecord[recordCount];
-        int matchCount = 0;
+    /**
+     * Find the overdue loans
+     * <p>
+     * A loan is overdue once its due day (borrow date + loan period) has passed.
+     * Reads only the overdue part of the due-date index: O(log n + number overdue).
+     *
+     * @param today Current day
+     * @return Checked-out records due before today, earliest due first
+     */
+    public List<BorrowRecord> findOverdue(LocalDate today) {
+        ensureLoaded();
+        int todayEpochDay = (int) today.toEpochDay();
+        return readLocked(() -> dueBetween(Integer.MIN_VALUE, todayEpochDay));
+    }
 
-        // Search for matches in the array
-        for (int i = 0; i < recordCount; i++) {
-            BorrowRecord record = borrowArray[i];
-            if (record.getBorrowStatus() == status) {
-                matchedRecords[matchCount++] = record;
+    /**
+     * Daily overdue sweep: find the loans that became overdue since the last sweep
+     * <p>
+     * The first sweep reports every overdue loan; later sweeps only the loans that fell due
+     * since the previous sweep day, so a daily sweep costs O(log n + loans newly overdue).
+     * Loans that became active since the last sweep with a due day before it (added or replayed
+     * with an old date, set back to checked out, or moved earlier by a shorter loan period) are
+     * reported by the next sweep too, before the others.
+     *
+     * @param today Current day
+     * @return Checked-out records that became overdue since the last sweep, earliest due first
+     */
+    public List<BorrowRecord> sweepNewlyOverdue(LocalDate today) {
+        ensureLoaded();
+        int todayEpochDay = (int) today.toEpochDay();
+        long stamp = lock.writeLock();
+        try {
+            int fromDay = lastSweepDay == BorrowDates.NO_DATE ? Integer.MIN_VALUE : lastSweepDay;
+            // Late loans are due before fromDay, so they come first
+            List<Integer> late = new ArrayList<>(lateLoans);
+            late.sort(Comparator.comparingInt((Integer slot) -> columns.borrowDay(slot)).thenComparingInt(slot -> slot));
+            List<BorrowRecord> newlyOverdue = new ArrayList<>(late.size());
+            for (int slot : late) {
+                newlyOverdue.add(columns.materialize(slot));
             }
+            lateLoans.clear();
+            newlyOverdue.addAll(dueBetween(fromDay, todayEpochDay));
+            lastSweepDay = Math.max(lastSweepDay, todayEpochDay);
+            return newlyOverdue;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Get the due date of an active loan
+     * @param borrowId ID of the record
+     * @return Due date (yyyy-MM-dd), or null if the record is not checked out or its date is not valid
+     */
+    public String getDueDate(String borrowId) {
+        ensureLoaded();
+        if (borrowId == null) {
+            return null;
         }
+        return readLocked(() -> {
+            int slot = columns.slotOf(borrowId);
+            if (slot < 0 || columns.status(slot) != 0 || columns.borrowDay(slot) == BorrowDates.NO_DATE) {
+                return null;
+            }
+            return BorrowDates.format(dueDateIndex.dueDay(columns.borrowDay(slot)));
+        });
+    }
 
-        // Output results
-        if (matchCount == 0) {
-            System.out.println("No borrow records found with status [" + (status == 0 ? "checked out" : "returned") + "]!");
+    // Active loans due from fromDay (inclusive) to toDay (exclusive), earliest due first (lock held)
+    private List<BorrowRecord> dueBetween(int fromDay, int toDay) {
+        List<BorrowRecord> loans = new ArrayList<>();
+        dueDateIndex.forEachDueBetween(fromDay, toDay, slot -> loans.add(columns.materialize(slot)));
+        return loans;
+    }
+
+    /**
+     * Set how many days a loan lasts (re-indexes the active loans already loaded)
+     * @param loanPeriodDays Loan period in days (at least 1)
+     */
+    public void setLoanPeriodDays(int loanPeriodDays) {
+        if (loanPeriodDays < 1) {
+            System.out.println("Error: Loan period must be at least 1 day!");
             return;
         }
+        long stamp = lock.writeLock();
+        try {
+            // Active loans no sweep has reported yet: queued, or not due before the last sweep
+            // (those that become late with the new period must be queued)
+            Set<Integer> unreported = new HashSet<>();
+            int rowCount = columns.rowCount();
+            for (int slot = 0; slot < rowCount; slot++) {
+                if (columns.isLive(slot) && columns.status(slot) == 0
+                        && (lateLoans.contains(slot) || !isLate(columns.borrowDay(slot)))) {
+                    unreported.add(slot);
+                }
+            }
+            dueDateIndex.reset(loanPeriodDays);
+            lateLoans.clear();
+            for (int slot = 0; slot < rowCount; slot++) {
+                if (columns.isLive(slot) && columns.status(slot) == 0) {
+                    dueDateIndex.add(slot, columns.borrowDay(slot));
+                    if (unreported.contains(slot) && isLate(columns.borrowDay(slot))) {
+                        lateLoans.add(slot);
+                    }
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int getLoanPeriodDays() {
+        return readLocked(dueDateIndex::getLoanPeriodDays);
+    }
+
+    /**
+     * Run one change under the write lock
+     * Without a flush scheduler, compacts the mutation log afterwards if it has grown too long
+     * (with one, the flush thread does it).
+     * @param change The change; returns true if it changed anything
+     * @return Result of the change
+     */
+    private boolean mutate(BooleanSupplier change) {
+        boolean changed;
+        long stamp = lock.writeLock();
+        try {
+            changed = change.getAsBoolean();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (changed && flushScheduler == null) {
+            compactIfNeeded();
+        }
+        return changed;
+    }
 
-        System.out.println("\n===== Search Results (Status: " + (status == 0 ? "checked out" : "returned") + ") =====");
-        System.out.println("Found " + matchCount + " related records:");
-        for (int i = 0; i < matchCount; i++) {
-            BorrowRecord record = matchedRecords[i];
-            System.out.println((i + 1) + ". Record ID: " + record.getBorrowId() +
-                    " | Borrow Date: " + record.getBorrowDate());
+    /**
+     * Run a search without locking, falling back to the read lock if a change interfered
+     * The optimistic result is used only if no write lock was taken meanwhile; otherwise
+     * (or if the search tripped over a half-done change) it runs again under the read lock.
+     * @param query Read-only search over the columns
+     * @param <T> Result type
+     * @return Search result
+     */
+    private <T> T read(Supplier<T> query) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = query.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // Saw a half-done change; retry under the read lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return query.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Run a search under the read lock
+     * Used for the due-date index and the bitmaps: they must not be walked while a change rebuilds them.
+     * @param query Read-only search
+     * @param <T> Result type
+     * @return Search result
+     */
+    private <T> T readLocked(Supplier<T> query) {
+        long stamp = lock.readLock();
+        try {
+            return query.get();
+        } finally {
+            lock.unlockRead(stamp);
         }
     }
 
@@ -247,29 +704,215 @@ public class BorrowService {
      */
     public void setFilePath(String filePath) {
         this.filePath = filePath;
+        this.mutationLog = filePath == null ? null : new MutationLog(filePath);
+    }
+
+    /**
+     * Set the scheduler that coalesces mutation log writes
+     * @param flushScheduler Shared flush scheduler (null to write the log after every change)
+     */
+    public void setFlushScheduler(FlushScheduler flushScheduler) {
+        this.flushScheduler = flushScheduler;
     }
 
     /**
      * Public method to save all borrow records to file
      * This method can be called externally to force save
+     * Borrow records that were never loaded have not changed, so nothing is written for them.
      */
     public void saveDataToFile() {
+        if (!lazyLoader.isLoaded()) {
+            System.out.println("Borrow record data not loaded, nothing to save.");
+            return;
+        }
+        saveBorrowRecordsToFile();
+    }
+
+    /**
+     * Set the code that loads the stored borrow records
+     * It runs on first access (or on ensureLoaded()) and should add the borrow records with loadBorrowRecords().
+     * Call before the service is used.
+     * @param loader Loader (null to start with no borrow records)
+     */
+    public void setLoader(Runnable loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Load the borrow records now if they are not loaded yet
+     * Runs the loader, then replays the mutation log. Called by every method that needs the borrow records.
+     */
+    public void ensureLoaded() {
+        lazyLoader.ensureLoaded(loadStep);
+    }
+
+    /**
+     * Check whether the borrow records have been loaded
+     * @return true once the loader and the log replay have run
+     */
+    public boolean isLoaded() {
+        return lazyLoader.isLoaded();
+    }
+
+    /**
+     * Load the stored borrow records and apply the logged changes (load step of the lazy loader)
+     */
+    private void openStore() {
+        if (loader != null) {
+            loader.run();
+        }
+        replayMutationLog();
+    }
+
+    /**
+     * Replay the mutation log on top of the loaded borrow record data
+     * <p>
+     * Runs once when the borrow records are loaded, after the loader has added the stored borrow records.
+     * Applies every logged change in order, exactly as it was logged (no messages), then compacts
+     * the log into the data file. Holds the write lock while replaying.
+     */
+    private void replayMutationLog() {
+        if (mutationLog == null) {
+            return;
+        }
+        mutationLog.setSnapshotSize(columns.liveCount());
+        List<List<String>> entries;
+        try {
+            entries = mutationLog.readEntries();
+        } catch (IOException e) {
+            System.out.println("Warning: Failed to read borrow record change log: " + e.getMessage());
+            return;
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        int skipped = 0;
+        long stamp = lock.writeLock();
+        try {
+            for (List<String> entry : entries) {
+                if (!applyLogEntry(entry)) {
+                    skipped++;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        System.out.println("Replayed " + (entries.size() - skipped) + " borrow record change(s) from: " + mutationLog.getPath()
+                + (skipped > 0 ? " (" + skipped + " skipped)" : ""));
         saveBorrowRecordsToFile();
     }
 
+    /**
+     * Apply one mutation log entry to the stored records (write lock held)
+     * Formats: ADD,borrowId,borrowDate,status[,userId,ISBN] | STATUS,borrowId,status | DELETE,borrowId
+     * @param entry Fields of the log entry
+     * @return true if applied; false if the entry is malformed or does not fit the records (skipped)
+     */
+    private boolean applyLogEntry(List<String> entry) {
+        String[] parts = entry.toArray(new String[0]);
+        try {
+            if ("ADD".equals(parts[0]) && (parts.length == 4 || parts.length == 6)) {
+                BorrowRecord record = parts.length == 4
+                        ? new BorrowRecord(parts[1], parts[2], Integer.parseInt(parts[3]))
+                        : new BorrowRecord(parts[1], parts[2], Integer.parseInt(parts[3]), parts[4], parts[5]);
+                if (validateNewRecord(record) != null) {
+                    return false;
+                }
+                storeRecord(record);
+                return true;
+            }
+            int slot = parts.length > 1 ? columns.slotOf(parts[1]) : -1;
+            if (slot < 0) {
+                return false;
+            }
+            if ("STATUS".equals(parts[0]) && parts.length == 3) {
+                int status = Integer.parseInt(parts[2]);
+                if (status != 0 && status != 1) {
+                    return false;
+                }
+                changeStatus(slot, status);
+                return true;
+            }
+            if ("DELETE".equals(parts[0]) && parts.length == 2) {
+                removeRecord(slot);
+                return true;
+            }
+        } catch (NumberFormatException e) {
+            // Reported as skipped
+        }
+        return false;
+    }
+
+    /**
+     * Append one change to the mutation log
+     * <p>
+     * Costs one small append instead of rewriting the whole data file.
+     * With a flush scheduler the append is buffered and written together with other changes.
+     * Called under the write lock, so entries are logged in the order the changes happened.
+     *
+     * @param fields Fields of the log entry describing the change
+     */
+    private void logMutation(String... fields) {
+        if (mutationLog == null) {
+            return;
+        }
+        mutationLog.append(fields);
+        if (flushScheduler != null) {
+            flushScheduler.markDirty(logFlushTask);
+        } else {
+            flushMutationLog();
+        }
+    }
+
+    /**
+     * Compact the mutation log (rewrite the data file) once it has grown too long
+     * Runs on the flush thread, or after the write lock is released if there is no flush scheduler;
+     * never while the records are still being loaded.
+     */
+    private void compactIfNeeded() {
+        if (mutationLog != null && lazyLoader.isLoaded() && mutationLog.needsCompaction()) {
+            saveBorrowRecordsToFile();
+        }
+    }
+
+    // Flush task: write the buffered log entries, then compact the log if it has grown too long
+    private void flushAndCompact() {
+        flushMutationLog();
+        compactIfNeeded();
+    }
+
+    /**
+     * Write the buffered mutation log entries to the log file
+     * If the write fails the entries stay buffered and are retried by the next flush or full save.
+     */
+    private void flushMutationLog() {
+        MutationLog log = mutationLog;
+        if (log == null || !log.hasPendingEntries()) {
+            return;
+        }
+        try {
+            log.flush();
+        } catch (IOException e) {
+            System.out.println("Warning: Failed to write borrow record change log: " + e.getMessage());
+        }
+    }
+
     /**
      * Save all borrow records to file
      * <p>
-     * Writes all borrow records in the array to the specified file.
-     * File format: borrowId,borrowDate,borrowStatus
+     * Writes all stored borrow records to the specified file, in the order they were added.
+     * File format: borrowId,borrowDate,borrowStatus[,userId,ISBN] (CSV, fields quoted when needed)
      * Preserves the header comments from the original file.
+     * Also compacts the mutation log: once the data file is written, the log is cleared.
+     * Holds the read lock (searches go on, changes wait) and runs one save at a time.
      */
-    private void saveBorrowRecordsToFile() {
+    private synchronized void saveBorrowRecordsToFile() {
         if (filePath == null || filePath.trim().isEmpty()) {
             System.out.println("Warning: File path is not set. Cannot save borrow record data.");
             return;
         }
 
+        long stamp = lock.readLock();
         try {
             Path path = Paths.get(filePath);
             // Create parent directories if they don't exist
@@ -277,29 +920,52 @@ public class BorrowService {
                 Files.createDirectories(path.getParent());
             }
 
-            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            // Write to a temp file first, so a crash never leaves a half-written data file
+            Path tempPath = Paths.get(filePath + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
                 // Write header comments
-                writer.write("# borrow_records.txt — Borrow Record Data (UTF-8). Each line: record ID, borrow date, status (0-checked out, 1-returned)");
+                writer.write("# borrow_records.txt — Borrow Record Data (UTF-8). Each line: record ID, borrow date, status (0-checked out, 1-returned)[, user ID, ISBN]");
                 writer.newLine();
                 writer.write("# Empty rows and lines starting with # are ignored");
                 writer.newLine();
                 writer.newLine();
 
                 // Write all borrow records
-                for (int i = 0; i < recordCount; i++) {
-                    BorrowRecord record = borrowArray[i];
-                    writer.write(record.getBorrowId() + "," +
-                            record.getBorrowDate() + "," +
-                            record.getBorrowStatus());
+                int rowCount = columns.rowCount();
+                for (int slot = 0; slot < rowCount; slot++) {
+                    if (!columns.isLive(slot)) {
+                        continue;
+                    }
+                    if (columns.isLinked(slot)) {
+                        writer.write(CsvWriter.formatRecord(columns.borrowId(slot),
+                                columns.borrowDate(slot),
+                                String.valueOf(columns.status(slot)),
+                                columns.userId(slot),
+                                columns.isbn(slot)));
+                    } else {
+                        writer.write(CsvWriter.formatRecord(columns.borrowId(slot),
+                                columns.borrowDate(slot),
+                                String.valueOf(columns.status(slot))));
+                    }
                     writer.newLine();
                 }
             }
+            // On the disk before it replaces the data file, since the log is cleared next
+            MutationLog.forceToDisk(tempPath);
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+            // Data file now holds every logged change, so the log can be cleared
+            if (mutationLog != null) {
+                mutationLog.clear();
+                mutationLog.setSnapshotSize(columns.liveCount());
+            }
             // Save successful - show message for debugging
             System.out.println("Borrow record data saved successfully to: " + filePath);
         } catch (IOException e) {
             System.out.println("Warning: Failed to save borrow record data to file: " + e.getMessage());
             System.out.println("File path was: " + filePath);
             e.printStackTrace();
+        } finally {
+            lock.unlockRead(stamp);
         }
     }
 }
\ No newline at end of file
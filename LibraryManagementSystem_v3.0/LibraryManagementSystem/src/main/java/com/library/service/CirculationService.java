@@ -0,0 +1,285 @@
+package com.library.service;
+
+import com.library.model.BorrowRecord;
+import com.library.model.User;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checkout and return service class
+ *
+ * Main job: Lend and take back books. A checkout claims a copy, raises the book's borrowed quantity
+ * and creates a borrow record linking the user and the book; a return reverses all three.
+ * Copies are claimed from a lock-free per-book counter (see BookService.tryClaimCopy()), so
+ * concurrent desks never lend out more copies than a book has. If a later step fails, the earlier
+ * steps are undone, so the book and the borrow records never disagree.
+ * Borrow records typed in by hand (menu, HTTP) are added, edited and deleted through this class too,
+ * so a linked loan always claims or frees its copy; BorrowService's own methods leave the books alone.
+ */
+public class CirculationService {
+    private final BookService bookService;
+    private final UserService userService;
+    private final BorrowService borrowService;
+    // Record IDs: prefix from the start time (unique across runs) + sequence number (unique within a run)
+    private final String recordIdPrefix = "C" + Long.toString(System.currentTimeMillis(), 36).toUpperCase() + "-";
+    private final AtomicLong nextRecordNumber = new AtomicLong(1);
+    // Waitlists that get returned copies before anyone else (null if holds are not used)
+    private volatile ReservationService holdQueue = null;
+
+    // Constructor: Inject service dependencies
+    public CirculationService(BookService bookService, UserService userService, BorrowService borrowService) {
+        this.bookService = bookService;
+        this.userService = userService;
+        this.borrowService = borrowService;
+    }
+
+    /**
+     * Check out one copy of a book to a user
+     * <p>
+     * 1. Claim a copy from the book's availability counter (fails fast if none is left, or if users
+     *    wait for the book: their holds are served first)
+     * 2. Raise the book's borrowed quantity
+     * 3. Add a checked-out borrow record with today's date, the user ID and the ISBN
+     * A failing step undoes the steps before it.
+     *
+     * @param userId ID of the borrowing user
+     * @param isbn ISBN of the book
+     * @return The new borrow record, or null if the checkout failed
+     */
+    public BorrowRecord checkout(String userId, String isbn) {
+        // 1. Check parameters
+        if (userId == null || userId.trim().isEmpty() || isbn == null || isbn.trim().isEmpty()) {
+            System.out.println("Error: User ID and ISBN cannot be empty!");
+            return null;
+        }
+        BorrowRecord record = new BorrowRecord(nextRecordId(), LocalDate.now().toString(), 0, userId, isbn);
+        if (!lend(record)) {
+            return null;
+        }
+        System.out.println("Checked out ISBN [" + isbn + "] to user [" + userId + "] (record ID: " + record.getBorrowId() + ")");
+        return record;
+    }
+
+    // Steps 2-4 of a checkout for a checked-out, linked record: claim, raise borrowed, add the record
+    private boolean lend(BorrowRecord record) {
+        String userId = record.getUserId();
+        String isbn = record.getIsbn();
+        User user = userService.findByUserId(userId);
+        if (user == null) {
+            System.out.println("Error: No user found with ID [" + userId + "]!");
+            return false;
+        }
+        if (holdsWaiting(isbn)) {
+            return false;
+        }
+
+        // 2. Claim a copy (lock-free)
+        if (!bookService.tryClaimCopy(isbn)) {
+            if (bookService.findByISBN(isbn) == null) {
+                System.out.println("Error: No book found with ISBN [" + isbn + "]!");
+            } else {
+                System.out.println("Error: No copies of ISBN [" + isbn + "] are available!");
+            }
+            return false;
+        }
+        if (!recordLoan(record)) {
+            bookService.releaseCopy(isbn);
+            return false;
+        }
+        return true;
+    }
+
+    // Steps 3-4 for a copy already claimed: raise borrowed, add the record (a failure keeps the claim)
+    private boolean recordLoan(BorrowRecord record) {
+        String isbn = record.getIsbn();
+        // 3. Record the loan on the book
+        if (!bookService.adjustBorrowedQuantity(isbn, 1)) {
+            System.out.println("Error: Book with ISBN [" + isbn + "] changed during checkout, please try again!");
+            return false;
+        }
+
+        // 4. Create the borrow record
+        if (!borrowService.addBorrowRecord(record)) {
+            bookService.adjustBorrowedQuantity(isbn, -1);
+            System.out.println("Error: Borrow record could not be created, checkout cancelled!");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check out a copy that the caller has already claimed (ReservationService serving a hold)
+     * Skips the waitlist check. If it fails, the copy stays claimed: the caller gives it back or
+     * offers it to someone else.
+     * @param userId ID of the borrowing user
+     * @param isbn ISBN of the book
+     * @return The new borrow record, or null if the user is unknown or the record could not be created
+     */
+    BorrowRecord checkoutClaimedCopy(String userId, String isbn) {
+        if (userService.findByUserId(userId) == null) {
+            System.out.println("Error: No user found with ID [" + userId + "]!");
+            return null;
+        }
+        BorrowRecord record = new BorrowRecord(nextRecordId(), LocalDate.now().toString(), 0, userId, isbn);
+        if (!recordLoan(record)) {
+            return null;
+        }
+        System.out.println("Checked out ISBN [" + isbn + "] to user [" + userId + "] (record ID: " + record.getBorrowId() + ")");
+        return record;
+    }
+
+    // True (and reported) if users wait for the book: its copies are theirs first
+    private boolean holdsWaiting(String isbn) {
+        ReservationService holds = holdQueue;
+        if (holds == null || holds.getWaitingCount(isbn) == 0) {
+            return false;
+        }
+        System.out.println("Error: ISBN [" + isbn + "] is reserved for " + holds.getWaitingCount(isbn)
+                + " waiting hold(s); please place a hold instead!");
+        return true;
+    }
+
+    /**
+     * Return the book of a checkout
+     * <p>
+     * Marks the record returned with a compare-and-set, so a loan is only returned once even when
+     * two desks process it at the same time; then lowers the book's borrowed quantity. The copy
+     * stays claimed while it is offered to the book's first waiting hold (see setHoldQueue()), and
+     * only becomes available to everyone if no hold takes it, so a walk-in can never get it first.
+     *
+     * @param borrowId ID of the borrow record created by the checkout
+     * @return true if returned; false if the record does not exist, is not a checkout or is already returned
+     */
+    public boolean returnBook(String borrowId) {
+        if (borrowId == null || borrowId.trim().isEmpty()) {
+            System.out.println("Error: Record ID cannot be empty!");
+            return false;
+        }
+        BorrowRecord record = borrowService.findByBorrowId(borrowId);
+        if (record == null) {
+            System.out.println("Error: No borrow record found with ID [" + borrowId + "]!");
+            return false;
+        }
+        if (!record.isLinked()) {
+            System.out.println("Error: Record [" + borrowId + "] was not created by a checkout (no book linked)!");
+            return false;
+        }
+        if (!borrowService.compareAndSetStatus(borrowId, 0, 1)) {
+            System.out.println("Error: Record [" + borrowId + "] is already returned!");
+            return false;
+        }
+        boolean copyFreed = bookService.adjustBorrowedQuantity(record.getIsbn(), -1);
+        if (!copyFreed) {
+            System.out.println("Warning: Book with ISBN [" + record.getIsbn() + "] no longer exists or was edited; its borrowed quantity was not changed");
+        }
+        System.out.println("Returned ISBN [" + record.getIsbn() + "] from user [" + record.getUserId() + "] (record ID: " + borrowId + ")");
+        if (copyFreed) {
+            ReservationService holds = holdQueue;
+            if (holds == null || !holds.takeReturnedCopy(record.getIsbn())) {
+                bookService.releaseCopy(record.getIsbn());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add a borrow record typed in by hand
+     * <p>
+     * A linked record that is checked out (status 0) is a loan: it claims a copy and raises the
+     * book's borrowed quantity like checkout() does, and is refused if no copy is free.
+     * Other records (returned, or not linked to a book) do not touch the books.
+     *
+     * @param record Record to add
+     * @return true if added; false if the record is invalid, the user or book is unknown, or no copy is free
+     */
+    public boolean addBorrowRecord(BorrowRecord record) {
+        if (record == null || record.getBorrowStatus() != 0 || !record.isLinked()) {
+            return borrowService.addBorrowRecord(record);
+        }
+        if (!lend(record)) {
+            return false;
+        }
+        System.out.println("Checked out ISBN [" + record.getIsbn() + "] to user [" + record.getUserId()
+                + "] (record ID: " + record.getBorrowId() + ")");
+        return true;
+    }
+
+    /**
+     * Change the status of a borrow record typed in by hand
+     * <p>
+     * For a linked record, returning (0 -> 1) goes through returnBook(), and checking out again
+     * (1 -> 0) claims a copy first and is refused if none is free. Records not linked to a book
+     * only change their status.
+     *
+     * @param borrowId ID of the record
+     * @param newStatus New status (0 - checked out, 1 - returned)
+     * @return true if the record now has the new status; false if it is missing, the status is invalid or no copy is free
+     */
+    public boolean updateBorrowStatus(String borrowId, int newStatus) {
+        BorrowRecord record = borrowId == null ? null : borrowService.findByBorrowId(borrowId);
+        if (record == null || !record.isLinked() || record.getBorrowStatus() == newStatus
+                || (newStatus != 0 && newStatus != 1)) {
+            return borrowService.updateBorrowStatus(borrowId, newStatus);
+        }
+        if (newStatus == 1) {
+            return returnBook(borrowId);
+        }
+        return reopen(record);
+    }
+
+    // Check out a returned linked record again: claim a copy, raise borrowed, then flip the status
+    private boolean reopen(BorrowRecord record) {
+        String borrowId = record.getBorrowId();
+        String isbn = record.getIsbn();
+        if (holdsWaiting(isbn)) {
+            return false;
+        }
+        if (!bookService.tryClaimCopy(isbn)) {
+            System.out.println("Error: No copies of ISBN [" + isbn + "] are available, record [" + borrowId + "] not changed!");
+            return false;
+        }
+        if (!bookService.adjustBorrowedQuantity(isbn, 1)) {
+            bookService.releaseCopy(isbn);
+            System.out.println("Error: Book with ISBN [" + isbn + "] changed, record [" + borrowId + "] not changed!");
+            return false;
+        }
+        if (!borrowService.compareAndSetStatus(borrowId, 1, 0)) {
+            bookService.adjustBorrowedQuantity(isbn, -1);
+            bookService.releaseCopy(isbn);
+            System.out.println("Error: Record [" + borrowId + "] changed meanwhile, please try again!");
+            return false;
+        }
+        System.out.println("Checked out ISBN [" + isbn + "] to user [" + record.getUserId() + "] again (record ID: " + borrowId + ")");
+        return true;
+    }
+
+    /**
+     * Delete a borrow record typed in by hand
+     * A linked loan that is still checked out is returned first, so its copy is freed.
+     * @param borrowId ID of the record
+     * @return true if deleted; false if no record has this ID
+     */
+    public boolean deleteBorrowRecord(String borrowId) {
+        BorrowRecord record = borrowId == null ? null : borrowService.findByBorrowId(borrowId);
+        if (record != null && record.isLinked() && record.getBorrowStatus() == 0) {
+            // If another desk returns it first, that return frees the copy
+            returnBook(borrowId);
+        }
+        return borrowService.deleteBorrowRecord(borrowId);
+    }
+
+    /**
+     * Set the waitlists that come before walk-ins
+     * Returned copies are handed to a book's first waiting hold before they are released, and
+     * checkouts (also hand-typed loans) are refused while a book has waiting holds.
+     * @param holdQueue Hold service (null for none)
+     */
+    public void setHoldQueue(ReservationService holdQueue) {
+        this.holdQueue = holdQueue;
+    }
+
+    // Next unique borrow record ID for a checkout
+    private String nextRecordId() {
+        return recordIdPrefix + nextRecordNumber.getAndIncrement();
+    }
+}
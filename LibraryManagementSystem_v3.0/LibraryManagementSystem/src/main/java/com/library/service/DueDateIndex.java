@@ -0,0 +1,88 @@
+package com.library.service;
+
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Due-date index over the active loans (records with status 0)
+ *
+ * Main job: Keep checked-out records ordered by due day (borrow day + loan period), so the loans
+ * due before a day are one ordered range: finding them costs O(log n + number found) instead of
+ * checking the dates of every record. Entries are (due day << 32 | slot), so loans due the same
+ * day stay in the order they were added. Records without a valid borrow date are not indexed
+ * (they can never be reported overdue).
+ * Not thread-safe: BorrowService changes it under its write lock and reads it under its read lock.
+ */
+class DueDateIndex {
+    // (due day << 32 | slot) of every indexed loan
+    private final TreeSet<Long> loansByDueDay = new TreeSet<>();
+    // Days a loan lasts
+    private int loanPeriodDays;
+
+    DueDateIndex(int loanPeriodDays) {
+        this.loanPeriodDays = loanPeriodDays;
+    }
+
+    /**
+     * Index an active loan
+     * @param slot Record slot
+     * @param borrowDay Borrow day (epoch day; NO_DATE: not indexed)
+     */
+    void add(int slot, int borrowDay) {
+        if (borrowDay != BorrowDates.NO_DATE) {
+            loansByDueDay.add(key(dueDay(borrowDay), slot));
+        }
+    }
+
+    /**
+     * Remove a loan from the index (nothing happens if it is not indexed)
+     * @param slot Record slot
+     * @param borrowDay Borrow day the loan was indexed with
+     */
+    void remove(int slot, int borrowDay) {
+        if (borrowDay != BorrowDates.NO_DATE) {
+            loansByDueDay.remove(key(dueDay(borrowDay), slot));
+        }
+    }
+
+    /**
+     * Visit the slots of the active loans due in a range of days, earliest due first
+     * @param fromDay First due day (inclusive)
+     * @param toDay Last due day (exclusive)
+     * @param action Called with each slot
+     */
+    void forEachDueBetween(int fromDay, int toDay, IntConsumer action) {
+        if (fromDay >= toDay) {
+            return;
+        }
+        for (long key : loansByDueDay.subSet(key(fromDay, 0), true, key(toDay, 0), false)) {
+            action.accept((int) key);
+        }
+    }
+
+    /**
+     * Get the due day of a loan borrowed on a day
+     * @param borrowDay Borrow day (epoch day)
+     * @return Due day (epoch day)
+     */
+    int dueDay(int borrowDay) {
+        return borrowDay + loanPeriodDays;
+    }
+
+    int getLoanPeriodDays() {
+        return loanPeriodDays;
+    }
+
+    /**
+     * Change the loan period and empty the index (the caller adds the active loans again)
+     * @param loanPeriodDays New loan period in days
+     */
+    void reset(int loanPeriodDays) {
+        this.loanPeriodDays = loanPeriodDays;
+        loansByDueDay.clear();
+    }
+
+    private static long key(int dueDay, int slot) {
+        return ((long) dueDay << 32) | (slot & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,240 @@
+package com.library.service;
+
+import com.library.model.BorrowRecord;
+import com.library.model.Hold;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hold (reservation) service class
+ *
+ * Main job: Keep a first-come, first-served waitlist per book. Copies go to the first waiting user
+ * before anyone else:
+ * - a returned copy is handed over while it is still claimed (see CirculationService.setHoldQueue()),
+ *   so it is never available to walk-ins in between
+ * - copies added by an edit (more copies, fewer borrowed, book added again) are offered to the
+ *   waitlist right after the edit (see BookService.setCopiesAddedListener())
+ * - walk-in checkouts are refused while a book has waiting holds
+ * Placing, cancelling and fulfilling a hold take constant time, however long the waitlist is:
+ * - each waitlist is a lock-free ConcurrentLinkedQueue; placing a hold appends to it
+ * - a cancelled hold is only marked (and dropped from the ID map); it is skipped and removed
+ *   when it reaches the head of its queue
+ * - handing out copies and cancelling hold the waitlist's own monitor, so the head of a queue is
+ *   never offered two copies and is never cancelled while a copy is lent to it
+ * Holds are kept in memory only; they do not survive a restart.
+ */
+public class ReservationService {
+    private final BookService bookService;
+    private final UserService userService;
+    private final CirculationService circulationService;
+    // ISBN -> waitlist of holds, in the order they were placed
+    private final Map<String, Waitlist> waitlists = new ConcurrentHashMap<>();
+    // Hold ID -> waiting hold, for constant-time cancel
+    private final Map<String, Hold> waitingHolds = new ConcurrentHashMap<>();
+    // Hold IDs: prefix from the start time (unique across runs) + sequence number (unique within a run)
+    private final String holdIdPrefix = "H" + Long.toString(System.currentTimeMillis(), 36).toUpperCase() + "-";
+    private final AtomicLong nextHoldNumber = new AtomicLong(1);
+
+    // Waitlist of one book
+    private static class Waitlist {
+        private final Queue<Hold> holds = new ConcurrentLinkedQueue<>();
+        // Number of holds still waiting (cancelled holds may still sit in the queue)
+        private final AtomicInteger waitingCount = new AtomicInteger();
+    }
+
+    // Constructor: Inject service dependencies
+    public ReservationService(BookService bookService, UserService userService, CirculationService circulationService) {
+        this.bookService = bookService;
+        this.userService = userService;
+        this.circulationService = circulationService;
+    }
+
+    /**
+     * Place a hold on a book
+     * <p>
+     * The hold joins the end of the book's waitlist. If a copy is free and nobody is ahead,
+     * it is checked out to the user right away (the hold is then already fulfilled).
+     *
+     * @param userId ID of the waiting user
+     * @param isbn ISBN of the wanted book
+     * @return The new hold, or null if the user or book does not exist
+     */
+    public Hold placeHold(String userId, String isbn) {
+        if (userId == null || userId.trim().isEmpty() || isbn == null || isbn.trim().isEmpty()) {
+            System.out.println("Error: User ID and ISBN cannot be empty!");
+            return null;
+        }
+        if (userService.findByUserId(userId) == null) {
+            System.out.println("Error: No user found with ID [" + userId + "]!");
+            return null;
+        }
+        if (bookService.findByISBN(isbn) == null) {
+            System.out.println("Error: No book found with ISBN [" + isbn + "]!");
+            return null;
+        }
+        Hold hold = new Hold(holdIdPrefix + nextHoldNumber.getAndIncrement(), userId, isbn);
+        Waitlist waitlist = waitlists.computeIfAbsent(isbn, key -> new Waitlist());
+        waitingHolds.put(hold.getHoldId(), hold);
+        waitlist.waitingCount.incrementAndGet();
+        waitlist.holds.offer(hold);
+        System.out.println("Hold placed for ISBN [" + isbn + "] by user [" + userId + "] (hold ID: " + hold.getHoldId() + ")");
+        // A copy may be free (or have come back while the hold was placed)
+        serve(isbn, waitlist);
+        return hold;
+    }
+
+    /**
+     * Cancel a waiting hold
+     * @param holdId ID of the hold
+     * @return true if cancelled; false if no waiting hold has this ID (unknown, fulfilled or already cancelled)
+     */
+    public boolean cancelHold(String holdId) {
+        Hold hold = holdId == null ? null : waitingHolds.get(holdId);
+        Waitlist waitlist = hold == null ? null : waitlists.get(hold.getIsbn());
+        if (waitlist == null) {
+            System.out.println("Error: No waiting hold found with ID [" + holdId + "]!");
+            return false;
+        }
+        synchronized (waitlist) {
+            if (!hold.changeStatus(Hold.Status.WAITING, Hold.Status.CANCELLED)) {
+                System.out.println("Error: No waiting hold found with ID [" + holdId + "]!");
+                return false;
+            }
+            waitingHolds.remove(holdId);
+            waitlist.waitingCount.decrementAndGet();
+        }
+        System.out.println("Cancelled hold [" + holdId + "] for ISBN [" + hold.getIsbn() + "]");
+        return true;
+    }
+
+    /**
+     * Lend a returned copy to the book's first waiting hold
+     * Called by CirculationService.returnBook() while the copy is still claimed (set it with
+     * CirculationService.setHoldQueue()).
+     * @param isbn ISBN of the returned book
+     * @return true if a hold took the copy; false if nobody waits (the caller releases the copy)
+     */
+    public boolean takeReturnedCopy(String isbn) {
+        Waitlist waitlist = isbn == null ? null : waitlists.get(isbn);
+        if (waitlist == null || waitlist.waitingCount.get() <= 0) {
+            return false;
+        }
+        synchronized (waitlist) {
+            return lendToFirstHold(isbn, waitlist);
+        }
+    }
+
+    /**
+     * Hand out newly available copies of a book to its waitlist
+     * Called by BookService after an edit made copies available (set it with setCopiesAddedListener()).
+     * @param isbn ISBN of the book
+     */
+    public void copiesAdded(String isbn) {
+        Waitlist waitlist = isbn == null ? null : waitlists.get(isbn);
+        if (waitlist != null) {
+            serve(isbn, waitlist);
+        }
+    }
+
+    /**
+     * Find a hold that is still waiting
+     * @param holdId ID of the hold
+     * @return The hold, or null if no waiting hold has this ID
+     */
+    public Hold findWaitingHold(String holdId) {
+        return holdId == null ? null : waitingHolds.get(holdId);
+    }
+
+    /**
+     * Get the number of users waiting for a book
+     * @param isbn ISBN of the book
+     * @return Number of waiting holds
+     */
+    public int getWaitingCount(String isbn) {
+        Waitlist waitlist = isbn == null ? null : waitlists.get(isbn);
+        return waitlist == null ? 0 : Math.max(0, waitlist.waitingCount.get());
+    }
+
+    /**
+     * Get the waiting holds of a book, first in line first
+     * @param isbn ISBN of the book
+     * @return Waiting holds (empty list if there are none)
+     */
+    public List<Hold> getWaitingHolds(String isbn) {
+        List<Hold> holds = new ArrayList<>();
+        Waitlist waitlist = isbn == null ? null : waitlists.get(isbn);
+        if (waitlist != null) {
+            for (Hold hold : waitlist.holds) {
+                if (hold.getStatus() == Hold.Status.WAITING) {
+                    holds.add(hold);
+                }
+            }
+        }
+        return holds;
+    }
+
+    /**
+     * Check out free copies to the first waiting holds
+     * Each copy is claimed before it is lent, under the waitlist's monitor, so two threads never
+     * offer the same head a copy and a copy is never lent twice.
+     */
+    private void serve(String isbn, Waitlist waitlist) {
+        synchronized (waitlist) {
+            while (firstWaitingHold(waitlist) != null) {
+                if (!bookService.tryClaimCopy(isbn)) {
+                    return;
+                }
+                if (!lendToFirstHold(isbn, waitlist)) {
+                    bookService.releaseCopy(isbn);
+                    return;
+                }
+            }
+        }
+    }
+
+    // Lend a claimed copy to the first waiting hold; false keeps the claim for the caller (monitor held)
+    private boolean lendToFirstHold(String isbn, Waitlist waitlist) {
+        Hold head;
+        while ((head = firstWaitingHold(waitlist)) != null) {
+            if (userService.findByUserId(head.getUserId()) == null) {
+                // User was deleted while waiting
+                if (head.changeStatus(Hold.Status.WAITING, Hold.Status.CANCELLED)) {
+                    waitingHolds.remove(head.getHoldId());
+                    waitlist.waitingCount.decrementAndGet();
+                }
+                waitlist.holds.poll();
+                continue;
+            }
+            BorrowRecord record = circulationService.checkoutClaimedCopy(head.getUserId(), isbn);
+            if (record == null) {
+                // No room for the record: try again on the next return
+                return false;
+            }
+            // Cancelling needs the monitor too, so the hold is still waiting
+            head.setBorrowId(record.getBorrowId());
+            head.changeStatus(Hold.Status.WAITING, Hold.Status.FULFILLED);
+            waitingHolds.remove(head.getHoldId());
+            waitlist.waitingCount.decrementAndGet();
+            waitlist.holds.poll();
+            System.out.println("Hold [" + head.getHoldId() + "] fulfilled: ISBN [" + isbn + "] checked out to user ["
+                    + head.getUserId() + "] (record ID: " + record.getBorrowId() + ")");
+            return true;
+        }
+        return false;
+    }
+
+    // Head of the queue after dropping cancelled holds that reached it (null if nobody waits)
+    private static Hold firstWaitingHold(Waitlist waitlist) {
+        Hold head;
+        while ((head = waitlist.holds.peek()) != null && head.getStatus() != Hold.Status.WAITING) {
+            waitlist.holds.poll();
+        }
+        return head;
+    }
+}
@@ -0,0 +1,428 @@
+package com.library.service;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed bitmap over record slots
+ *
+ * Main job: Hold a set of slot numbers (non-negative ints) in little memory, with fast counts and
+ * intersections. A small bitmap (up to 4096 slots, e.g. the loans of one user) is a sorted int array,
+ * 4 bytes per slot wherever the slots are. A larger one is split into chunks of 65536 slots by their
+ * high 16 bits; each chunk stores its low 16 bits either as a sorted char array (sparse chunk,
+ * 2 bytes per slot, up to 4096 slots) or as a 65536-bit word array (dense chunk, a fixed 8 KB).
+ * Empty chunks cost nothing, and a dense bitmap (e.g. all returned records) needs 1 bit per slot.
+ * Not thread-safe: BorrowService changes it under its write lock and reads it under its read lock.
+ */
+final class SlotBitmap {
+    // Most slots a small bitmap holds before it is split into chunks
+    private static final int SMALL_LIMIT = 4096;
+    // Most slots a sparse chunk holds before it turns dense (where both forms take 8 KB)
+    private static final int SPARSE_LIMIT = 4096;
+    // Words in a dense chunk (65536 bits)
+    private static final int CHUNK_WORDS = 1024;
+
+    // Sorted slots while the bitmap is small (null once it is split into chunks)
+    private int[] smallSlots = new int[0];
+    // Chunks by high 16 bits of the slot (null while small; null entry: no slot in that range)
+    private Chunk[] chunks = null;
+    // Number of slots in the bitmap
+    private int cardinality = 0;
+
+    // Slots sharing the same high 16 bits
+    private static final class Chunk {
+        // Sorted low bits while sparse (null once dense)
+        char[] values;
+        // Bit per low value once dense (null while sparse)
+        long[] words;
+        // Number of slots in the chunk
+        int size;
+
+        static Chunk sparse(char[] values, int size) {
+            Chunk chunk = new Chunk();
+            chunk.values = values;
+            chunk.size = size;
+            return chunk;
+        }
+
+        static Chunk dense(long[] words, int size) {
+            Chunk chunk = new Chunk();
+            chunk.words = words;
+            chunk.size = size;
+            return chunk;
+        }
+    }
+
+    /**
+     * Add a slot
+     * @param slot Slot number (not negative)
+     * @return true if added; false if it was already in the bitmap
+     */
+    boolean add(int slot) {
+        if (chunks == null) {
+            if (cardinality < SMALL_LIMIT) {
+                return addSmall(slot);
+            }
+            toChunks();
+        }
+        int high = slot >>> 16;
+        char low = (char) slot;
+        if (high >= chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(high + 1, chunks.length * 2));
+        }
+        Chunk chunk = chunks[high];
+        if (chunk == null) {
+            chunk = Chunk.sparse(new char[4], 0);
+            chunks[high] = chunk;
+        }
+        if (chunk.words != null) {
+            long bit = 1L << low;
+            int word = low >>> 6;
+            if ((chunk.words[word] & bit) != 0) {
+                return false;
+            }
+            chunk.words[word] |= bit;
+        } else {
+            int index = Arrays.binarySearch(chunk.values, 0, chunk.size, low);
+            if (index >= 0) {
+                return false;
+            }
+            if (chunk.size == SPARSE_LIMIT) {
+                toDense(chunk);
+                chunk.words[low >>> 6] |= 1L << low;
+            } else {
+                int insertAt = -index - 1;
+                if (chunk.size == chunk.values.length) {
+                    chunk.values = Arrays.copyOf(chunk.values, Math.min(SPARSE_LIMIT, chunk.size * 2));
+                }
+                System.arraycopy(chunk.values, insertAt, chunk.values, insertAt + 1, chunk.size - insertAt);
+                chunk.values[insertAt] = low;
+            }
+        }
+        chunk.size++;
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * Remove a slot
+     * @param slot Slot number
+     * @return true if removed; false if it was not in the bitmap
+     */
+    boolean remove(int slot) {
+        if (chunks == null) {
+            return removeSmall(slot);
+        }
+        int high = slot >>> 16;
+        char low = (char) slot;
+        Chunk chunk = high < chunks.length ? chunks[high] : null;
+        if (chunk == null) {
+            return false;
+        }
+        if (chunk.words != null) {
+            long bit = 1L << low;
+            int word = low >>> 6;
+            if ((chunk.words[word] & bit) == 0) {
+                return false;
+            }
+            chunk.words[word] &= ~bit;
+            chunk.size--;
+            // Turn sparse again well below the limit, so add/remove at the limit does not convert back and forth
+            if (chunk.size <= SPARSE_LIMIT / 2) {
+                toSparse(chunk);
+            }
+        } else {
+            int index = Arrays.binarySearch(chunk.values, 0, chunk.size, low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(chunk.values, index + 1, chunk.values, index, chunk.size - index - 1);
+            chunk.size--;
+        }
+        if (chunk.size == 0) {
+            chunks[high] = null;
+        }
+        cardinality--;
+        // Back to a plain array well below the limit (so add/remove at the limit does not convert back and forth)
+        if (cardinality <= SMALL_LIMIT / 2) {
+            toSmall();
+        }
+        return true;
+    }
+
+    /**
+     * Check whether a slot is in the bitmap
+     * @param slot Slot number
+     * @return true if present
+     */
+    boolean contains(int slot) {
+        if (chunks == null) {
+            return Arrays.binarySearch(smallSlots, 0, cardinality, slot) >= 0;
+        }
+        int high = slot >>> 16;
+        char low = (char) slot;
+        Chunk chunk = high < chunks.length ? chunks[high] : null;
+        if (chunk == null) {
+            return false;
+        }
+        if (chunk.words != null) {
+            return (chunk.words[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch(chunk.values, 0, chunk.size, low) >= 0;
+    }
+
+    /**
+     * Get the number of slots in the bitmap (kept up to date, no counting)
+     * @return Slot count
+     */
+    int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Call an action for every slot, lowest first
+     * @param action Action taking the slot number
+     */
+    void forEach(IntConsumer action) {
+        if (chunks == null) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(smallSlots[i]);
+            }
+            return;
+        }
+        for (int high = 0; high < chunks.length; high++) {
+            Chunk chunk = chunks[high];
+            if (chunk != null) {
+                forEach(chunk, high << 16, action);
+            }
+        }
+    }
+
+    /**
+     * Intersect with another bitmap
+     * @param other Other bitmap
+     * @return New bitmap with the slots present in both
+     */
+    SlotBitmap and(SlotBitmap other) {
+        SlotBitmap result = new SlotBitmap();
+        if (chunks == null || other.chunks == null) {
+            // Probe the other bitmap with each slot of the small one
+            SlotBitmap small = chunks == null ? this : other;
+            SlotBitmap large = small == this ? other : this;
+            for (int i = 0; i < small.cardinality; i++) {
+                if (large.contains(small.smallSlots[i])) {
+                    result.add(small.smallSlots[i]);
+                }
+            }
+            return result;
+        }
+        result.smallSlots = null;
+        int commonChunks = Math.min(chunks.length, other.chunks.length);
+        result.chunks = new Chunk[commonChunks];
+        for (int high = 0; high < commonChunks; high++) {
+            Chunk a = chunks[high];
+            Chunk b = other.chunks[high];
+            if (a != null && b != null) {
+                Chunk both = and(a, b);
+                if (both != null) {
+                    result.chunks[high] = both;
+                    result.cardinality += both.size;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Count the slots present in both bitmaps, without building the intersection
+     * @param other Other bitmap
+     * @return Size of the intersection
+     */
+    int andCardinality(SlotBitmap other) {
+        int count = 0;
+        if (chunks == null || other.chunks == null) {
+            SlotBitmap small = chunks == null ? this : other;
+            SlotBitmap large = small == this ? other : this;
+            for (int i = 0; i < small.cardinality; i++) {
+                if (large.contains(small.smallSlots[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        int commonChunks = Math.min(chunks.length, other.chunks.length);
+        for (int high = 0; high < commonChunks; high++) {
+            Chunk a = chunks[high];
+            Chunk b = other.chunks[high];
+            if (a == null || b == null) {
+                continue;
+            }
+            if (a.words != null && b.words != null) {
+                for (int i = 0; i < CHUNK_WORDS; i++) {
+                    count += Long.bitCount(a.words[i] & b.words[i]);
+                }
+            } else if (a.words != null || b.words != null) {
+                Chunk sparse = a.words == null ? a : b;
+                long[] words = a.words == null ? b.words : a.words;
+                for (int i = 0; i < sparse.size; i++) {
+                    char low = sparse.values[i];
+                    if ((words[low >>> 6] & (1L << low)) != 0) {
+                        count++;
+                    }
+                }
+            } else {
+                count += mergeSparse(a, b, null);
+            }
+        }
+        return count;
+    }
+
+    // Add to a small bitmap (slots usually arrive in increasing order, so this is an append)
+    private boolean addSmall(int slot) {
+        int index = cardinality == 0 || slot > smallSlots[cardinality - 1]
+                ? -(cardinality + 1)
+                : Arrays.binarySearch(smallSlots, 0, cardinality, slot);
+        if (index >= 0) {
+            return false;
+        }
+        int insertAt = -index - 1;
+        if (cardinality == smallSlots.length) {
+            smallSlots = Arrays.copyOf(smallSlots, Math.min(SMALL_LIMIT, Math.max(4, cardinality + (cardinality >> 1))));
+        }
+        System.arraycopy(smallSlots, insertAt, smallSlots, insertAt + 1, cardinality - insertAt);
+        smallSlots[insertAt] = slot;
+        cardinality++;
+        return true;
+    }
+
+    private boolean removeSmall(int slot) {
+        int index = Arrays.binarySearch(smallSlots, 0, cardinality, slot);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(smallSlots, index + 1, smallSlots, index, cardinality - index - 1);
+        cardinality--;
+        return true;
+    }
+
+    // Split a small bitmap into chunks
+    private void toChunks() {
+        int[] slots = smallSlots;
+        int count = cardinality;
+        smallSlots = null;
+        chunks = new Chunk[0];
+        cardinality = 0;
+        for (int i = 0; i < count; i++) {
+            add(slots[i]);
+        }
+    }
+
+    // Turn a chunked bitmap back into a small one
+    private void toSmall() {
+        int[] slots = new int[Math.max(4, cardinality)];
+        int[] count = {0};
+        forEach(slot -> slots[count[0]++] = slot);
+        smallSlots = slots;
+        chunks = null;
+    }
+
+    // Intersection of two chunks with the same high bits (null if empty)
+    private static Chunk and(Chunk a, Chunk b) {
+        if (a.words != null && b.words != null) {
+            long[] words = new long[CHUNK_WORDS];
+            int size = 0;
+            for (int i = 0; i < CHUNK_WORDS; i++) {
+                words[i] = a.words[i] & b.words[i];
+                size += Long.bitCount(words[i]);
+            }
+            if (size == 0) {
+                return null;
+            }
+            Chunk chunk = Chunk.dense(words, size);
+            if (size <= SPARSE_LIMIT) {
+                toSparse(chunk);
+            }
+            return chunk;
+        }
+        if (a.words != null || b.words != null) {
+            Chunk sparse = a.words == null ? a : b;
+            long[] words = a.words == null ? b.words : a.words;
+            char[] values = new char[sparse.size];
+            int size = 0;
+            for (int i = 0; i < sparse.size; i++) {
+                char low = sparse.values[i];
+                if ((words[low >>> 6] & (1L << low)) != 0) {
+                    values[size++] = low;
+                }
+            }
+            return size == 0 ? null : Chunk.sparse(values, size);
+        }
+        char[] values = new char[Math.min(a.size, b.size)];
+        int size = mergeSparse(a, b, values);
+        return size == 0 ? null : Chunk.sparse(values, size);
+    }
+
+    // Walk two sorted sparse chunks together; writes the common values to 'out' (if not null) and returns their count
+    private static int mergeSparse(Chunk a, Chunk b, char[] out) {
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.size && j < b.size) {
+            char x = a.values[i];
+            char y = b.values[j];
+            if (x < y) {
+                i++;
+            } else if (x > y) {
+                j++;
+            } else {
+                if (out != null) {
+                    out[size] = x;
+                }
+                size++;
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    private static void forEach(Chunk chunk, int base, IntConsumer action) {
+        if (chunk.words == null) {
+            for (int i = 0; i < chunk.size; i++) {
+                action.accept(base | chunk.values[i]);
+            }
+            return;
+        }
+        for (int i = 0; i < CHUNK_WORDS; i++) {
+            long word = chunk.words[i];
+            while (word != 0) {
+                action.accept(base | (i << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    private static void toDense(Chunk chunk) {
+        long[] words = new long[CHUNK_WORDS];
+        for (int i = 0; i < chunk.size; i++) {
+            char low = chunk.values[i];
+            words[low >>> 6] |= 1L << low;
+        }
+        chunk.words = words;
+        chunk.values = null;
+    }
+
+    private static void toSparse(Chunk chunk) {
+        char[] values = new char[Math.max(4, chunk.size)];
+        int size = 0;
+        for (int i = 0; i < CHUNK_WORDS; i++) {
+            long word = chunk.words[i];
+            while (word != 0) {
+                values[size++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        chunk.values = values;
+        chunk.words = null;
+    }
+}
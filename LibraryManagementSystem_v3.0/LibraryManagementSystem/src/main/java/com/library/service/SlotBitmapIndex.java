@@ -0,0 +1,64 @@
+package com.library.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bitmap index over one categorical field of the borrow records (e.g. status, linked user)
+ *
+ * Main job: Keep, for each value of the field, a SlotBitmap of the record slots that have it.
+ * Counting the records with a value is then O(1), listing them skips every other record, and
+ * filters on several fields are intersections of their bitmaps.
+ * Not thread-safe: BorrowService changes it under its write lock and reads it under its read lock.
+ *
+ * @param <K> Field value type
+ */
+class SlotBitmapIndex<K> {
+    // Shared empty result for values no record has
+    private static final SlotBitmap EMPTY = new SlotBitmap();
+    // Field value -> slots of the records with that value
+    private final Map<K, SlotBitmap> slotsByValue = new HashMap<>();
+
+    /**
+     * Record that a slot has a value (null values are not indexed)
+     * @param value Field value
+     * @param slot Record slot
+     */
+    void add(K value, int slot) {
+        if (value != null) {
+            slotsByValue.computeIfAbsent(value, key -> new SlotBitmap()).add(slot);
+        }
+    }
+
+    /**
+     * Record that a slot no longer has a value
+     * @param value Field value the slot had
+     * @param slot Record slot
+     */
+    void remove(K value, int slot) {
+        SlotBitmap slots = value == null ? null : slotsByValue.get(value);
+        if (slots != null && slots.remove(slot) && slots.cardinality() == 0) {
+            slotsByValue.remove(value);
+        }
+    }
+
+    /**
+     * Get the slots of the records that have a value
+     * The bitmap belongs to the index: read it, never change it.
+     * @param value Field value
+     * @return Slots (empty bitmap if no record has the value)
+     */
+    SlotBitmap slotsWith(K value) {
+        SlotBitmap slots = value == null ? null : slotsByValue.get(value);
+        return slots == null ? EMPTY : slots;
+    }
+
+    /**
+     * Count the records that have a value
+     * @param value Field value
+     * @return Record count
+     */
+    int count(K value) {
+        return slotsWith(value).cardinality();
+    }
+}
@@ -0,0 +1,246 @@
+package com.library.service;
+
+import com.library.model.User;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Secondary index: case-folded user names in a prefix tree (radix trie)
+ *
+ * Main job: Let UserService complete a partly typed name without scanning the users. Each name is
+ * indexed from its start and from the start of every later word, so "zha" and "san" both find
+ * "Zhang San". A completion walks down the typed prefix once (O(prefix length)) and then reads
+ * the users below it in name order, stopping as soon as it has enough of them.
+ * Edges hold whole runs of characters (a node only exists where names branch or end), so the tree
+ * has at most two nodes per indexed name.
+ * Not thread-safe: UserService changes it under its write lock and reads it optimistically or
+ * under its read lock. Nodes are only linked and unlinked, so an optimistic reader may see a
+ * half-done change (and is then run again) but never loops.
+ */
+class UserNameIndex {
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final User[] NO_USERS = new User[0];
+
+    // Root node (empty edge; never removed)
+    private final Node root = new Node("");
+
+    private static final class Node {
+        // Folded characters on the edge from the parent (not empty below the root)
+        private String edge;
+        // Children, sorted by the first character of their edge
+        private Node[] children = NO_CHILDREN;
+        // Users whose indexed name ends at this node, in the order added
+        private User[] users = NO_USERS;
+        private int userCount = 0;
+
+        Node(String edge) {
+            this.edge = edge;
+        }
+    }
+
+    /**
+     * Index a user under its name
+     * @param user Stored user (indexed by identity: remove() needs the same object)
+     */
+    void add(User user) {
+        for (String key : keys(user.getUserName())) {
+            insert(key, user);
+        }
+    }
+
+    /**
+     * Remove a user that was indexed with add()
+     * @param user The same user object that was added
+     */
+    void remove(User user) {
+        for (String key : keys(user.getUserName())) {
+            remove(root, key, 0, user);
+        }
+    }
+
+    /**
+     * Get the users with a name or name word starting with a prefix (case-insensitive)
+     * @param prefix Typed prefix
+     * @param limit Maximum number of users to return
+     * @return Matching users, by folded name (users with equal names in the order added)
+     */
+    List<User> complete(String prefix, int limit) {
+        String key = BookAuthorIndex.normalize(prefix);
+        Node node = root;
+        int position = 0;
+        while (position < key.length()) {
+            Node child = child(node, key.charAt(position));
+            if (child == null) {
+                return new ArrayList<>();
+            }
+            int overlap = Math.min(child.edge.length(), key.length() - position);
+            if (!key.regionMatches(position, child.edge, 0, overlap)) {
+                return new ArrayList<>();
+            }
+            // The prefix may end inside this edge: then every name below the child matches
+            position += child.edge.length();
+            node = child;
+        }
+        // A name can match more than one of its keys, so collect into a set
+        Set<User> matches = new LinkedHashSet<>();
+        collect(node, limit, matches);
+        return new ArrayList<>(matches);
+    }
+
+    // Add the users at and below a node, in name order, until there are enough
+    private static void collect(Node node, int limit, Set<User> matches) {
+        for (int i = 0; i < node.userCount && matches.size() < limit; i++) {
+            matches.add(node.users[i]);
+        }
+        for (Node child : node.children) {
+            if (matches.size() >= limit) {
+                return;
+            }
+            collect(child, limit, matches);
+        }
+    }
+
+    // Folded name from its start and from the start of every later word
+    private static List<String> keys(String name) {
+        String folded = BookAuthorIndex.normalize(name);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < folded.length(); i++) {
+            if (!Character.isWhitespace(folded.charAt(i)) && (i == 0 || Character.isWhitespace(folded.charAt(i - 1)))) {
+                keys.add(folded.substring(i));
+            }
+        }
+        return keys;
+    }
+
+    private void insert(String key, User user) {
+        Node node = root;
+        int position = 0;
+        while (position < key.length()) {
+            int index = childIndex(node, key.charAt(position));
+            if (index < 0) {
+                // No name continues this way yet: one new leaf holds the rest of the key
+                Node leaf = new Node(key.substring(position));
+                addUser(leaf, user);
+                addChild(node, -index - 1, leaf);
+                return;
+            }
+            Node child = node.children[index];
+            int common = commonLength(child.edge, key, position);
+            if (common < child.edge.length()) {
+                // The key leaves the edge part way: split it at that point
+                Node middle = new Node(child.edge.substring(0, common));
+                child.edge = child.edge.substring(common);
+                middle.children = new Node[] {child};
+                node.children[index] = middle;
+                child = middle;
+            }
+            position += common;
+            node = child;
+        }
+        addUser(node, user);
+    }
+
+    // Remove the user from the key's node, then prune and merge nodes that are no longer needed;
+    // returns the node that takes this node's place in its parent (null: drop it)
+    private Node remove(Node node, String key, int position, User user) {
+        if (position == key.length()) {
+            removeUser(node, user);
+        } else {
+            int index = childIndex(node, key.charAt(position));
+            if (index < 0 || !key.startsWith(node.children[index].edge, position)) {
+                return node;
+            }
+            Node child = node.children[index];
+            Node replacement = remove(child, key, position + child.edge.length(), user);
+            if (replacement == null) {
+                removeChild(node, index);
+            } else if (replacement != child) {
+                node.children[index] = replacement;
+            }
+        }
+        if (node == root || node.userCount > 0) {
+            return node;
+        }
+        if (node.children.length == 0) {
+            return null;
+        }
+        if (node.children.length == 1) {
+            Node only = node.children[0];
+            only.edge = node.edge + only.edge;
+            return only;
+        }
+        return node;
+    }
+
+    private static Node child(Node node, char first) {
+        int index = childIndex(node, first);
+        return index < 0 ? null : node.children[index];
+    }
+
+    // Binary search by first edge character: index of the child, or -(insertion point) - 1
+    private static int childIndex(Node node, char first) {
+        Node[] children = node.children;
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char c = children[middle].edge.charAt(0);
+            if (c < first) {
+                low = middle + 1;
+            } else if (c > first) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    private static int commonLength(String edge, String key, int position) {
+        int max = Math.min(edge.length(), key.length() - position);
+        int i = 0;
+        while (i < max && edge.charAt(i) == key.charAt(position + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    // Build the new array off to the side, then publish it
+    private static void addChild(Node node, int index, Node child) {
+        Node[] children = new Node[node.children.length + 1];
+        System.arraycopy(node.children, 0, children, 0, index);
+        children[index] = child;
+        System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+        node.children = children;
+    }
+
+    private static void removeChild(Node node, int index) {
+        Node[] children = new Node[node.children.length - 1];
+        System.arraycopy(node.children, 0, children, 0, index);
+        System.arraycopy(node.children, index + 1, children, index, children.length - index);
+        node.children = children;
+    }
+
+    private static void addUser(Node node, User user) {
+        if (node.userCount == node.users.length) {
+            node.users = Arrays.copyOf(node.users, Math.max(1, node.userCount * 2));
+        }
+        node.users[node.userCount++] = user;
+    }
+
+    private static void removeUser(Node node, User user) {
+        for (int i = 0; i < node.userCount; i++) {
+            if (node.users[i] == user) {
+                System.arraycopy(node.users, i + 1, node.users, i, node.userCount - i - 1);
+                node.users[--node.userCount] = null;
+                if (node.userCount == 0) {
+                    node.users = NO_USERS;
+                }
+                return;
+            }
+        }
+    }
+}
@@ -1,76 +1,203 @@
 package com.library.service;
 
 import com.library.model.User;
+import com.library.storage.CsvWriter;
+import com.library.storage.FlushScheduler;
+import com.library.storage.LazyLoader;
+import com.library.storage.MutationLog;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 /**
  * User business logic service class
  * Core responsibility: Encapsulate all user-related operations (add, delete, query, update),
- * store and manage user data based on an array, ensuring data validity and integrity.
+ * store and manage user data in a growable array (no user limit, listed in the order added) with a
+ * user ID hash index, so every ID-based operation is O(1), ensuring data validity and integrity.
+ * A deleted user leaves an empty slot; the array is compacted (order kept) once half of it is empty.
+ * Names are also kept in a case-folded prefix tree (see UserNameIndex) for name completion.
+ * The users are loaded on first access (see setLoader()).
+ * Thread-safe: changes take a StampedLock's write lock; searches read optimistically and only take
+ * the read lock if a change happened while they ran. Users are immutable (see User):
+ * an update stores a new User, so a returned user is a consistent snapshot and needs no copying.
  */
 public class UserService {
-    // Maximum array capacity: Maximum number of users the system can store
-    private static final int MAX_CAPACITY = 50;
-    // User array: Stores all user objects
-    private User[] userArray = new User[MAX_CAPACITY];
-    // Actual user count: Number of users currently stored in the array (<= MAX_CAPACITY)
+    // Initial array capacity (the array grows by half when full; there is no user limit)
+    private static final int INITIAL_CAPACITY = 64;
+    // User array: Stores all user objects in the order they were added (null: deleted user)
+    private User[] userArray = new User[INITIAL_CAPACITY];
+    // Slots used in the array, including the empty slots of deleted users
+    private int slotCount = 0;
+    // Actual user count: Number of users currently stored in the array
     private int userCount = 0;
+    // User ID -> slot of the user in the array
+    private final Map<String, Integer> slotById = new ConcurrentHashMap<>();
+    // Prefix tree over the case-folded user names, for name completion
+    private final UserNameIndex nameIndex = new UserNameIndex();
     // File path for saving user data
     private String filePath = null;
+    // Append-only log of changes since the data file was last written
+    private MutationLog mutationLog = null;
+    // Shared scheduler that coalesces log writes (null: write the log after every change)
+    private FlushScheduler flushScheduler = null;
+    // Flush task handed to the scheduler (same instance every time, so changes are coalesced);
+    // it also compacts the log, so the flush thread pays for compaction instead of a caller
+    private final Runnable logFlushTask = this::flushAndCompact;
+    // Code that fills the service with the stored users (null: start empty)
+    private Runnable loader = null;
+    // Runs the load step (loader and log replay) once, on first access
+    private final LazyLoader lazyLoader = new LazyLoader();
+    private final Runnable loadStep = this::openStore;
+    // Guards userArray, slotById and the counts: write lock for changes, optimistic reads for searches
+    private final StampedLock lock = new StampedLock();
 
     /**
      * Add a new user to the system
      * @param newUser User object to add (contains name, ID, password)
-     * @return true if added successfully; false if invalid info, array full, or duplicate ID
+     * @return true if added successfully; false if invalid info or duplicate ID
      */
     public boolean addUser(User newUser) {
-        // 1. Validate parameter legality
+        ensureLoaded();
+        return mutate(() -> {
+            // 1-3. Validate parameter legality and unique ID
+            String error = validateNewUser(newUser);
+            if (error != null) {
+                System.out.println("Error: " + error);
+                return false;
+            }
+
+            // 4. All checks passed, add the user to the array (users are immutable, so it is not copied)
+            storeUser(newUser);
+            System.out.println("Successfully added user: " + newUser.getUserName() + " (User ID: " + newUser.getUserId() + ")");
+
+            // 5. Record the change in the mutation log
+            logMutation("ADD", newUser.getUserName(), newUser.getUserId(), newUser.getUserPassword());
+            return true;
+        });
+    }
+
+    /**
+     * Add users read from a data file
+     * Same checks as addUser(), but only invalid users are reported and nothing is written to the mutation log.
+     * The service keeps the given User objects (they are immutable).
+     * @param users Users to add, in file order
+     * @return Number of users added
+     */
+    public int loadUsers(Iterable<User> users) {
+        ensureLoaded();
+        int added = 0;
+        long stamp = lock.writeLock();
+        try {
+            for (User user : users) {
+                String error = validateNewUser(user);
+                if (error != null) {
+                    System.out.println("Skip invalid user: " + error);
+                    continue;
+                }
+                storeUser(user);
+                added++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return added;
+    }
+
+    /**
+     * Check a user before it is added
+     * @param newUser User to check
+     * @return Error message, or null if the user can be added
+     */
+    private String validateNewUser(User newUser) {
         if (newUser == null) {
-            System.out.println("Error: User info is empty!");
-            return false;
+            return "User info is empty!";
         }
         if (newUser.getUserId() == null || newUser.getUserId().trim().isEmpty()) {
-            System.out.println("Error: User ID cannot be empty!");
-            return false;
+            return "User ID cannot be empty!";
         }
         if (newUser.getUserName() == null || newUser.getUserName().trim().isEmpty()) {
-            System.out.println("Error: User name cannot be empty!");
-            return false;
+            return "User name cannot be empty!";
         }
         if (newUser.getUserPassword() == null || newUser.getUserPassword().trim().isEmpty()) {
-            System.out.println("Error: User password cannot be empty!");
-            return false;
+            return "User password cannot be empty!";
+        }
+        // Check if user ID already exists (ID is unique)
+        if (slotById.containsKey(newUser.getUserId())) {
+            return "User with ID [" + newUser.getUserId() + "] already exists!";
         }
+        return null;
+    }
 
-        // 2. Check if array is full
-        if (userCount >= MAX_CAPACITY) {
-            System.out.println("Error: User array is full, cannot add new users!");
-            return false;
+    /**
+     * Append a checked user to the array and index its ID (write lock held)
+     * @param user User to store
+     */
+    private void storeUser(User user) {
+        if (slotCount == userArray.length) {
+            userArray = Arrays.copyOf(userArray, slotCount + (slotCount >> 1));
         }
+        userArray[slotCount] = user;
+        slotById.put(user.getUserId(), slotCount);
+        nameIndex.add(user);
+        slotCount++;
+        userCount++;
+    }
 
-        // 3. Check if user ID already exists (ID is unique)
-        for (int i = 0; i < userCount; i++) {
-            if (userArray[i].getUserId().equals(newUser.getUserId())) {
-                System.out.println("Error: User with ID [" + newUser.getUserId() + "] already exists!");
-                return false;
-            }
+    /**
+     * Remove the user in a slot (write lock held)
+     * Compacts the array once more than half of its used slots are empty, so deleting stays O(1) on average.
+     * @param slot Slot of a stored user
+     */
+    private void removeUser(int slot) {
+        slotById.remove(userArray[slot].getUserId());
+        nameIndex.remove(userArray[slot]);
+        userArray[slot] = null;
+        userCount--;
+        if (slotCount - userCount > slotCount / 2) {
+            compact();
         }
+    }
 
-        // 4. All checks passed, add to array
-        userArray[userCount++] = newUser;
-        System.out.println("Successfully added user: " + newUser.getUserName() + " (User ID: " + newUser.getUserId() + ")");
+    /**
+     * Replace the user in a slot with its new state and fix the name index (write lock held)
+     * @param slot Slot of a stored user
+     * @param updatedUser New state of the user (same ID)
+     */
+    private void replaceUser(int slot, User updatedUser) {
+        nameIndex.remove(userArray[slot]);
+        nameIndex.add(updatedUser);
+        userArray[slot] = updatedUser;
+    }
 
-        // 5. Save to file if file path is set
-        if (filePath != null) {
-            saveUsersToFile();
+    /**
+     * Move the users to the front of the array (order kept) and update their slots (write lock held)
+     */
+    private void compact() {
+        int next = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            User user = userArray[slot];
+            if (user != null) {
+                if (slot != next) {
+                    userArray[next] = user;
+                    slotById.put(user.getUserId(), next);
+                }
+                next++;
+            }
         }
-
-        return true;
+        Arrays.fill(userArray, next, slotCount, null); // Empty unused slots for GC
+        slotCount = next;
     }
 
     /**
@@ -79,29 +206,24 @@ public class UserService {
      * @return true if deleted successfully; false if ID is empty or user not found
      */
     public boolean deleteUser(String userId) {
+        ensureLoaded();
         if (userId == null || userId.trim().isEmpty()) {
             System.out.println("Error: User ID cannot be empty!");
             return false;
         }
-        for (int i = 0; i < userCount; i++) {
-            if (userArray[i].getUserId().equals(userId)) {
-                // Shift elements forward to cover the deleted user
-                for (int j = i; j < userCount - 1; j++) {
-                    userArray[j] = userArray[j + 1];
-                }
-                userArray[--userCount] = null; // Empty last element for GC
-                System.out.println("Successfully deleted user with ID [" + userId + "]!");
-
-                // Save to file if file path is set
-                if (filePath != null) {
-                    saveUsersToFile();
-                }
-
-                return true;
+        return mutate(() -> {
+            Integer slot = slotById.get(userId);
+            if (slot == null) {
+                System.out.println("No user found with ID [" + userId + "]!");
+                return false;
             }
-        }
-        System.out.println("No user found with ID [" + userId + "]!");
-        return false;
+            removeUser(slot);
+            System.out.println("Successfully deleted user with ID [" + userId + "]!");
+
+            // Record the change in the mutation log
+            logMutation("DELETE", userId);
+            return true;
+        });
     }
 
     /**
@@ -112,6 +234,7 @@ public class UserService {
      * @return true if updated successfully; false if invalid params or user not found
      */
     public boolean updateUser(String userId, String newUserName, String newPassword) {
+        ensureLoaded();
         // 1. Validate parameters
         if (userId == null || userId.trim().isEmpty()) {
             System.out.println("Error: User ID cannot be empty!");
@@ -126,101 +249,184 @@ public class UserService {
             return false;
         }
 
-        // 2. Find user and update info
-        for (int i = 0; i < userCount; i++) {
-            if (userArray[i].getUserId().equals(userId)) {
-                userArray[i].setUserName(newUserName);
-                userArray[i].setUserPassword(newPassword);
-                System.out.println("Successfully updated info for user ID [" + userId + "]!");
+        // 2. Find user and replace it with the updated info
+        return mutate(() -> {
+            Integer slot = slotById.get(userId);
+            if (slot == null) {
+                System.out.println("No user found with ID [" + userId + "], update failed!");
+                return false;
+            }
+            replaceUser(slot, new User(newUserName, userId, newPassword));
+            System.out.println("Successfully updated info for user ID [" + userId + "]!");
 
-                // Save to file if file path is set
-                if (filePath != null) {
-                    saveUsersToFile();
-                }
+            // Record the change in the mutation log
+            logMutation("UPDATE", userId, newUserName, newPassword);
+            return true;
+        });
+    }
 
-                return true;
+    /**
+     * Get all users in the system (in the order they were added)
+     * @return All users (empty list if there are none)
+     */
+    public List<User> getAllUsers() {
+        ensureLoaded();
+        return read(() -> {
+            User[] array = userArray;
+            int count = Math.min(slotCount, array.length);
+            List<User> users = new ArrayList<>(userCount);
+            for (int i = 0; i < count; i++) {
+                if (array[i] != null) {
+                    users.add(array[i]);
+                }
             }
-        }
+            return users;
+        });
+    }
 
-        System.out.println("No user found with ID [" + userId + "], update failed!");
-        return false;
+    /**
+     * Get one page of the users (in the order they were added)
+     * @param offset Number of users to skip
+     * @param limit Largest number of users to return
+     * @return The users of the page (empty list if offset is past the end)
+     */
+    public List<User> getUsers(int offset, int limit) {
+        ensureLoaded();
+        return read(() -> {
+            User[] array = userArray;
+            int count = Math.min(slotCount, array.length);
+            List<User> users = new ArrayList<>(Math.min(limit, 1024));
+            int skip = offset;
+            for (int i = 0; i < count && users.size() < limit; i++) {
+                if (array[i] == null) {
+                    continue;
+                }
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    users.add(array[i]);
+                }
+            }
+            return users;
+        });
     }
 
     /**
-     * View details of all users in the system
+     * Get the number of users in the system
+     * @return User count
      */
-    public void listAllUsers() {
-        if (userCount == 0) {
-            System.out.println("User array is empty, no users to display!");
-            return;
-        }
-        System.out.println("\n===== All Users List =====");
-        for (int i = 0; i < userCount; i++) {
-            User user = userArray[i];
-            System.out.println("No.: " + (i + 1) +
-                    " | User ID: " + user.getUserId() +
-                    " | User Name: " + user.getUserName() +
-                    " | Password: " + user.getUserPassword());
-        }
+    public int getUserCount() {
+        ensureLoaded();
+        return read(() -> userCount);
     }
 
     /**
-     * Search for a user by exact ID match
-     * @param userId ID of the user to search for
+     * Find a user by exact ID match
+     * @param userId ID of the user to find
+     * @return The user, or null if the ID is empty or no user has it
      */
-    public void searchByUserId(String userId) {
+    public User findByUserId(String userId) {
+        ensureLoaded();
         if (userId == null || userId.trim().isEmpty()) {
-            System.out.println("Error: User ID cannot be empty!");
-            return;
-        }
-        for (int i = 0; i < userCount; i++) {
-            User user = userArray[i];
-            if (user.getUserId().equals(userId)) {
-                System.out.println("\n===== User Details =====");
-                System.out.println("User ID: " + user.getUserId());
-                System.out.println("User Name: " + user.getUserName());
-                System.out.println("Password: " + user.getUserPassword());
-                return;
-            }
+            return null;
         }
-        System.out.println("No user found with ID [" + userId + "]!");
+        return read(() -> {
+            Integer slot = slotById.get(userId);
+            return slot == null ? null : userArray[slot];
+        });
     }
 
     /**
-     * Search for users by fuzzy name match
+     * Find users by fuzzy name match
      * @param nameKeyword Keyword to search in user names (case-insensitive)
+     * @return Matching users (empty list if the keyword is empty or none found)
      */
-    public void searchByUserName(String nameKeyword) {
+    public List<User> findByUserName(String nameKeyword) {
+        ensureLoaded();
         if (nameKeyword == null || nameKeyword.trim().isEmpty()) {
-            System.out.println("Error: User name keyword cannot be empty!");
-            return;
+            return new ArrayList<>();
         }
-        // Store matched users
-        User[] matchedUsers = new User[userCount];
-        int matchCount = 0;
-
-        // Traverse array to find matches
-        for (int i = 0; i < userCount; i++) {
-            User user = userArray[i];
-            // Fuzzy match (case-insensitive)
-            if (user.getUserName().toLowerCase().contains(nameKeyword.toLowerCase())) {
-                matchedUsers[matchCount++] = user;
+        String keyword = nameKeyword.toLowerCase();
+        return read(() -> {
+            List<User> matchedUsers = new ArrayList<>();
+            // Traverse array to find matches (case-insensitive)
+            User[] array = userArray;
+            int count = Math.min(slotCount, array.length);
+            for (int i = 0; i < count; i++) {
+                User user = array[i];
+                if (user != null && user.getUserName().toLowerCase().contains(keyword)) {
+                    matchedUsers.add(user);
+                }
             }
+            return matchedUsers;
+        });
+    }
+
+    /**
+     * Complete a partly typed user name
+     * Matches names that start with the prefix, or have a word that starts with it (case-insensitive),
+     * using the name prefix tree: the cost depends on the prefix and the limit, not on the user count.
+     * @param prefix Typed start of a name or name word
+     * @param limit Maximum number of users to return
+     * @return Matching users in name order (empty list if the prefix is empty or none found)
+     */
+    public List<User> completeUserName(String prefix, int limit) {
+        ensureLoaded();
+        if (prefix == null || prefix.trim().isEmpty() || limit <= 0) {
+            return new ArrayList<>();
         }
+        return read(() -> nameIndex.complete(prefix.trim(), limit));
+    }
 
-        // Output results
-        if (matchCount == 0) {
-            System.out.println("No users found containing [" + nameKeyword + "]!");
-            return;
+    /**
+     * Run one change under the write lock
+     * Without a flush scheduler, compacts the mutation log afterwards if it has grown too long
+     * (with one, the flush thread does it).
+     * @param change The change; returns true if it changed anything
+     * @return Result of the change
+     */
+    private boolean mutate(BooleanSupplier change) {
+        boolean changed;
+        long stamp = lock.writeLock();
+        try {
+            changed = change.getAsBoolean();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (changed && flushScheduler == null) {
+            compactIfNeeded();
         }
+        return changed;
+    }
 
-        System.out.println("\n===== Search Results (Name contains: " + nameKeyword + ") =====");
-        System.out.println("Found " + matchCount + " related users:");
-        for (int i = 0; i < matchCount; i++) {
-            User user = matchedUsers[i];
-            System.out.println((i + 1) + ". User ID: " + user.getUserId() +
-                    " | User Name: " + user.getUserName() +
-                    " | Password: " + user.getUserPassword());
+    /**
+     * Run a search without locking, falling back to the read lock if a change interfered
+     * <p>
+     * The search first runs optimistically; its result is used only if no write lock was taken
+     * meanwhile. A search that sees a half-done change may fail or return garbage; either way
+     * it is run again under the read lock. So the search must not change anything.
+     *
+     * @param query Read-only search over userArray/slotById/nameIndex
+     * @param <T> Result type
+     * @return Search result
+     */
+    private <T> T read(Supplier<T> query) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = query.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // Saw a half-done change; retry under the read lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return query.get();
+        } finally {
+            lock.unlockRead(stamp);
         }
     }
 
@@ -230,29 +436,205 @@ public class UserService {
      */
     public void setFilePath(String filePath) {
         this.filePath = filePath;
+        this.mutationLog = filePath == null ? null : new MutationLog(filePath);
+    }
+
+    /**
+     * Set the scheduler that coalesces mutation log writes
+     * @param flushScheduler Shared flush scheduler (null to write the log after every change)
+     */
+    public void setFlushScheduler(FlushScheduler flushScheduler) {
+        this.flushScheduler = flushScheduler;
     }
 
     /**
      * Public method to save all users to file
      * This method can be called externally to force save
+     * Users that were never loaded have not changed, so nothing is written for them.
      */
     public void saveDataToFile() {
+        if (!lazyLoader.isLoaded()) {
+            System.out.println("User data not loaded, nothing to save.");
+            return;
+        }
         saveUsersToFile();
     }
 
+    /**
+     * Set the code that loads the stored users
+     * It runs on first access (or on ensureLoaded()) and should add the users with loadUsers().
+     * Call before the service is used.
+     * @param loader Loader (null to start with no users)
+     */
+    public void setLoader(Runnable loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Load the users now if they are not loaded yet
+     * Runs the loader, then replays the mutation log. Called by every method that needs the users.
+     */
+    public void ensureLoaded() {
+        lazyLoader.ensureLoaded(loadStep);
+    }
+
+    /**
+     * Check whether the users have been loaded
+     * @return true once the loader and the log replay have run
+     */
+    public boolean isLoaded() {
+        return lazyLoader.isLoaded();
+    }
+
+    /**
+     * Load the stored users and apply the logged changes (load step of the lazy loader)
+     */
+    private void openStore() {
+        if (loader != null) {
+            loader.run();
+        }
+        replayMutationLog();
+    }
+
+    /**
+     * Replay the mutation log on top of the loaded user data
+     * <p>
+     * Runs once when the users are loaded, after the loader has added the stored users.
+     * Applies every logged change in order, exactly as it was logged (no messages), then compacts
+     * the log into the data file. Holds the write lock while replaying.
+     */
+    private void replayMutationLog() {
+        if (mutationLog == null) {
+            return;
+        }
+        mutationLog.setSnapshotSize(userCount);
+        List<List<String>> entries;
+        try {
+            entries = mutationLog.readEntries();
+        } catch (IOException e) {
+            System.out.println("Warning: Failed to read user change log: " + e.getMessage());
+            return;
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        int skipped = 0;
+        long stamp = lock.writeLock();
+        try {
+            for (List<String> entry : entries) {
+                if (!applyLogEntry(entry)) {
+                    skipped++;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        System.out.println("Replayed " + (entries.size() - skipped) + " user change(s) from: " + mutationLog.getPath()
+                + (skipped > 0 ? " (" + skipped + " skipped)" : ""));
+        saveUsersToFile();
+    }
+
+    /**
+     * Apply one mutation log entry to the stored users (write lock held)
+     * Formats: ADD,userName,userId,password | UPDATE,userId,userName,password | DELETE,userId
+     * @param entry Fields of the log entry
+     * @return true if applied; false if the entry is malformed or does not fit the users (skipped)
+     */
+    private boolean applyLogEntry(List<String> entry) {
+        String[] parts = entry.toArray(new String[0]);
+        if ("ADD".equals(parts[0]) && parts.length == 4) {
+            User user = new User(parts[1], parts[2], parts[3]);
+            if (validateNewUser(user) != null) {
+                return false;
+            }
+            storeUser(user);
+            return true;
+        }
+        Integer slot = parts.length > 1 ? slotById.get(parts[1]) : null;
+        if (slot == null) {
+            return false;
+        }
+        if ("UPDATE".equals(parts[0]) && parts.length == 4) {
+            replaceUser(slot, new User(parts[2], parts[1], parts[3]));
+            return true;
+        }
+        if ("DELETE".equals(parts[0]) && parts.length == 2) {
+            removeUser(slot);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Append one change to the mutation log
+     * <p>
+     * Costs one small append instead of rewriting the whole data file.
+     * With a flush scheduler the append is buffered and written together with other changes.
+     * Called under the write lock, so entries are logged in the order the changes happened.
+     *
+     * @param fields Fields of the log entry describing the change
+     */
+    private void logMutation(String... fields) {
+        if (mutationLog == null) {
+            return;
+        }
+        mutationLog.append(fields);
+        if (flushScheduler != null) {
+            flushScheduler.markDirty(logFlushTask);
+        } else {
+            flushMutationLog();
+        }
+    }
+
+    /**
+     * Compact the mutation log (rewrite the data file) once it has grown too long
+     * Runs on the flush thread, or after the write lock is released if there is no flush scheduler;
+     * never while the users are still being loaded.
+     */
+    private void compactIfNeeded() {
+        if (mutationLog != null && lazyLoader.isLoaded() && mutationLog.needsCompaction()) {
+            saveUsersToFile();
+        }
+    }
+
+    // Flush task: write the buffered log entries, then compact the log if it has grown too long
+    private void flushAndCompact() {
+        flushMutationLog();
+        compactIfNeeded();
+    }
+
+    /**
+     * Write the buffered mutation log entries to the log file
+     * If the write fails the entries stay buffered and are retried by the next flush or full save.
+     */
+    private void flushMutationLog() {
+        MutationLog log = mutationLog;
+        if (log == null || !log.hasPendingEntries()) {
+            return;
+        }
+        try {
+            log.flush();
+        } catch (IOException e) {
+            System.out.println("Warning: Failed to write user change log: " + e.getMessage());
+        }
+    }
+
     /**
      * Save all users to file
      * <p>
      * Writes all users in the array to the specified file.
-     * File format: userName,userId,userPassword
+     * File format: userName,userId,userPassword (CSV, fields quoted when needed)
      * Preserves the header comments from the original file.
+     * Also compacts the mutation log: once the data file is written, the log is cleared.
+     * Holds the read lock (searches go on, changes wait) and runs one save at a time.
      */
-    private void saveUsersToFile() {
+    private synchronized void saveUsersToFile() {
         if (filePath == null || filePath.trim().isEmpty()) {
             System.out.println("Warning: File path is not set. Cannot save user data.");
             return;
         }
 
+        long stamp = lock.readLock();
         try {
             Path path = Paths.get(filePath);
             // Create parent directories if they don't exist
@@ -260,7 +642,9 @@ public class UserService {
                 Files.createDirectories(path.getParent());
             }
 
-            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            // Write to a temp file first, so a crash never leaves a half-written data file
+            Path tempPath = Paths.get(filePath + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
                 // Write header comments
                 writer.write("# users.txt — User Data (UTF-8). Each line: user name, user ID, password");
                 writer.newLine();
@@ -269,20 +653,33 @@ public class UserService {
                 writer.newLine();
 
                 // Write all users
-                for (int i = 0; i < userCount; i++) {
+                for (int i = 0; i < slotCount; i++) {
                     User user = userArray[i];
-                    writer.write(user.getUserName() + "," +
-                            user.getUserId() + "," +
-                            user.getUserPassword());
+                    if (user == null) {
+                        continue;
+                    }
+                    writer.write(CsvWriter.formatRecord(user.getUserName(),
+                            user.getUserId(),
+                            user.getUserPassword()));
                     writer.newLine();
                 }
             }
+            // On the disk before it replaces the data file, since the log is cleared next
+            MutationLog.forceToDisk(tempPath);
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+            // Data file now holds every logged change, so the log can be cleared
+            if (mutationLog != null) {
+                mutationLog.clear();
+                mutationLog.setSnapshotSize(userCount);
+            }
             // Save successful - show message for debugging
             System.out.println("User data saved successfully to: " + filePath);
         } catch (IOException e) {
             System.out.println("Warning: Failed to save user data to file: " + e.getMessage());
             System.out.println("File path was: " + filePath);
             e.printStackTrace();
+        } finally {
+            lock.unlockRead(stamp);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,359 @@
+package com.library.storage;
+
+import com.library.model.Book;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary, memory-mapped snapshot of the book catalog
+ *
+ * Main job: Store the catalog in a format that can be read without parsing text.
+ * The file is mapped with FileChannel.map(), so records are decoded only when they are read,
+ * and the OS pages in only the parts of the file that are touched.
+ * File layout (big-endian):
+ *   Header (32 bytes): magic "LBKS", version, record count, reserved, string heap offset (long), heap size (long)
+ *   Records (32 bytes each): name offset/length, author offset/length, ISBN offset/length, total quantity, borrowed quantity
+ *   ISBN index (version 2, 4 bytes per record): record indexes sorted by ISBN (UTF-8 byte order),
+ *     so one book can be found by binary search without reading the others
+ *   String heap: UTF-8 bytes of all names, authors and ISBNs (offsets are relative to the heap start)
+ * Also converts between this format and the books.txt text format.
+ */
+public class BinaryCatalogSnapshot implements AutoCloseable {
+    // "LBKS" in ASCII
+    private static final int MAGIC = 0x4C424B53;
+    private static final int VERSION = 2;
+    // Oldest version that can still be read (version 1 has no ISBN index)
+    private static final int MIN_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 32;
+    private static final int INDEX_ENTRY_SIZE = 4;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int recordCount;
+    // Byte position of the ISBN index (-1 for version 1 files)
+    private final int indexOffset;
+    private final int heapOffset;
+
+    private BinaryCatalogSnapshot(FileChannel channel, MappedByteBuffer buffer, int recordCount, int indexOffset, int heapOffset) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.recordCount = recordCount;
+        this.indexOffset = indexOffset;
+        this.heapOffset = heapOffset;
+    }
+
+    /**
+     * Map a snapshot file into memory
+     * @param path Snapshot file
+     * @return Opened snapshot (close it when done)
+     * @throws IOException If the file cannot be read or is not a valid snapshot
+     */
+    public static BinaryCatalogSnapshot open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot size: " + fileSize + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a book snapshot file: " + path);
+            }
+            int version = buffer.getInt(4);
+            if (version < MIN_VERSION || version > VERSION) {
+                throw new IOException("Unsupported book snapshot version: " + version);
+            }
+            int recordCount = buffer.getInt(8);
+            long heapOffset = buffer.getLong(16);
+            long heapSize = buffer.getLong(24);
+            long indexOffset = HEADER_SIZE + (long) recordCount * RECORD_SIZE;
+            long indexSize = version >= 2 ? (long) recordCount * INDEX_ENTRY_SIZE : 0;
+            if (recordCount < 0 || heapOffset != indexOffset + indexSize || heapOffset + heapSize != fileSize) {
+                throw new IOException("Corrupted book snapshot header: " + path);
+            }
+            return new BinaryCatalogSnapshot(channel, buffer, recordCount,
+                    version >= 2 ? (int) indexOffset : -1, (int) heapOffset);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write books to a snapshot file
+     * The file is written to a temp file, forced to the disk and then moved into place.
+     * @param path Snapshot file
+     * @param books Books to write, in list order
+     * @throws IOException If the file cannot be written or the string heap exceeds 2 GB
+     */
+    public static void write(Path path, Iterable<Book> books) throws IOException {
+        List<Book> bookList = new ArrayList<>();
+        for (Book book : books) {
+            bookList.add(book);
+        }
+        // 1. Encode all strings and lay out the heap
+        byte[][] strings = new byte[bookList.size() * 3][];
+        long heapSize = 0;
+        for (int i = 0; i < bookList.size(); i++) {
+            Book book = bookList.get(i);
+            strings[i * 3] = book.getBookName().getBytes(StandardCharsets.UTF_8);
+            strings[i * 3 + 1] = book.getBookAuthor().getBytes(StandardCharsets.UTF_8);
+            strings[i * 3 + 2] = book.getBookISBN().getBytes(StandardCharsets.UTF_8);
+            heapSize += strings[i * 3].length + strings[i * 3 + 1].length + strings[i * 3 + 2].length;
+        }
+        // Record indexes sorted by ISBN bytes, for binary search
+        Integer[] isbnOrder = new Integer[bookList.size()];
+        for (int i = 0; i < isbnOrder.length; i++) {
+            isbnOrder[i] = i;
+        }
+        Arrays.sort(isbnOrder, (a, b) -> Arrays.compareUnsigned(strings[a * 3 + 2], strings[b * 3 + 2]));
+        long heapOffset = HEADER_SIZE + (long) bookList.size() * (RECORD_SIZE + INDEX_ENTRY_SIZE);
+        if (heapOffset + heapSize > Integer.MAX_VALUE) {
+            throw new IOException("Catalog too large for one snapshot file: " + (heapOffset + heapSize) + " bytes");
+        }
+
+        // 2. Write header, fixed-width records, the ISBN index, then the heap
+        if (path.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+        }
+        Path tempPath = Paths.get(path + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(bookList.size());
+            out.writeInt(0);
+            out.writeLong(heapOffset);
+            out.writeLong(heapSize);
+            int offset = 0;
+            for (int i = 0; i < bookList.size(); i++) {
+                for (int s = 0; s < 3; s++) {
+                    out.writeInt(offset);
+                    out.writeInt(strings[i * 3 + s].length);
+                    offset += strings[i * 3 + s].length;
+                }
+                out.writeInt(bookList.get(i).getBookQuantity());
+                out.writeInt(bookList.get(i).getBookBorrowedQuantity());
+            }
+            for (int index : isbnOrder) {
+                out.writeInt(index);
+            }
+            for (byte[] bytes : strings) {
+                out.write(bytes);
+            }
+        }
+        // On the disk before it replaces the old snapshot (the caller may clear its mutation log next)
+        MutationLog.forceToDisk(tempPath);
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Get the number of books in the snapshot
+     * @return Record count
+     */
+    public int size() {
+        return recordCount;
+    }
+
+    /**
+     * Decode one book
+     * @param index Record index (0 to size() - 1)
+     * @return New Book object holding the record's data
+     */
+    public Book get(int index) {
+        int record = recordOffset(index);
+        return new Book(readString(record), readString(record + 8), readString(record + 16),
+                buffer.getInt(record + 24), buffer.getInt(record + 28));
+    }
+
+    /**
+     * Decode only the ISBN of one book
+     * @param index Record index (0 to size() - 1)
+     * @return ISBN of the record
+     */
+    public String getISBN(int index) {
+        return readString(recordOffset(index) + 16);
+    }
+
+    /**
+     * Look up one book by ISBN without decoding the rest of the catalog
+     * Uses binary search over the ISBN index, so only a few records (and pages) are touched.
+     * Version 1 files have no index and are scanned instead.
+     * @param isbn ISBN to find
+     * @return New Book object, or null if no book has that ISBN
+     */
+    public Book findByISBN(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        byte[] key = isbn.getBytes(StandardCharsets.UTF_8);
+        if (indexOffset < 0) {
+            for (int i = 0; i < recordCount; i++) {
+                if (compareISBN(i, key) == 0) {
+                    return get(i);
+                }
+            }
+            return null;
+        }
+        int low = 0;
+        int high = recordCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int index = buffer.getInt(indexOffset + middle * INDEX_ENTRY_SIZE);
+            int order = compareISBN(index, key);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return get(index);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decode all books, in list order
+     * @return All books in the snapshot
+     */
+    public List<Book> readAll() {
+        List<Book> books = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            books.add(get(i));
+        }
+        return books;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Convert a books.txt text file into a binary snapshot
+     * Lines with a wrong format are skipped (same rules as the text loader).
+     * @param textPath books.txt file
+     * @param snapshotPath Snapshot file to write
+     * @return Number of books written
+     * @throws IOException If a file cannot be read or written
+     */
+    public static int convertTextToBinary(Path textPath, Path snapshotPath) throws IOException {
+        List<Book> books = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(textPath, StandardCharsets.UTF_8))) {
+            List<String> fields = new ArrayList<>();
+            while (reader.readRecord(fields)) {
+                if (fields.size() != 5) {
+                    System.out.println("Skip line with wrong format: " + String.join(",", fields));
+                    continue;
+                }
+                try {
+                    books.add(new Book(fields.get(0), fields.get(1), fields.get(2),
+                            Integer.parseInt(fields.get(3)), Integer.parseInt(fields.get(4))));
+                } catch (NumberFormatException e) {
+                    System.out.println("Skip invalid line: " + String.join(",", fields) + ". Reason: " + e.getMessage());
+                }
+            }
+        }
+        write(snapshotPath, books);
+        return books.size();
+    }
+
+    /**
+     * Convert a binary snapshot back into the books.txt text format
+     * @param snapshotPath Snapshot file
+     * @param textPath books.txt file to write
+     * @return Number of books written
+     * @throws IOException If a file cannot be read or written
+     */
+    public static int convertBinaryToText(Path snapshotPath, Path textPath) throws IOException {
+        try (BinaryCatalogSnapshot snapshot = open(snapshotPath);
+             BufferedWriter writer = Files.newBufferedWriter(textPath, StandardCharsets.UTF_8)) {
+            writer.write("# books.txt — Book Data (UTF-8). Each line: book title, author, ISBN, total quantity, number lent");
+            writer.newLine();
+            writer.write("# Empty rows and lines starting with # are ignored");
+            writer.newLine();
+            writer.newLine();
+            for (int i = 0; i < snapshot.size(); i++) {
+                Book book = snapshot.get(i);
+                writer.write(CsvWriter.formatRecord(book.getBookName(),
+                        book.getBookAuthor(),
+                        book.getBookISBN(),
+                        String.valueOf(book.getBookQuantity()),
+                        String.valueOf(book.getBookBorrowedQuantity())));
+                writer.newLine();
+            }
+            return snapshot.size();
+        }
+    }
+
+    /**
+     * Command line converter
+     * Usage: BinaryCatalogSnapshot to-binary books.txt books.bin
+     *        BinaryCatalogSnapshot to-text books.bin books.txt
+     * @param args Command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length != 3 || !("to-binary".equals(args[0]) || "to-text".equals(args[0]))) {
+            System.out.println("Usage: BinaryCatalogSnapshot to-binary <books.txt> <books.bin>");
+            System.out.println("       BinaryCatalogSnapshot to-text <books.bin> <books.txt>");
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            int count = "to-binary".equals(args[0])
+                    ? convertTextToBinary(Paths.get(args[1]), Paths.get(args[2]))
+                    : convertBinaryToText(Paths.get(args[1]), Paths.get(args[2]));
+            System.out.println("Converted " + count + " books to " + args[2] + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            System.out.println("Conversion failed: " + e.getMessage());
+        }
+    }
+
+    // Byte position of a record, with bounds check
+    private int recordOffset(int index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + recordCount);
+        }
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    // Compare a record's ISBN bytes with a key (unsigned byte order), without decoding the ISBN
+    private int compareISBN(int index, byte[] key) {
+        int record = recordOffset(index) + 16;
+        int start = heapOffset + buffer.getInt(record);
+        int length = buffer.getInt(record + 4);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int order = Integer.compare(buffer.get(start + i) & 0xFF, key[i] & 0xFF);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    // Decode the string whose offset/length pair starts at the given position
+    private String readString(int position) {
+        int offset = buffer.getInt(position);
+        int length = buffer.getInt(position + 4);
+        byte[] bytes = new byte[length];
+        buffer.get(heapOffset + offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
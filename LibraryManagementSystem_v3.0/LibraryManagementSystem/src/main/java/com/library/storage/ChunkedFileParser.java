@@ -0,0 +1,218 @@
+package com.library.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Parallel parser for CSV data files
+ *
+ * Main job: Split a data file into chunks that end between records (never inside a quoted field),
+ * parse the chunks in parallel on a fork-join pool with CsvReader, and merge the parsed records
+ * back in file order.
+ * A file is split by one pass over its bytes (the CSV special characters are ASCII, so UTF-8 text
+ * can be split without decoding it); each task then reads and decodes only its own chunk. Only the
+ * chunks being parsed are held as text, so files larger than a String can hold load too.
+ */
+public class ChunkedFileParser {
+    // Smallest chunk worth handing to another thread
+    private static final int MIN_CHUNK_CHARS = 64 * 1024;
+    // Largest chunk read from a file (keeps the decoded text of the running tasks small)
+    private static final int MAX_CHUNK_BYTES = 16 * 1024 * 1024;
+    // Buffer for the splitting pass over a file
+    private static final int SCAN_BUFFER_BYTES = 1024 * 1024;
+
+    private ChunkedFileParser() {
+    }
+
+    /**
+     * Parse all records of a data file
+     * @param file UTF-8 data file
+     * @param recordParser Turns the fields of one record into an object; returns null to skip the record.
+     *                     The field list is reused for the next record, so it must not be kept.
+     * @param pool Fork-join pool that parses the chunks
+     * @param <T> Record type
+     * @return Parsed records in file order
+     * @throws IOException If the file cannot be read
+     */
+    public static <T> List<T> parse(Path file, Function<List<String>, T> recordParser, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long chunkSize = Math.min(MAX_CHUNK_BYTES,
+                    Math.max(MIN_CHUNK_CHARS, channel.size() / Math.max(1, pool.getParallelism() * 4)));
+            List<long[]> chunks = splitIntoChunks(channel, chunkSize);
+            try {
+                return pool.invoke(new ChunkTask<>(0, chunks.size(),
+                        index -> parseChunk(readChunk(channel, chunks.get(index)), 0, -1, recordParser)));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Parse all records of a file's text
+     * @param text Whole file content
+     * @param recordParser Turns the fields of one record into an object; returns null to skip the record.
+     *                     The field list is reused for the next record, so it must not be kept.
+     * @param pool Fork-join pool that parses the chunks
+     * @param <T> Record type
+     * @return Parsed records in file order
+     */
+    public static <T> List<T> parse(String text, Function<List<String>, T> recordParser, ForkJoinPool pool) {
+        List<int[]> chunks = splitIntoChunks(text, pool.getParallelism() * 4);
+        return pool.invoke(new ChunkTask<>(0, chunks.size(),
+                index -> parseChunk(text, chunks.get(index)[0], chunks.get(index)[1], recordParser)));
+    }
+
+    /**
+     * Split text into about the given number of chunks, each ending right after a record
+     * @param text Whole file content
+     * @param targetChunks Wanted number of chunks
+     * @return Chunks as {start, end} character positions, in order
+     */
+    static List<int[]> splitIntoChunks(String text, int targetChunks) {
+        int chunkSize = Math.max(MIN_CHUNK_CHARS, text.length() / Math.max(1, targetChunks));
+        return CsvReader.splitIntoChunks(text, chunkSize);
+    }
+
+    /**
+     * Split a file into chunks that each hold whole records (same rules as CsvReader.splitIntoChunks)
+     * @param channel Open file
+     * @param chunkSize Wanted chunk length in bytes
+     * @return Chunks as {start, end} byte positions, in order
+     * @throws IOException If the file cannot be read
+     */
+    static List<long[]> splitIntoChunks(FileChannel channel, long chunkSize) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+        long position = 0;
+        long chunkStart = 0;
+        boolean lineStart = true;
+        boolean fieldStart = true;
+        boolean inComment = false;
+        boolean inQuotes = false;
+        // A quote inside a quoted field was the last byte seen: "" (escaped) or the closing quote
+        boolean quotePending = false;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < read; i++, position++) {
+                int c = bytes[i] & 0xFF;
+                if (quotePending) {
+                    quotePending = false;
+                    if (c == '"') {
+                        continue;
+                    }
+                    inQuotes = false;
+                }
+                if (inQuotes) {
+                    quotePending = c == '"';
+                    continue;
+                }
+                if (c == '\n' || c == '\r') {
+                    lineStart = true;
+                    fieldStart = true;
+                    inComment = false;
+                    if (c == '\n' && position + 1 - chunkStart >= chunkSize) {
+                        chunks.add(new long[]{chunkStart, position + 1});
+                        chunkStart = position + 1;
+                    }
+                    continue;
+                }
+                if (inComment || c <= ' ') {
+                    continue;
+                }
+                if (lineStart && c == '#') {
+                    inComment = true;
+                } else if (fieldStart && c == '"') {
+                    inQuotes = true;
+                }
+                lineStart = false;
+                fieldStart = c == ',';
+            }
+        }
+        if (chunkStart < position) {
+            chunks.add(new long[]{chunkStart, position});
+        }
+        return chunks;
+    }
+
+    // Read and decode one chunk of a file (positional reads, so tasks can share the channel)
+    private static String readChunk(FileChannel channel, long[] chunk) {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (chunk[1] - chunk[0]));
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, chunk[0] + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Chunks end after a line break, so no UTF-8 sequence is cut in two
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    // Parse the records in text[start, end) (end -1: to the end of the text)
+    private static <T> List<T> parseChunk(String text, int start, int end, Function<List<String>, T> recordParser) {
+        List<T> records = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        CsvReader reader = new CsvReader(text, start, end < 0 ? text.length() : end);
+        try {
+            while (reader.readRecord(fields)) {
+                T record = recordParser.apply(fields);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+        } catch (IOException e) {
+            // Cannot happen: the reader works on in-memory text
+            throw new UncheckedIOException(e);
+        }
+        return records;
+    }
+
+    // Parses a range of chunks, splitting the range in two until one chunk is left
+    // (never serialized: ForkJoinTask is Serializable, but tasks only live inside parse())
+    @SuppressWarnings("serial")
+    private static class ChunkTask<T> extends RecursiveTask<List<T>> {
+        private final int from;
+        private final int to;
+        // Parses the chunk with the given index
+        private final IntFunction<List<T>> chunkParser;
+
+        ChunkTask(int from, int to, IntFunction<List<T>> chunkParser) {
+            this.from = from;
+            this.to = to;
+            this.chunkParser = chunkParser;
+        }
+
+        @Override
+        protected List<T> compute() {
+            if (to - from <= 1) {
+                return from < to ? chunkParser.apply(from) : new ArrayList<>();
+            }
+            int middle = (from + to) >>> 1;
+            ChunkTask<T> left = new ChunkTask<>(from, middle, chunkParser);
+            left.fork();
+            List<T> right = new ChunkTask<>(middle, to, chunkParser).compute();
+            List<T> records = left.join();
+            records.addAll(right);
+            return records;
+        }
+    }
+}
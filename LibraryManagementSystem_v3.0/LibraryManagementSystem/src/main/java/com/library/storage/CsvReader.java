@@ -0,0 +1,263 @@
+package com.library.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming CSV record reader for the data files (RFC-4180 style quoting)
+ *
+ * Main job: Read one record at a time into a caller-supplied field list, reusing one buffer,
+ * so the only allocations per record are the field strings themselves.
+ * Rules (compatible with the old split-and-trim loaders):
+ *   - Fields are separated by commas; records end at a line break (\n, \r\n or \r)
+ *   - Unquoted fields are trimmed
+ *   - A field starting with " is quoted: it may contain commas, line breaks and "" (one quote),
+ *     and is taken as-is (no trimming)
+ *   - Empty unquoted fields at the end of a record are dropped, as String.split(",") did:
+ *     "ZHANG SAN,U001,123456," has three fields (write "" to keep an empty last field)
+ *   - Empty lines and lines starting with # are skipped
+ * Reads either from a Reader or from a range of an in-memory text.
+ */
+public class CsvReader implements Closeable {
+    private static final int BUFFER_SIZE = 8192;
+
+    // Source when reading from a stream (null for in-memory text)
+    private final Reader reader;
+    private final char[] buffer;
+    private int bufferPos = 0;
+    private int bufferLimit = 0;
+    // Source when reading from in-memory text (null for a stream)
+    private final CharSequence text;
+    private int textPos;
+    private final int textEnd;
+    // One character pushed back by the parser (-2 = none)
+    private int pushedBack = -2;
+    // Reused buffer for the field being read
+    private final StringBuilder field = new StringBuilder(64);
+
+    /**
+     * Read records from a stream
+     * @param reader Character stream (not closed until close() is called)
+     */
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
+        this.text = null;
+        this.textPos = 0;
+        this.textEnd = 0;
+    }
+
+    /**
+     * Read records from part of an in-memory text
+     * @param text Text to read
+     * @param start Position of the first character (must be the start of a record)
+     * @param end Position after the last character
+     */
+    public CsvReader(CharSequence text, int start, int end) {
+        this.reader = null;
+        this.buffer = null;
+        this.text = text;
+        this.textPos = start;
+        this.textEnd = end;
+    }
+
+    /**
+     * Read the next record
+     * @param fields List that receives the fields (cleared first)
+     * @return true if a record was read; false at the end of the input
+     * @throws IOException If the stream cannot be read
+     */
+    public boolean readRecord(List<String> fields) throws IOException {
+        fields.clear();
+        int c;
+        // Skip empty lines and comment lines
+        while (true) {
+            c = read();
+            while (isBlank(c)) {
+                c = read();
+            }
+            if (c == -1) {
+                return false;
+            }
+            if (c == '#') {
+                while (c != '\n' && c != '\r' && c != -1) {
+                    c = read();
+                }
+                continue;
+            }
+            if (c != '\n' && c != '\r') {
+                break;
+            }
+        }
+        // Read fields until the end of the line
+        // Fields up to this count are kept (the rest are empty unquoted fields at the end)
+        int keptFields = 0;
+        while (true) {
+            while (isBlank(c)) {
+                c = read();
+            }
+            field.setLength(0);
+            if (c == '"') {
+                c = readQuotedField();
+                // Ignore blanks between the closing quote and the separator
+                while (c != ',' && c != '\n' && c != '\r' && c != -1) {
+                    if (!isBlank(c)) {
+                        field.append((char) c);
+                    }
+                    c = read();
+                }
+                fields.add(field.toString());
+                keptFields = fields.size();
+            } else {
+                while (c != ',' && c != '\n' && c != '\r' && c != -1) {
+                    field.append((char) c);
+                    c = read();
+                }
+                int length = field.length();
+                while (length > 0 && field.charAt(length - 1) <= ' ') {
+                    length--;
+                }
+                fields.add(field.substring(0, length));
+                if (length > 0) {
+                    keptFields = fields.size();
+                }
+            }
+            if (c != ',') {
+                break;
+            }
+            c = read();
+        }
+        while (fields.size() > keptFields) {
+            fields.remove(fields.size() - 1);
+        }
+        if (c == '\r') {
+            int next = read();
+            if (next != '\n') {
+                pushedBack = next;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read all remaining records
+     * @return Records as lists of fields
+     * @throws IOException If the stream cannot be read
+     */
+    public List<List<String>> readAll() throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        while (readRecord(fields)) {
+            records.add(new ArrayList<>(fields));
+        }
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
+    /**
+     * Split text into chunks that each hold whole records
+     * A chunk never ends inside a quoted field, so chunks can be parsed independently.
+     * @param text Whole file content
+     * @param chunkSize Wanted chunk length in characters
+     * @return Chunks as {start, end} character positions, in order
+     */
+    public static List<int[]> splitIntoChunks(CharSequence text, int chunkSize) {
+        List<int[]> chunks = new ArrayList<>();
+        int length = text.length();
+        int chunkStart = 0;
+        boolean lineStart = true;
+        boolean fieldStart = true;
+        boolean inComment = false;
+        boolean inQuotes = false;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (inQuotes) {
+                // "" inside quotes is an escaped quote; a single " closes the field
+                if (c == '"') {
+                    if (i + 1 < length && text.charAt(i + 1) == '"') {
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                }
+                continue;
+            }
+            if (c == '\n' || c == '\r') {
+                lineStart = true;
+                fieldStart = true;
+                inComment = false;
+                if (c == '\n' && i + 1 - chunkStart >= chunkSize) {
+                    chunks.add(new int[]{chunkStart, i + 1});
+                    chunkStart = i + 1;
+                }
+                continue;
+            }
+            if (inComment || isBlank(c)) {
+                continue;
+            }
+            if (lineStart && c == '#') {
+                inComment = true;
+            } else if (fieldStart && c == '"') {
+                inQuotes = true;
+            }
+            lineStart = false;
+            fieldStart = c == ',';
+        }
+        if (chunkStart < length) {
+            chunks.add(new int[]{chunkStart, length});
+        }
+        return chunks;
+    }
+
+    // Read a quoted field (the opening quote is already consumed); returns the character after the closing quote
+    private int readQuotedField() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                return -1;
+            }
+            if (c == '"') {
+                int next = read();
+                if (next != '"') {
+                    return next;
+                }
+            }
+            field.append((char) c);
+        }
+    }
+
+    // Blank characters that are trimmed (everything up to space, except line breaks)
+    private static boolean isBlank(int c) {
+        return c >= 0 && c <= ' ' && c != '\n' && c != '\r';
+    }
+
+    // Next character, or -1 at the end of the input
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        if (text != null) {
+            return textPos < textEnd ? text.charAt(textPos++) : -1;
+        }
+        if (bufferPos == bufferLimit) {
+            bufferLimit = reader.read(buffer, 0, buffer.length);
+            bufferPos = 0;
+            if (bufferLimit <= 0) {
+                bufferLimit = 0;
+                return -1;
+            }
+        }
+        return buffer[bufferPos++];
+    }
+}
@@ -0,0 +1,75 @@
+package com.library.storage;
+
+/**
+ * CSV record formatting for the data files (counterpart of CsvReader)
+ *
+ * Main job: Turn fields into one record line that CsvReader reads back unchanged.
+ * A field is quoted only when it has to be (separator, quote, line break, leading/trailing blanks
+ * or a leading #), so ordinary records look the same as before. An empty last field is written as ""
+ * (CsvReader drops empty unquoted fields at the end of a record).
+ */
+public class CsvWriter {
+    private CsvWriter() {
+    }
+
+    /**
+     * Join fields into one record (without a line break)
+     * @param fields Field values
+     * @return Record text
+     */
+    public static String formatRecord(String... fields) {
+        StringBuilder record = new StringBuilder(64);
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                record.append(',');
+            }
+            appendField(record, fields[i]);
+        }
+        // An empty last field is quoted, or CsvReader would drop it
+        if (fields.length > 0 && (fields[fields.length - 1] == null || fields[fields.length - 1].isEmpty())) {
+            record.append("\"\"");
+        }
+        return record.toString();
+    }
+
+    /**
+     * Append one field to a record, quoting it if needed
+     * @param record Record being built
+     * @param value Field value (null is written as an empty field)
+     */
+    public static void appendField(StringBuilder record, String value) {
+        if (value == null) {
+            return;
+        }
+        if (!needsQuotes(value)) {
+            record.append(value);
+            return;
+        }
+        record.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                record.append('"');
+            }
+            record.append(c);
+        }
+        record.append('"');
+    }
+
+    // Whether CsvReader would change the value if it were written unquoted
+    private static boolean needsQuotes(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        if (value.charAt(0) <= ' ' || value.charAt(value.length() - 1) <= ' ' || value.charAt(0) == '#') {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
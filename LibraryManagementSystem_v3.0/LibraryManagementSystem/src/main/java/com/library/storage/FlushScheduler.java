@@ -0,0 +1,134 @@
+package com.library.storage;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group-commit flush scheduler shared by the services
+ *
+ * Main job: Coalesce the writes of many mutations into one. A service marks its store dirty after each
+ * change; the scheduler runs the store's flush task once, either when the oldest pending change is
+ * maxDelayMillis old or when maxPendingMutations changes are waiting, whichever comes first.
+ * Flushes run on one background daemon thread; flushAll() runs them on the caller's thread.
+ */
+public class FlushScheduler {
+    // Default longest time a change may wait before it is flushed
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 1000;
+    // Default number of waiting changes that triggers an immediate flush
+    public static final int DEFAULT_MAX_PENDING_MUTATIONS = 200;
+
+    private final long maxDelayMillis;
+    private final int maxPendingMutations;
+    // Flush task -> number of changes waiting for it
+    private final Map<Runnable, Integer> pendingCounts = new IdentityHashMap<>();
+    // Flush task -> delayed flush already scheduled for it
+    private final Map<Runnable, ScheduledFuture<?>> scheduledFlushes = new IdentityHashMap<>();
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Create a scheduler with the default limits
+     */
+    public FlushScheduler() {
+        this(DEFAULT_MAX_DELAY_MILLIS, DEFAULT_MAX_PENDING_MUTATIONS);
+    }
+
+    /**
+     * Create a scheduler
+     * @param maxDelayMillis Longest time (ms) a change may wait before it is flushed
+     * @param maxPendingMutations Number of waiting changes of one store that triggers an immediate flush
+     */
+    public FlushScheduler(long maxDelayMillis, int maxPendingMutations) {
+        if (maxDelayMillis < 0 || maxPendingMutations < 1) {
+            throw new IllegalArgumentException("Invalid flush limits: maxDelayMillis=" + maxDelayMillis
+                    + ", maxPendingMutations=" + maxPendingMutations);
+        }
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxPendingMutations = maxPendingMutations;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "library-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Record one change of a store
+     * <p>
+     * Schedules the store's flush task unless a flush is already scheduled for it.
+     * Runs it right away (on the background thread) once maxPendingMutations changes are waiting.
+     *
+     * @param flushTask Flush task of the store (the same instance must be passed every time)
+     */
+    public synchronized void markDirty(Runnable flushTask) {
+        if (executor.isShutdown()) {
+            // Scheduler already stopped (program exiting): flush on the caller's thread
+            flushTask.run();
+            return;
+        }
+        int pending = pendingCounts.merge(flushTask, 1, Integer::sum);
+        ScheduledFuture<?> scheduled = scheduledFlushes.get(flushTask);
+        if (pending >= maxPendingMutations) {
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            scheduledFlushes.put(flushTask, executor.schedule(() -> runFlush(flushTask), 0, TimeUnit.MILLISECONDS));
+        } else if (scheduled == null) {
+            scheduledFlushes.put(flushTask, executor.schedule(() -> runFlush(flushTask), maxDelayMillis, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Flush every store that has waiting changes, on the caller's thread
+     * Called by "Save All Data" and by the shutdown hook, so nothing is lost.
+     */
+    public void flushAll() {
+        List<Runnable> tasks;
+        synchronized (this) {
+            tasks = new ArrayList<>(pendingCounts.keySet());
+            for (ScheduledFuture<?> scheduled : scheduledFlushes.values()) {
+                scheduled.cancel(false);
+            }
+            pendingCounts.clear();
+            scheduledFlushes.clear();
+        }
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    /**
+     * Flush all waiting changes and stop the background thread
+     * Later changes are flushed directly on the caller's thread.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            executor.shutdown();
+        }
+        flushAll();
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public int getMaxPendingMutations() {
+        return maxPendingMutations;
+    }
+
+    // Run a scheduled flush, unless flushAll() already took its changes
+    private void runFlush(Runnable flushTask) {
+        synchronized (this) {
+            if (pendingCounts.remove(flushTask) == null) {
+                return;
+            }
+            scheduledFlushes.remove(flushTask);
+        }
+        flushTask.run();
+    }
+}
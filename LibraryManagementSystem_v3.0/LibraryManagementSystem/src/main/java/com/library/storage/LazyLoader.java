@@ -0,0 +1,47 @@
+package com.library.storage;
+
+/**
+ * Runs a store's load step once, on first access
+ *
+ * Main job: Let a service open its data lazily. Every public service method calls ensureLoaded();
+ * the first call runs the load step, other threads wait for it, and later calls return at once.
+ * Calls made by the load step itself (e.g. the loader adding records through the service)
+ * return immediately instead of waiting for themselves.
+ */
+public class LazyLoader {
+    // True once the load step has finished without throwing
+    private volatile boolean loaded = false;
+    // True while the load step runs (only the loading thread can see it, under the lock)
+    private boolean loading = false;
+
+    /**
+     * Run the load step if no load step has run yet
+     * If the load step throws, the store is not marked loaded and the next call runs the step again.
+     * @param loadStep Code that fills the store (pass the same step every time)
+     */
+    public void ensureLoaded(Runnable loadStep) {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded || loading) {
+                return;
+            }
+            loading = true;
+            try {
+                loadStep.run();
+                loaded = true;
+            } finally {
+                loading = false;
+            }
+        }
+    }
+
+    /**
+     * Check whether the load step has finished
+     * @return true once ensureLoaded() has run the load step successfully
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+}
@@ -0,0 +1,194 @@
+package com.library.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only mutation log (write-ahead log) for one data file
+ *
+ * Main job: Record every add/update/delete of a service as one short line at the end of a log file,
+ * so a mutation does not have to rewrite the whole data file. The owning service replays the log
+ * on startup and compacts it (rewrites the data file, then clears the log) once it grows too long.
+ * "Too long" grows with the data file: compaction rewrites every record, so it waits until the log
+ * holds half as many entries as the data file has records (and at least compactionThreshold),
+ * which keeps the rewrite cost per change constant however large the data file is.
+ * Appended entries are buffered in memory until flush(), so a burst of changes costs one write.
+ * flush() forces the entries to the disk before it returns, so a flushed change survives a power
+ * loss as well as a process crash; buffered entries that were not flushed yet are lost in both.
+ * File format: one CSV record per entry (see CsvReader/CsvWriter), written in UTF-8.
+ */
+public class MutationLog {
+    // Default smallest number of entries after which the owning service should compact
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+
+    // Path of the log file
+    private final Path path;
+    // Smallest number of entries after which needsCompaction() returns true
+    private final int compactionThreshold;
+    // Number of records in the data file the log applies to (see setSnapshotSize())
+    private long snapshotSize = 0;
+    // Number of entries in the log (written and buffered)
+    private int entryCount;
+    // Entries appended but not yet written to the file
+    private final List<String> pendingEntries = new ArrayList<>();
+
+    /**
+     * Open (or prepare to create) the log file that belongs to a data file
+     * @param dataFilePath Path to the data file; the log is stored next to it as "<data file>.log"
+     */
+    public MutationLog(String dataFilePath) {
+        this(dataFilePath, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Open (or prepare to create) the log file that belongs to a data file
+     * @param dataFilePath Path to the data file; the log is stored next to it as "<data file>.log"
+     * @param compactionThreshold Smallest number of entries after which the log should be compacted
+     */
+    public MutationLog(String dataFilePath, int compactionThreshold) {
+        this.path = Paths.get(dataFilePath + ".log");
+        this.compactionThreshold = compactionThreshold;
+        this.entryCount = countEntries(path);
+    }
+
+    /**
+     * Append one entry to the end of the log
+     * The entry is buffered; it reaches the file on the next flush().
+     * @param fields Fields of the entry (quoted as needed, so they may contain commas or line breaks)
+     */
+    public synchronized void append(String... fields) {
+        pendingEntries.add(CsvWriter.formatRecord(fields));
+        entryCount++;
+    }
+
+    /**
+     * Write all buffered entries to the log file in one append and force them to the disk
+     * The batch is written as a whole or not at all: if the write fails part-way, the file is cut
+     * back to its old length and the entries stay buffered, so the next flush writes each of them
+     * once (replay would otherwise apply an entry that reached the file twice).
+     * @throws IOException If the log file cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        if (pendingEntries.isEmpty()) {
+            return;
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        StringBuilder batch = new StringBuilder(pendingEntries.size() * 64);
+        for (String entry : pendingEntries) {
+            batch.append(entry).append(System.lineSeparator());
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long oldLength = channel.size();
+            try {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes, oldLength + bytes.position());
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                try {
+                    channel.truncate(oldLength);
+                } catch (IOException truncateError) {
+                    e.addSuppressed(truncateError);
+                }
+                throw e;
+            }
+        }
+        pendingEntries.clear();
+    }
+
+    /**
+     * Check whether some appended entries have not been written yet
+     * @return true if flush() has work to do
+     */
+    public synchronized boolean hasPendingEntries() {
+        return !pendingEntries.isEmpty();
+    }
+
+    /**
+     * Read all entries written to the log file, in the order they were appended
+     * @return Entries as lists of fields (empty list if there is no log file)
+     * @throws IOException If the log file cannot be read
+     */
+    public synchronized List<List<String>> readEntries() throws IOException {
+        if (!Files.exists(path)) {
+            return new ArrayList<>();
+        }
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            return reader.readAll();
+        }
+    }
+
+    /**
+     * Remove all entries, written and buffered (called after the data file has been rewritten)
+     * @throws IOException If the log file cannot be deleted
+     */
+    public synchronized void clear() throws IOException {
+        Files.deleteIfExists(path);
+        pendingEntries.clear();
+        entryCount = 0;
+    }
+
+    /**
+     * Set the number of records in the data file (after it was loaded or rewritten)
+     * @param snapshotSize Record count of the data file
+     */
+    public synchronized void setSnapshotSize(long snapshotSize) {
+        this.snapshotSize = snapshotSize;
+    }
+
+    /**
+     * Check whether the log has grown long enough to be compacted
+     * @return true if the entry count reached half the data file's record count and the compaction threshold
+     */
+    public synchronized boolean needsCompaction() {
+        return entryCount >= Math.max(compactionThreshold, snapshotSize / 2);
+    }
+
+    public synchronized int getEntryCount() {
+        return entryCount;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Force a written file to the disk
+     * Used on a rewritten data file before it replaces the old one, since the log is cleared after that.
+     * @param file File to force
+     * @throws IOException If the file cannot be opened or forced
+     */
+    public static void forceToDisk(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    // Count the entries already in the log file (0 if it does not exist or cannot be read)
+    private static int countEntries(Path path) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            List<String> fields = new ArrayList<>();
+            int count = 0;
+            while (reader.readRecord(fields)) {
+                count++;
+            }
+            return count;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
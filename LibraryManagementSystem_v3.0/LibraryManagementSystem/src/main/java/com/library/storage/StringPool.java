@@ -0,0 +1,375 @@
+package com.library.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Dictionary encoding for the text columns of one store
+ *
+ * Main job: Store each distinct string once, as UTF-8 bytes in large arena pages, and hand out a
+ * small int code for it. A column keeps codes instead of String instances, so a user ID used by
+ * thousands of borrow records costs its bytes once plus 4 bytes per use (instead of a String
+ * object and array, about 40 bytes of overhead, per copy).
+ * Decoding builds a new String on every call, so a code is cheap to keep and costs only when read.
+ * Every intern() counts one use of the string and every release() drops one; a string without uses
+ * is removed and its code is reused. Once half of the stored bytes belong to removed strings, the
+ * live strings are copied into new pages, so a store that deletes rows does not keep their text.
+ * Each store owns its pool (the pool lives and dies with the store).
+ * Thread-safe: interning and releasing take a StampedLock's write lock; lookups and decoding read
+ * optimistically and only take the read lock if a change ran meanwhile. A code that was released
+ * may decode to another string; only holders of a live code get its text.
+ */
+public final class StringPool {
+    // Code meaning "no string" (null)
+    public static final int NONE = -1;
+    // Size of an arena page (2^18 bytes)
+    private static final int PAGE_SIZE = 1 << 18;
+    // Strings of at least this many bytes get a page of their own; their length field holds this value
+    private static final int LARGE = PAGE_SIZE - 1;
+    // Arena pages holding the UTF-8 bytes of all strings (a string never spans two pages)
+    private byte[][] pages = new byte[4][];
+    private int pageCount = 0;
+    // Bytes used in the last page
+    private int pageUsed = PAGE_SIZE;
+    // Per code: page index << 36 | offset in the page << 18 | byte length (see LARGE), String.hashCode()
+    // and number of uses (0: free code)
+    private long[] locations = new long[1024];
+    private int[] hashes = new int[1024];
+    private int[] uses = new int[1024];
+    // Codes handed out so far (free ones included), and codes of removed strings, ready for reuse
+    private int codeCount = 0;
+    private int[] freeCodes = new int[16];
+    private int freeCount = 0;
+    // Number of stored strings
+    private int size = 0;
+    // Bytes of the stored strings, and bytes in the pages still taken by removed strings
+    private long byteCount = 0;
+    private long deadBytes = 0;
+    // Hash table: code + 1 per entry, 0 = empty; kept at most half full
+    private int[] table = new int[2048];
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Get the code of a string, adding the string if it is new, and count one use of it
+     * @param value String to store (null gives NONE)
+     * @return Its code (give it back with release() when the use ends)
+     */
+    public int intern(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        long stamp = lock.writeLock();
+        try {
+            int code = find(value, value.hashCode());
+            if (code == NONE) {
+                code = add(value);
+            }
+            uses[code]++;
+            return code;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * End one use of a string; the string is removed when its last use ends
+     * @param code Code from intern() (NONE is ignored)
+     */
+    public void release(int code) {
+        if (code == NONE) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (--uses[code] == 0) {
+                remove(code);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Get the code of a string without adding it
+     * @param value String to look up
+     * @return Its code, or NONE if the string is not in the pool
+     */
+    public int codeOf(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        int hash = value.hashCode();
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int code = find(value, hash);
+                if (lock.validate(stamp)) {
+                    return code;
+                }
+            } catch (RuntimeException e) {
+                // Saw a half-done change; retry under the read lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return find(value, hash);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Get the string of a code
+     * @param code Code from intern() (NONE gives null)
+     * @return A new String with the stored text
+     */
+    public String decode(int code) {
+        if (code == NONE) {
+            return null;
+        }
+        long location;
+        byte[] page;
+        long stamp = lock.tryOptimisticRead();
+        try {
+            location = locations[code];
+            page = pages[page(location)];
+        } catch (RuntimeException e) {
+            // Saw a half-done change; the read lock below reads again
+            stamp = 0;
+            location = 0;
+            page = null;
+        }
+        if (stamp == 0 || !lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                location = locations[code];
+                page = pages[page(location)];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (page == null) {
+            // Released code after every string was removed
+            return "";
+        }
+        // Stored bytes never change, so they can be decoded outside the lock
+        return new String(page, offset(location), length(location, page), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the number of distinct strings in the pool
+     * @return String count
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Get the number of UTF-8 bytes stored for all strings
+     * @return Byte count (without the unused end of the arena pages)
+     */
+    public long byteCount() {
+        long stamp = lock.readLock();
+        try {
+            return byteCount;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Probe the hash table for a string (caller holds a lock or validates an optimistic read)
+    private int find(String value, int hash) {
+        int[] entries = table;
+        int mask = entries.length - 1;
+        int position = spread(hash) & mask;
+        for (int probes = 0; probes < entries.length; probes++) {
+            int entry = entries[position];
+            if (entry == 0) {
+                return NONE;
+            }
+            int code = entry - 1;
+            if (hashes[code] == hash && sameText(code, value)) {
+                return code;
+            }
+            position = (position + 1) & mask;
+        }
+        return NONE;
+    }
+
+    // Store a new string under a free or new code, without uses (write lock held)
+    private int add(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int code;
+        if (freeCount > 0) {
+            code = freeCodes[--freeCount];
+        } else {
+            if (codeCount == locations.length) {
+                int capacity = codeCount + (codeCount >> 1);
+                locations = Arrays.copyOf(locations, capacity);
+                hashes = Arrays.copyOf(hashes, capacity);
+                uses = Arrays.copyOf(uses, capacity);
+            }
+            code = codeCount++;
+        }
+        locations[code] = place(bytes);
+        hashes[code] = value.hashCode();
+        size++;
+        byteCount += bytes.length;
+
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        insert(table, code);
+        return code;
+    }
+
+    // Remove a string whose last use ended and free its code (write lock held)
+    private void remove(int code) {
+        removeEntry(code);
+        long location = locations[code];
+        int length = length(location, pages[page(location)]);
+        // The code now points at no text (a stale decode gives "")
+        locations[code] = 0;
+        if (freeCount == freeCodes.length) {
+            freeCodes = Arrays.copyOf(freeCodes, freeCount * 2);
+        }
+        freeCodes[freeCount++] = code;
+        size--;
+        byteCount -= length;
+        deadBytes += length;
+        if (deadBytes > PAGE_SIZE && deadBytes > byteCount) {
+            compact();
+        }
+    }
+
+    // Copy the live strings into new pages; the old pages are left to readers still decoding from them
+    private void compact() {
+        byte[][] oldPages = pages;
+        pages = new byte[4][];
+        pageCount = 0;
+        pageUsed = PAGE_SIZE;
+        for (int code = 0; code < codeCount; code++) {
+            if (uses[code] == 0) {
+                continue;
+            }
+            long location = locations[code];
+            byte[] page = oldPages[page(location)];
+            locations[code] = place(Arrays.copyOfRange(page, offset(location), offset(location) + length(location, page)));
+        }
+        deadBytes = 0;
+    }
+
+    // Copy the bytes of a string into the arena (write lock held)
+    private long place(byte[] bytes) {
+        int page;
+        int offset;
+        if (bytes.length >= LARGE) {
+            page = newPage(bytes.length);
+            pageUsed = PAGE_SIZE;
+            offset = 0;
+        } else {
+            // A page is never filled to the last byte, so every offset fits in 18 bits
+            if (pageUsed + bytes.length >= PAGE_SIZE) {
+                newPage(PAGE_SIZE);
+                pageUsed = 0;
+            }
+            page = pageCount - 1;
+            offset = pageUsed;
+            pageUsed += bytes.length;
+        }
+        System.arraycopy(bytes, 0, pages[page], offset, bytes.length);
+        return ((long) page << 36) | ((long) offset << 18) | Math.min(bytes.length, LARGE);
+    }
+
+    private int newPage(int pageSize) {
+        if (pageCount == pages.length) {
+            pages = Arrays.copyOf(pages, pageCount * 2);
+        }
+        pages[pageCount] = new byte[pageSize];
+        return pageCount++;
+    }
+
+    private void insert(int[] entries, int code) {
+        int mask = entries.length - 1;
+        int position = spread(hashes[code]) & mask;
+        while (entries[position] != 0) {
+            position = (position + 1) & mask;
+        }
+        entries[position] = code + 1;
+    }
+
+    // Build a bigger table off to the side, then publish it
+    private void rehash(int capacity) {
+        int[] entries = new int[capacity];
+        for (int code = 0; code < codeCount; code++) {
+            if (uses[code] > 0) {
+                insert(entries, code);
+            }
+        }
+        table = entries;
+    }
+
+    // Remove a code's table entry and shift later entries of the probe run back, so no lookup stops early
+    private void removeEntry(int code) {
+        int[] entries = table;
+        int mask = entries.length - 1;
+        int hole = spread(hashes[code]) & mask;
+        while (entries[hole] != code + 1) {
+            hole = (hole + 1) & mask;
+        }
+        int next = (hole + 1) & mask;
+        while (entries[next] != 0) {
+            int home = spread(hashes[entries[next] - 1]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                entries[hole] = entries[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        entries[hole] = 0;
+    }
+
+    private static int page(long location) {
+        return (int) (location >>> 36);
+    }
+
+    private static int offset(long location) {
+        return (int) (location >>> 18) & (PAGE_SIZE - 1);
+    }
+
+    // Byte length of a string (a large string fills its own page)
+    private static int length(long location, byte[] page) {
+        int length = (int) location & (PAGE_SIZE - 1);
+        return length == LARGE ? page.length : length;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Compare stored bytes with a string without decoding them (ASCII is compared byte by byte)
+    private boolean sameText(int code, String value) {
+        long location = locations[code];
+        byte[] page = pages[page(location)];
+        int position = offset(location);
+        int end = position + length(location, page);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                byte[] rest = value.substring(i).getBytes(StandardCharsets.UTF_8);
+                return Arrays.equals(page, position, end, rest, 0, rest.length);
+            }
+            if (position == end || page[position++] != c) {
+                return false;
+            }
+        }
+        return position == end;
+    }
+}
@@ -0,0 +1,398 @@
+package com.library.tools;
+
+import static com.library.tools.SyntheticData.DAYS;
+import static com.library.tools.SyntheticData.FIRST_DAY;
+import static com.library.tools.SyntheticData.author;
+import static com.library.tools.SyntheticData.isbn;
+import static com.library.tools.SyntheticData.loanDay;
+import static com.library.tools.SyntheticData.password;
+import static com.library.tools.SyntheticData.recordId;
+import static com.library.tools.SyntheticData.title;
+import static com.library.tools.SyntheticData.userId;
+import static com.library.tools.SyntheticData.userName;
+
+import com.library.storage.CsvWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Synthetic data files for scale testing
+ *
+ * Main job: Write books.txt, users.txt and borrow_records.txt in the formats Main loads (same
+ * header lines, CSV written with CsvWriter), with any number of rows up to tens of millions.
+ * Rows are generated in blocks on all cores and written in block order. Every block has its own
+ * random seed, taken from --seed and the block number, so the same options always give the same
+ * files, byte for byte, whatever the number of threads.
+ * - books: valid ISBN-13s; English, Chinese and a few comma-containing titles (titles repeat, as
+ *   editions do); one author per 20 books on average, picked Zipf-style so a few authors write many
+ * - users: names from given and family name sets, a quarter of them Chinese (names repeat)
+ * - borrow records: returned loans spread over five years in date order, picking titles and users
+ *   by Zipf popularity (--skew), 5% in the old three-field format; then one checked-out record for
+ *   every lent copy, so each book's lent count matches its open records
+ * Usage (e.g. 10M books, 2M users, 50M returned loans):
+ *   java com.library.tools.DatasetGenerator --out data --books 10000000 --users 2000000 --borrows 50000000
+ * Options: --out (directory, default generated-data), --books, --users, --borrows, --seed (42),
+ * --skew (Zipf exponent, 1.0), --threads (all cores). Run the program on the files with
+ * LIBRARY_DATA=data ./run.sh (the directory comes first on the class path). Titles, names, ISBNs and
+ * record IDs come from SyntheticData, as in MemoryFootprint and the benchmarks.
+ */
+public class DatasetGenerator {
+    // Open loans were borrowed in the last OPEN_LOAN_DAYS days
+    private static final int OPEN_LOAN_DAYS = 28;
+    // A book never has more copies than this (open loan IDs leave room for each copy)
+    private static final int MAX_COPIES = 8;
+    // Rows generated by one task
+    private static final int BLOCK_ROWS = 1 << 16;
+    // Separate seeds for each kind of row
+    private static final long BOOK_SALT = 0x424F4F4BL;
+    private static final long USER_SALT = 0x55534552L;
+    private static final long LOAN_SALT = 0x4C4F414EL;
+    private static final long COPY_SALT = 0x434F5059L;
+
+    // Generates the text of one block of rows
+    private interface BlockWriter {
+        String write(long block);
+    }
+
+    // Sizes and seed of the data set
+    private final int books;
+    private final int users;
+    private final long borrows;
+    private final long seed;
+    private final long authors;
+    // Popularity: Zipf rank -> book / user number (a fixed shuffle, so popular books are spread out)
+    private final Zipf titlePopularity;
+    private final Zipf userActivity;
+    private final Zipf authorOutput;
+    private final Shuffle bookRanks;
+    private final Shuffle userRanks;
+
+    public static void main(String[] args) throws Exception {
+        String out = "generated-data";
+        int books = 100_000;
+        int users = 20_000;
+        long borrows = 1_000_000;
+        long seed = 42;
+        double skew = 1.0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--out" -> out = args[i + 1];
+                    case "--books" -> books = Integer.parseInt(args[i + 1]);
+                    case "--users" -> users = Integer.parseInt(args[i + 1]);
+                    case "--borrows" -> borrows = Long.parseLong(args[i + 1]);
+                    case "--seed" -> seed = Long.parseLong(args[i + 1]);
+                    case "--skew" -> skew = Double.parseDouble(args[i + 1]);
+                    case "--threads" -> threads = Integer.parseInt(args[i + 1]);
+                    default -> {
+                        System.out.println("Error: Unknown option " + args[i]);
+                        return;
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Invalid number: " + e.getMessage());
+            return;
+        }
+        // ISBNs have 9 free digits; open loan IDs number every copy of every book after the returned loans
+        if (books < 0 || books > 999_999_999 || users < 0 || borrows < 0 || threads < 1 || !(skew > 0)) {
+            System.out.println("Error: Sizes must not be negative (at most 999,999,999 books), threads and skew must be positive");
+            return;
+        }
+        if (borrows > 0 && (books == 0 || users == 0)) {
+            System.out.println("Error: Borrow records need at least one book and one user");
+            return;
+        }
+
+        DatasetGenerator generator = new DatasetGenerator(books, users, borrows, seed, skew);
+        Path directory = Paths.get(out);
+        Files.createDirectories(directory);
+        System.out.printf("Generating %,d books, %,d users and %,d returned loans (seed %d, skew %.2f, %d threads)%n",
+                books, users, borrows, seed, skew, threads);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            generator.writeFile(directory.resolve("books.txt"), workers, threads,
+                    "# books.txt — Book Data (UTF-8). Each line: book title, author, ISBN, total quantity, number lent",
+                    blockCount(books), generator::bookBlock);
+            generator.writeFile(directory.resolve("users.txt"), workers, threads,
+                    "# users.txt — User Data (UTF-8). Each line: user name, user ID, password",
+                    blockCount(users), generator::userBlock);
+            // Returned loans first, then the open loans of each block of books
+            long loanBlocks = blockCount(borrows);
+            long bookBlocks = blockCount(books);
+            generator.writeFile(directory.resolve("borrow_records.txt"), workers, threads,
+                    "# borrow_records.txt — Borrow Record Data (UTF-8). Each line: record ID, borrow date, status (0-checked out, 1-returned)[, user ID, ISBN]",
+                    loanBlocks + bookBlocks,
+                    block -> block < loanBlocks ? generator.loanBlock(block) : generator.openLoanBlock(block - loanBlocks));
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    private DatasetGenerator(int books, int users, long borrows, long seed, double skew) {
+        this.books = books;
+        this.users = users;
+        this.borrows = borrows;
+        this.seed = seed;
+        this.authors = Math.max(1, books / 20);
+        this.titlePopularity = new Zipf(Math.max(1, books), skew);
+        // Readers are less skewed than titles: heavy readers borrow a lot, but not most of the books
+        this.userActivity = new Zipf(Math.max(1, users), skew * 0.6);
+        this.authorOutput = new Zipf(authors, skew);
+        this.bookRanks = new Shuffle(Math.max(1, books), seed ^ BOOK_SALT);
+        this.userRanks = new Shuffle(Math.max(1, users), seed ^ USER_SALT);
+    }
+
+    private static long blockCount(long rows) {
+        return (rows + BLOCK_ROWS - 1) / BLOCK_ROWS;
+    }
+
+    // Random numbers of one block (depends only on the seed, the kind of rows and the block number)
+    private SplittableRandom blockRandom(long salt, long block) {
+        return new SplittableRandom(mix(mix(seed ^ salt) + block));
+    }
+
+    /**
+     * Generate the blocks of a file in parallel and write them in order
+     * At most two blocks per thread are held in memory, so any number of rows can be written.
+     * The file is written next to its final name first, so a failed run leaves no partial file.
+     */
+    private void writeFile(Path path, ExecutorService workers, int threads, String header, long blocks,
+                           BlockWriter blockWriter) throws IOException, InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        long bytes = 0;
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(tempPath), 1 << 20)) {
+            byte[] headerBytes = (header + "\n# Empty rows and lines starting with # are ignored\n\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            output.write(headerBytes);
+            bytes += headerBytes.length;
+            Deque<Future<byte[]>> pending = new ArrayDeque<>();
+            for (long block = 0; block < blocks; block++) {
+                long current = block;
+                pending.add(workers.submit(() -> blockWriter.write(current).getBytes(StandardCharsets.UTF_8)));
+                if (pending.size() >= threads * 2) {
+                    bytes += writeNext(pending, output);
+                }
+            }
+            while (!pending.isEmpty()) {
+                bytes += writeNext(pending, output);
+            }
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+        System.out.printf("Wrote %s: %,.1f MB in %,d ms%n", path, bytes / 1048576.0, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static int writeNext(Deque<Future<byte[]>> pending, OutputStream output)
+            throws IOException, InterruptedException, ExecutionException {
+        byte[] text = pending.poll().get();
+        output.write(text);
+        return text.length;
+    }
+
+    // Books block: ISBNs, titles, authors and copies
+    private String bookBlock(long block) {
+        SplittableRandom random = blockRandom(BOOK_SALT, block);
+        StringBuilder text = new StringBuilder(BLOCK_ROWS * 64);
+        long end = Math.min(books, (block + 1) * BLOCK_ROWS);
+        for (long n = block * BLOCK_ROWS; n < end; n++) {
+            String title = title(random);
+            String author = author(authorOutput.sample(random) - 1);
+            int copies = copies(n);
+            text.append(CsvWriter.formatRecord(title, author, isbn(n), String.valueOf(copies), String.valueOf(lent(n, copies))))
+                    .append('\n');
+        }
+        return text.toString();
+    }
+
+    // Users block: names, IDs and passwords
+    private String userBlock(long block) {
+        SplittableRandom random = blockRandom(USER_SALT, block);
+        StringBuilder text = new StringBuilder(BLOCK_ROWS * 40);
+        long end = Math.min(users, (block + 1) * BLOCK_ROWS);
+        for (long n = block * BLOCK_ROWS; n < end; n++) {
+            String name = userName(random);
+            String password = password(random);
+            text.append(CsvWriter.formatRecord(name, userId(n), password)).append('\n');
+        }
+        return text.toString();
+    }
+
+    // Returned loans block: dates rise with the record number, titles and users by popularity
+    private String loanBlock(long block) {
+        SplittableRandom random = blockRandom(LOAN_SALT, block);
+        StringBuilder text = new StringBuilder(BLOCK_ROWS * 56);
+        long end = Math.min(borrows, (block + 1) * BLOCK_ROWS);
+        for (long n = block * BLOCK_ROWS; n < end; n++) {
+            LocalDate day = loanDay(n, borrows);
+            String id = recordId(day, n);
+            if (random.nextInt(20) == 0) {
+                // Old-format record: names neither user nor book
+                text.append(CsvWriter.formatRecord(id, day.toString(), "1"));
+            } else {
+                String user = userId(userRanks.item(userActivity.sample(random) - 1));
+                String isbn = isbn(bookRanks.item(titlePopularity.sample(random) - 1));
+                text.append(CsvWriter.formatRecord(id, day.toString(), "1", user, isbn));
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    // Open loans of one block of books: one checked-out record per lent copy
+    private String openLoanBlock(long block) {
+        SplittableRandom random = blockRandom(COPY_SALT, block);
+        StringBuilder text = new StringBuilder();
+        long end = Math.min(books, (block + 1) * BLOCK_ROWS);
+        for (long n = block * BLOCK_ROWS; n < end; n++) {
+            int lent = lent(n, copies(n));
+            for (int copy = 0; copy < lent; copy++) {
+                LocalDate day = FIRST_DAY.plusDays(DAYS - OPEN_LOAN_DAYS + random.nextInt(OPEN_LOAN_DAYS));
+                String user = userId(userRanks.item(userActivity.sample(random) - 1));
+                text.append(CsvWriter.formatRecord(recordId(day, borrows + n * MAX_COPIES + copy), day.toString(), "0",
+                        user, isbn(n))).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    // Copies of a book (from its number alone: the open loans need it without the book's block);
+    // the most popular 1% of titles have more copies
+    private int copies(long book) {
+        long hash = mix(seed ^ COPY_SALT ^ mix(book));
+        if (bookRanks.rank(book) < books / 100) {
+            return 3 + (int) Long.remainderUnsigned(hash, MAX_COPIES - 2);
+        }
+        return 1 + (int) Long.remainderUnsigned(hash, 5);
+    }
+
+    // Copies lent out: all of them for the most popular 1% of titles, some for one title in ten
+    private int lent(long book, int copies) {
+        if (users == 0) {
+            return 0;
+        }
+        if (bookRanks.rank(book) < books / 100) {
+            return copies;
+        }
+        long hash = mix(seed ^ LOAN_SALT ^ mix(book));
+        if (Long.remainderUnsigned(hash, 10) != 0) {
+            return 0;
+        }
+        return 1 + (int) Long.remainderUnsigned(hash >>> 8, copies);
+    }
+
+    // 64-bit finalizer of SplittableRandom: spreads nearby inputs over all bits
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Zipf distribution over ranks 1..n (rank k has weight 1 / k^exponent)
+     * Sampled by rejection-inversion (Hörmann and Derflinger), in constant time and memory for any n.
+     * Immutable, so the generator threads share one instance.
+     */
+    private static final class Zipf {
+        private final long n;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double s;
+
+        Zipf(long n, double exponent) {
+            this.n = n;
+            this.exponent = exponent;
+            this.hIntegralX1 = hIntegral(1.5) - 1.0;
+            this.hIntegralN = hIntegral(n + 0.5);
+            this.s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+        }
+
+        long sample(SplittableRandom random) {
+            while (true) {
+                double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                long k = Math.max(1, Math.min(n, (long) (x + 0.5)));
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                    return k;
+                }
+            }
+        }
+
+        // Integral of h from 1 to x
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return expm1OverX((1.0 - exponent) * logX) * logX;
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = Math.max(-1.0, x * (1.0 - exponent));
+            return Math.exp(log1pOverX(t) * x);
+        }
+
+        // log(1 + x) / x, accurate near 0
+        private static double log1pOverX(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+        }
+
+        // (e^x - 1) / x, accurate near 0
+        private static double expm1OverX(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1.0 + x * 0.5 * (1.0 + x / 3.0 * (1.0 + 0.25 * x));
+        }
+    }
+
+    /**
+     * Fixed shuffle of 0..n-1: item(rank) = (rank * stride + offset) mod n, with stride coprime to n
+     * Needs no table, so it works for any n; rank() is its inverse.
+     */
+    private static final class Shuffle {
+        private final long n;
+        private final long stride;
+        private final long inverse;
+        private final long offset;
+
+        Shuffle(long n, long seed) {
+            this.n = n;
+            long candidate = Long.remainderUnsigned(mix(seed), n) | 1;
+            while (BigInteger.valueOf(candidate).gcd(BigInteger.valueOf(n)).intValue() != 1) {
+                candidate += 2;
+            }
+            this.stride = candidate % n;
+            this.inverse = n == 1 ? 0 : BigInteger.valueOf(stride).modInverse(BigInteger.valueOf(n)).longValue();
+            this.offset = Long.remainderUnsigned(mix(seed + 1), n);
+        }
+
+        long item(long rank) {
+            return (multiplyMod(rank, stride) + offset) % n;
+        }
+
+        long rank(long item) {
+            return multiplyMod(Math.floorMod(item - offset, n), inverse);
+        }
+
+        // a * b mod n without overflow (n is below 2^31 here, so the product fits in a long)
+        private long multiplyMod(long a, long b) {
+            return Math.floorMod(a * b, n);
+        }
+    }
+}
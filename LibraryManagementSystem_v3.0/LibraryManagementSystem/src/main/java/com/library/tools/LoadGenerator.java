@@ -0,0 +1,199 @@
+package com.library.tools;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load generator for server mode
+ *
+ * Main job: Start many concurrent clients (one virtual thread each) against a running server,
+ * send a mix of book lookups, searches and list requests, and report throughput and latency.
+ *
+ * Usage (start the server first with: java com.library.Main --server 8080):
+ *   java com.library.tools.LoadGenerator [--url http://localhost:8080] [--clients 2000] [--requests 20] [--writes 0]
+ * --writes is the percentage of requests that add and then delete a temporary book.
+ * Exits with status 1 if any request failed.
+ */
+public class LoadGenerator {
+    private static final Pattern ISBN_FIELD = Pattern.compile("\"isbn\":\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    public static void main(String[] args) throws Exception {
+        String url = "http://localhost:8080";
+        int clients = 2000;
+        int requestsPerClient = 20;
+        int writePercent = 0;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--url" -> url = args[i + 1];
+                case "--clients" -> clients = Integer.parseInt(args[i + 1]);
+                case "--requests" -> requestsPerClient = Integer.parseInt(args[i + 1]);
+                case "--writes" -> writePercent = Integer.parseInt(args[i + 1]);
+                default -> {
+                    System.out.println("Error: Unknown option " + args[i]);
+                    return;
+                }
+            }
+        }
+        String baseUrl = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .executor(clientThreads)
+                    .build();
+
+            // ISBNs to look up: the first page of the catalog
+            List<String> isbns = fetchISBNs(http, baseUrl);
+            if (isbns.isEmpty()) {
+                System.out.println("Error: Server at " + baseUrl + " returned no books to look up");
+                System.exit(1);
+            }
+            System.out.println("Running " + clients + " clients x " + requestsPerClient + " requests against "
+                    + baseUrl + " (" + isbns.size() + " ISBNs, " + writePercent + "% writes)");
+
+            long[][] latencies = new long[clients][];
+            AtomicInteger failures = new AtomicInteger();
+            CountDownLatch startSignal = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(clients);
+            for (int c = 0; c < clients; c++) {
+                int clientNumber = c;
+                int requests = requestsPerClient;
+                int writes = writePercent;
+                clientThreads.submit(() -> {
+                    try {
+                        startSignal.await();
+                        latencies[clientNumber] = runClient(http, baseUrl, isbns, clientNumber, requests, writes, failures);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            long start = System.nanoTime();
+            startSignal.countDown();
+            done.await();
+            long elapsed = System.nanoTime() - start;
+            report(latencies, failures.get(), elapsed);
+            if (failures.get() > 0) {
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Send one client's requests one after another
+     * @return Latency of every request in nanoseconds
+     */
+    private static long[] runClient(HttpClient http, String baseUrl, List<String> isbns, int clientNumber,
+                                    int requests, int writePercent, AtomicInteger failures) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] latencies = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            boolean ok;
+            int pick = random.nextInt(100);
+            if (pick < writePercent) {
+                ok = addAndDelete(http, baseUrl, "LOADGEN-" + clientNumber + "-" + i);
+            } else if (pick < writePercent + (100 - writePercent) * 8 / 10) {
+                String isbn = isbns.get(random.nextInt(isbns.size()));
+                ok = send(http, HttpRequest.newBuilder(URI.create(baseUrl + "/books/" + encode(isbn))).GET().build()) == 200;
+            } else if (pick % 2 == 0) {
+                ok = send(http, HttpRequest.newBuilder(URI.create(baseUrl + "/books?name=a&limit=20")).GET().build()) == 200;
+            } else {
+                ok = send(http, HttpRequest.newBuilder(URI.create(baseUrl + "/books?offset="
+                        + random.nextInt(isbns.size()) + "&limit=10")).GET().build()) == 200;
+            }
+            latencies[i] = System.nanoTime() - start;
+            if (!ok) {
+                failures.incrementAndGet();
+            }
+        }
+        return latencies;
+    }
+
+    private static boolean addAndDelete(HttpClient http, String baseUrl, String isbn) {
+        String body = "{\"name\":\"Load test book\",\"author\":\"Load Generator\",\"isbn\":\"" + isbn
+                + "\",\"quantity\":1,\"borrowed\":0}";
+        int added = send(http, HttpRequest.newBuilder(URI.create(baseUrl + "/books"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build());
+        int deleted = send(http, HttpRequest.newBuilder(URI.create(baseUrl + "/books/" + encode(isbn))).DELETE().build());
+        return added == 201 && deleted == 204;
+    }
+
+    /**
+     * Send a request and return its status code (-1 if it could not be sent)
+     */
+    private static int send(HttpClient http, HttpRequest request) {
+        try {
+            return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private static List<String> fetchISBNs(HttpClient http, String baseUrl) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + "/books?limit=1000")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        List<String> isbns = new ArrayList<>();
+        Matcher matcher = ISBN_FIELD.matcher(response.body());
+        while (matcher.find()) {
+            isbns.add(matcher.group(1).replace("\\\"", "\"").replace("\\\\", "\\"));
+        }
+        return isbns;
+    }
+
+    private static String encode(String pathSegment) {
+        return URLEncoder.encode(pathSegment, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static void report(long[][] latencies, int failures, long elapsedNanos) {
+        int total = 0;
+        for (long[] client : latencies) {
+            total += client == null ? 0 : client.length;
+        }
+        long[] all = new long[total];
+        int pos = 0;
+        for (long[] client : latencies) {
+            if (client != null) {
+                System.arraycopy(client, 0, all, pos, client.length);
+                pos += client.length;
+            }
+        }
+        Arrays.sort(all);
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("Requests: %d (%d failed) in %.2f s -> %.0f requests/s%n",
+                total, failures, seconds, total / seconds);
+        if (total > 0) {
+            System.out.printf("Latency ms: p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n",
+                    percentile(all, 50), percentile(all, 90), percentile(all, 99), all[total - 1] / 1e6);
+        }
+    }
+
+    private static double percentile(long[] sorted, int percent) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(sorted.length * percent / 100.0) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
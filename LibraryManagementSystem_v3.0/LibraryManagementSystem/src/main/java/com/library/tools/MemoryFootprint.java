@@ -0,0 +1,108 @@
+package com.library.tools;
+
+import com.library.service.BookService;
+import com.library.service.BorrowService;
+import com.library.service.UserService;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Heap footprint of the stored books, users and borrow records
+ *
+ * Main job: Fill one store with generated data and report the heap it holds.
+ * - layout service: the service that keeps the data in the running system, with everything it
+ *   holds (BookService: ISBN map, insertion order, title and author indexes, availability counters;
+ *   UserService: user array, ID index, name prefix tree; BorrowService: columnar rows with their
+ *   StringPool, ID table, bitmaps, due-date and borrow-date indexes)
+ * - layout objects: a plain list with one object per row and its own Strings, as read from a data
+ *   file (no index), for comparison
+ * Run each layout in its own JVM with the same heap settings, e.g. for 5M books:
+ *   java -Xmx5g com.library.tools.MemoryFootprint --data books --layout service --records 5000000
+ *   java -Xmx5g com.library.tools.MemoryFootprint --data books --layout objects --records 5000000
+ * The rows come from SyntheticData (the titles, names and IDs DatasetGenerator writes to its
+ * files); borrow records name one of 50,000 users and 20,000 books. The same seed gives the same data.
+ */
+public class MemoryFootprint {
+    // Borrow records name one of this many users and books
+    private static final int USERS = 50_000;
+    private static final int BOOKS = 20_000;
+    private static final long SEED = 42;
+
+    public static void main(String[] args) {
+        String data = "borrows";
+        String layout = null;
+        int records = 1_000_000;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--data" -> data = args[i + 1];
+                case "--layout" -> layout = args[i + 1];
+                case "--records" -> records = Integer.parseInt(args[i + 1]);
+                default -> {
+                    System.out.println("Error: Unknown option " + args[i]);
+                    return;
+                }
+            }
+        }
+        if (!data.equals("borrows") && !data.equals("books") && !data.equals("users")) {
+            System.out.println("Error: Data must be books, users or borrows");
+            return;
+        }
+        if (layout == null) {
+            layout = "service";
+        }
+        if (!layout.equals("service") && !layout.equals("objects")) {
+            System.out.println("Error: Layout must be service or objects");
+            return;
+        }
+
+        int count = records;
+        long before = usedHeap();
+        long start = System.nanoTime();
+        Object store;
+        if (layout.equals("service")) {
+            store = switch (data) {
+                case "books" -> {
+                    BookService bookService = new BookService();
+                    bookService.loadBooks(() -> SyntheticData.books(count, SEED));
+                    yield bookService;
+                }
+                case "users" -> {
+                    UserService userService = new UserService();
+                    userService.loadUsers(() -> SyntheticData.users(count, SEED));
+                    yield userService;
+                }
+                default -> {
+                    BorrowService borrowService = new BorrowService();
+                    borrowService.loadBorrowRecords(() -> SyntheticData.borrowRecords(count, USERS, BOOKS, SEED));
+                    yield borrowService;
+                }
+            };
+        } else {
+            List<Object> list = new ArrayList<>();
+            Iterator<?> rows = switch (data) {
+                case "books" -> SyntheticData.books(count, SEED);
+                case "users" -> SyntheticData.users(count, SEED);
+                default -> SyntheticData.borrowRecords(count, USERS, BOOKS, SEED);
+            };
+            rows.forEachRemaining(list::add);
+            store = list;
+        }
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+        long used = usedHeap() - before;
+
+        System.out.printf("Data: %s, layout: %s%n", data, layout);
+        System.out.printf("Records: %,d (loaded in %,d ms)%n", records, loadMillis);
+        System.out.printf("Heap held: %,.1f MB (%.1f bytes per record)%n", used / 1048576.0, (double) used / records);
+        // Keep the store reachable until it has been measured
+        System.out.println("Store: " + store.getClass().getSimpleName());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,262 @@
+package com.library.tools;
+
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.model.User;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.function.LongFunction;
+
+/**
+ * Generated library data shared by the tools and the benchmarks
+ *
+ * Main job: Hold the word and name lists and the code that turns record numbers and random draws
+ * into titles, author and user names, ISBNs, user IDs and borrow record IDs, so the data files of
+ * DatasetGenerator, the stores of MemoryFootprint and the benchmark fixtures contain the same data.
+ * Also builds rows one at a time for stores filled in memory (books(), users(), borrowRecords()):
+ * - books: ISBNs isbn(0) to isbn(count - 1); English and Chinese titles ending in the book number
+ *   (so a title search can pick out one book); one author per 20 books, a few authors writing most
+ * - users: IDs userId(0) to userId(count - 1); names from given and family name sets, a quarter
+ *   of them Chinese (names repeat)
+ * - borrow records: dates spread over five years in record order, 80% linked to a user and a
+ *   book, 2% still checked out
+ * The same seed always gives the same rows.
+ */
+public final class SyntheticData {
+    // First day of the generated borrow dates and the number of days they spread over
+    public static final LocalDate FIRST_DAY = LocalDate.of(2021, 1, 1);
+    public static final int DAYS = 5 * 365;
+
+    private static final String[] WORDS = {"Silent", "River", "Winter", "Garden", "Shadow", "Empire", "Glass",
+            "Storm", "Letters", "Island", "Memory", "Machine", "Harbor", "Forest", "Night", "Crown", "Summer",
+            "Mountain", "Stranger", "Lantern", "Ocean", "Orchard", "Kingdom", "Bridge", "Secret", "Archive",
+            "Thunder", "Mirror", "Voyage", "Station", "Silver", "Paper", "Desert", "Signal", "Tower", "Daughter",
+            "Engine", "Promise", "Valley", "Compass", "Morning", "Stone", "Question", "Harvest", "Shore", "Fire",
+            "Lighthouse", "Quiet"};
+    private static final String[] HAN = {"山", "水", "春", "秋", "月", "夜", "风", "雪", "城", "梦", "花", "海",
+            "书", "家", "路", "心", "天", "地", "人", "江", "湖", "星", "云", "雨", "时", "光", "年", "少", "红",
+            "楼", "明", "清", "白", "青", "长", "安", "故", "乡", "北", "南", "东", "西", "小", "大", "千", "里",
+            "记", "歌"};
+    private static final String[] GIVEN_NAMES = {"Alice", "Ben", "Chloe", "David", "Emma", "Finn", "Grace",
+            "Hugo", "Isla", "Jack", "Kate", "Liam", "Mia", "Noah", "Olivia", "Patrick", "Quinn", "Ruth", "Sean",
+            "Tara", "Una", "Victor", "Wei", "Min", "Jun", "Xiu", "Lei", "Ying", "Aoife", "Cian", "Niamh", "Oisin"};
+    private static final String[] FAMILY_NAMES = {"Smith", "Murphy", "Kelly", "Walsh", "Byrne", "Ryan",
+            "O'Brien", "Doyle", "Brennan", "Nolan", "Keane", "Power", "Zhang", "Wang", "Li", "Liu", "Chen",
+            "Yang", "Zhao", "Huang", "Zhou", "Wu", "Xu", "Sun", "Garcia", "Novak", "Silva", "Kim", "Nguyen",
+            "Khan", "Rossi", "Muller"};
+    private static final String[] HAN_FAMILY_NAMES = {"张", "王", "李", "刘", "陈", "杨", "赵", "黄", "周", "吴",
+            "徐", "孙", "胡", "朱", "高", "林", "何", "郭", "马", "罗", "梁", "宋", "郑", "谢", "韩", "唐", "冯",
+            "于", "董", "萧", "程", "曹"};
+    private static final String[] HAN_GIVEN_NAMES = {"伟", "芳", "娜", "敏", "静", "丽", "强", "磊", "军", "洋",
+            "勇", "艳", "杰", "娟", "涛", "明", "超", "秀", "霞", "平", "刚", "桂", "英", "华", "玉", "萍", "红",
+            "鹏", "飞", "鑫", "宇", "浩"};
+
+    private SyntheticData() {
+    }
+
+    /**
+     * Generate books one at a time (each with its own Strings, like lines read from a file)
+     * @param count Number of books
+     * @param seed Random seed
+     * @return Books with ISBNs isbn(0) to isbn(count - 1)
+     */
+    public static Iterator<Book> books(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int authors = Math.max(1, count / 20);
+        return rows(count, n -> {
+            // Squaring a uniform number favours low author numbers: a few authors write most books
+            double u = random.nextDouble();
+            String author = author((long) (u * u * authors));
+            return new Book(title(random) + " " + n, author, isbn(n), 1 + random.nextInt(5), 0);
+        });
+    }
+
+    /**
+     * Generate users one at a time
+     * @param count Number of users
+     * @param seed Random seed
+     * @return Users with IDs userId(0) to userId(count - 1)
+     */
+    public static Iterator<User> users(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        return rows(count, n -> new User(userName(random), userId(n), password(random)));
+    }
+
+    /**
+     * Generate borrow records one at a time (linked ones name userId(0..users-1) and isbn(0..books-1))
+     * @param count Number of records
+     * @param users Number of users the records may name
+     * @param books Number of books the records may name
+     * @param seed Random seed
+     * @return Records in ID order; record n has the ID borrowId(n, count)
+     */
+    public static Iterator<BorrowRecord> borrowRecords(int count, int users, int books, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        return rows(count, n -> {
+            LocalDate day = loanDay(n, count);
+            String id = recordId(day, n);
+            int status = random.nextInt(50) == 0 ? 0 : 1;
+            if (random.nextInt(5) == 0) {
+                return new BorrowRecord(id, day.toString(), status);
+            }
+            return new BorrowRecord(id, day.toString(), status, userId(random.nextInt(users)), isbn(random.nextInt(books)));
+        });
+    }
+
+    /**
+     * Title from words picked Zipf-style (common words repeat): English, Chinese, or one with a comma
+     * @param random Random numbers of the row
+     * @return Title (titles repeat, as editions do)
+     */
+    public static String title(SplittableRandom random) {
+        int kind = random.nextInt(50);
+        if (kind < 10) {
+            StringBuilder title = new StringBuilder();
+            int length = 2 + random.nextInt(4);
+            for (int i = 0; i < length; i++) {
+                title.append(HAN[skewedIndex(random, HAN.length)]);
+            }
+            if (random.nextInt(4) == 0) {
+                title.append('之').append(HAN[random.nextInt(HAN.length)]);
+            }
+            return title.toString();
+        }
+        String first = WORDS[skewedIndex(random, WORDS.length)];
+        String second = WORDS[skewedIndex(random, WORDS.length)];
+        if (kind == 10) {
+            return first + ", " + second + " and " + WORDS[random.nextInt(WORDS.length)];
+        }
+        if (kind < 30) {
+            return "The " + first + " of the " + second;
+        }
+        if (kind < 40) {
+            return first + " " + second;
+        }
+        return "The " + first + " " + second + " " + WORDS[random.nextInt(WORDS.length)];
+    }
+
+    /**
+     * Name of an author (distinct for every author number: each name part also shifts by the parts
+     * before it, so neighbouring authors do not share most of their name)
+     * @param author Author number (0 or more); every fourth author has a Chinese name
+     * @return Author name
+     */
+    public static String author(long author) {
+        long rest = author / 4;
+        if (author % 4 == 0) {
+            int family = (int) (rest % HAN_FAMILY_NAMES.length);
+            rest /= HAN_FAMILY_NAMES.length;
+            int first = (int) ((rest + family) % HAN_GIVEN_NAMES.length);
+            rest /= HAN_GIVEN_NAMES.length;
+            int second = (int) ((rest + first + 3L * family) % HAN_GIVEN_NAMES.length);
+            rest /= HAN_GIVEN_NAMES.length;
+            String name = HAN_FAMILY_NAMES[family] + HAN_GIVEN_NAMES[first] + HAN_GIVEN_NAMES[second];
+            return rest == 0 ? name : name + " " + (rest + 1);
+        }
+        rest = rest * 3 + author % 4 - 1;
+        int given = (int) (rest % GIVEN_NAMES.length);
+        rest /= GIVEN_NAMES.length;
+        int initial = (int) ((rest + given) % 26);
+        rest /= 26;
+        int family = (int) ((rest + 5L * given + initial) % FAMILY_NAMES.length);
+        rest /= FAMILY_NAMES.length;
+        String name = GIVEN_NAMES[given] + " " + (char) ('A' + initial) + ". " + FAMILY_NAMES[family];
+        return rest == 0 ? name : name + " " + (rest + 1);
+    }
+
+    /**
+     * User name: a quarter Chinese (family name and one or two given name characters, no space),
+     * the rest "Given Family"
+     * @param random Random numbers of the row
+     * @return User name
+     */
+    public static String userName(SplittableRandom random) {
+        if (random.nextInt(4) == 0) {
+            return HAN_FAMILY_NAMES[random.nextInt(HAN_FAMILY_NAMES.length)] + HAN_GIVEN_NAMES[random.nextInt(HAN_GIVEN_NAMES.length)]
+                    + (random.nextBoolean() ? HAN_GIVEN_NAMES[random.nextInt(HAN_GIVEN_NAMES.length)] : "");
+        }
+        return GIVEN_NAMES[random.nextInt(GIVEN_NAMES.length)] + " " + FAMILY_NAMES[random.nextInt(FAMILY_NAMES.length)];
+    }
+
+    public static String password(SplittableRandom random) {
+        return Long.toString(random.nextLong() & Long.MAX_VALUE, 36);
+    }
+
+    /**
+     * ISBN-13 of a book number: 978, nine digits and the check digit
+     * @param book Book number (0 to 999,999,999)
+     * @return ISBN
+     */
+    public static String isbn(long book) {
+        char[] digits = {'9', '7', '8', '0', '0', '0', '0', '0', '0', '0', '0', '0', '0'};
+        for (int i = 11; i >= 3; i--, book /= 10) {
+            digits[i] = (char) ('0' + book % 10);
+        }
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits[i] - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        digits[12] = (char) ('0' + (10 - sum % 10) % 10);
+        return new String(digits);
+    }
+
+    public static String userId(long user) {
+        return "U" + (100_000 + user);
+    }
+
+    /**
+     * Borrow date of a record when count records are spread over the DAYS days in record order
+     * @param record Record number
+     * @param count Number of records
+     * @return Borrow date
+     */
+    public static LocalDate loanDay(long record, long count) {
+        return FIRST_DAY.plusDays(record * DAYS / count);
+    }
+
+    /**
+     * ID of a record generated by borrowRecords()
+     * @param record Record number
+     * @param count Number of records generated
+     * @return Borrow record ID
+     */
+    public static String borrowId(long record, long count) {
+        return recordId(loanDay(record, count), record);
+    }
+
+    /**
+     * Checkout-style record ID (as CirculationService makes them): C, base-36 time, -, number
+     * @param day Borrow date
+     * @param number Record number (makes the ID unique)
+     * @return Borrow record ID
+     */
+    public static String recordId(LocalDate day, long number) {
+        long millis = day.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+        return "C" + Long.toString(millis, 36).toUpperCase() + "-" + number;
+    }
+
+    // Squaring a uniform number favours low indexes
+    private static int skewedIndex(SplittableRandom random, int bound) {
+        double u = random.nextDouble();
+        return (int) (u * u * bound);
+    }
+
+    // Rows 0 to count - 1, each built when it is asked for
+    private static <T> Iterator<T> rows(long count, LongFunction<T> row) {
+        return new Iterator<>() {
+            private long next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public T next() {
+                return row.apply(next++);
+            }
+        };
+    }
+}
@@ -0,0 +1,287 @@
+package com.library.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.library.model.Book;
+import com.library.model.User;
+import com.library.service.BookService;
+import com.library.service.BorrowService;
+import com.library.service.CirculationService;
+import com.library.service.ReservationService;
+import com.library.service.UserService;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * HttpController: every endpoint over a real socket, the error status codes, and concurrent checkouts
+ *
+ * The server runs on a free port with services writing into a temporary directory. Bad input must
+ * come back as 400, unknown paths and IDs as 404, oversized bodies as 413, and many clients checking
+ * out the same book at once must get exactly as many loans as there are copies.
+ */
+class HttpControllerTest {
+    private static final String ISBN = "9780000000001";
+
+    @TempDir
+    Path directory;
+
+    private PrintStream output;
+    private BookService bookService;
+    private UserService userService;
+    private BorrowService borrowService;
+    private HttpController controller;
+    private HttpClient client;
+    private String baseUrl;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        // The services print a line for every change
+        output = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        bookService = new BookService();
+        userService = new UserService();
+        borrowService = new BorrowService();
+        bookService.setFilePath(directory.resolve("books.txt").toString());
+        userService.setFilePath(directory.resolve("users.txt").toString());
+        borrowService.setFilePath(directory.resolve("borrow_records.txt").toString());
+        CirculationService circulationService = new CirculationService(bookService, userService, borrowService);
+        ReservationService reservationService = new ReservationService(bookService, userService, circulationService);
+        // Wired as in Main
+        circulationService.setHoldQueue(reservationService);
+        bookService.setCopiesAddedListener(reservationService::copiesAdded);
+
+        controller = new HttpController(bookService, userService, borrowService, circulationService, reservationService);
+        controller.start(0);
+        client = HttpClient.newHttpClient();
+        baseUrl = "http://127.0.0.1:" + controller.getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        controller.stop();
+        client.close();
+        System.setOut(output);
+    }
+
+    @Test
+    void booksCanBeAddedReadUpdatedAndDeleted() throws Exception {
+        HttpResponse<String> added = send("POST", "/books",
+                "{\"name\":\"First Book\",\"author\":\"Some Author\",\"isbn\":\"" + ISBN + "\",\"quantity\":2}");
+        assertEquals(201, added.statusCode(), added.body());
+        assertEquals("First Book", json(added).get("name"));
+
+        assertEquals("2", json(send("GET", "/books/" + ISBN, null)).get("quantity"));
+        assertTrue(send("GET", "/books", null).body().startsWith("{\"total\":1,"));
+        assertTrue(send("GET", "/books?name=First", null).body().contains(ISBN));
+        assertTrue(send("GET", "/books?author=Some%20Author", null).body().contains(ISBN));
+
+        HttpResponse<String> updated = send("PUT", "/books/" + ISBN, "{\"name\":\"Second Edition\",\"quantity\":3}");
+        assertEquals(200, updated.statusCode(), updated.body());
+        assertEquals("Second Edition", json(updated).get("name"));
+        assertEquals("3", json(updated).get("quantity"));
+
+        assertEquals(204, send("DELETE", "/books/" + ISBN, null).statusCode());
+        assertEquals(404, send("GET", "/books/" + ISBN, null).statusCode());
+    }
+
+    @Test
+    void usersCanBeAddedReadUpdatedAndDeleted() throws Exception {
+        HttpResponse<String> added = send("POST", "/users", "{\"name\":\"Alice Smith\",\"id\":\"U1\",\"password\":\"secret\"}");
+        assertEquals(201, added.statusCode(), added.body());
+        // Passwords are never returned
+        assertFalse(added.body().contains("secret"), added.body());
+
+        assertEquals("Alice Smith", json(send("GET", "/users/U1", null)).get("name"));
+        assertTrue(send("GET", "/users", null).body().startsWith("{\"total\":1,"));
+        assertTrue(send("GET", "/users?prefix=Smi", null).body().contains("\"U1\""));
+        assertTrue(send("GET", "/users?name=Alice", null).body().contains("\"U1\""));
+
+        HttpResponse<String> updated = send("PUT", "/users/U1", "{\"name\":\"Alice Walsh\"}");
+        assertEquals(200, updated.statusCode(), updated.body());
+        assertEquals("secret", userService.findByUserId("U1").getUserPassword());
+
+        assertEquals(204, send("DELETE", "/users/U1", null).statusCode());
+        assertEquals(404, send("GET", "/users/U1", null).statusCode());
+    }
+
+    @Test
+    void checkoutsReturnsAndBorrowRecordsMoveTheCounters() throws Exception {
+        addBookAndUsers(1, 2);
+        HttpResponse<String> checkout = send("POST", "/checkouts", "{\"userId\":\"U1\",\"isbn\":\"" + ISBN + "\"}");
+        assertEquals(201, checkout.statusCode(), checkout.body());
+        String borrowId = json(checkout).get("id");
+        assertEquals(409, send("POST", "/checkouts", "{\"userId\":\"U2\",\"isbn\":\"" + ISBN + "\"}").statusCode());
+
+        assertEquals("0", json(send("GET", "/borrows/" + borrowId, null)).get("status"));
+        assertTrue(send("GET", "/borrows", null).body().startsWith("{\"total\":1,"));
+        assertTrue(send("GET", "/borrows?userId=U1&status=0", null).body().contains(borrowId));
+        assertTrue(send("GET", "/borrows?userId=U1", null).body().contains(borrowId));
+        assertTrue(send("GET", "/borrows?status=0", null).body().contains(borrowId));
+        assertTrue(send("GET", "/borrows?overdue=true", null).body().startsWith("{\"total\":0,"));
+        assertTrue(send("GET", "/borrows?from=2000-01-01&to=2999-12-31", null).body().contains(borrowId));
+
+        HttpResponse<String> returned = send("POST", "/returns", "{\"id\":\"" + borrowId + "\"}");
+        assertEquals(200, returned.statusCode(), returned.body());
+        assertEquals("1", json(returned).get("status"));
+        assertEquals(409, send("POST", "/returns", "{\"id\":\"" + borrowId + "\"}").statusCode());
+        assertCounters(0, 1);
+
+        // Re-opening the loan by hand claims the copy again; deleting it frees the copy
+        assertEquals(200, send("PUT", "/borrows/" + borrowId, "{\"status\":0}").statusCode());
+        assertCounters(1, 0);
+        assertEquals(204, send("DELETE", "/borrows/" + borrowId, null).statusCode());
+        assertCounters(0, 1);
+
+        HttpResponse<String> handAdded = send("POST", "/borrows",
+                "{\"id\":\"M1\",\"date\":\"2024-03-01\",\"status\":0,\"userId\":\"U2\",\"isbn\":\"" + ISBN + "\"}");
+        assertEquals(201, handAdded.statusCode(), handAdded.body());
+        assertCounters(1, 0);
+    }
+
+    @Test
+    void holdsArePlacedListedAndCancelled() throws Exception {
+        addBookAndUsers(1, 3);
+        assertEquals(201, send("POST", "/checkouts", "{\"userId\":\"U1\",\"isbn\":\"" + ISBN + "\"}").statusCode());
+
+        HttpResponse<String> placed = send("POST", "/holds", "{\"userId\":\"U2\",\"isbn\":\"" + ISBN + "\"}");
+        assertEquals(201, placed.statusCode(), placed.body());
+        assertEquals("WAITING", json(placed).get("status"));
+        String holdId = json(placed).get("id");
+        assertTrue(send("GET", "/holds?isbn=" + ISBN, null).body().contains(holdId));
+
+        assertEquals(204, send("DELETE", "/holds/" + holdId, null).statusCode());
+        assertEquals(404, send("DELETE", "/holds/" + holdId, null).statusCode());
+        assertEquals(400, send("POST", "/holds", "{\"userId\":\"NOBODY\",\"isbn\":\"" + ISBN + "\"}").statusCode());
+    }
+
+    @Test
+    void saveWritesTheDataFiles() throws Exception {
+        addBookAndUsers(1, 1);
+        assertEquals(201, send("POST", "/checkouts", "{\"userId\":\"U1\",\"isbn\":\"" + ISBN + "\"}").statusCode());
+        assertEquals(204, send("POST", "/save", null).statusCode());
+        assertTrue(Files.exists(directory.resolve("books.txt")));
+        assertTrue(Files.exists(directory.resolve("users.txt")));
+        assertTrue(Files.exists(directory.resolve("borrow_records.txt")));
+        assertEquals(405, send("GET", "/save", null).statusCode());
+    }
+
+    @Test
+    void badInputIsAnswered400() throws Exception {
+        addBookAndUsers(1, 1);
+        assertEquals(400, send("POST", "/books", "{\"name\":\"No ISBN\"").statusCode());
+        assertEquals(400, send("POST", "/books", "").statusCode());
+        assertEquals(400, send("POST", "/books",
+                "{\"name\":\"Book\",\"author\":\"A\",\"isbn\":\"9780000000002\",\"quantity\":\"many\"}").statusCode());
+        // Duplicate ISBN
+        assertEquals(400, send("POST", "/books",
+                "{\"name\":\"Book\",\"author\":\"A\",\"isbn\":\"" + ISBN + "\",\"quantity\":1}").statusCode());
+        assertEquals(400, send("GET", "/books?offset=-1", null).statusCode());
+        assertEquals(400, send("GET", "/borrows?from=yesterday", null).statusCode());
+        assertEquals(400, send("GET", "/holds", null).statusCode());
+        assertEquals(400, send("PUT", "/books/" + ISBN, "{\"quantity\":-5}").statusCode());
+    }
+
+    @Test
+    void unknownPathsAndIdsAreAnswered404() throws Exception {
+        assertEquals(404, send("GET", "/books/9789999999999", null).statusCode());
+        assertEquals(404, send("PUT", "/books/9789999999999", "{\"quantity\":1}").statusCode());
+        assertEquals(404, send("GET", "/users/NOBODY", null).statusCode());
+        assertEquals(404, send("DELETE", "/borrows/NOBODY", null).statusCode());
+        assertEquals(404, send("POST", "/returns", "{\"id\":\"NOBODY\"}").statusCode());
+        assertEquals(404, send("GET", "/books/a/b", null).statusCode());
+        assertEquals(404, send("GET", "/booksX", null).statusCode());
+        assertEquals(404, send("POST", "/checkouts/extra", "{}").statusCode());
+        assertEquals(404, send("GET", "/nothing", null).statusCode());
+        assertEquals(405, send("PATCH", "/books", "{}").statusCode());
+    }
+
+    @Test
+    void oversizedBodiesAreAnswered413() throws Exception {
+        String body = "{\"name\":\"" + "x".repeat(70 * 1024) + "\"}";
+        assertEquals(413, send("POST", "/books", body).statusCode());
+        assertEquals(413, send("POST", "/users", body).statusCode());
+        assertEquals(0, bookService.getBookCount());
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        int copies = 5;
+        int clients = 40;
+        addBookAndUsers(copies, clients);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(clients);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int i = 1; i <= clients; i++) {
+                String body = "{\"userId\":\"U" + i + "\",\"isbn\":\"" + ISBN + "\"}";
+                Callable<Integer> checkout = () -> {
+                    start.await();
+                    return send("POST", "/checkouts", body).statusCode();
+                };
+                results.add(threads.submit(checkout));
+            }
+            start.countDown();
+            int created = 0;
+            int refused = 0;
+            for (Future<Integer> result : results) {
+                int status = result.get();
+                if (status == 201) {
+                    created++;
+                } else if (status == 409) {
+                    refused++;
+                }
+            }
+            assertEquals(copies, created);
+            assertEquals(clients - copies, refused);
+        } finally {
+            threads.shutdownNow();
+        }
+        assertCounters(copies, 0);
+        assertEquals(copies, borrowService.findByStatus(0).size());
+    }
+
+    private void addBookAndUsers(int copies, int users) {
+        assertTrue(bookService.addBook(new Book("Shared Book", "Some Author", ISBN, copies, 0)));
+        for (int i = 1; i <= users; i++) {
+            assertTrue(userService.addUser(new User("Reader Number", "U" + i, "secret")));
+        }
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest.BodyPublisher publisher = body == null
+                ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).method(method, publisher).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static Map<String, String> json(HttpResponse<String> response) {
+        return Json.parseObject(response.body());
+    }
+
+    private void assertCounters(int borrowed, int available) {
+        assertEquals(borrowed, bookService.findByISBN(ISBN).getBookBorrowedQuantity(), "borrowed");
+        assertEquals(available, bookService.getAvailableCopies(ISBN), "available");
+    }
+}
@@ -0,0 +1,148 @@
+package com.library.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.model.User;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * AsyncLibraryService: queued writes run in order, and reads never block the caller on a load
+ *
+ * A store's writes must take effect in submission order, a read chained on a write must see it,
+ * the first read of an unloaded store must return at once and complete when the load is done,
+ * and close() must finish the queued writes before refusing new ones.
+ */
+class AsyncLibraryServiceTest {
+    private static final String ISBN = "9780000000001";
+
+    private PrintStream output;
+    private BookService bookService;
+    private UserService userService;
+    private BorrowService borrowService;
+    private AsyncLibraryService async;
+
+    @BeforeEach
+    void setUp() {
+        // The services print a line for every change
+        output = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        bookService = new BookService();
+        userService = new UserService();
+        borrowService = new BorrowService();
+        CirculationService circulationService = new CirculationService(bookService, userService, borrowService);
+        async = new AsyncLibraryService(bookService, userService, borrowService, circulationService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        async.close();
+        System.setOut(output);
+    }
+
+    @Test
+    void writesToOneStoreRunInSubmissionOrder() throws Exception {
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        results.add(async.addBook(new Book("First Title", "Some Author", ISBN, 1, 0)));
+        results.add(async.updateBook(ISBN, "Second Title", null, 3, -1));
+        results.add(async.deleteBook(ISBN));
+        results.add(async.addBook(new Book("Third Title", "Other Author", ISBN, 2, 0)));
+        results.add(async.updateBook(ISBN, null, null, 5, -1));
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.get(10, TimeUnit.SECONDS));
+        }
+
+        Book book = async.findByISBN(ISBN).get(10, TimeUnit.SECONDS);
+        assertEquals("Third Title", book.getBookName());
+        assertEquals(5, book.getBookQuantity());
+        assertEquals(1, async.getBookCount().get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void aReadChainedOnAWriteSeesIt() throws Exception {
+        User user = async.addUser(new User("Alice Smith", "U1", "secret"))
+                .thenCompose(added -> async.updateUser("U1", "Alice Walsh", "secret"))
+                .thenCompose(updated -> async.findByUserId("U1"))
+                .get(10, TimeUnit.SECONDS);
+        assertEquals("Alice Walsh", user.getUserName());
+        assertEquals(1, async.completeUserName("wal", 10).get(10, TimeUnit.SECONDS).size());
+        assertTrue(async.deleteUser("U1").get(10, TimeUnit.SECONDS));
+        assertNull(async.findByUserId("U1").get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void theFirstReadOfAnUnloadedStoreDoesNotBlockTheCaller() throws Exception {
+        CountDownLatch loadMayFinish = new CountDownLatch(1);
+        bookService.setLoader(() -> {
+            try {
+                loadMayFinish.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            bookService.loadBooks(List.of(new Book("Loaded Title", "Some Author", ISBN, 1, 0)));
+        });
+
+        // Returns while the load is still waiting
+        CompletableFuture<Book> read = async.findByISBN(ISBN);
+        assertFalse(read.isDone());
+
+        loadMayFinish.countDown();
+        assertEquals("Loaded Title", read.get(10, TimeUnit.SECONDS).getBookName());
+        assertTrue(bookService.isLoaded());
+        // Once loaded, reads complete on the caller's thread
+        assertTrue(async.findByISBN(ISBN).isDone());
+    }
+
+    @Test
+    void queuedBorrowRecordsAreCopiedWhenSubmitted() throws Exception {
+        CountDownLatch loadMayFinish = new CountDownLatch(1);
+        borrowService.setLoader(() -> {
+            try {
+                loadMayFinish.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // The writer waits for the load, so the caller changes its object before the add runs
+        BorrowRecord record = new BorrowRecord("M1", "2024-03-01", 1);
+        CompletableFuture<Boolean> added = async.addBorrowRecord(record);
+        record.setBorrowId("CHANGED");
+        loadMayFinish.countDown();
+
+        assertTrue(added.get(10, TimeUnit.SECONDS));
+        assertNotNull(async.findByBorrowId("M1").get(10, TimeUnit.SECONDS));
+        assertNull(async.findByBorrowId("CHANGED").get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void closeFinishesQueuedWritesThenRefusesNewOnes() throws Exception {
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            results.add(async.addUser(new User("Reader Number", "U" + i, "secret")));
+        }
+        async.close();
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.isDone());
+            assertTrue(result.get());
+        }
+        assertEquals(200, userService.getUserCount());
+        assertThrows(RejectedExecutionException.class, () -> async.addUser(new User("Too Late", "U999", "secret")));
+    }
+}
@@ -0,0 +1,237 @@
+package com.library.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.library.model.Book;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * BookService under mixed addBook / updateBook / deleteBook from many threads
+ *
+ * Each thread owns its own ISBNs, so it can keep the expected state of its books; the threads
+ * still share the map, the ordered list, the indexes (six authors, overlapping trigrams) and the
+ * lock stripes. All threads also check out and return copies of two shared hot titles.
+ * Afterwards the service's structures must agree with each other and with the expected books.
+ */
+class BookServiceConcurrencyTest {
+    private static final String[] AUTHORS = {"Lu Xun", "Ba Jin", "Lao She", "Mo Yan", "Eileen Chang", "Yu Hua"};
+    private static final String[] HOT_TITLES = {"HOT-0", "HOT-1"};
+    private static final int HOT_COPIES = 3;
+
+    private PrintStream output;
+    private BookService bookService;
+
+    // Expected state of one book
+    private record Expected(String name, String author, int quantity, int borrowed) {
+    }
+
+    @BeforeEach
+    void silenceOutput() {
+        // The service prints a line for every change
+        output = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        bookService = new BookService();
+    }
+
+    @AfterEach
+    void restoreOutput() {
+        System.setOut(output);
+    }
+
+    @Test
+    void mixedChangesFromManyThreadsKeepAllStructuresInStep() throws Exception {
+        runMix(8, 3000);
+    }
+
+    @Test
+    void mixedChangesFromMoreThreadsThanCoresKeepAllStructuresInStep() throws Exception {
+        runMix(64, 400);
+    }
+
+    private void runMix(int threads, int operationsPerThread) throws Exception {
+        for (String isbn : HOT_TITLES) {
+            assertTrue(bookService.addBook(new Book("Hot Title " + isbn, "Popular Author", isbn, HOT_COPIES, 0)));
+        }
+        // Copies of the hot titles out at the same time; never more than they have
+        AtomicInteger[] lent = {new AtomicInteger(), new AtomicInteger()};
+        AtomicInteger oversold = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Map<String, Expected>>> results = new ArrayList<>();
+        List<List<String>> addOrders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            List<String> addOrder = new ArrayList<>();
+            addOrders.add(addOrder);
+            Callable<Map<String, Expected>> worker = () -> {
+                start.await();
+                return mutate(thread, operationsPerThread, addOrder, lent, oversold);
+            };
+            results.add(pool.submit(worker));
+        }
+        start.countDown();
+        Map<String, Expected> expected = new HashMap<>();
+        for (Future<Map<String, Expected>> result : results) {
+            expected.putAll(result.get(2, TimeUnit.MINUTES));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(0, oversold.get(), "a hot title was lent more often than it has copies");
+        assertEquals(List.of(), bookService.findInconsistencies());
+
+        // The map and the ordered list hold exactly the expected books
+        List<Book> all = bookService.getAllBooks();
+        assertEquals(expected.size() + HOT_TITLES.length, all.size());
+        assertEquals(all.size(), bookService.getBookCount());
+        Map<String, Integer> position = new HashMap<>();
+        for (Book book : all) {
+            position.put(book.getBookISBN(), position.size());
+        }
+        for (Map.Entry<String, Expected> entry : expected.entrySet()) {
+            Book book = bookService.findByISBN(entry.getKey());
+            Expected state = entry.getValue();
+            assertEquals(state, new Expected(book.getBookName(), book.getBookAuthor(), book.getBookQuantity(),
+                    book.getBookBorrowedQuantity()), "book " + entry.getKey());
+            assertEquals(state.quantity() - state.borrowed(), bookService.getAvailableCopies(entry.getKey()));
+            // Its title is found by the token only it carries
+            List<Book> byTitle = bookService.findByBookName(token(state.name())).getBooks();
+            assertEquals(List.of(entry.getKey()), byTitle.stream().map(Book::getBookISBN).toList());
+        }
+        for (String isbn : HOT_TITLES) {
+            assertEquals(0, bookService.findByISBN(isbn).getBookBorrowedQuantity());
+            assertEquals(HOT_COPIES, bookService.getAvailableCopies(isbn));
+        }
+
+        // Each thread's books keep the order in which that thread last added them
+        for (List<String> addOrder : addOrders) {
+            int previous = -1;
+            for (String isbn : addOrder) {
+                if (expected.containsKey(isbn) && position.get(isbn) != null) {
+                    assertTrue(position.get(isbn) > previous, "book " + isbn + " is out of insertion order");
+                    previous = position.get(isbn);
+                }
+            }
+        }
+
+        // The author index lists exactly each author's books (names differ in case only)
+        for (String author : AUTHORS) {
+            Set<String> expectedIsbns = new HashSet<>();
+            expected.forEach((isbn, state) -> {
+                if (state.author().equalsIgnoreCase(author)) {
+                    expectedIsbns.add(isbn);
+                }
+            });
+            Set<String> found = new HashSet<>();
+            for (Book book : bookService.findByAuthor(author.toUpperCase())) {
+                found.add(book.getBookISBN());
+            }
+            assertEquals(expectedIsbns, found, "books by " + author);
+        }
+    }
+
+    // One thread's share of the mix; returns the expected state of the thread's books
+    private Map<String, Expected> mutate(int thread, int operations, List<String> addOrder,
+                                         AtomicInteger[] lent, AtomicInteger oversold) {
+        Random random = new Random(1000L + thread);
+        Map<String, Expected> live = new LinkedHashMap<>();
+        List<String> deleted = new ArrayList<>();
+        int nextBook = 0;
+        int revision = 0;
+        for (int i = 0; i < operations; i++) {
+            int choice = random.nextInt(100);
+            if (live.isEmpty() || choice < 35) {
+                // Add a new ISBN, or add a deleted one again (it then goes to the end of the list)
+                String isbn = !deleted.isEmpty() && random.nextBoolean()
+                        ? deleted.remove(random.nextInt(deleted.size()))
+                        : "T" + thread + "-" + nextBook++;
+                int quantity = random.nextInt(6);
+                Expected state = new Expected(title(isbn, revision++), AUTHORS[random.nextInt(AUTHORS.length)],
+                        quantity, random.nextInt(quantity + 1));
+                assertTrue(bookService.addBook(new Book(state.name(), state.author(), isbn, state.quantity(), state.borrowed())));
+                live.put(isbn, state);
+                addOrder.remove(isbn);
+                addOrder.add(isbn);
+            } else if (choice < 65) {
+                String isbn = pick(live, random);
+                Expected old = live.get(isbn);
+                String name = random.nextBoolean() ? title(isbn, revision++) : null;
+                // Authors change case sometimes: the index treats that as the same author
+                String author = random.nextBoolean() ? AUTHORS[random.nextInt(AUTHORS.length)] : null;
+                if (author != null && random.nextInt(4) == 0) {
+                    author = author.toUpperCase();
+                }
+                int quantity = random.nextInt(6);
+                int borrowed = random.nextInt(quantity + 1);
+                assertTrue(bookService.updateBook(isbn, name, author, quantity, borrowed));
+                live.put(isbn, new Expected(name != null ? name : old.name(), author != null ? author : old.author(),
+                        quantity, borrowed));
+            } else if (choice < 85) {
+                String isbn = pick(live, random);
+                // Create the availability counter first, so deletes also have to drop it
+                bookService.getAvailableCopies(isbn);
+                assertTrue(bookService.deleteBook(isbn));
+                live.remove(isbn);
+                deleted.add(isbn);
+            } else {
+                checkOutAndReturnHotTitle(random.nextInt(HOT_TITLES.length), lent, oversold);
+            }
+        }
+        return live;
+    }
+
+    // Claim a copy, record the loan, then return it (as CirculationService does)
+    private void checkOutAndReturnHotTitle(int title, AtomicInteger[] lent, AtomicInteger oversold) {
+        String isbn = HOT_TITLES[title];
+        if (!bookService.tryClaimCopy(isbn)) {
+            return;
+        }
+        if (lent[title].incrementAndGet() > HOT_COPIES) {
+            oversold.incrementAndGet();
+        }
+        assertTrue(bookService.adjustBorrowedQuantity(isbn, 1));
+        assertTrue(bookService.adjustBorrowedQuantity(isbn, -1));
+        lent[title].decrementAndGet();
+        bookService.releaseCopy(isbn);
+    }
+
+    private static String pick(Map<String, Expected> live, Random random) {
+        int index = random.nextInt(live.size());
+        for (String isbn : live.keySet()) {
+            if (index-- == 0) {
+                return isbn;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    // Title with a token no other book or revision has
+    private static String title(String isbn, int revision) {
+        return "Collected Stories " + isbn + "r" + revision + "x";
+    }
+
+    private static String token(String title) {
+        return title.substring(title.lastIndexOf(' ') + 1);
+    }
+}
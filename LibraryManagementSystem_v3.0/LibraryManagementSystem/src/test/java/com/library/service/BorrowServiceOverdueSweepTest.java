@@ -0,0 +1,108 @@
+package com.library.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.library.model.BorrowRecord;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * BorrowService.sweepNewlyOverdue: every overdue loan is reported once
+ *
+ * Sweeps read the due-date index from the last sweep day on; loans that become active later with
+ * an earlier due day must still be reported by the next sweep, and nothing twice.
+ */
+class BorrowServiceOverdueSweepTest {
+    private static final LocalDate FIRST_SWEEP = LocalDate.of(2024, 2, 1);
+    private static final LocalDate SECOND_SWEEP = LocalDate.of(2024, 2, 2);
+
+    private PrintStream output;
+    private BorrowService borrowService;
+
+    @BeforeEach
+    void setUp() {
+        // The service prints a line for every change
+        output = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        borrowService = new BorrowService();
+        borrowService.setLoanPeriodDays(14);
+    }
+
+    @AfterEach
+    void restoreOutput() {
+        System.setOut(output);
+    }
+
+    @Test
+    void loansDueOnTimeAreReportedOnce() {
+        add("DUE-JAN", "2024-01-01", 0);
+        add("DUE-FEB", "2024-01-19", 0);
+        assertEquals(List.of("DUE-JAN"), ids(borrowService.sweepNewlyOverdue(FIRST_SWEEP)));
+        assertEquals(List.of("DUE-FEB"), ids(borrowService.sweepNewlyOverdue(SECOND_SWEEP.plusDays(1))));
+        assertEquals(List.of(), ids(borrowService.sweepNewlyOverdue(SECOND_SWEEP.plusDays(2))));
+    }
+
+    @Test
+    void loansAddedAfterASweepWithAnEarlierDueDayAreReportedByTheNextSweep() {
+        add("FIRST", "2024-01-01", 0);
+        add("RETURNED", "2023-11-01", 1);
+        assertEquals(List.of("FIRST"), ids(borrowService.sweepNewlyOverdue(FIRST_SWEEP)));
+
+        add("LATE-ADD", "2023-12-01", 0);
+        add("OLDER-ADD", "2023-10-01", 0);
+        assertTrue(borrowService.updateBorrowStatus("RETURNED", 0));
+        add("DELETED", "2023-12-05", 0);
+        assertTrue(borrowService.deleteBorrowRecord("DELETED"));
+        add("NOT-DUE", "2024-01-30", 0);
+
+        // Earliest due first; the deleted loan is gone and the loan not yet due waits
+        assertEquals(List.of("OLDER-ADD", "RETURNED", "LATE-ADD"), ids(borrowService.sweepNewlyOverdue(SECOND_SWEEP)));
+        assertEquals(List.of(), ids(borrowService.sweepNewlyOverdue(SECOND_SWEEP)));
+    }
+
+    @Test
+    void loansReturnedBeforeTheSweepAreNotReported() {
+        add("FIRST", "2024-01-01", 0);
+        borrowService.sweepNewlyOverdue(FIRST_SWEEP);
+        add("LATE-ADD", "2023-12-01", 0);
+        assertTrue(borrowService.updateBorrowStatus("LATE-ADD", 1));
+        assertEquals(List.of(), ids(borrowService.sweepNewlyOverdue(SECOND_SWEEP)));
+    }
+
+    @Test
+    void aShorterLoanPeriodReportsLoansThatBecameOverdueButNotReportedOnes() {
+        add("REPORTED", "2024-01-01", 0);
+        add("NOW-LATE", "2024-01-25", 0);
+        assertEquals(List.of("REPORTED"), ids(borrowService.sweepNewlyOverdue(FIRST_SWEEP)));
+
+        // Due 2024-01-28 instead of 2024-02-08: before the last sweep, so it was never reported
+        borrowService.setLoanPeriodDays(3);
+        assertEquals(List.of("NOW-LATE"), ids(borrowService.sweepNewlyOverdue(SECOND_SWEEP)));
+    }
+
+    @Test
+    void aLongerLoanPeriodDoesNotReportAQueuedLoanTwice() {
+        add("FIRST", "2024-01-01", 0);
+        borrowService.sweepNewlyOverdue(FIRST_SWEEP);
+        add("LATE-ADD", "2024-01-10", 0);
+
+        // Due 2024-02-09 now: no longer late, the regular range reports it when it falls due
+        borrowService.setLoanPeriodDays(30);
+        assertEquals(List.of(), ids(borrowService.sweepNewlyOverdue(SECOND_SWEEP)));
+        assertEquals(List.of("LATE-ADD"), ids(borrowService.sweepNewlyOverdue(LocalDate.of(2024, 2, 10))));
+    }
+
+    private void add(String id, String date, int status) {
+        assertTrue(borrowService.addBorrowRecord(new BorrowRecord(id, date, status)));
+    }
+
+    private static List<String> ids(List<BorrowRecord> records) {
+        return records.stream().map(BorrowRecord::getBorrowId).toList();
+    }
+}
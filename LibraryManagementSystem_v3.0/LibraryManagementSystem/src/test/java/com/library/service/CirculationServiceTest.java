@@ -0,0 +1,125 @@
+package com.library.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.model.User;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * CirculationService: every change to a linked loan keeps the book's counters in step
+ *
+ * Hand-typed record changes (add, status edit, delete) must claim and free copies exactly like
+ * checkout() and returnBook(), so a book is never lent out more often than it has copies.
+ */
+class CirculationServiceTest {
+    private static final String ISBN = "9780000000001";
+
+    private PrintStream output;
+    private BookService bookService;
+    private BorrowService borrowService;
+    private CirculationService circulationService;
+
+    @BeforeEach
+    void setUp() {
+        // The services print a line for every change
+        output = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        bookService = new BookService();
+        UserService userService = new UserService();
+        borrowService = new BorrowService();
+        circulationService = new CirculationService(bookService, userService, borrowService);
+        assertTrue(bookService.addBook(new Book("One Copy", "Some Author", ISBN, 1, 0)));
+        assertTrue(userService.addUser(new User("Alice Smith", "U1", "secret")));
+        assertTrue(userService.addUser(new User("Ben Murphy", "U2", "secret")));
+    }
+
+    @AfterEach
+    void restoreOutput() {
+        System.setOut(output);
+    }
+
+    @Test
+    void checkoutAndReturnMoveTheCounters() {
+        BorrowRecord record = circulationService.checkout("U1", ISBN);
+        assertNotNull(record);
+        assertCounters(1, 0);
+        assertNull(circulationService.checkout("U2", ISBN));
+        assertTrue(circulationService.returnBook(record.getBorrowId()));
+        assertCounters(0, 1);
+        assertFalse(circulationService.returnBook(record.getBorrowId()));
+        assertCounters(0, 1);
+    }
+
+    @Test
+    void settingALoanToReturnedFreesItsCopy() {
+        BorrowRecord record = circulationService.checkout("U1", ISBN);
+        assertTrue(circulationService.updateBorrowStatus(record.getBorrowId(), 1));
+        assertCounters(0, 1);
+        assertEquals(1, borrowService.findByBorrowId(record.getBorrowId()).getBorrowStatus());
+    }
+
+    @Test
+    void settingALoanBackToCheckedOutClaimsACopyOrIsRefused() {
+        BorrowRecord first = circulationService.checkout("U1", ISBN);
+        assertTrue(circulationService.returnBook(first.getBorrowId()));
+        BorrowRecord second = circulationService.checkout("U2", ISBN);
+        assertNotNull(second);
+
+        // The only copy is out: the old loan cannot be re-opened
+        assertFalse(circulationService.updateBorrowStatus(first.getBorrowId(), 0));
+        assertEquals(1, borrowService.findByBorrowId(first.getBorrowId()).getBorrowStatus());
+        assertCounters(1, 0);
+
+        assertTrue(circulationService.returnBook(second.getBorrowId()));
+        assertTrue(circulationService.updateBorrowStatus(first.getBorrowId(), 0));
+        assertCounters(1, 0);
+    }
+
+    @Test
+    void deletingAnActiveLoanFreesItsCopy() {
+        BorrowRecord record = circulationService.checkout("U1", ISBN);
+        assertTrue(circulationService.deleteBorrowRecord(record.getBorrowId()));
+        assertNull(borrowService.findByBorrowId(record.getBorrowId()));
+        assertCounters(0, 1);
+    }
+
+    @Test
+    void addingACheckedOutLoanByHandCannotOversell() {
+        assertTrue(circulationService.addBorrowRecord(new BorrowRecord("M1", "2024-03-01", 0, "U1", ISBN)));
+        assertCounters(1, 0);
+        assertFalse(circulationService.addBorrowRecord(new BorrowRecord("M2", "2024-03-01", 0, "U2", ISBN)));
+        assertNull(borrowService.findByBorrowId("M2"));
+        assertCounters(1, 0);
+
+        // Returned and unlinked records do not touch the book
+        assertTrue(circulationService.addBorrowRecord(new BorrowRecord("M3", "2023-03-01", 1, "U2", ISBN)));
+        assertTrue(circulationService.addBorrowRecord(new BorrowRecord("M4", "2023-03-01", 0)));
+        assertCounters(1, 0);
+    }
+
+    @Test
+    void aFailedHandAddGivesTheCopyBack() {
+        assertTrue(circulationService.addBorrowRecord(new BorrowRecord("M1", "2023-03-01", 1, "U1", ISBN)));
+        // Duplicate ID: the claimed copy must be released again
+        assertFalse(circulationService.addBorrowRecord(new BorrowRecord("M1", "2024-03-01", 0, "U1", ISBN)));
+        assertCounters(0, 1);
+        // Unknown user
+        assertFalse(circulationService.addBorrowRecord(new BorrowRecord("M2", "2024-03-01", 0, "NOBODY", ISBN)));
+        assertCounters(0, 1);
+    }
+
+    private void assertCounters(int borrowed, int available) {
+        assertEquals(borrowed, bookService.findByISBN(ISBN).getBookBorrowedQuantity(), "borrowed");
+        assertEquals(available, bookService.getAvailableCopies(ISBN), "available");
+    }
+}
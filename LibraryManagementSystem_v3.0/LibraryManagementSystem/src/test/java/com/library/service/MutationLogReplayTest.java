@@ -0,0 +1,162 @@
+package com.library.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.model.User;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Mutation log replay: a restart rebuilds exactly the state the changes left behind
+ *
+ * Each service logs its changes next to an (absent) data file; a new service with the same file
+ * path replays the log on first access. The replayed state must equal the old one field by field,
+ * even for values the public methods would trim, and the replay must not print a line per change.
+ */
+class MutationLogReplayTest {
+    @TempDir
+    Path directory;
+
+    private PrintStream output;
+    private ByteArrayOutputStream printed;
+
+    @BeforeEach
+    void silenceOutput() {
+        // The services print a line for every change
+        output = System.out;
+        printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @AfterEach
+    void restoreOutput() {
+        System.setOut(output);
+    }
+
+    @Test
+    void booksReplayToTheSameState() {
+        String filePath = directory.resolve("books.txt").toString();
+        BookService before = new BookService();
+        before.setFilePath(filePath);
+        assertTrue(before.addBook(new Book(" sp ", "Some Author", "9780000000001", 3, 0)));
+        assertTrue(before.addBook(new Book("Second Book", "Other Author", "9780000000002", 2, 1)));
+        assertTrue(before.addBook(new Book("Gone Soon", "Other Author", "9780000000003", 1, 0)));
+        // Changes only the quantities: the untrimmed name is logged as it is stored
+        assertTrue(before.updateBook("9780000000001", null, null, 5, 2));
+        assertTrue(before.updateBook("9780000000002", "Second Edition", " New Author ", -1, -1));
+        assertTrue(before.deleteBook("9780000000003"));
+        assertTrue(before.addBook(new Book("Back Again", "Some Author", "9780000000003", 4, 0)));
+        assertTrue(Files.exists(directory.resolve("books.txt.log")));
+
+        BookService after = new BookService();
+        after.setFilePath(filePath);
+        List<String> replayed = replay(after::getAllBooks).stream().map(MutationLogReplayTest::describe).toList();
+
+        assertEquals(before.getAllBooks().stream().map(MutationLogReplayTest::describe).toList(), replayed);
+        assertEquals(" sp ", after.findByISBN("9780000000001").getBookName());
+        assertTrue(after.findInconsistencies().isEmpty());
+        assertNoChangeMessages();
+    }
+
+    @Test
+    void usersReplayToTheSameState() {
+        String filePath = directory.resolve("users.txt").toString();
+        UserService before = new UserService();
+        before.setFilePath(filePath);
+        assertTrue(before.addUser(new User("Alice Smith", "U1", "secret")));
+        assertTrue(before.addUser(new User("Ben Murphy", "U2", "secret")));
+        assertTrue(before.addUser(new User("Wei Zhang", "U3", "secret")));
+        assertTrue(before.updateUser("U1", " Alice Smith-Walsh ", "new secret"));
+        assertTrue(before.deleteUser("U2"));
+
+        UserService after = new UserService();
+        after.setFilePath(filePath);
+        List<String> replayed = replay(after::getAllUsers).stream().map(MutationLogReplayTest::describe).toList();
+
+        assertEquals(before.getAllUsers().stream().map(MutationLogReplayTest::describe).toList(), replayed);
+        assertEquals(1, after.findByUserName("Walsh").size());
+        assertNoChangeMessages();
+    }
+
+    @Test
+    void borrowRecordsReplayToTheSameState() {
+        String filePath = directory.resolve("borrow_records.txt").toString();
+        BorrowService before = new BorrowService();
+        before.setFilePath(filePath);
+        assertTrue(before.addBorrowRecord(new BorrowRecord("C1", "2024-03-01", 0, "U1", "9780000000001")));
+        assertTrue(before.addBorrowRecord(new BorrowRecord("C2", "2024-03-02", 0, "U2", "9780000000002")));
+        assertTrue(before.addBorrowRecord(new BorrowRecord("M1", "1 March 2024", 1)));
+        assertTrue(before.updateBorrowStatus("C1", 1));
+        assertTrue(before.compareAndSetStatus("C2", 0, 1));
+        assertTrue(before.compareAndSetStatus("C2", 1, 0));
+        assertTrue(before.deleteBorrowRecord("M1"));
+
+        BorrowService after = new BorrowService();
+        after.setFilePath(filePath);
+        List<String> replayed = replay(after::getAllBorrowRecords).stream().map(MutationLogReplayTest::describe).toList();
+
+        assertEquals(before.getAllBorrowRecords().stream().map(MutationLogReplayTest::describe).toList(), replayed);
+        assertEquals(1, after.countByUserAndStatus("U2", 0));
+        assertEquals(1, after.findByStatus(1).size());
+        assertNoChangeMessages();
+    }
+
+    @Test
+    void replayedChangesAreSavedAndTheLogCleared() {
+        String filePath = directory.resolve("books.txt").toString();
+        BookService before = new BookService();
+        before.setFilePath(filePath);
+        assertTrue(before.addBook(new Book("Only Book", "Some Author", "9780000000001", 1, 0)));
+
+        BookService after = new BookService();
+        after.setFilePath(filePath);
+        after.ensureLoaded();
+
+        assertTrue(Files.exists(directory.resolve("books.txt")));
+        assertFalse(Files.exists(directory.resolve("books.txt.log")));
+    }
+
+    // Load the service (which replays its log) while collecting what it prints
+    private <T> T replay(Supplier<T> firstAccess) {
+        System.setOut(new PrintStream(printed, true, StandardCharsets.UTF_8));
+        try {
+            return firstAccess.get();
+        } finally {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+    }
+
+    private void assertNoChangeMessages() {
+        String text = printed.toString(StandardCharsets.UTF_8);
+        assertFalse(text.contains("Successfully"), text);
+        assertTrue(text.contains("Replayed"), text);
+    }
+
+    private static String describe(Book book) {
+        return String.join("|", book.getBookName(), book.getBookAuthor(), book.getBookISBN(),
+                String.valueOf(book.getBookQuantity()), String.valueOf(book.getBookBorrowedQuantity()));
+    }
+
+    private static String describe(User user) {
+        return String.join("|", user.getUserName(), user.getUserId(), user.getUserPassword());
+    }
+
+    private static String describe(BorrowRecord record) {
+        return String.join("|", record.getBorrowId(), record.getBorrowDate(), String.valueOf(record.getBorrowStatus()),
+                String.valueOf(record.getUserId()), String.valueOf(record.getIsbn()));
+    }
+}
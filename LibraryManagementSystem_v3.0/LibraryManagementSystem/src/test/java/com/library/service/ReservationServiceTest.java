@@ -0,0 +1,169 @@
+package com.library.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.model.Hold;
+import com.library.model.User;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * ReservationService: waiting holds get copies first-come, first-served, before walk-ins
+ *
+ * A copy freed in any way (a return, a status edit, a deleted loan, more copies added by an edit)
+ * must go to the head of the book's waitlist, and a walk-in checkout must never take it first.
+ */
+class ReservationServiceTest {
+    private static final String ISBN = "9780000000001";
+
+    private PrintStream output;
+    private BookService bookService;
+    private UserService userService;
+    private BorrowService borrowService;
+    private CirculationService circulationService;
+    private ReservationService reservationService;
+
+    @BeforeEach
+    void setUp() {
+        // The services print a line for every change
+        output = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        bookService = new BookService();
+        userService = new UserService();
+        borrowService = new BorrowService();
+        circulationService = new CirculationService(bookService, userService, borrowService);
+        reservationService = new ReservationService(bookService, userService, circulationService);
+        // Wired as in Main
+        circulationService.setHoldQueue(reservationService);
+        bookService.setCopiesAddedListener(reservationService::copiesAdded);
+        assertTrue(bookService.addBook(new Book("One Copy", "Some Author", ISBN, 1, 0)));
+        for (int i = 1; i <= 4; i++) {
+            assertTrue(userService.addUser(new User("Reader Number", "U" + i, "secret")));
+        }
+    }
+
+    @AfterEach
+    void restoreOutput() {
+        System.setOut(output);
+    }
+
+    @Test
+    void returnedCopiesGoToHoldsInOrder() {
+        BorrowRecord loan = circulationService.checkout("U1", ISBN);
+        Hold second = reservationService.placeHold("U2", ISBN);
+        Hold third = reservationService.placeHold("U3", ISBN);
+        assertEquals(Hold.Status.WAITING, second.getStatus());
+        assertEquals(2, reservationService.getWaitingCount(ISBN));
+
+        assertTrue(circulationService.returnBook(loan.getBorrowId()));
+        assertFulfilled(second, "U2");
+        assertEquals(Hold.Status.WAITING, third.getStatus());
+
+        assertTrue(circulationService.returnBook(second.getBorrowId()));
+        assertFulfilled(third, "U3");
+        assertEquals(0, reservationService.getWaitingCount(ISBN));
+        assertCounters(1, 0);
+    }
+
+    @Test
+    void aHoldOnAFreeCopyIsFulfilledRightAway() {
+        Hold hold = reservationService.placeHold("U1", ISBN);
+        assertFulfilled(hold, "U1");
+        assertCounters(1, 0);
+    }
+
+    @Test
+    void cancellingTheHeadPassesTheCopyToTheNextHold() {
+        BorrowRecord loan = circulationService.checkout("U1", ISBN);
+        Hold head = reservationService.placeHold("U2", ISBN);
+        Hold next = reservationService.placeHold("U3", ISBN);
+
+        assertTrue(reservationService.cancelHold(head.getHoldId()));
+        assertFalse(reservationService.cancelHold(head.getHoldId()));
+        assertNull(reservationService.findWaitingHold(head.getHoldId()));
+        assertEquals(1, reservationService.getWaitingCount(ISBN));
+
+        assertTrue(circulationService.returnBook(loan.getBorrowId()));
+        assertEquals(Hold.Status.CANCELLED, head.getStatus());
+        assertNull(head.getBorrowId());
+        assertFulfilled(next, "U3");
+    }
+
+    @Test
+    void walkInsCannotTakeACopyWhileHoldsWait() {
+        BorrowRecord loan = circulationService.checkout("U1", ISBN);
+        Hold hold = reservationService.placeHold("U2", ISBN);
+        assertNull(circulationService.checkout("U3", ISBN));
+        assertFalse(circulationService.addBorrowRecord(new BorrowRecord("M1", "2024-03-01", 0, "U3", ISBN)));
+
+        assertTrue(circulationService.returnBook(loan.getBorrowId()));
+        assertFulfilled(hold, "U2");
+        // The copy never became free in between
+        assertNull(circulationService.checkout("U3", ISBN));
+        assertCounters(1, 0);
+    }
+
+    @Test
+    void copiesAddedByAnEditServeWaitingHolds() {
+        circulationService.checkout("U1", ISBN);
+        Hold second = reservationService.placeHold("U2", ISBN);
+        Hold third = reservationService.placeHold("U3", ISBN);
+
+        assertTrue(bookService.updateBook(ISBN, null, null, 2, -1));
+        assertFulfilled(second, "U2");
+        assertEquals(Hold.Status.WAITING, third.getStatus());
+        assertCounters(2, 0);
+
+        assertTrue(bookService.updateBook(ISBN, null, null, 4, -1));
+        assertFulfilled(third, "U3");
+        assertCounters(3, 1);
+    }
+
+    @Test
+    void statusEditsAndDeletedLoansServeWaitingHolds() {
+        BorrowRecord loan = circulationService.checkout("U1", ISBN);
+        Hold second = reservationService.placeHold("U2", ISBN);
+        Hold third = reservationService.placeHold("U3", ISBN);
+
+        assertTrue(circulationService.updateBorrowStatus(loan.getBorrowId(), 1));
+        assertFulfilled(second, "U2");
+
+        assertTrue(circulationService.deleteBorrowRecord(second.getBorrowId()));
+        assertFulfilled(third, "U3");
+        assertCounters(1, 0);
+    }
+
+    @Test
+    void holdsOfDeletedUsersAreSkipped() {
+        BorrowRecord loan = circulationService.checkout("U1", ISBN);
+        Hold gone = reservationService.placeHold("U2", ISBN);
+        Hold next = reservationService.placeHold("U3", ISBN);
+        assertTrue(userService.deleteUser("U2"));
+
+        assertTrue(circulationService.returnBook(loan.getBorrowId()));
+        assertEquals(Hold.Status.CANCELLED, gone.getStatus());
+        assertFulfilled(next, "U3");
+    }
+
+    private void assertFulfilled(Hold hold, String userId) {
+        assertEquals(Hold.Status.FULFILLED, hold.getStatus());
+        assertNotNull(hold.getBorrowId());
+        BorrowRecord record = borrowService.findByBorrowId(hold.getBorrowId());
+        assertEquals(userId, record.getUserId());
+        assertEquals(0, record.getBorrowStatus());
+    }
+
+    private void assertCounters(int borrowed, int available) {
+        assertEquals(borrowed, bookService.findByISBN(ISBN).getBookBorrowedQuantity(), "borrowed");
+        assertEquals(available, bookService.getAvailableCopies(ISBN), "available");
+    }
+}
@@ -0,0 +1,108 @@
+package com.library.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * SlotBitmap: behaves exactly like a BitSet through every change of form
+ *
+ * Random adds and removes move the bitmap between its small array, sparse chunks and dense chunks
+ * (and back). After each round the slots, counts and intersections must match a BitSet.
+ */
+class SlotBitmapTest {
+
+    @Test
+    void smallBitmapsMatchABitSet() {
+        checkAgainstBitSet(new Random(1), 3_000, 200, 4_000);
+    }
+
+    @Test
+    void sparseChunksMatchABitSet() {
+        // Slots spread over many chunks, few per chunk
+        checkAgainstBitSet(new Random(2), 40 * 65_536, 20_000, 8_000);
+    }
+
+    @Test
+    void denseChunksMatchABitSet() {
+        // Slots packed into two chunks, so they pass the sparse limit and turn dense
+        checkAgainstBitSet(new Random(3), 2 * 65_536, 60_000, 30_000);
+    }
+
+    @Test
+    void emptyingADenseBitmapLeavesNothing() {
+        SlotBitmap bitmap = new SlotBitmap();
+        for (int slot = 0; slot < 100_000; slot++) {
+            bitmap.add(slot);
+        }
+        for (int slot = 0; slot < 100_000; slot++) {
+            assertTrue(bitmap.remove(slot));
+        }
+        assertEquals(0, bitmap.cardinality());
+        assertEquals(List.of(), slots(bitmap));
+        assertFalse(bitmap.remove(5));
+        assertTrue(bitmap.add(5));
+        assertEquals(List.of(5), slots(bitmap));
+    }
+
+    // Run rounds of random adds and removes on two bitmaps and compare everything with BitSets
+    private static void checkAgainstBitSet(Random random, int range, int addsPerRound, int removesPerRound) {
+        SlotBitmap first = new SlotBitmap();
+        SlotBitmap second = new SlotBitmap();
+        BitSet firstExpected = new BitSet();
+        BitSet secondExpected = new BitSet();
+        for (int round = 0; round < 6; round++) {
+            // Grow in even rounds, shrink in odd ones, so every form is entered and left
+            int adds = round % 2 == 0 ? addsPerRound : addsPerRound / 10;
+            int removes = round % 2 == 0 ? removesPerRound / 10 : removesPerRound;
+            change(random, range, adds, removes, first, firstExpected);
+            change(random, range, adds, removes, second, secondExpected);
+
+            assertMatches(firstExpected, first);
+            assertMatches(secondExpected, second);
+            BitSet both = (BitSet) firstExpected.clone();
+            both.and(secondExpected);
+            assertMatches(both, first.and(second));
+            assertMatches(both, second.and(first));
+            assertEquals(both.cardinality(), first.andCardinality(second));
+            assertEquals(both.cardinality(), second.andCardinality(first));
+        }
+    }
+
+    private static void change(Random random, int range, int adds, int removes, SlotBitmap bitmap, BitSet expected) {
+        for (int i = 0; i < adds; i++) {
+            int slot = random.nextInt(range);
+            assertEquals(!expected.get(slot), bitmap.add(slot));
+            expected.set(slot);
+        }
+        for (int i = 0; i < removes; i++) {
+            // Half the removes hit a present slot
+            int slot = i % 2 == 0 && !expected.isEmpty()
+                    ? Math.max(0, expected.previousSetBit(random.nextInt(range)))
+                    : random.nextInt(range);
+            assertEquals(expected.get(slot), bitmap.remove(slot));
+            expected.clear(slot);
+        }
+    }
+
+    private static void assertMatches(BitSet expected, SlotBitmap bitmap) {
+        assertEquals(expected.cardinality(), bitmap.cardinality());
+        assertEquals(expected.stream().boxed().toList(), slots(bitmap));
+        for (int slot = expected.nextSetBit(0); slot >= 0; slot = expected.nextSetBit(slot + 1)) {
+            assertTrue(bitmap.contains(slot));
+            assertEquals(expected.get(slot + 1), bitmap.contains(slot + 1));
+        }
+    }
+
+    private static List<Integer> slots(SlotBitmap bitmap) {
+        List<Integer> slots = new ArrayList<>();
+        bitmap.forEach(slots::add);
+        return slots;
+    }
+}
@@ -0,0 +1,145 @@
+package com.library.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.library.model.User;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * UserNameIndex: completions equal a linear scan over the users, in the same order
+ *
+ * The scan checks every word start of every name and orders the matches by the smallest key that
+ * matched (the folded name from that word on), users with equal keys in the order they were added.
+ * Random adds and removes split and merge trie nodes, so the comparison also covers pruning.
+ */
+class UserNameIndexTest {
+    // Few short words, so names share prefixes and the trie has to split and merge edges
+    private static final String[] WORDS = {
+        "Zhang", "Zhao", "Zhou", "San", "Sandra", "Sam", "Li", "Lin", "Ling", "Wang",
+        "Mary", "Mar", "Marta", "O'Neil", "Ó Briain", "ÉLODIE", "Élodie", "Anne-Marie", "an", "A"
+    };
+    private static final String[] PREFIXES = {
+        "z", "zh", "zha", "zhang", "zhang s", "s", "sa", "san", "sand", "l", "li", "lin", "m", "mar",
+        "mart", "o", "ó", "élo", "ÉL", "an", "anne-", "a", "ZHAO", "x", "zhangsan", "sandra li"
+    };
+
+    @Test
+    void completionsMatchALinearScan() {
+        Random random = new Random(11);
+        UserNameIndex index = new UserNameIndex();
+        // Live users in the order they were (last) added
+        Map<String, User> live = new LinkedHashMap<>();
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 600; i++) {
+                String id = "U" + random.nextInt(1_500);
+                User old = live.remove(id);
+                if (old != null) {
+                    index.remove(old);
+                }
+                User user = new User(randomName(random), id, "secret");
+                index.add(user);
+                live.put(id, user);
+            }
+            for (int i = 0; i < 300; i++) {
+                User gone = live.remove("U" + random.nextInt(1_500));
+                if (gone != null) {
+                    index.remove(gone);
+                }
+            }
+            for (String prefix : PREFIXES) {
+                for (int limit : new int[] {1, 7, 50, Integer.MAX_VALUE}) {
+                    assertEquals(ids(scan(live.values(), prefix, limit)), ids(index.complete(prefix, limit)),
+                            "prefix \"" + prefix + "\", limit " + limit);
+                }
+            }
+        }
+    }
+
+    @Test
+    void removingEveryUserEmptiesTheTrie() {
+        UserNameIndex index = new UserNameIndex();
+        List<User> users = new ArrayList<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 500; i++) {
+            User user = new User(randomName(random), "U" + i, "secret");
+            index.add(user);
+            users.add(user);
+        }
+        for (User user : users) {
+            index.remove(user);
+        }
+        for (String prefix : PREFIXES) {
+            assertEquals(List.of(), index.complete(prefix, Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void theServiceCompletesWordsCaseInsensitively() {
+        PrintStream output = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            UserService service = new UserService();
+            service.addUser(new User("Zhang San", "U1", "secret"));
+            service.addUser(new User("Sandra Li", "U2", "secret"));
+            service.addUser(new User("Li Zhao", "U3", "secret"));
+            assertEquals(List.of("U1", "U2"), ids(service.completeUserName(" SAN", 10)));
+            assertEquals(List.of("U2", "U3"), ids(service.completeUserName("li", 10)));
+            service.updateUser("U3", "Wang Wei", "secret");
+            assertEquals(List.of("U2"), ids(service.completeUserName("li", 10)));
+            assertEquals(List.of(), ids(service.completeUserName(" ", 10)));
+        } finally {
+            System.setOut(output);
+        }
+    }
+
+    private static String randomName(Random random) {
+        int words = 1 + random.nextInt(3);
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                name.append(' ');
+            }
+            name.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return name.toString();
+    }
+
+    // Every user with a name or name word starting with the prefix, ordered by the smallest matching key
+    private static List<User> scan(Iterable<User> users, String prefix, int limit) {
+        String folded = BookAuthorIndex.normalize(prefix);
+        List<User> matches = new ArrayList<>();
+        Map<User, String> firstKey = new LinkedHashMap<>();
+        for (User user : users) {
+            String name = BookAuthorIndex.normalize(user.getUserName());
+            String[] words = name.split(" ");
+            String best = null;
+            int start = 0;
+            for (String word : words) {
+                String key = name.substring(start);
+                if (key.startsWith(folded) && (best == null || key.compareTo(best) < 0)) {
+                    best = key;
+                }
+                start += word.length() + 1;
+            }
+            if (best != null) {
+                matches.add(user);
+                firstKey.put(user, best);
+            }
+        }
+        // Stable sort: equal keys keep the order the users were added in
+        matches.sort(Comparator.comparing(firstKey::get));
+        return matches.subList(0, Math.min(limit, matches.size()));
+    }
+
+    private static List<String> ids(List<User> users) {
+        return users.stream().map(User::getUserId).toList();
+    }
+}
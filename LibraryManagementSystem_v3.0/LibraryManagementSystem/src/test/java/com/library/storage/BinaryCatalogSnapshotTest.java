@@ -0,0 +1,185 @@
+package com.library.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.library.model.Book;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * BinaryCatalogSnapshot: books come back exactly as written, and the ISBN index finds every one
+ *
+ * Version 2 files are read record by record and searched through the sorted ISBN index;
+ * version 1 files (no index) must still open and be searched by scanning.
+ */
+class BinaryCatalogSnapshotTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void booksRoundTripInListOrder() throws IOException {
+        List<Book> books = shuffledBooks(2_000);
+        Path path = directory.resolve("books.bin");
+        BinaryCatalogSnapshot.write(path, books);
+
+        try (BinaryCatalogSnapshot snapshot = BinaryCatalogSnapshot.open(path)) {
+            assertEquals(books.size(), snapshot.size());
+            List<Book> read = snapshot.readAll();
+            for (int i = 0; i < books.size(); i++) {
+                assertEquals(describe(books.get(i)), describe(read.get(i)));
+                assertEquals(books.get(i).getBookISBN(), snapshot.getISBN(i));
+            }
+        }
+    }
+
+    @Test
+    void theIsbnIndexFindsEveryBookAndNothingElse() throws IOException {
+        List<Book> books = shuffledBooks(2_000);
+        Path path = directory.resolve("books.bin");
+        BinaryCatalogSnapshot.write(path, books);
+
+        try (BinaryCatalogSnapshot snapshot = BinaryCatalogSnapshot.open(path)) {
+            for (Book book : books) {
+                assertEquals(describe(book), describe(snapshot.findByISBN(book.getBookISBN())));
+            }
+            // Keys before, between and after the stored ISBNs
+            assertNull(snapshot.findByISBN("0"));
+            assertNull(snapshot.findByISBN("9780000000000"));
+            assertNull(snapshot.findByISBN("97800000010005"));
+            assertNull(snapshot.findByISBN("ÿ"));
+            assertNull(snapshot.findByISBN(null));
+        }
+    }
+
+    @Test
+    void anEmptyCatalogRoundTrips() throws IOException {
+        Path path = directory.resolve("books.bin");
+        BinaryCatalogSnapshot.write(path, List.of());
+        try (BinaryCatalogSnapshot snapshot = BinaryCatalogSnapshot.open(path)) {
+            assertEquals(0, snapshot.size());
+            assertNull(snapshot.findByISBN("9780000000001"));
+        }
+    }
+
+    @Test
+    void versionOneFilesAreStillRead() throws IOException {
+        List<Book> books = shuffledBooks(50);
+        Path path = directory.resolve("books.bin");
+        writeVersionOne(path, books);
+
+        try (BinaryCatalogSnapshot snapshot = BinaryCatalogSnapshot.open(path)) {
+            assertEquals(books.size(), snapshot.size());
+            for (Book book : books) {
+                assertEquals(describe(book), describe(snapshot.findByISBN(book.getBookISBN())));
+            }
+            assertNull(snapshot.findByISBN("9780000000000"));
+        }
+    }
+
+    @Test
+    void aDamagedHeaderIsRejected() throws IOException {
+        Path path = directory.resolve("books.bin");
+        BinaryCatalogSnapshot.write(path, shuffledBooks(10));
+        byte[] bytes = Files.readAllBytes(path);
+        // Claim one more record than the file holds
+        bytes[11]++;
+        Files.write(path, bytes);
+        assertThrows(IOException.class, () -> BinaryCatalogSnapshot.open(path));
+
+        Files.write(path, "not a snapshot at all, just some text".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> BinaryCatalogSnapshot.open(path));
+    }
+
+    @Test
+    void textConversionRoundTrips() throws IOException {
+        List<Book> books = shuffledBooks(200);
+        Path binary = directory.resolve("books.bin");
+        Path text = directory.resolve("books.txt");
+        Path binaryAgain = directory.resolve("books2.bin");
+        BinaryCatalogSnapshot.write(binary, books);
+
+        PrintStream output = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            assertEquals(books.size(), BinaryCatalogSnapshot.convertBinaryToText(binary, text));
+            assertEquals(books.size(), BinaryCatalogSnapshot.convertTextToBinary(text, binaryAgain));
+        } finally {
+            System.setOut(output);
+        }
+        try (BinaryCatalogSnapshot snapshot = BinaryCatalogSnapshot.open(binaryAgain)) {
+            for (int i = 0; i < books.size(); i++) {
+                assertEquals(describe(books.get(i)), describe(snapshot.get(i)));
+            }
+        }
+    }
+
+    // Books with distinct ISBNs in random order; names need quoting in text and are not all ASCII
+    private static List<Book> shuffledBooks(int count) {
+        Random random = new Random(7);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String isbn = "978" + String.format("%010d", 1 + i * 5L);
+            String name = switch (i % 4) {
+                case 0 -> "Title " + i;
+                case 1 -> "Title, with \"quotes\" " + i;
+                case 2 -> "山水画 " + i;
+                default -> "";
+            };
+            books.add(new Book(name, "Author " + random.nextInt(100), isbn, 1 + random.nextInt(5), 0));
+        }
+        Collections.shuffle(books, random);
+        return books;
+    }
+
+    // The version 1 layout: header, records and heap, but no ISBN index
+    private static void writeVersionOne(Path path, List<Book> books) throws IOException {
+        List<byte[]> strings = new ArrayList<>();
+        long heapSize = 0;
+        for (Book book : books) {
+            for (String text : List.of(book.getBookName(), book.getBookAuthor(), book.getBookISBN())) {
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                strings.add(bytes);
+                heapSize += bytes.length;
+            }
+        }
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(path))) {
+            out.writeInt(0x4C424B53);
+            out.writeInt(1);
+            out.writeInt(books.size());
+            out.writeInt(0);
+            out.writeLong(32L + books.size() * 32L);
+            out.writeLong(heapSize);
+            int offset = 0;
+            for (int i = 0; i < books.size(); i++) {
+                for (int s = 0; s < 3; s++) {
+                    out.writeInt(offset);
+                    out.writeInt(strings.get(i * 3 + s).length);
+                    offset += strings.get(i * 3 + s).length;
+                }
+                out.writeInt(books.get(i).getBookQuantity());
+                out.writeInt(books.get(i).getBookBorrowedQuantity());
+            }
+            for (byte[] bytes : strings) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static String describe(Book book) {
+        return String.join("|", book.getBookName(), book.getBookAuthor(), book.getBookISBN(),
+                String.valueOf(book.getBookQuantity()), String.valueOf(book.getBookBorrowedQuantity()));
+    }
+}
@@ -0,0 +1,73 @@
+package com.library.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * CsvReader and CsvWriter: written records read back unchanged, and old data files read as before
+ *
+ * Fields with commas, quotes and line breaks must survive a write and read, from a stream and from
+ * in-memory chunks. Unquoted text keeps the rules of the old split-and-trim loaders, including
+ * dropping empty fields at the end of a line.
+ */
+class CsvReaderTest {
+
+    @Test
+    void quotedFieldsRoundTrip() throws IOException {
+        List<List<String>> records = List.of(
+                List.of("Title, with a comma", "Author", "9780000000001", "3", "1"),
+                List.of("A \"quoted\" title", "\"Author\"", "9780000000002", "1", "0"),
+                List.of("Two\nlines", "Carriage\r\nreturn", "9780000000003", "1", "0"),
+                List.of(" padded ", "#not a comment", "", "", "last"),
+                List.of("ends empty", "")
+        );
+        StringBuilder text = new StringBuilder("# header comment\n\n");
+        for (List<String> record : records) {
+            text.append(CsvWriter.formatRecord(record.toArray(new String[0]))).append('\n');
+        }
+
+        assertEquals(records, new CsvReader(new StringReader(text.toString())).readAll());
+        assertEquals(records, new CsvReader(text, 0, text.length()).readAll());
+        // Chunks never split a record, so parsing them one by one gives the same records
+        List<List<String>> chunked = new ArrayList<>();
+        for (int[] chunk : CsvReader.splitIntoChunks(text, 16)) {
+            chunked.addAll(new CsvReader(text, chunk[0], chunk[1]).readAll());
+        }
+        assertEquals(records, chunked);
+    }
+
+    @Test
+    void unquotedFieldsAreReadLikeTheOldLoaders() throws IOException {
+        String text = "  ZHANG SAN , U001 ,123456\r\n"
+                + "\n"
+                + "   \n"
+                + "# comment, with, commas\n"
+                + "ZHANG SAN,U001,123456,\n"
+                + "B1,2024-03-01,1,,\n"
+                + "B2,2024-03-01,1, , \n"
+                + "a,,b\n"
+                + "\"\",kept,\"\"";
+        assertEquals(List.of(
+                List.of("ZHANG SAN", "U001", "123456"),
+                List.of("ZHANG SAN", "U001", "123456"),
+                List.of("B1", "2024-03-01", "1"),
+                List.of("B2", "2024-03-01", "1"),
+                List.of("a", "", "b"),
+                List.of("", "kept", "")
+        ), new CsvReader(new StringReader(text)).readAll());
+    }
+
+    @Test
+    void theWriterQuotesOnlyWhenNeeded() {
+        assertEquals("ZHANG SAN,U001,123456", CsvWriter.formatRecord("ZHANG SAN", "U001", "123456"));
+        assertEquals("a,,b", CsvWriter.formatRecord("a", "", "b"));
+        assertEquals("a,b,\"\"", CsvWriter.formatRecord("a", "b", ""));
+        assertEquals("a,b,\"\"", CsvWriter.formatRecord("a", "b", null));
+        assertEquals("\"x,y\",\"say \"\"hi\"\"\"", CsvWriter.formatRecord("x,y", "say \"hi\""));
+    }
+}
@@ -0,0 +1,59 @@
+package com.library.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * LazyLoader: the load step runs once, and a failed load is neither marked loaded nor forgotten
+ *
+ * A service only saves a loaded store, so a load step that throws must leave the store unloaded;
+ * otherwise the next save would overwrite the data file with whatever the step managed to add.
+ */
+class LazyLoaderTest {
+
+    @Test
+    void theLoadStepRunsOnce() {
+        LazyLoader loader = new LazyLoader();
+        AtomicInteger runs = new AtomicInteger();
+        Runnable step = runs::incrementAndGet;
+        loader.ensureLoaded(step);
+        loader.ensureLoaded(step);
+        assertEquals(1, runs.get());
+        assertTrue(loader.isLoaded());
+    }
+
+    @Test
+    void aFailedLoadIsRunAgain() {
+        LazyLoader loader = new LazyLoader();
+        AtomicInteger runs = new AtomicInteger();
+        Runnable step = () -> {
+            if (runs.incrementAndGet() == 1) {
+                throw new IllegalStateException("disk not ready");
+            }
+        };
+        assertThrows(IllegalStateException.class, () -> loader.ensureLoaded(step));
+        assertFalse(loader.isLoaded());
+
+        loader.ensureLoaded(step);
+        assertEquals(2, runs.get());
+        assertTrue(loader.isLoaded());
+    }
+
+    @Test
+    void callsFromTheLoadStepDoNotWaitForThemselves() {
+        LazyLoader loader = new LazyLoader();
+        AtomicInteger runs = new AtomicInteger();
+        Runnable[] step = new Runnable[1];
+        step[0] = () -> {
+            runs.incrementAndGet();
+            loader.ensureLoaded(step[0]);
+        };
+        loader.ensureLoaded(step[0]);
+        assertEquals(1, runs.get());
+    }
+}
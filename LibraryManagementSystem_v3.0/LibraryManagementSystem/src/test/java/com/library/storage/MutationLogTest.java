@@ -0,0 +1,53 @@
+package com.library.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * MutationLog: flushed entries come back in order, and compaction waits longer for larger data files
+ */
+class MutationLogTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void flushedEntriesAreReadBackInOrder() throws IOException {
+        MutationLog log = new MutationLog(directory.resolve("books.txt").toString());
+        log.append("ADD", "A, \"quoted\" title", "Author", "9780000000001", "1", "0");
+        log.append("DELETE", "9780000000001");
+        assertTrue(log.hasPendingEntries());
+        log.flush();
+        assertFalse(log.hasPendingEntries());
+
+        List<List<String>> entries = new MutationLog(directory.resolve("books.txt").toString()).readEntries();
+        assertEquals(List.of(List.of("ADD", "A, \"quoted\" title", "Author", "9780000000001", "1", "0"),
+                List.of("DELETE", "9780000000001")), entries);
+        assertEquals(2, new MutationLog(directory.resolve("books.txt").toString()).getEntryCount());
+    }
+
+    @Test
+    void compactionThresholdGrowsWithTheDataFile() {
+        MutationLog log = new MutationLog(directory.resolve("books.txt").toString(), 10);
+        for (int i = 0; i < 10; i++) {
+            log.append("DELETE", "978000000000" + i);
+        }
+        // A small data file: the minimum applies
+        log.setSnapshotSize(4);
+        assertTrue(log.needsCompaction());
+
+        // 100 records: wait for 50 entries
+        log.setSnapshotSize(100);
+        assertFalse(log.needsCompaction());
+        for (int i = 10; i < 50; i++) {
+            log.append("DELETE", "97800000000" + i);
+        }
+        assertTrue(log.needsCompaction());
+    }
+}
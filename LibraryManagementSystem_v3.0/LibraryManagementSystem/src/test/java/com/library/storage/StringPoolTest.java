@@ -0,0 +1,79 @@
+package com.library.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * StringPool: a string lives as long as it has uses
+ *
+ * Deleting rows must give their text back: a store that keeps adding and deleting records has to
+ * end up with the same pool it started with, while strings still in use keep their text.
+ */
+class StringPoolTest {
+
+    @Test
+    void equalStringsShareOneCode() {
+        StringPool pool = new StringPool();
+        int first = pool.intern("U100001");
+        int second = pool.intern(new String("U100001"));
+        assertEquals(first, second);
+        assertNotEquals(first, pool.intern("U100002"));
+        assertEquals(2, pool.size());
+        assertEquals("U100001", pool.decode(first));
+        assertEquals(StringPool.NONE, pool.intern(null));
+    }
+
+    @Test
+    void aStringIsRemovedWithItsLastUse() {
+        StringPool pool = new StringPool();
+        int code = pool.intern("9780000000001");
+        pool.intern("9780000000001");
+        pool.release(code);
+        assertEquals(code, pool.codeOf("9780000000001"));
+        pool.release(code);
+        assertEquals(StringPool.NONE, pool.codeOf("9780000000001"));
+        assertEquals(0, pool.size());
+        assertEquals(0, pool.byteCount());
+    }
+
+    @Test
+    void addingAndDeletingDoesNotGrowThePool() {
+        StringPool pool = new StringPool();
+        int kept = pool.intern("kept 山水");
+        for (int i = 0; i < 200_000; i++) {
+            pool.release(pool.intern("C" + i));
+        }
+        assertEquals(1, pool.size());
+        assertEquals("kept 山水".getBytes(StandardCharsets.UTF_8).length, pool.byteCount());
+        assertEquals("kept 山水", pool.decode(kept));
+        assertEquals(kept, pool.codeOf("kept 山水"));
+    }
+
+    @Test
+    void liveStringsSurviveCompaction() {
+        StringPool pool = new StringPool();
+        List<Integer> codes = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            codes.add(pool.intern("Borrow record " + i));
+        }
+        // Release all but every 100th string: the pages are rewritten with the survivors
+        for (int i = 0; i < codes.size(); i++) {
+            if (i % 100 != 0) {
+                pool.release(codes.get(i));
+            }
+        }
+        assertEquals(1_000, pool.size());
+        for (int i = 0; i < codes.size(); i += 100) {
+            assertEquals("Borrow record " + i, pool.decode(codes.get(i)));
+            assertEquals((int) codes.get(i), pool.codeOf("Borrow record " + i));
+        }
+        // Freed codes are handed out again
+        assertTrue(pool.intern("new") < codes.size());
+    }
+}
@@ -0,0 +1,44 @@
+package com.library.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar
+ *
+ * Main job: Run the JMH benchmarks with the usual JMH command line, plus two defaults so every
+ * run can be compared with the runs of earlier releases:
+ * - the GC profiler (allocation rate, bytes allocated per operation, GC count and time), unless
+ *   other profilers are chosen with -prof
+ * - results written as JSON to jmh-result-<version>.json, unless -rf / -rff are given
+ * Examples:
+ *   java -jar benchmarks/target/benchmarks.jar                        all benchmarks, all sizes
+ *   java -jar benchmarks/target/benchmarks.jar BookService -p records=1000000
+ *   java -jar benchmarks/target/benchmarks.jar -l                     list the benchmarks
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            // Nothing to run: let JMH answer
+            Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (options.getProfilers().isEmpty()) {
+            builder.addProfiler(GCProfiler.class);
+        }
+        if (!options.getResultFormat().hasValue() && !options.getResult().hasValue()) {
+            String version = BenchmarkRunner.class.getPackage().getImplementationVersion();
+            builder.resultFormat(ResultFormatType.JSON)
+                    .result("jmh-result-" + (version == null ? "dev" : version) + ".json");
+        }
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,128 @@
+package com.library.benchmarks;
+
+import com.library.model.Book;
+import com.library.service.BookService;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BookService: mixed addBook / updateBook / deleteBook throughput at 1, 4, 16 and 64 threads
+ *
+ * The catalog starts with 100k books. Each call updates one of them (any thread may pick any
+ * book, so threads meet on the same lock stripes, index entries and authors), or adds a book with
+ * a new ISBN, or deletes the oldest book the thread added; adds and deletes balance, so the
+ * catalog size stays about the same. Compare the mixN results (total ops/ms over all threads) to
+ * see how the striped locks scale; perfect scaling would multiply mix1 by the thread count,
+ * up to the number of cores.
+ * After each iteration the map, ordered list, indexes and counters are checked to agree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g"})
+public class BookMutationScalingBenchmark {
+    private static final int BOOKS = 100_000;
+
+    // Percentage of calls that update an existing book (the rest add or delete)
+    @Param({"50"})
+    private int updatePercent;
+
+    private BookService bookService;
+    private final AtomicInteger nextWriter = new AtomicInteger();
+    private PrintStream output;
+
+    // One writer thread: its random choices and the books it added
+    @State(Scope.Thread)
+    public static class Writer {
+        private Random random;
+        private String prefix;
+        private long nextBook;
+        private final ArrayDeque<String> added = new ArrayDeque<>();
+
+        @Setup(Level.Trial)
+        public void open(BookMutationScalingBenchmark library) {
+            int writer = library.nextWriter.getAndIncrement();
+            random = new Random(100 + writer);
+            prefix = "W" + writer + "-";
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void fill() {
+        output = ServiceFixtures.silenceOutput();
+        bookService = ServiceFixtures.bookService(BOOKS);
+    }
+
+    @TearDown(Level.Iteration)
+    public void check() {
+        List<String> problems = bookService.findInconsistencies();
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("BookService structures disagree: " + problems);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        ServiceFixtures.restoreOutput(output);
+    }
+
+    private boolean mutate(Writer writer) {
+        Random random = writer.random;
+        if (random.nextInt(100) < updatePercent) {
+            String isbn = ServiceFixtures.isbn(random.nextInt(BOOKS));
+            int quantity = 1 + random.nextInt(5);
+            return bookService.updateBook(isbn, null, ServiceFixtures.author(random.nextInt(BOOKS / 20)), quantity, 0);
+        }
+        if (writer.added.isEmpty() || (writer.added.size() < 64 && random.nextBoolean())) {
+            String isbn = writer.prefix + writer.nextBook++;
+            writer.added.add(isbn);
+            return bookService.addBook(new Book("New Arrival " + isbn, ServiceFixtures.author(random.nextInt(BOOKS / 20)),
+                    isbn, 1 + random.nextInt(5), 0));
+        }
+        return bookService.deleteBook(writer.added.poll());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean mix1(Writer writer) {
+        return mutate(writer);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean mix4(Writer writer) {
+        return mutate(writer);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean mix16(Writer writer) {
+        return mutate(writer);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean mix64(Writer writer) {
+        return mutate(writer);
+    }
+}
@@ -0,0 +1,127 @@
+package com.library.benchmarks;
+
+import com.library.model.Book;
+import com.library.model.BookSearchResult;
+import com.library.service.BookService;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BookService: adding a book and the three searches, on catalogs of 1k, 100k and 1M books
+ *
+ * Each search looks up a different book (cycling through a fixed, seeded list of keys), so the
+ * results do not come from one hot cache line. addBook adds books with new ISBNs on top of the
+ * catalog; that catalog is rebuilt for every iteration, so it grows by at most one iteration's adds.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g"})
+public class BookServiceBenchmark {
+    // Number of keys each search cycles through (power of two)
+    private static final int KEYS = 1024;
+
+    // Catalog for the searches, built once per run
+    @State(Scope.Benchmark)
+    public static class Catalog {
+        @Param({"1000", "100000", "1000000"})
+        private int records;
+
+        private BookService bookService;
+        private final String[] isbns = new String[KEYS];
+        private final String[] titleKeywords = new String[KEYS];
+        private final String[] authors = new String[KEYS];
+        private int next = 0;
+        private PrintStream output;
+
+        @Setup(Level.Trial)
+        public void fill() {
+            output = ServiceFixtures.silenceOutput();
+            List<Book> books = ServiceFixtures.books(records, 42);
+            // Keys of existing books, picked the same way for every run
+            Random random = new Random(7);
+            for (int i = 0; i < KEYS; i++) {
+                Book book = books.get(random.nextInt(records));
+                isbns[i] = book.getBookISBN();
+                // Last two words of the title, e.g. "River 4711" (matches one or a few books)
+                String title = book.getBookName();
+                titleKeywords[i] = title.substring(title.lastIndexOf(' ', title.lastIndexOf(' ') - 1) + 1);
+                authors[i] = book.getBookAuthor();
+            }
+            bookService = new BookService();
+            bookService.loadBooks(books);
+        }
+
+        @TearDown(Level.Trial)
+        public void restore() {
+            ServiceFixtures.restoreOutput(output);
+        }
+
+        int nextKey() {
+            next = (next + 1) & (KEYS - 1);
+            return next;
+        }
+    }
+
+    // Catalog that addBook adds to, rebuilt for every iteration
+    @State(Scope.Benchmark)
+    public static class GrowingCatalog {
+        @Param({"1000", "100000", "1000000"})
+        private int records;
+
+        private BookService bookService;
+        private long nextNewIsbn;
+        private PrintStream output;
+
+        @Setup(Level.Iteration)
+        public void fill() {
+            output = ServiceFixtures.silenceOutput();
+            bookService = ServiceFixtures.bookService(records);
+            nextNewIsbn = records;
+        }
+
+        @TearDown(Level.Iteration)
+        public void restore() {
+            bookService = null;
+            ServiceFixtures.restoreOutput(output);
+        }
+    }
+
+    @Benchmark
+    public boolean addBook(GrowingCatalog catalog) {
+        long n = catalog.nextNewIsbn++;
+        return catalog.bookService.addBook(new Book("The Added Book " + n, ServiceFixtures.author((int) (n % 1000)),
+                ServiceFixtures.isbn(n), 3, 0));
+    }
+
+    @Benchmark
+    public Book findByISBN(Catalog catalog) {
+        return catalog.bookService.findByISBN(catalog.isbns[catalog.nextKey()]);
+    }
+
+    @Benchmark
+    public BookSearchResult findByBookName(Catalog catalog) {
+        return catalog.bookService.findByBookName(catalog.titleKeywords[catalog.nextKey()]);
+    }
+
+    @Benchmark
+    public List<Book> findByAuthor(Catalog catalog) {
+        return catalog.bookService.findByAuthor(catalog.authors[catalog.nextKey()]);
+    }
+}
@@ -0,0 +1,103 @@
+package com.library.benchmarks;
+
+import com.library.model.BorrowRecord;
+import com.library.service.BorrowService;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BorrowService: status and user queries over a borrow history of 1k, 100k and 1M records
+ *
+ * 2% of the records are checked out (status 0), so findByStatus lists few records for status 0
+ * and almost all for status 1. The records name 1 user per 20 records and 1 book per 50.
+ * findByDateRange reads one week of records and walks the whole view, counting those with the status.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g"})
+public class BorrowServiceBenchmark {
+    // Number of keys each benchmark cycles through (power of two)
+    private static final int KEYS = 1024;
+
+    @Param({"1000", "100000", "1000000"})
+    private int records;
+
+    @Param({"0", "1"})
+    private int status;
+
+    private BorrowService borrowService;
+    private final String[] userIds = new String[KEYS];
+    private final LocalDate[] weekStarts = new LocalDate[KEYS];
+    private int next = 0;
+    private PrintStream output;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        output = ServiceFixtures.silenceOutput();
+        int users = Math.max(1, records / 20);
+        borrowService = ServiceFixtures.borrowService(records, users, Math.max(1, records / 50));
+        Random random = new Random(7);
+        for (int i = 0; i < KEYS; i++) {
+            userIds[i] = ServiceFixtures.userId(random.nextInt(users));
+            weekStarts[i] = ServiceFixtures.FIRST_DAY.plusDays(random.nextInt(ServiceFixtures.DAYS - 7));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        ServiceFixtures.restoreOutput(output);
+    }
+
+    private int nextKey() {
+        next = (next + 1) & (KEYS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public List<BorrowRecord> findByStatus() {
+        return borrowService.findByStatus(status);
+    }
+
+    @Benchmark
+    public int countByStatus() {
+        return borrowService.countByStatus(status);
+    }
+
+    @Benchmark
+    public List<BorrowRecord> findByUserAndStatus() {
+        return borrowService.findByUserAndStatus(userIds[nextKey()], status);
+    }
+
+    @Benchmark
+    public int findByDateRange() {
+        LocalDate from = weekStarts[nextKey()];
+        Collection<BorrowRecord> week = borrowService.findByDateRange(from, from.plusDays(6));
+        int count = 0;
+        for (BorrowRecord record : week) {
+            if (record.getBorrowStatus() == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,116 @@
+package com.library.benchmarks;
+
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.service.BookService;
+import com.library.service.BorrowService;
+import com.library.service.CirculationService;
+import com.library.service.UserService;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CirculationService: four desks checking out and returning the same two hot titles
+ *
+ * Each call checks out a copy of one of the titles and, if it got one, returns it again, so the
+ * threads keep fighting over the titles' availability counters. With 1 copy per title most
+ * checkouts fail fast; with 1000 copies most succeed. Every successful checkout adds a borrow
+ * record, so the services are rebuilt for every iteration.
+ * The desks share a count of the copies of each title held between a successful checkout and
+ * the return, and keep the peak of that count. After each iteration a peak above the
+ * number of copies (a title lent out more often than it has copies at one moment) fails the run,
+ * as do borrowed quantities left out of range.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g"})
+@Threads(4)
+public class CheckoutContentionBenchmark {
+    private static final String[] HOT_TITLES = {ServiceFixtures.isbn(0), ServiceFixtures.isbn(1)};
+    private static final int USERS = 1000;
+
+    @Param({"1", "1000"})
+    private int copies;
+
+    private BookService bookService;
+    private CirculationService circulationService;
+    private final AtomicInteger nextDesk = new AtomicInteger();
+    // Per title: copies claimed right now, and the most ever claimed at once
+    private final AtomicInteger[] claimed = {new AtomicInteger(), new AtomicInteger()};
+    private final AtomicInteger[] peakClaimed = {new AtomicInteger(), new AtomicInteger()};
+    private PrintStream output;
+
+    // One desk (benchmark thread): its own user and title order
+    @State(Scope.Thread)
+    public static class Desk {
+        private String userId;
+        private int turn;
+
+        @Setup(Level.Trial)
+        public void open(CheckoutContentionBenchmark library) {
+            userId = ServiceFixtures.userId(library.nextDesk.getAndIncrement() % USERS);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        output = ServiceFixtures.silenceOutput();
+        bookService = new BookService();
+        for (String isbn : HOT_TITLES) {
+            bookService.addBook(new Book("Hot Title " + isbn, "Popular Author", isbn, copies, 0));
+        }
+        UserService userService = ServiceFixtures.userService(USERS);
+        circulationService = new CirculationService(bookService, userService, new BorrowService());
+        for (int title = 0; title < HOT_TITLES.length; title++) {
+            claimed[title].set(0);
+            peakClaimed[title].set(0);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void check() {
+        ServiceFixtures.restoreOutput(output);
+        for (int title = 0; title < HOT_TITLES.length; title++) {
+            String isbn = HOT_TITLES[title];
+            if (peakClaimed[title].get() > copies) {
+                throw new IllegalStateException("Title " + isbn + " was lent " + peakClaimed[title].get()
+                        + " times at once with " + copies + " copies");
+            }
+            Book book = bookService.findByISBN(isbn);
+            if (book.getBookBorrowedQuantity() < 0 || book.getBookBorrowedQuantity() > book.getBookQuantity()) {
+                throw new IllegalStateException("Title " + isbn + " lent " + book.getBookBorrowedQuantity()
+                        + " times with " + book.getBookQuantity() + " copies");
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean checkoutAndReturn(Desk desk) {
+        int title = desk.turn++ & 1;
+        BorrowRecord record = circulationService.checkout(desk.userId, HOT_TITLES[title]);
+        if (record == null) {
+            return false;
+        }
+        peakClaimed[title].accumulateAndGet(claimed[title].incrementAndGet(), Math::max);
+        claimed[title].decrementAndGet();
+        return circulationService.returnBook(record.getBorrowId());
+    }
+}
@@ -0,0 +1,133 @@
+package com.library.benchmarks;
+
+import com.library.storage.ChunkedFileParser;
+import com.library.storage.CsvReader;
+import com.library.tools.DatasetGenerator;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Data file parsing: CsvReader / ChunkedFileParser against the old split-based loader
+ *
+ * The files are written once per run by DatasetGenerator (2M and 5M lines by default):
+ * borrow_records.txt has no quoted fields, so both parsers read the same records; about 2% of
+ * the titles in books.txt are quoted (they contain commas), which the split path cuts apart
+ * (it still reads every line, so the times compare). Every path turns a record into a String[].
+ * - split*: read the whole file into a String, then trim / skip # lines / split(",") / trim
+ *   each line, as the loaders did before CsvReader (sequential, and in parallel over the lines)
+ * - csvReader: one CsvReader streaming over the file (sequential)
+ * - chunkedFileParser: the startup loader path (chunks read from the file, parsed on the common pool)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g"})
+public class CsvParseBenchmark {
+    @Param({"2000000", "5000000"})
+    private int lines;
+
+    @Param({"borrow_records.txt", "books.txt"})
+    private String file;
+
+    private Path directory;
+    private Path path;
+
+    @Setup(Level.Trial)
+    public void generate() throws Exception {
+        directory = Files.createTempDirectory("csv-benchmark-");
+        PrintStream output = ServiceFixtures.silenceOutput();
+        try {
+            // Only the benchmarked file is generated at full size
+            boolean books = file.equals("books.txt");
+            DatasetGenerator.main(new String[] {"--out", directory.toString(),
+                    "--books", String.valueOf(books ? lines : 1000), "--users", "1000",
+                    "--borrows", String.valueOf(books ? 0 : lines)});
+        } finally {
+            ServiceFixtures.restoreOutput(output);
+        }
+        path = directory.resolve(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path generated : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(generated);
+            }
+        }
+    }
+
+    // One line as the loaders parsed it before CsvReader
+    private static String[] splitLine(String line) {
+        String trimmedLine = line.trim();
+        if (trimmedLine.isEmpty() || trimmedLine.startsWith("#")) {
+            return null;
+        }
+        String[] parts = trimmedLine.split(",");
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = parts[i].trim();
+        }
+        return parts;
+    }
+
+    @Benchmark
+    public int splitSequential() throws IOException {
+        String text = Files.readString(path, StandardCharsets.UTF_8);
+        List<String[]> records = new ArrayList<>();
+        text.lines().forEach(line -> {
+            String[] record = splitLine(line);
+            if (record != null) {
+                records.add(record);
+            }
+        });
+        return records.size();
+    }
+
+    @Benchmark
+    public int splitParallel() throws IOException {
+        String text = Files.readString(path, StandardCharsets.UTF_8);
+        return text.lines().parallel().map(CsvParseBenchmark::splitLine).filter(Objects::nonNull).toList().size();
+    }
+
+    @Benchmark
+    public int csvReader() throws IOException {
+        List<String[]> records = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            while (reader.readRecord(fields)) {
+                records.add(fields.toArray(new String[0]));
+            }
+        }
+        return records.size();
+    }
+
+    @Benchmark
+    public int chunkedFileParser() throws IOException {
+        return ChunkedFileParser.parse(path, fields -> fields.toArray(new String[0]), ForkJoinPool.commonPool()).size();
+    }
+}
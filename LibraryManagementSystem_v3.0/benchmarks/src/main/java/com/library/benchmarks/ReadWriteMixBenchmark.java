@@ -0,0 +1,124 @@
+package com.library.benchmarks;
+
+import com.library.service.BorrowService;
+import com.library.service.UserService;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * UserService / BorrowService: lookups mixed with updates at 1, 4, 16 and 64 threads
+ *
+ * service=user: findByUserId / updateUser (new name and password) over 100k users.
+ * service=borrow: findByBorrowId / updateBorrowStatus (random status) over 1M borrow records.
+ * readPercent sets the share of lookups; the rest are updates. Every thread picks random keys
+ * from the whole data set, so readers and writers meet on the same locks. Compare the mixN results
+ * (total ops/ms over all threads) to see how the read/write lock holds up as writes grow;
+ * perfect scaling would multiply mix1 by the thread count, up to the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g"})
+public class ReadWriteMixBenchmark {
+    private static final int USERS = 100_000;
+    private static final int RECORDS = 1_000_000;
+    private static final String[] NAMES = {"Alice Smith", "Ben Murphy", "Wei Zhang", "Min Chen"};
+
+    @Param({"user", "borrow"})
+    private String service;
+
+    // Percentage of calls that are lookups (the rest are updates)
+    @Param({"95", "50"})
+    private int readPercent;
+
+    private UserService userService;
+    private BorrowService borrowService;
+    private final AtomicInteger nextClient = new AtomicInteger();
+    private PrintStream output;
+
+    // One client thread: its random choices
+    @State(Scope.Thread)
+    public static class Client {
+        private Random random;
+
+        @Setup(Level.Trial)
+        public void open(ReadWriteMixBenchmark library) {
+            random = new Random(200 + library.nextClient.getAndIncrement());
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void fill() {
+        output = ServiceFixtures.silenceOutput();
+        if (service.equals("user")) {
+            userService = ServiceFixtures.userService(USERS);
+        } else {
+            borrowService = ServiceFixtures.borrowService(RECORDS, USERS, USERS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        ServiceFixtures.restoreOutput(output);
+    }
+
+    private Object call(Client client) {
+        Random random = client.random;
+        boolean read = random.nextInt(100) < readPercent;
+        if (userService != null) {
+            String userId = ServiceFixtures.userId(random.nextInt(USERS));
+            if (read) {
+                return userService.findByUserId(userId);
+            }
+            return userService.updateUser(userId, NAMES[random.nextInt(NAMES.length)] + " " + random.nextInt(1000),
+                    "pw" + random.nextInt(1_000_000));
+        }
+        String borrowId = ServiceFixtures.borrowId(random.nextInt(RECORDS), RECORDS);
+        if (read) {
+            return borrowService.findByBorrowId(borrowId);
+        }
+        return borrowService.updateBorrowStatus(borrowId, random.nextInt(2));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object mix1(Client client) {
+        return call(client);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object mix4(Client client) {
+        return call(client);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object mix16(Client client) {
+        return call(client);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object mix64(Client client) {
+        return call(client);
+    }
+}
@@ -0,0 +1,121 @@
+package com.library.benchmarks;
+
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.model.User;
+import com.library.service.BookService;
+import com.library.service.BorrowService;
+import com.library.service.UserService;
+import com.library.tools.SyntheticData;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Services filled with generated data for the benchmarks
+ *
+ * Main job: Build a BookService, UserService or BorrowService holding a given number of rows,
+ * loaded the way Main loads the data files (load*() methods, no data file and no mutation log).
+ * The rows come from SyntheticData, the generator DatasetGenerator and MemoryFootprint also use,
+ * and the same count always gives the same data, so results can be compared across releases.
+ */
+final class ServiceFixtures {
+    // First day of the generated borrow dates and the number of days they spread over
+    static final LocalDate FIRST_DAY = SyntheticData.FIRST_DAY;
+    static final int DAYS = SyntheticData.DAYS;
+
+    private ServiceFixtures() {
+    }
+
+    /**
+     * Send System.out to nowhere (the services print a line for every change)
+     * @return The previous System.out, for restoreOutput()
+     */
+    static PrintStream silenceOutput() {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return original;
+    }
+
+    static void restoreOutput(PrintStream original) {
+        System.setOut(original);
+    }
+
+    // ISBN of the n-th generated book
+    static String isbn(long n) {
+        return SyntheticData.isbn(n);
+    }
+
+    // ID of the n-th generated user
+    static String userId(long n) {
+        return SyntheticData.userId(n);
+    }
+
+    // ID of the n-th of count generated borrow records
+    static String borrowId(long n, long count) {
+        return SyntheticData.borrowId(n, count);
+    }
+
+    static String author(int author) {
+        return SyntheticData.author(author);
+    }
+
+    /**
+     * Generate books
+     * @param count Number of books
+     * @param seed Random seed
+     * @return Books with ISBNs isbn(0) to isbn(count - 1)
+     */
+    static List<Book> books(int count, long seed) {
+        return toList(SyntheticData.books(count, seed), count);
+    }
+
+    static BookService bookService(int count) {
+        BookService bookService = new BookService();
+        bookService.loadBooks(books(count, 42));
+        return bookService;
+    }
+
+    /**
+     * Generate users
+     * @param count Number of users
+     * @param seed Random seed
+     * @return Users with IDs userId(0) to userId(count - 1)
+     */
+    static List<User> users(int count, long seed) {
+        return toList(SyntheticData.users(count, seed), count);
+    }
+
+    static UserService userService(int count) {
+        UserService userService = new UserService();
+        userService.loadUsers(users(count, 42));
+        return userService;
+    }
+
+    /**
+     * Generate borrow records (linked ones name userId(0..users-1) and isbn(0..books-1))
+     * @param count Number of records
+     * @param users Number of users the records may name
+     * @param books Number of books the records may name
+     * @param seed Random seed
+     * @return Records in ID order; record n has the ID borrowId(n, count)
+     */
+    static List<BorrowRecord> borrowRecords(int count, int users, int books, long seed) {
+        return toList(SyntheticData.borrowRecords(count, users, books, seed), count);
+    }
+
+    static BorrowService borrowService(int count, int users, int books) {
+        BorrowService borrowService = new BorrowService();
+        borrowService.loadBorrowRecords(borrowRecords(count, users, books, 42));
+        return borrowService;
+    }
+
+    private static <T> List<T> toList(Iterator<T> rows, int count) {
+        List<T> list = new ArrayList<>(count);
+        rows.forEachRemaining(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,83 @@
+package com.library.benchmarks;
+
+import com.library.model.User;
+import com.library.service.UserService;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * UserService: lookup by ID and name completion, with 1k, 100k and 1M users
+ *
+ * Lookups cycle through a fixed, seeded list of existing IDs; completions through typed prefixes
+ * of existing names (start of a name word, two to four characters, top 10).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g"})
+public class UserServiceBenchmark {
+    // Number of keys each benchmark cycles through (power of two)
+    private static final int KEYS = 1024;
+
+    @Param({"1000", "100000", "1000000"})
+    private int records;
+
+    private UserService userService;
+    private final String[] userIds = new String[KEYS];
+    private final String[] prefixes = new String[KEYS];
+    private int next = 0;
+    private PrintStream output;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        output = ServiceFixtures.silenceOutput();
+        List<User> users = ServiceFixtures.users(records, 42);
+        Random random = new Random(7);
+        for (int i = 0; i < KEYS; i++) {
+            User user = users.get(random.nextInt(records));
+            userIds[i] = user.getUserId();
+            String[] words = user.getUserName().split(" ");
+            String word = words[random.nextInt(words.length)];
+            prefixes[i] = word.substring(0, Math.min(word.length(), 2 + random.nextInt(3)));
+        }
+        userService = new UserService();
+        userService.loadUsers(users);
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        ServiceFixtures.restoreOutput(output);
+    }
+
+    private int nextKey() {
+        next = (next + 1) & (KEYS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public User findByUserId() {
+        return userService.findByUserId(userIds[nextKey()]);
+    }
+
+    @Benchmark
+    public List<User> completeUserName() {
+        return userService.completeUserName(prefixes[nextKey()], 10);
+    }
+}